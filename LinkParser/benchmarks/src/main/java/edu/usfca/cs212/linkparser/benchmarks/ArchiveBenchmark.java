@@ -0,0 +1,202 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import edu.usfca.cs212.linkparser.Link;
+import edu.usfca.cs212.linkparser.LinkArchiveReader;
+import edu.usfca.cs212.linkparser.LinkArchiveWriter;
+import edu.usfca.cs212.linkparser.LinkParser;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing and reading the links of a batch of documents as a binary archive with
+ * {@link LinkArchiveWriter} and {@link LinkArchiveReader}, compared with plain text with each link
+ * on its own line after its page (as output by the command-line tool). The size of both files is
+ * printed during setup. Writes go to a stream that discards the bytes, so only the cost of
+ * encoding is measured, and reads come from files that are already cached by the operating system.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveBenchmark {
+
+  /** The number of documents in the batch. */
+  @Param({"1000"})
+  public int documents;
+
+  /** The source of each document. */
+  private List<String> sources;
+
+  /** The links of each document. */
+  private List<List<Link>> links;
+
+  /** The batch written as an archive. */
+  private Path archive;
+
+  /** The batch written as text. */
+  private Path text;
+
+  /**
+   * Parses the synthetic documents and writes both files.
+   *
+   * @throws IOException if unable to write the files
+   */
+  @Setup
+  public void setup() throws IOException {
+    sources = new ArrayList<>();
+    links = new ArrayList<>();
+
+    for (int i = 0; i < documents; i++) {
+      String name = String.format("guten/%d-h/%d-h.htm", i, i);
+      sources.add(Pages.url(name).toString());
+      links.add(LinkParser.parseLinks(Pages.url(name), Pages.generate(name, 16 << 10, 100)));
+    }
+
+    archive = Files.createTempFile("links", ".lka");
+    text = Files.createTempFile("links", ".txt");
+
+    try (LinkArchiveWriter writer = new LinkArchiveWriter(archive)) {
+      writeArchive(writer);
+    }
+
+    try (Writer writer = Files.newBufferedWriter(text, StandardCharsets.UTF_8)) {
+      writeText(writer);
+    }
+
+    System.out.printf("%nArchive: %,d bytes, text: %,d bytes (%.1f%%)%n", Files.size(archive),
+        Files.size(text), 100.0 * Files.size(archive) / Files.size(text));
+  }
+
+  /**
+   * Deletes the files.
+   *
+   * @throws IOException if unable to delete the files
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(archive);
+    Files.deleteIfExists(text);
+  }
+
+  /**
+   * Writes the batch to an archive.
+   *
+   * @param writer the archive writer
+   * @throws IOException if unable to write
+   */
+  private void writeArchive(LinkArchiveWriter writer) throws IOException {
+    for (int i = 0; i < sources.size(); i++) {
+      writer.write(sources.get(i), links.get(i));
+    }
+  }
+
+  /**
+   * Writes the batch as text.
+   *
+   * @param writer the text writer
+   * @throws IOException if unable to write
+   */
+  private void writeText(Writer writer) throws IOException {
+    for (int i = 0; i < sources.size(); i++) {
+      for (Link link : links.get(i)) {
+        writer.write(sources.get(i));
+        writer.write('\t');
+        writer.write(link.toString());
+        writer.write('\n');
+      }
+    }
+  }
+
+  /**
+   * Encodes the batch as an archive.
+   *
+   * @return the number of bytes written
+   * @throws IOException if unable to write
+   */
+  @Benchmark
+  public long archiveWrite() throws IOException {
+    LinkArchiveWriter writer = new LinkArchiveWriter(OutputStream.nullOutputStream());
+    writeArchive(writer);
+    writer.close();
+    return writer.getBytes();
+  }
+
+  /**
+   * Encodes the batch as text.
+   *
+   * @return the number of documents written
+   * @throws IOException if unable to write
+   */
+  @Benchmark
+  public int textWrite() throws IOException {
+    Writer writer = new BufferedWriter(
+        new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8));
+    writeText(writer);
+    writer.close();
+    return sources.size();
+  }
+
+  /**
+   * Reads every link from the archive without creating any objects per link.
+   *
+   * @return the total length of the links
+   * @throws IOException if unable to read
+   */
+  @Benchmark
+  public long archiveRead() throws IOException {
+    long length = 0;
+
+    try (LinkArchiveReader reader = new LinkArchiveReader(archive)) {
+      while (reader.nextDocument()) {
+        while (reader.nextLink()) {
+          length += reader.getLink().length();
+        }
+      }
+    }
+
+    return length;
+  }
+
+  /**
+   * Reads every link from the text, one line at a time.
+   *
+   * @return the total length of the links
+   * @throws IOException if unable to read
+   */
+  @Benchmark
+  public long textRead() throws IOException {
+    long length = 0;
+
+    try (BufferedReader reader = Files.newBufferedReader(text, StandardCharsets.UTF_8)) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        length += line.length() - line.indexOf('\t') - 1;
+      }
+    }
+
+    return length;
+  }
+}
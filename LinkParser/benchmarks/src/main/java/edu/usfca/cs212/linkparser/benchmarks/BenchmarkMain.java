@@ -0,0 +1,42 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import java.io.IOException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks from the command line, accepting the usual JMH options. The GC profiler is
+ * always added, so the allocation rate is reported alongside the throughput and average time.
+ * For example:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar ListLinks -p page=birds/birds.html
+ * </pre>
+ */
+public class BenchmarkMain {
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args the JMH command-line options
+   * @throws IOException if unable to list the benchmarks
+   * @throws RunnerException if unable to run the benchmarks
+   * @throws CommandLineOptionException if the options are invalid
+   */
+  public static void main(String[] args)
+      throws IOException, RunnerException, CommandLineOptionException {
+    CommandLineOptions options = new CommandLineOptions(args);
+
+    if (options.shouldHelp() || options.shouldList() || options.shouldListProfilers()
+        || options.shouldListResultFormats() || options.shouldListWithParams()) {
+      org.openjdk.jmh.Main.main(args);
+      return;
+    }
+
+    new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+  }
+}
@@ -0,0 +1,86 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import edu.usfca.cs212.linkparser.AnchorScanner;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares searching bytes for anchor tags eight at a time with searching one byte at a time. The
+ * scalar search runs in a separate fork with the {@code linkparser.scalar} property set, since the
+ * choice is made once when the scanner class is loaded.
+ *
+ * @see AnchorScanner#WORD_SEARCH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CandidateBenchmark {
+
+  /** The page to scan, named after the remote test page it stands in for. */
+  @Param({"birds/birds.html", "guten/1400-h/1400-h.htm"})
+  public String page;
+
+  /** Whether to scan heap or direct bytes. */
+  @Param({"false", "true"})
+  public boolean direct;
+
+  /** The UTF-8 bytes of the page. */
+  private ByteBuffer bytes;
+
+  /** The number of values found by the current scan. */
+  private int count;
+
+  /** Counts the values found. */
+  private AnchorScanner scanner;
+
+  /**
+   * Loads and encodes the page.
+   */
+  @Setup
+  public void setup() {
+    String html = page.startsWith("guten") ? Pages.load(page, 2 << 20, 2000)
+        : Pages.load(page, 8 << 10, 40);
+    byte[] encoded = html.getBytes(StandardCharsets.UTF_8);
+    bytes = direct ? ByteBuffer.allocateDirect(encoded.length).put(encoded).flip()
+        : ByteBuffer.wrap(encoded);
+    scanner = new AnchorScanner((text, start, end) -> count++);
+  }
+
+  /**
+   * Scans the page using the search chosen by default.
+   *
+   * @return the number of values found
+   */
+  @Benchmark
+  public int words() {
+    count = 0;
+    scanner.scan(bytes, StandardCharsets.UTF_8);
+    return count;
+  }
+
+  /**
+   * Scans the page searching one byte at a time.
+   *
+   * @return the number of values found
+   */
+  @Benchmark
+  @Fork(value = 1, jvmArgsAppend = "-Dlinkparser.scalar=true")
+  public int scalar() {
+    return words();
+  }
+}
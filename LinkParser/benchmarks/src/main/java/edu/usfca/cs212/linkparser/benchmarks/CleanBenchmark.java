@@ -0,0 +1,59 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import edu.usfca.cs212.linkparser.LinkParser;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link LinkParser#clean(URL)} on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CleanBenchmark {
+
+  /** The url to clean. */
+  @Param({
+      "https://www.cs.usfca.edu/~cs212/simple/index.html",
+      "https://docs.python.org/3/library/functions.html?highlight=string#format",
+      "https://www.google.com/search?q=hello world"})
+  public String link;
+
+  /** The parsed url to clean. */
+  private URL url;
+
+  /**
+   * Parses the url.
+   *
+   * @throws MalformedURLException if unable to create the url
+   */
+  @Setup
+  public void setup() throws MalformedURLException {
+    url = new URL(link);
+  }
+
+  /**
+   * Cleans the url.
+   *
+   * @return the cleaned url
+   */
+  @Benchmark
+  public URL clean() {
+    return LinkParser.clean(url);
+  }
+}
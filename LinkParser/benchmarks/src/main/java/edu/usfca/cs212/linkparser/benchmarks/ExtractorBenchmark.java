@@ -0,0 +1,105 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import edu.usfca.cs212.linkparser.Link;
+import edu.usfca.cs212.linkparser.LinkExtractor;
+import edu.usfca.cs212.linkparser.LinkParser;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing the same page over and over with a reused {@link LinkExtractor}, compared with
+ * the static {@link LinkParser#parseLinks(URL, String)} (which returns a new list every time).
+ * Every link is already in the link cache after the first page, so the allocation rate reported by
+ * {@link BenchmarkMain} is the steady-state allocation per page: only the list of results for the
+ * static method, and nothing at all for the extractor, even when scanning a direct buffer.
+ *
+ * @see ListLinksBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractorBenchmark {
+
+  /** The page to parse, named after the remote test page it stands in for. */
+  @Param({"simple/index.html", "birds/birds.html"})
+  public String page;
+
+  /** The base url of the page. */
+  private URL base;
+
+  /** The html of the page. */
+  private String html;
+
+  /** The html of the page as UTF-8 bytes outside of the heap. */
+  private ByteBuffer bytes;
+
+  /** The extractor reused for every page. */
+  private LinkExtractor extractor;
+
+  /**
+   * Loads the page and creates the extractor.
+   */
+  @Setup
+  public void setup() {
+    base = Pages.url(page);
+    html = page.startsWith("birds")
+        ? Pages.load(page, 8 << 10, 40)
+        : Pages.load(page, 2 << 10, 10);
+
+    byte[] encoded = html.getBytes(StandardCharsets.UTF_8);
+    bytes = ByteBuffer.allocateDirect(encoded.length);
+    bytes.put(encoded).flip();
+
+    extractor = new LinkExtractor();
+  }
+
+  /**
+   * Parses the links of the page with the static method.
+   *
+   * @return the links
+   */
+  @Benchmark
+  public ArrayList<Link> parseStatic() {
+    return LinkParser.parseLinks(base, html);
+  }
+
+  /**
+   * Parses the links of the page with the reused extractor.
+   *
+   * @return the number of links
+   */
+  @Benchmark
+  public int parseReused() {
+    List<Link> links = extractor.parseLinks(base, html);
+    return links.size();
+  }
+
+  /**
+   * Parses the links of the page bytes with the reused extractor.
+   *
+   * @return the number of links
+   */
+  @Benchmark
+  public int parseBytes() {
+    List<Link> links = extractor.parseLinks(base, bytes, StandardCharsets.UTF_8);
+    return links.size();
+  }
+}
@@ -0,0 +1,92 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import edu.usfca.cs212.linkparser.IncrementalLinkParser;
+import edu.usfca.cs212.linkparser.Link;
+import edu.usfca.cs212.linkparser.LinkParser;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares parsing a new version of a page from scratch with parsing it incrementally against the
+ * snapshot of the previous version, for an identical page and a page with a single small edit.
+ *
+ * @see ListLinksBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IncrementalBenchmark {
+
+  /** The page to parse, named after the remote test page it stands in for. */
+  @Param({"birds/birds.html", "guten/1400-h/1400-h.htm"})
+  public String page;
+
+  /** Whether the new version has a link inserted in the middle, or is identical. */
+  @Param({"edited", "identical"})
+  public String version;
+
+  /** The base url of the page. */
+  private URL base;
+
+  /** The snapshot of the previous version of the page. */
+  private IncrementalLinkParser.Snapshot previous;
+
+  /** The bytes of the new version of the page. */
+  private byte[] html;
+
+  /**
+   * Loads the page and parses the previous version.
+   */
+  @Setup
+  public void setup() {
+    base = Pages.url(page);
+    String text = page.startsWith("guten") ? Pages.load(page, 2 << 20, 2000)
+        : Pages.load(page, 8 << 10, 40);
+
+    previous = IncrementalLinkParser.parse(base, text);
+
+    if (version.equals("edited")) {
+      int middle = text.indexOf('<', text.length() / 2);
+      text = text.substring(0, middle) + "<a href=\"edited.html\">new</a>" + text.substring(middle);
+    }
+
+    html = text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Parses the new version from scratch.
+   *
+   * @return the links
+   */
+  @Benchmark
+  public List<Link> full() {
+    return LinkParser.parseLinks(base, ByteBuffer.wrap(html), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Parses the new version against the snapshot of the previous version.
+   *
+   * @return the links
+   */
+  @Benchmark
+  public List<Link> incremental() {
+    return IncrementalLinkParser.parse(previous, html).getLinks();
+  }
+}
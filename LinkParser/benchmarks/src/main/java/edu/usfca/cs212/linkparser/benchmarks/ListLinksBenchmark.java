@@ -0,0 +1,79 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import edu.usfca.cs212.linkparser.Anchors;
+import edu.usfca.cs212.linkparser.LinkParser;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link LinkParser#listLinks(URL, String)} on mid-size pages and a multi-megabyte page,
+ * along with finding only the locations of the anchors using {@link Anchors}.
+ *
+ * @see SnippetsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListLinksBenchmark {
+
+  /** The page to parse, named after the remote test page it stands in for. */
+  @Param({"simple/index.html", "birds/birds.html", "guten/1400-h/1400-h.htm"})
+  public String page;
+
+  /** The base url of the page. */
+  private URL base;
+
+  /** The html of the page. */
+  private String html;
+
+  /**
+   * Loads the page.
+   */
+  @Setup
+  public void setup() {
+    base = Pages.url(page);
+
+    if (page.startsWith("guten")) {
+      html = Pages.load(page, 2 << 20, 2000);
+    } else if (page.startsWith("birds")) {
+      html = Pages.load(page, 8 << 10, 40);
+    } else {
+      html = Pages.load(page, 2 << 10, 10);
+    }
+  }
+
+  /**
+   * Lists the links of the page.
+   *
+   * @return the links
+   */
+  @Benchmark
+  public ArrayList<URL> page() {
+    return LinkParser.listLinks(base, html);
+  }
+
+  /**
+   * Counts the anchors of the page without resolving or copying any href values.
+   *
+   * @return the number of anchors
+   */
+  @Benchmark
+  public int anchors() {
+    return Anchors.extract(base, html).size();
+  }
+}
@@ -0,0 +1,137 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import edu.usfca.cs212.linkparser.AnchorScanner;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of skipping comments and script and style elements within the
+ * {@link AnchorScanner}, compared with scanning them like any other markup and with the usual
+ * approach of removing them with regular expressions before scanning. The pages are synthetic so
+ * the share of the page within comments and scripts can be controlled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarkupBenchmark {
+
+  /** Removes comments, CDATA sections and script and style elements, one pattern at a time. */
+  private static final Pattern[] STRIP = {
+      Pattern.compile("(?s)<!--.*?-->"),
+      Pattern.compile("(?s)<!\\[CDATA\\[.*?\\]\\]>"),
+      Pattern.compile("(?is)<script\\b.*?</script\\s*>"),
+      Pattern.compile("(?is)<style\\b.*?</style\\s*>")};
+
+  /** The approximate size of the page in characters. */
+  @Param({"65536", "2097152"})
+  public int size;
+
+  /** The percent of the page within comments and script and style elements. */
+  @Param({"0", "25", "50"})
+  public int percent;
+
+  /** The html of the page. */
+  private String html;
+
+  /** The number of values found by the current scan. */
+  private int count;
+
+  /** Counts the values found, skipping comments. */
+  private AnchorScanner skipping;
+
+  /** Counts the values found, scanning comments like any other markup. */
+  private AnchorScanner reporting;
+
+  /**
+   * Generates the page by mixing commented-out copies of its paragraphs and scripts that write
+   * links into a synthetic page.
+   */
+  @Setup
+  public void setup() {
+    String page = Pages.generate("markup", size, size / 1024);
+    String[] lines = page.split("(?<=</p>)\n");
+    StringBuilder mixed = new StringBuilder(page.length() * 2);
+    Random random = new Random(size);
+    long markup = 0;
+
+    for (String line : lines) {
+      mixed.append(line).append('\n');
+
+      if (markup * 100 < (long) mixed.length() * percent) {
+        int start = mixed.length();
+
+        if (random.nextBoolean()) {
+          mixed.append("<!-- ").append(line).append(" -->\n");
+        } else {
+          mixed.append("<script type=\"text/javascript\">\nvar html = '");
+          mixed.append(line.replace("'", "\\'")).append("';\ndocument.write(html);\n</script>\n");
+        }
+
+        markup += mixed.length() - start;
+      }
+    }
+
+    html = mixed.toString();
+    skipping = new AnchorScanner((text, start, end) -> count++);
+    reporting = new AnchorScanner((text, start, end) -> count++);
+    reporting.setReportComments(true);
+  }
+
+  /**
+   * Scans the page, skipping comments and script and style elements.
+   *
+   * @return the number of values found
+   */
+  @Benchmark
+  public int skip() {
+    count = 0;
+    skipping.scan(html);
+    return count;
+  }
+
+  /**
+   * Scans the page, scanning comments like any other markup.
+   *
+   * @return the number of values found
+   */
+  @Benchmark
+  public int report() {
+    count = 0;
+    reporting.scan(html);
+    return count;
+  }
+
+  /**
+   * Removes comments, CDATA sections and script and style elements with regular expressions
+   * before scanning the page.
+   *
+   * @return the number of values found
+   */
+  @Benchmark
+  public int strip() {
+    String stripped = html;
+
+    for (Pattern pattern : STRIP) {
+      stripped = pattern.matcher(stripped).replaceAll("");
+    }
+
+    count = 0;
+    reporting.scan(stripped);
+    return count;
+  }
+}
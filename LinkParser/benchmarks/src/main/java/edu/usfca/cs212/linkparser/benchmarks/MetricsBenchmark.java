@@ -0,0 +1,85 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import edu.usfca.cs212.linkparser.Link;
+import edu.usfca.cs212.linkparser.LinkMetrics;
+import edu.usfca.cs212.linkparser.LinkParser;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the overhead of collecting {@link LinkMetrics} while parsing pages, compared with
+ * parsing them without any metrics installed. Small pages show the fixed cost per page and the
+ * large page shows the cost per href value. The allocation rate reported by
+ * {@link BenchmarkMain} shows the metrics allocate nothing per page once each thread has its
+ * counters.
+ *
+ * @see ListLinksBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+
+  /** The page to parse, named after the remote test page it stands in for. */
+  @Param({"simple/index.html", "guten/1400-h/1400-h.htm"})
+  public String page;
+
+  /** Which metrics are installed: none, counters only, or counters and latency histograms. */
+  @Param({"disabled", "counters", "histograms"})
+  public String metrics;
+
+  /** The base url of the page. */
+  private URL base;
+
+  /** The html of the page. */
+  private String html;
+
+  /**
+   * Loads the page and installs the metrics.
+   */
+  @Setup
+  public void setup() {
+    base = Pages.url(page);
+    html = page.startsWith("guten")
+        ? Pages.load(page, 2 << 20, 2000)
+        : Pages.load(page, 2 << 10, 10);
+
+    if (!metrics.equals("disabled")) {
+      LinkMetrics.install(new LinkMetrics(metrics.equals("histograms")));
+    }
+  }
+
+  /**
+   * Removes the installed metrics.
+   */
+  @TearDown
+  public void tearDown() {
+    LinkMetrics.install(null);
+  }
+
+  /**
+   * Parses the links of the page.
+   *
+   * @return the links
+   */
+  @Benchmark
+  public ArrayList<Link> parse() {
+    return LinkParser.parseLinks(base, html);
+  }
+}
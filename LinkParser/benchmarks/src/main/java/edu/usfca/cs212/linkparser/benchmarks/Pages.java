@@ -0,0 +1,167 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Provides the HTML used by the benchmarks without any network access. Local copies of the remote
+ * pages are stored by host and path, and are loaded from the directory given by the
+ * {@code linkparser.fixtures} system property if set, then from the {@code fixtures} directory on
+ * the classpath (which the build fills from the copies committed in
+ * {@code LinkParser/test/fixtures}). If no local copy of a page exists, a synthetic page of about
+ * the same size and link density is generated instead, always with the same content, and a warning
+ * is printed since the results are then not comparable with runs that used the local copy.
+ */
+public class Pages {
+
+  /** The url the remote test pages are found under. */
+  public static final String REMOTE = "https://www.cs.usfca.edu/~cs212/";
+
+  /** The path local copies of the remote test pages are stored under. */
+  public static final String FIXTURE = "www.cs.usfca.edu/~cs212/";
+
+  /** The small snippets used by the local link tests. */
+  public static final List<String> SNIPPETS = List.of(
+      "<a href=\"http://www.usfca.edu/\">",
+      "<a href=\"http://docs.python.org/library/string.html?highlight=string#module-string\">",
+      "<A HREF=\"HTTP://WWW.USFCA.EDU\">",
+      "<A hREf=\"http://www.usfca.edu\">",
+      "<a href = \"http://www.usfca.edu\" >",
+      "<a href = \n \"http://www.usfca.edu\">",
+      "<a\n\nhref\n=\n\"http://www.usfca.edu\"\n>",
+      "<p><a href=\"http://www.usfca.edu\">USFCA</a> is in San Francisco.</p>",
+      "<a href=\"index.html\">",
+      "<a name=\"home\" href=\"index.html\">",
+      "<a href=\"index.html\" class=\"primary\">",
+      "<a name=\"home\" target=\"_top\" href=\"index.html\" id=\"home\" accesskey=\"A\">",
+      "<a name = \"home\">",
+      "<h1>Home</h1>",
+      "<a name=href>The href = \"link\" attribute is useful.</a>",
+      "<link rel=\"stylesheet\" type=\"text/css\" href=\"style.css\">",
+      "<p>The a href=\"http://www.google.com\" attribute is often used in HTML.</p>");
+
+  /** Words used to generate synthetic text. */
+  private static final String[] WORDS = {
+      "the", "of", "and", "a", "to", "in", "that", "it", "was", "he", "I", "his", "you", "with",
+      "had", "as", "for", "at", "my", "be", "not", "on", "Joe", "said", "which", "her", "Pip",
+      "Miss", "Havisham", "Estella", "great", "expectations", "marshes", "forge", "London"};
+
+  /**
+   * Returns the absolute url of a remote test page.
+   *
+   * @param name the path of the page relative to {@link #REMOTE}
+   * @return the url of the page
+   */
+  public static URL url(String name) {
+    try {
+      return new URL(REMOTE + name);
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException(name, e);
+    }
+  }
+
+  /**
+   * Returns the HTML of a remote test page from a local copy, or a synthetic page with about the
+   * provided number of characters and links if there is no local copy.
+   *
+   * @param name the path of the page relative to {@link #REMOTE}
+   * @param size the approximate size of a synthetic page
+   * @param links the approximate number of links in a synthetic page
+   * @return the html of the page
+   */
+  public static String load(String name, int size, int links) {
+    try {
+      String directory = System.getProperty("linkparser.fixtures");
+
+      if (directory != null) {
+        Path path = Path.of(directory, FIXTURE + name);
+
+        if (Files.isReadable(path)) {
+          return Files.readString(path, StandardCharsets.UTF_8);
+        }
+      }
+
+      try (InputStream stream = Pages.class.getResourceAsStream("/fixtures/" + FIXTURE + name)) {
+        if (stream != null) {
+          return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    System.err.printf("Warning: no local copy of %s, so a synthetic page is used instead.%n",
+        name);
+    return generate(name, size, links);
+  }
+
+  /**
+   * Generates a synthetic page with a mix of text, formatting tags, anchors without links and
+   * relative, absolute and fragment links. The same name always produces the same page.
+   *
+   * @param name the name of the page
+   * @param size the approximate number of characters
+   * @param links the approximate number of links
+   * @return the html of the page
+   */
+  public static String generate(String name, int size, int links) {
+    Random random = new Random(name.hashCode());
+    StringBuilder html = new StringBuilder(size + 1024);
+    int paragraph = Math.max(64, size / Math.max(1, links));
+
+    html.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"utf-8\">\n");
+    html.append("<title>").append(name).append("</title>\n");
+    html.append("<link rel=\"stylesheet\" type=\"text/css\" href=\"style.css\">\n");
+    html.append("</head>\n<body>\n");
+
+    for (int i = 0; html.length() < size; i++) {
+      if (i % 20 == 0) {
+        html.append(String.format("<h2><a name=\"link2H_4_%04d\" id=\"link2H_4_%04d\">", i, i));
+        html.append("Chapter ").append(i / 20 + 1).append("</a></h2>\n");
+      }
+
+      html.append("<p class=\"text\">");
+      int start = html.length();
+
+      while (html.length() - start < paragraph) {
+        html.append(WORDS[random.nextInt(WORDS.length)]);
+        html.append(random.nextInt(12) == 0 ? ", " : " ");
+
+        if (random.nextInt(40) == 0) {
+          html.append("<i>").append(WORDS[random.nextInt(WORDS.length)]).append("</i> ");
+        }
+      }
+
+      switch (random.nextInt(4)) {
+        case 0:
+          html.append(String.format("<a href=\"#link2H_4_%04d\">back</a>", i - i % 20));
+          break;
+        case 1:
+          html.append(String.format("<a href=\"chapter%d.html\" class=\"pginternal\">", i));
+          html.append("next</a>");
+          break;
+        case 2:
+          html.append(String.format("<a href=\"images/%04d.jpg\"><img src=\"images/%04d.jpg\" "
+              + "alt=\"illustration\"></a>", i, i));
+          break;
+        default:
+          html.append(String.format("<a\n href=\"https://www.gutenberg.org/ebooks/%d\"\n>", i));
+          html.append("ebook</a>");
+          break;
+      }
+
+      html.append("</p>\n");
+    }
+
+    html.append("</body>\n</html>\n");
+    return html.toString();
+  }
+}
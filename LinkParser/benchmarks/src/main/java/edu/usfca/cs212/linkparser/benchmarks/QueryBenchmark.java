@@ -0,0 +1,116 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import edu.usfca.cs212.linkparser.Link;
+import edu.usfca.cs212.linkparser.LinkCache;
+import edu.usfca.cs212.linkparser.LinkExtractor;
+import edu.usfca.cs212.linkparser.LinkFilter;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares finding every link of a large page with finding only some of them. A limit stops the
+ * scan early, and a filter on the host skips the relative links without resolving them, which
+ * matters most when the links are not already in the link cache.
+ *
+ * @see LinkFilter
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+  /** The page to parse, named after the remote test page it stands in for. */
+  @Param({"guten/1400-h/1400-h.htm"})
+  public String page;
+
+  /** Whether links are resolved using the shared link cache. */
+  @Param({"false", "true"})
+  public boolean cached;
+
+  /** The base url of the page. */
+  private URL base;
+
+  /** The html of the page. */
+  private String html;
+
+  /** Only accepts the links to other hosts on the page. */
+  private LinkFilter external;
+
+  /** The extractor reused for every page. */
+  private LinkExtractor extractor;
+
+  /**
+   * Loads the page and creates the extractor.
+   */
+  @Setup
+  public void setup() {
+    base = Pages.url(page);
+    html = Pages.load(page, 2 << 20, 2000);
+    external = LinkFilter.host("www.gutenberg.org");
+    extractor = new LinkExtractor(cached ? LinkCache.shared() : null);
+  }
+
+  /**
+   * Parses every link of the page.
+   *
+   * @return the number of links
+   */
+  @Benchmark
+  public int parseAll() {
+    return extractor.parseLinks(base, html).size();
+  }
+
+  /**
+   * Counts every link of the page without collecting them.
+   *
+   * @return the number of links
+   */
+  @Benchmark
+  public int countAll() {
+    return extractor.countLinks(base, html, LinkFilter.ANY);
+  }
+
+  /**
+   * Counts the links to other hosts, skipping the relative links without resolving them.
+   *
+   * @return the number of links
+   */
+  @Benchmark
+  public int countExternal() {
+    return extractor.countLinks(base, html, external);
+  }
+
+  /**
+   * Parses the first ten links of the page.
+   *
+   * @return the number of links
+   */
+  @Benchmark
+  public int parseFirstTen() {
+    return extractor.parseLinks(base, html, LinkFilter.ANY, 10).size();
+  }
+
+  /**
+   * Finds the first link to another host.
+   *
+   * @return the link
+   */
+  @Benchmark
+  public Link firstExternal() {
+    return extractor.firstLink(base, html, external);
+  }
+}
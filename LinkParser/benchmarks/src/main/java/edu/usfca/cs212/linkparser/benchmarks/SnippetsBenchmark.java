@@ -0,0 +1,46 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import edu.usfca.cs212.linkparser.LinkParser;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link LinkParser#listLinks(URL, String)} on the small snippets from the local tests,
+ * where the fixed cost per call matters more than the scanning speed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnippetsBenchmark {
+
+  /** The base url of the snippets. */
+  private final URL base = Pages.url("");
+
+  /**
+   * Lists the links of every snippet.
+   *
+   * @param blackhole consumes the links
+   */
+  @Benchmark
+  public void snippets(Blackhole blackhole) {
+    List<String> snippets = Pages.SNIPPETS;
+
+    for (int i = 0; i < snippets.size(); i++) {
+      blackhole.consume(LinkParser.listLinks(base, snippets.get(i)));
+    }
+  }
+}
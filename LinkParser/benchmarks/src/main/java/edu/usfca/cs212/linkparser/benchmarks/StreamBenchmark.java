@@ -0,0 +1,105 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import edu.usfca.cs212.linkparser.Link;
+import edu.usfca.cs212.linkparser.LinkParser;
+import edu.usfca.cs212.linkparser.LinkSpliterator;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the lazy stream of links with building the full list of links first, both when every
+ * link is used and when only the first few are. Parallel streams only help with more than one
+ * core, since the page itself is always scanned by one thread.
+ *
+ * @see LinkSpliterator
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamBenchmark {
+
+  /** The page to parse, named after the remote test page it stands in for. */
+  @Param({"guten/1400-h/1400-h.htm"})
+  public String page;
+
+  /** The base url of the page. */
+  private URL base;
+
+  /** The html of the page. */
+  private String html;
+
+  /**
+   * Loads the page.
+   */
+  @Setup
+  public void setup() {
+    base = Pages.url(page);
+    html = Pages.load(page, 2 << 20, 2000);
+  }
+
+  /**
+   * Builds the full list of links.
+   *
+   * @return the links
+   */
+  @Benchmark
+  public List<Link> listAll() {
+    return LinkParser.parseLinks(base, html);
+  }
+
+  /**
+   * Collects every link from a sequential stream.
+   *
+   * @return the links
+   */
+  @Benchmark
+  public List<Link> streamAll() {
+    return LinkParser.streamLinks(base, html).collect(Collectors.toList());
+  }
+
+  /**
+   * Collects every link from a parallel stream.
+   *
+   * @return the links
+   */
+  @Benchmark
+  public List<Link> parallelAll() {
+    return LinkParser.streamLinks(base, html).parallel().collect(Collectors.toList());
+  }
+
+  /**
+   * Builds the full list of links to use the first ten.
+   *
+   * @return the links
+   */
+  @Benchmark
+  public List<Link> listFirstTen() {
+    return LinkParser.parseLinks(base, html).subList(0, 10);
+  }
+
+  /**
+   * Takes the first ten links from a stream.
+   *
+   * @return the links
+   */
+  @Benchmark
+  public List<Link> streamFirstTen() {
+    return LinkParser.streamLinks(base, html).limit(10).collect(Collectors.toList());
+  }
+}
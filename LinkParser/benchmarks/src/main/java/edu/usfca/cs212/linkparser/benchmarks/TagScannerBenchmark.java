@@ -0,0 +1,86 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import edu.usfca.cs212.linkparser.AnchorScanner;
+import edu.usfca.cs212.linkparser.TagRule;
+import edu.usfca.cs212.linkparser.TagScanner;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how the cost of a {@link TagScanner} scan changes as rules are added, compared with
+ * the {@link AnchorScanner} that only finds anchors. Values are counted but not resolved, so only
+ * the scan itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TagScannerBenchmark {
+
+  /** The page to scan, named after the remote test page it stands in for. */
+  @Param({"birds/birds.html", "guten/1400-h/1400-h.htm"})
+  public String page;
+
+  /** The number of predefined rules to scan for, starting with the anchor rule. */
+  @Param({"1", "3", "6"})
+  public int rules;
+
+  /** The html of the page. */
+  private String html;
+
+  /** The scanner with the requested number of rules. */
+  private TagScanner scanner;
+
+  /** The number of values found by the current scan. */
+  private int count;
+
+  /** Counts the values found by the anchor scanner. */
+  private AnchorScanner anchors;
+
+  /**
+   * Loads the page and compiles the scanner.
+   */
+  @Setup
+  public void setup() {
+    html = page.startsWith("guten") ? Pages.load(page, 2 << 20, 2000)
+        : Pages.load(page, 8 << 10, 40);
+    scanner = new TagScanner(TagRule.RESOURCES.subList(0, rules));
+    anchors = new AnchorScanner((text, start, end) -> count++);
+  }
+
+  /**
+   * Scans the page with the multi-rule scanner.
+   *
+   * @return the number of values found
+   */
+  @Benchmark
+  public int tags() {
+    count = 0;
+    scanner.scan(html, (rule, text, start, end) -> count++);
+    return count;
+  }
+
+  /**
+   * Scans the page with the anchor scanner.
+   *
+   * @return the number of values found
+   */
+  @Benchmark
+  public int anchors() {
+    count = 0;
+    anchors.scan(html);
+    return count;
+  }
+}
@@ -0,0 +1,101 @@
+package edu.usfca.cs212.linkparser.benchmarks;
+
+import edu.usfca.cs212.linkparser.VisitedSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of adding links to a visited set shared by several threads, comparing
+ * the tiers of {@link VisitedSet} to a synchronized and a concurrent hash set. The links are taken
+ * from a fixed pool, so early adds are mostly new links and later adds mostly duplicates, much like
+ * a real crawl. Use {@code -t} to change the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class VisitedSetBenchmark {
+
+  /** Number of unique links in the pool. */
+  private static final int POOL = 1 << 20;
+
+  /** The set being measured. */
+  @Param({"exact", "exact+filter", "filter", "concurrent", "synchronized"})
+  public String set;
+
+  /** The pool of links to add. */
+  private String[] links;
+
+  /** Adds a link to the set being measured. */
+  private Predicate<String> add;
+
+  /**
+   * Creates the pool of links.
+   */
+  @Setup(Level.Trial)
+  public void setupLinks() {
+    links = new String[POOL];
+
+    for (int i = 0; i < POOL; i++) {
+      links[i] = String.format("https://host%d.example.com/path/to/page%d.html?q=%d",
+          i % 997, i, i % 13);
+    }
+  }
+
+  /**
+   * Creates an empty set before each iteration.
+   */
+  @Setup(Level.Iteration)
+  public void setupSet() {
+    switch (set) {
+      case "exact":
+        add = new VisitedSet()::add;
+        break;
+      case "exact+filter":
+        add = new VisitedSet(VisitedSet.DEFAULT_STRIPES, POOL, 0.01)::add;
+        break;
+      case "filter":
+        add = VisitedSet.approximate(POOL, 0.01)::add;
+        break;
+      case "concurrent":
+        add = ConcurrentHashMap.<String>newKeySet()::add;
+        break;
+      default:
+        Set<String> synced = Collections.synchronizedSet(new HashSet<>());
+        add = synced::add;
+        break;
+    }
+  }
+
+  /**
+   * Adds a copy of a random link from the pool. Copying matches a crawl, where each link is a new
+   * string whose hash code has not been computed yet.
+   *
+   * @return whether the link was new
+   */
+  @Benchmark
+  public boolean add() {
+    return add.test(new String(links[ThreadLocalRandom.current().nextInt(POOL)]));
+  }
+}
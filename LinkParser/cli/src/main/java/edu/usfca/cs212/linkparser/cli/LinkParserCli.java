@@ -0,0 +1,297 @@
+package edu.usfca.cs212.linkparser.cli;
+
+import edu.usfca.cs212.linkparser.AnchorScanner;
+import edu.usfca.cs212.linkparser.CharsetSniffer;
+import edu.usfca.cs212.linkparser.CorpusLinkParser;
+import edu.usfca.cs212.linkparser.Link;
+import edu.usfca.cs212.linkparser.LinkArchiveWriter;
+import edu.usfca.cs212.linkparser.LinkMetrics;
+import edu.usfca.cs212.linkparser.LinkParser;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists the links found in remote web pages and local HTML files from the command line. Each link
+ * is output on its own line after the page or file it was found in, separated by a tab.
+ *
+ * <p>Remote pages may also be saved into a directory by host and path, which is how the local
+ * copies of the remote test pages are created. For large batches, the links may instead be written
+ * to a compact binary archive that can be read with
+ * {@link edu.usfca.cs212.linkparser.LinkArchiveReader}.
+ *
+ * @see LinkParser
+ * @see CorpusLinkParser
+ */
+public class LinkParserCli {
+
+  /** Usage message for the command-line options. */
+  private static final String USAGE = "Usage: linkparser [-base url] [-charset name] [-save dir] "
+      + "[-list file] [-archive file] [-quiet] [-metrics] (url | path)...";
+
+  /** Timeout used when connecting to and reading from remote pages, in milliseconds. */
+  private static final int TIMEOUT = 30000;
+
+  /** Base url for local files, or null to use the file urls. */
+  private URL base;
+
+  /** Encoding of the files, and of the pages that do not declare one. */
+  private Charset charset;
+
+  /** Directory to save remote pages in, or null if they should not be saved. */
+  private Path save;
+
+  /** File to write the links to as a binary archive, or null to output them as text. */
+  private Path archive;
+
+  /** Writes the archive while running, or null if not writing an archive. */
+  private LinkArchiveWriter archiveWriter;
+
+  /** The page or file the links being written to the archive were found in. */
+  private String document;
+
+  /** Whether to skip outputting the links. */
+  private boolean quiet;
+
+  /** Whether to output metrics for the pages and files parsed when finished. */
+  private boolean metrics;
+
+  /** Remote urls and local paths to parse, in order. */
+  private final List<String> inputs;
+
+  /**
+   * Initializes the command-line tool with the default options.
+   */
+  public LinkParserCli() {
+    this.charset = StandardCharsets.UTF_8;
+    this.inputs = new ArrayList<>();
+  }
+
+  /**
+   * Parses the command-line arguments.
+   *
+   * @param args the command-line arguments
+   * @throws IOException if unable to read a list of inputs
+   * @throws IllegalArgumentException if an argument is invalid
+   */
+  public void parseArguments(String[] args) throws IOException {
+    for (int i = 0; i < args.length; i++) {
+      boolean value = i + 1 < args.length;
+
+      if (args[i].equals("-base") && value) {
+        base = new URL(args[++i]);
+      } else if (args[i].equals("-charset") && value) {
+        charset = Charset.forName(args[++i]);
+      } else if (args[i].equals("-save") && value) {
+        save = Path.of(args[++i]);
+      } else if (args[i].equals("-list") && value) {
+        for (String line : Files.readAllLines(Path.of(args[++i]), StandardCharsets.UTF_8)) {
+          line = line.strip();
+
+          if (!line.isEmpty() && !line.startsWith("#")) {
+            inputs.add(line);
+          }
+        }
+      } else if (args[i].equals("-archive") && value) {
+        archive = Path.of(args[++i]);
+      } else if (args[i].equals("-quiet")) {
+        quiet = true;
+      } else if (args[i].equals("-metrics")) {
+        metrics = true;
+      } else if (args[i].startsWith("-")) {
+        throw new IllegalArgumentException("Unknown option: " + args[i]);
+      } else {
+        inputs.add(args[i]);
+      }
+    }
+  }
+
+  /**
+   * Parses every input, writing the links found to the writer (or to the archive if requested).
+   *
+   * @param writer the writer for the links
+   * @return the number of inputs that could not be parsed
+   * @throws IOException if unable to write the links
+   */
+  public int run(Writer writer) throws IOException {
+    if (archive == null) {
+      return parseInputs(writer);
+    }
+
+    try (LinkArchiveWriter archived = new LinkArchiveWriter(archive)) {
+      archiveWriter = archived;
+      return parseInputs(writer);
+    } finally {
+      archiveWriter = null;
+      document = null;
+    }
+  }
+
+  /**
+   * Parses every input, writing the links found.
+   *
+   * @param writer the writer for the links
+   * @return the number of inputs that could not be parsed
+   * @throws IOException if unable to write the links
+   */
+  private int parseInputs(Writer writer) throws IOException {
+    int failed = 0;
+    CorpusLinkParser corpus = new CorpusLinkParser(charset, (file, link) -> {
+      output(writer, file.toString(), link);
+    });
+
+    for (String input : inputs) {
+      try {
+        if (isRemote(input)) {
+          fetch(new URL(input), writer);
+        } else {
+          long before = corpus.getFailed();
+          corpus.parse(Path.of(input), base);
+          failed += corpus.getFailed() - before;
+        }
+      } catch (IOException | UncheckedIOException e) {
+        System.err.printf("Unable to parse %s: %s%n", input, e.getMessage());
+        failed++;
+      }
+    }
+
+    writer.flush();
+    return failed;
+  }
+
+  /**
+   * Fetches a remote page, saving it if requested, and writes the links found.
+   *
+   * @param url the url of the page
+   * @param writer the writer for the links
+   * @throws IOException if unable to fetch or save the page
+   */
+  private void fetch(URL url, Writer writer) throws IOException {
+    URLConnection connection = url.openConnection();
+    connection.setConnectTimeout(TIMEOUT);
+    connection.setReadTimeout(TIMEOUT);
+
+    byte[] html;
+
+    try (InputStream input = connection.getInputStream()) {
+      html = input.readAllBytes();
+    }
+
+    if (save != null) {
+      Path path = save.resolve(url.getHost() + url.getPath());
+      path = url.getPath().isEmpty() || url.getPath().endsWith("/")
+          ? path.resolve("index.html") : path;
+
+      Files.createDirectories(path.toAbsolutePath().getParent());
+      Files.write(path, html);
+    }
+
+    // the encoding declared by the page is used before the header or the -charset option
+    Charset header = CharsetSniffer.fromContentType(connection.getContentType());
+    Charset hint = header == null ? charset : header;
+    Charset detected = CharsetSniffer.detect(ByteBuffer.wrap(html), hint);
+
+    List<Link> links = AnchorScanner.isAsciiCompatible(detected)
+        ? LinkParser.parseLinks(url, ByteBuffer.wrap(html), detected)
+        : LinkParser.parseLinks(url, CharsetSniffer.decode(html, detected));
+
+    for (Link link : links) {
+      output(writer, url.toString(), link);
+    }
+  }
+
+  /**
+   * Writes a single link and where it was found, unless quiet. Consecutive links from the same
+   * page or file are written to the archive as a single document.
+   *
+   * @param writer the writer for the links
+   * @param source the page or file the link was found in
+   * @param link the link found
+   */
+  private void output(Writer writer, String source, Link link) {
+    if (quiet) {
+      return;
+    }
+
+    try {
+      if (archiveWriter != null) {
+        if (!source.equals(document)) {
+          archiveWriter.startDocument(source);
+          document = source;
+        }
+
+        archiveWriter.add(link);
+        return;
+      }
+
+      writer.write(source);
+      writer.write('\t');
+      writer.write(link.toString());
+      writer.write('\n');
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Tests whether an input is a remote url rather than a local path.
+   *
+   * @param input the input to test
+   * @return true if the input starts with http:// or https://
+   */
+  private static boolean isRemote(String input) {
+    String lower = input.toLowerCase();
+    return lower.startsWith("http://") || lower.startsWith("https://");
+  }
+
+  /**
+   * Runs the command-line tool.
+   *
+   * @param args the command-line arguments
+   * @throws IOException if unable to write the links
+   */
+  public static void main(String[] args) throws IOException {
+    LinkParserCli cli = new LinkParserCli();
+
+    try {
+      cli.parseArguments(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      cli.inputs.clear();
+    }
+
+    if (cli.inputs.isEmpty()) {
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+
+    Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, cli.charset));
+    LinkMetrics metrics = cli.metrics ? new LinkMetrics(true) : null;
+
+    if (metrics != null) {
+      LinkMetrics.install(metrics);
+    }
+
+    int failed = cli.run(writer);
+
+    if (metrics != null) {
+      System.err.println(metrics);
+    }
+
+    if (failed > 0) {
+      System.exit(1);
+    }
+  }
+}
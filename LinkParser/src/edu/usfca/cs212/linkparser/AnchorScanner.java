@@ -0,0 +1,1186 @@
+package edu.usfca.cs212.linkparser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A single-pass state machine that finds the href attribute values of anchor tags within HTML.
+ * Each character is examined exactly once and the scanner never backtracks, so the cost of a scan
+ * is linear in the size of the input. No text is copied by the scanner itself; the location of
+ * each value is reported to a {@link Listener}, which decides whether to copy it.
+ *
+ * <p>Tag and attribute names are matched case-insensitively, and any amount of whitespace
+ * (including newlines) is allowed between the parts of a tag. Only the {@code a} tag is
+ * recognized, so {@code href} attributes in other tags (such as {@code link}) and in regular text
+ * are ignored. If an anchor tag has more than one {@code href} attribute, only the first is
+ * reported.
+ *
+ * <p>Comments, CDATA sections and the contents of {@code script} and {@code style} elements are
+ * recognized and skipped in the same pass, so anchor tags that appear within them (such as in
+ * commented-out markup or in script strings) are not reported. Links within comments may be
+ * reported instead using {@link #setReportComments(boolean)}. Other markup declarations (such as
+ * {@code <!DOCTYPE html>}) are treated as regular text.
+ *
+ * <p>Input may be provided in chunks, in which case the scanner resumes where the previous chunk
+ * left off. Values that span chunks are copied into a small carry buffer, which is the only state
+ * retained between chunks.
+ *
+ * <p>Input may also be provided as bytes in any ASCII-compatible encoding (such as UTF-8). All of
+ * the markup that matters is ASCII, so tags are found by comparing bytes directly and only the
+ * bytes of each href value are decoded into characters.
+ *
+ * <p>Instead of values, an {@link AnchorListener} receives the locations of each anchor tag and
+ * its href value within a complete document, without any text being copied or decoded.
+ *
+ * @see LinkParser#listLinks(java.net.URL, String)
+ */
+public class AnchorScanner {
+
+  /**
+   * Receives the href values found by an {@link AnchorScanner}.
+   */
+  @FunctionalInterface
+  public interface Listener {
+
+    /**
+     * Called for every href attribute value found within an anchor tag.
+     *
+     * @param text the text containing the value
+     * @param start the index of the first character of the value
+     * @param end the index after the last character of the value
+     */
+    void href(CharSequence text, int start, int end);
+  }
+
+  /**
+   * Receives the locations of the anchor tags found by an {@link AnchorScanner} within a complete
+   * document.
+   */
+  @FunctionalInterface
+  public interface AnchorListener {
+
+    /**
+     * Called for every anchor tag with an href attribute, once the tag ends.
+     *
+     * @param tagStart the index of the {@code <} character of the tag
+     * @param tagEnd the index after the {@code >} character of the tag, or the end of the document
+     *        if the tag is never closed
+     * @param hrefStart the index of the first character of the raw href value
+     * @param hrefEnd the index after the last character of the raw href value
+     */
+    void anchor(int tagStart, int tagEnd, int hrefStart, int hrefEnd);
+  }
+
+  /** Outside of any tag of interest. */
+  private static final int TEXT = 0;
+
+  /** Immediately after a {@code <} character. */
+  private static final int OPEN = 1;
+
+  /** Immediately after {@code <a}, waiting to see if the tag name ends. */
+  private static final int TAG_NAME = 2;
+
+  /** Inside the name of what may be a {@code script} or {@code style} tag. */
+  private static final int RAW_NAME = 3;
+
+  /** After {@code <!}, waiting to see if a comment or CDATA section starts. */
+  private static final int MARKUP = 4;
+
+  /** Inside an anchor, script or style tag, between attributes. */
+  private static final int ATTRIBUTES = 5;
+
+  /** Inside an attribute name. */
+  private static final int ATTRIBUTE_NAME = 6;
+
+  /** After an attribute name, waiting for either {@code =} or the next attribute. */
+  private static final int AFTER_NAME = 7;
+
+  /** After the {@code =} of an attribute, waiting for the value. */
+  private static final int BEFORE_VALUE = 8;
+
+  /** Inside a quoted attribute value. */
+  private static final int QUOTED_VALUE = 9;
+
+  /** Inside an unquoted attribute value. */
+  private static final int UNQUOTED_VALUE = 10;
+
+  /** Inside a comment, waiting for {@code -->}. */
+  private static final int COMMENT = 11;
+
+  /** Inside a CDATA section, waiting for {@code ]]>}. */
+  private static final int CDATA = 12;
+
+  /** Inside the contents of a script or style element, waiting for its end tag. */
+  private static final int RAW_TEXT = 13;
+
+  /** No action needs to be taken for the current character. */
+  private static final int NONE = 0;
+
+  /** An href value starts after the current character. */
+  private static final int BEGIN_AFTER = 1;
+
+  /** An href value starts at the current character. */
+  private static final int BEGIN_AT = 2;
+
+  /** An href value ends before the current character. */
+  private static final int END_BEFORE = 3;
+
+  /** An anchor tag with an href value ends at the current character. */
+  private static final int END_TAG = 4;
+
+  /** Both an href value and its anchor tag end at the current character. */
+  private static final int END_BOTH = 5;
+
+  /** Size of the buffer used when scanning readers. */
+  public static final int BUFFER_SIZE = 8192;
+
+  /** Longest href value that will be carried between chunks; longer values are skipped. */
+  public static final int MAX_VALUE_LENGTH = 16384;
+
+  /**
+   * Whether bytes are searched for anchor tags eight at a time, which is true unless the
+   * {@code linkparser.scalar} system property is set to true.
+   */
+  public static final boolean WORD_SEARCH = !Boolean.getBoolean("linkparser.scalar");
+
+  /**
+   * Whether new scanners report href values within comments, which is false unless the
+   * {@code linkparser.comments} system property is set to true.
+   */
+  public static final boolean REPORT_COMMENTS = Boolean.getBoolean("linkparser.comments");
+
+  /** The {@code <} character repeated in every byte of a word. */
+  private static final long LESS_THANS = 0x3C3C3C3C3C3C3C3CL;
+
+  /** The {@code a} character repeated in every byte of a word. */
+  private static final long LOWER_AS = 0x6161616161616161L;
+
+  /** The {@code s} character repeated in every byte of a word. */
+  private static final long LOWER_SS = 0x7373737373737373L;
+
+  /** The {@code !} character repeated in every byte of a word. */
+  private static final long BANGS = 0x2121212121212121L;
+
+  /** The bit that converts an uppercase letter to lowercase, repeated in every byte of a word. */
+  private static final long CASE_BITS = 0x2020202020202020L;
+
+  /** A word with 1 in every byte, which repeats a byte when multiplied by it. */
+  private static final long ONES = 0x0101010101010101L;
+
+  /** The attribute name being searched for (in lowercase). */
+  private static final char[] HREF = {'h', 'r', 'e', 'f'};
+
+  /** The names of the elements whose contents are raw text (in lowercase). */
+  private static final char[][] RAW_NAMES = {
+      {'s', 'c', 'r', 'i', 'p', 't'}, {'s', 't', 'y', 'l', 'e'}};
+
+  /** The characters after {@code <!} that start a comment. */
+  private static final char[] COMMENT_OPEN = {'-', '-'};
+
+  /** The characters after {@code <!} that start a CDATA section. */
+  private static final char[] CDATA_OPEN = {'[', 'C', 'D', 'A', 'T', 'A', '['};
+
+  /** Receives the values found by this scanner, or null if only locations are reported. */
+  private final Listener listener;
+
+  /** Receives the locations found by this scanner, or null if only values are reported. */
+  private final AnchorListener anchors;
+
+  /** Whether bytes are searched for anchor tags eight at a time. */
+  private final boolean words;
+
+  /** Whether href values within comments are reported. */
+  private boolean comments;
+
+  /** The current state of this scanner. */
+  private int state;
+
+  /** Number of characters of the current attribute name that match href, or -1 if none. */
+  private int matched;
+
+  /** Whether the current attribute value is being captured. */
+  private boolean capture;
+
+  /** Whether an href value was already found in the current tag. */
+  private boolean found;
+
+  /** The quote character that will end the current quoted value. */
+  private int quote;
+
+  /** Whether the current tag is a script or style tag, whose attributes are never captured. */
+  private boolean raw;
+
+  /** The raw text element name or markup being matched, or null if none. */
+  private char[] name;
+
+  /**
+   * Number of characters of {@link #name} matched so far, or when inside a comment, CDATA section
+   * or raw text, number of characters of its ending matched so far.
+   */
+  private int progress;
+
+  /** Holds the part of a value that started in a previous chunk. */
+  private final StringBuilder carry;
+
+  /** Holds the bytes of a value that started in a previous chunk, or that must be decoded. */
+  private byte[] carryBytes;
+
+  /** Reused to hold values decoded from bytes without creating a string. */
+  private final StringBuilder decoded;
+
+  /** Number of bytes held in {@link #carryBytes}. */
+  private int carryLength;
+
+  /** Whether the current value started in a previous chunk. */
+  private boolean carrying;
+
+  /** The index of the {@code <} character of the current tag. */
+  private int tagStart;
+
+  /** The index of the first character of the href value of the current tag, or -1 if none. */
+  private int hrefStart;
+
+  /** The index after the last character of the href value of the current tag. */
+  private int hrefEnd;
+
+  /** Whether the listener asked to stop scanning. */
+  private boolean stopped;
+
+  /** The index after the character where scanning stopped, or -1 if it has not stopped. */
+  private int stopIndex;
+
+  /**
+   * Initializes a scanner that reports href values to the provided listener.
+   *
+   * @param listener receives the values found by this scanner
+   */
+  public AnchorScanner(Listener listener) {
+    this(listener, WORD_SEARCH);
+  }
+
+  /**
+   * Initializes a scanner that reports href values to the provided listener, choosing how bytes
+   * are searched for anchor tags. Both searches always find the same values.
+   *
+   * @param listener receives the values found by this scanner
+   * @param words whether to search bytes eight at a time instead of one at a time
+   */
+  AnchorScanner(Listener listener, boolean words) {
+    this.listener = listener;
+    this.anchors = null;
+    this.words = words;
+    this.comments = REPORT_COMMENTS;
+    this.carry = new StringBuilder();
+    this.carryBytes = new byte[0];
+    this.decoded = new StringBuilder();
+    reset();
+  }
+
+  /**
+   * Initializes a scanner that reports the locations of anchor tags to the provided listener.
+   * Locations are only meaningful when each document is scanned as a whole, using
+   * {@link #scan(CharSequence)} or {@link #scan(ByteBuffer, Charset)}.
+   *
+   * @param listener receives the locations found by this scanner
+   */
+  public AnchorScanner(AnchorListener listener) {
+    this.listener = null;
+    this.anchors = listener;
+    this.words = WORD_SEARCH;
+    this.comments = REPORT_COMMENTS;
+    this.carry = new StringBuilder();
+    this.carryBytes = new byte[0];
+    this.decoded = null;
+    reset();
+  }
+
+  /**
+   * Sets whether href values within comments are reported as if the comments were regular markup.
+   * By default comments are skipped, unless {@link #REPORT_COMMENTS} is true. This should only be
+   * changed between documents.
+   *
+   * @param comments whether to report href values within comments
+   */
+  public void setReportComments(boolean comments) {
+    this.comments = comments;
+  }
+
+  /**
+   * Resets this scanner so that it may be used on new input.
+   */
+  public void reset() {
+    state = TEXT;
+    matched = -1;
+    capture = false;
+    found = false;
+    quote = 0;
+    raw = false;
+    name = null;
+    progress = 0;
+    carry.setLength(0);
+    carryLength = 0;
+    carrying = false;
+    hrefStart = -1;
+    stopped = false;
+    stopIndex = -1;
+  }
+
+  /**
+   * Stops scanning right after the current value, such as when the listener has found enough
+   * values. The rest of the current chunk is skipped, and no more chunks are read from a reader.
+   * The scanner must be reset before it is used on new input, or resumed to continue with the
+   * same input.
+   *
+   * @see #resume()
+   */
+  public void stop() {
+    stopped = true;
+  }
+
+  /**
+   * Lets a stopped scanner continue with the same input. Scanning picks up exactly where it
+   * stopped if the next chunk starts at {@link #getStopIndex()} of the chunk it stopped in.
+   */
+  public void resume() {
+    stopped = false;
+    stopIndex = -1;
+  }
+
+  /**
+   * Tests whether the listener asked to stop scanning since this scanner was last reset.
+   *
+   * @return true if scanning has stopped
+   */
+  public boolean isStopped() {
+    return stopped;
+  }
+
+  /**
+   * Returns the index within the last chunk scanned after the character where scanning stopped.
+   *
+   * @return the index where scanning stopped, or -1 if it has not stopped
+   */
+  public int getStopIndex() {
+    return stopIndex;
+  }
+
+  /**
+   * Tests whether this scanner is outside of any tag, comment or raw text and holds no partial
+   * value, which means it is in the same state as a newly reset scanner.
+   *
+   * @return true if this scanner is idle
+   */
+  public boolean isIdle() {
+    return state == TEXT && !carrying;
+  }
+
+  /**
+   * Scans the provided HTML as a complete document, reporting every href value found within an
+   * anchor tag to the listener. Values that are not closed by the end of the HTML are not reported.
+   * The scanner is reset afterwards.
+   *
+   * @param html the html to scan
+   */
+  public void scan(CharSequence html) {
+    scan(html, 0, html.length());
+
+    if (!stopped) {
+      finish(html.length());
+    }
+
+    reset();
+  }
+
+  /**
+   * Scans all of the HTML from the provided reader as a complete document, using a fixed-size
+   * buffer regardless of the size of the document. The reader is not closed. The scanner is reset
+   * afterwards.
+   *
+   * @param html the reader to scan
+   * @throws IOException if unable to read from the reader
+   *
+   * @see #BUFFER_SIZE
+   */
+  public void scan(Reader html) throws IOException {
+    scan(html, CharBuffer.allocate(BUFFER_SIZE));
+  }
+
+  /**
+   * Scans all of the HTML from the provided reader as a complete document, reading into the
+   * provided buffer so that it may be reused. The reader is not closed. The scanner is reset
+   * afterwards.
+   *
+   * @param html the reader to scan
+   * @param wrapped the buffer to read into, which must be backed by an array
+   * @throws IOException if unable to read from the reader
+   */
+  void scan(Reader html, CharBuffer wrapped) throws IOException {
+    char[] buffer = wrapped.array();
+    wrapped.clear();
+
+    try {
+      int read;
+
+      while (!stopped && (read = html.read(buffer)) >= 0) {
+        scan(wrapped, 0, read);
+      }
+    } finally {
+      reset();
+    }
+  }
+
+  /**
+   * Scans the next chunk of HTML, continuing from the state left by the previous chunk. Any href
+   * value that is still open at the end of the chunk is reported once it is closed by a later
+   * chunk.
+   *
+   * @param html the text containing the next chunk of html
+   * @param from the index of the first character of the chunk
+   * @param to the index after the last character of the chunk
+   */
+  public void scan(CharSequence html, int from, int to) {
+    boolean string = html instanceof String;
+    int start = from;
+
+    for (int i = from; i < to; i++) {
+      if (string && (state == TEXT || (state >= COMMENT && progress == 0))) {
+        // nothing outside of a tag of interest matters, and only one character can end a
+        // comment or raw text, so skip ahead to the next one
+        i = state == TEXT ? nextCandidate((String) html, i, to)
+            : nextChar((String) html, i, to, closing());
+
+        if (i >= to) {
+          break;
+        }
+      }
+
+      char c = html.charAt(i);
+
+      if (c == '<' && state <= MARKUP) {
+        tagStart = i;
+      }
+
+      switch (advance(c)) {
+        case BEGIN_AFTER:
+          start = i + 1;
+          break;
+        case BEGIN_AT:
+          start = i;
+          break;
+        case END_BEFORE:
+          emit(html, start, i);
+          break;
+        case END_BOTH:
+          emit(html, start, i);
+          finish(i + 1);
+          break;
+        case END_TAG:
+          finish(i + 1);
+          break;
+        default:
+          break;
+      }
+
+      if (stopped) {
+        stopIndex = i + 1;
+        return;
+      }
+    }
+
+    if (capture && (state == QUOTED_VALUE || state == UNQUOTED_VALUE)) {
+      hold(html, start, to);
+    }
+  }
+
+  /**
+   * Finds the next {@code <} character that may start a tag of interest, which is any {@code <}
+   * followed by {@code a}, {@code s} (either case) or {@code !}, or a {@code <} at the end of the
+   * chunk. Skipping any other text does not change the state of a scanner outside of a tag.
+   *
+   * @param html the html to search
+   * @param from the index to start searching from
+   * @param to the index after the last character of the chunk
+   * @return the index of the next candidate, or the end of the chunk if there is none
+   */
+  private static int nextCandidate(String html, int from, int to) {
+    int i = html.indexOf('<', from);
+
+    while (i >= 0 && i + 1 < to && !isCandidate(html.charAt(i + 1))) {
+      i = html.indexOf('<', i + 1);
+    }
+
+    return i < 0 || i >= to ? to : i;
+  }
+
+  /**
+   * Tests whether the character after a {@code <} may start a tag of interest.
+   *
+   * @param c the character after the {@code <}
+   * @return true if the {@code <} may start a tag of interest
+   */
+  private static boolean isCandidate(int c) {
+    int lower = c | 0x20;
+    return lower == 'a' || lower == 's' || c == '!';
+  }
+
+  /**
+   * Finds the next occurrence of a character.
+   *
+   * @param html the html to search
+   * @param from the index to start searching from
+   * @param to the index after the last character of the chunk
+   * @param target the character to find
+   * @return the index of the next occurrence, or the end of the chunk if there is none
+   */
+  private static int nextChar(String html, int from, int to, int target) {
+    int i = html.indexOf(target, from);
+    return i < 0 || i >= to ? to : i;
+  }
+
+  /**
+   * Returns the only character that may change the state of this scanner inside of a comment,
+   * CDATA section or raw text when none of its ending has been matched yet.
+   *
+   * @return the first character of the ending of the current comment, CDATA section or raw text
+   */
+  private int closing() {
+    return state == COMMENT ? '-' : state == CDATA ? ']' : '<';
+  }
+
+  /**
+   * Finds the next {@code <} byte that may start a tag of interest, testing eight bytes at a time
+   * unless disabled. Each word is tested for {@code <} bytes followed by {@code a}, {@code s} or
+   * {@code !} bytes without any branches per byte. The test may report some extra bytes, but never
+   * misses one, and any extra bytes are simply run through the state machine.
+   *
+   * @param html the html to search
+   * @param from the index to start searching from
+   * @param to the index after the last byte of the chunk
+   * @return the index of the next candidate, or the end of the chunk if there is none
+   *
+   * @see #nextCandidate(String, int, int)
+   */
+  private int nextCandidate(ByteBuffer html, int from, int to) {
+    int i = from;
+
+    if (words) {
+      boolean big = html.order() == ByteOrder.BIG_ENDIAN;
+
+      for (; i + 8 <= to; i += 8) {
+        long word = big ? Long.reverseBytes(html.getLong(i)) : html.getLong(i);
+        long less = zeroBytes(word ^ LESS_THANS);
+
+        if (less == 0) {
+          continue;
+        }
+
+        // the last byte of the word is a candidate if it is a <, since the next byte is unknown
+        long lower = (word >>> 8) | CASE_BITS;
+        long next = zeroBytes(lower ^ LOWER_AS) | zeroBytes(lower ^ LOWER_SS)
+            | zeroBytes(lower ^ BANGS) | 0x8000000000000000L;
+        long found = less & next;
+
+        if (found != 0) {
+          return i + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+      }
+    }
+
+    for (; i < to; i++) {
+      if (html.get(i) == '<' && (i + 1 == to || isCandidate(html.get(i + 1)))) {
+        return i;
+      }
+    }
+
+    return to;
+  }
+
+  /**
+   * Finds the next occurrence of a byte, testing eight bytes at a time unless disabled. Unlike
+   * {@link #nextCandidate(ByteBuffer, int, int)}, the first byte reported is always exact.
+   *
+   * @param html the html to search
+   * @param from the index to start searching from
+   * @param to the index after the last byte of the chunk
+   * @param target the byte to find
+   * @return the index of the next occurrence, or the end of the chunk if there is none
+   */
+  private int nextByte(ByteBuffer html, int from, int to, int target) {
+    int i = from;
+
+    if (words) {
+      boolean big = html.order() == ByteOrder.BIG_ENDIAN;
+      long targets = ONES * target;
+
+      for (; i + 8 <= to; i += 8) {
+        long word = big ? Long.reverseBytes(html.getLong(i)) : html.getLong(i);
+        long found = zeroBytes(word ^ targets);
+
+        // extra bytes are only ever marked above an actual match, so the lowest one is exact
+        if (found != 0) {
+          return i + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+      }
+    }
+
+    for (; i < to; i++) {
+      if (html.get(i) == target) {
+        return i;
+      }
+    }
+
+    return to;
+  }
+
+  /**
+   * Sets the high bit of every zero byte of a word. Some bytes equal to 1 above a zero byte may
+   * also be marked, but a zero byte is never missed.
+   *
+   * @param word the word to test
+   * @return the high bit of each zero byte
+   */
+  private static long zeroBytes(long word) {
+    return (word - ONES) & ~word & 0x8080808080808080L;
+  }
+
+  /**
+   * Reports a value to the listener, including any part of it carried from previous chunks.
+   *
+   * @param html the text containing the end of the value
+   * @param start the index of the first character of the value within this chunk
+   * @param end the index after the last character of the value
+   */
+  private void emit(CharSequence html, int start, int end) {
+    if (anchors != null) {
+      hrefStart = start;
+      hrefEnd = end;
+      return;
+    }
+
+    if (!carrying) {
+      listener.href(html, start, end);
+      return;
+    }
+
+    carry.append(html, start, end);
+    carrying = false;
+
+    if (carry.length() <= MAX_VALUE_LENGTH) {
+      listener.href(carry, 0, carry.length());
+    }
+
+    carry.setLength(0);
+  }
+
+  /**
+   * Reports the location of the current anchor tag if it has an href value.
+   *
+   * @param tagEnd the index after the end of the tag
+   */
+  private void finish(int tagEnd) {
+    if (hrefStart >= 0) {
+      anchors.anchor(tagStart, tagEnd, hrefStart, hrefEnd);
+      hrefStart = -1;
+    }
+  }
+
+  /**
+   * Holds the part of an open value found in the current chunk until the next chunk.
+   *
+   * @param html the text containing the start of the value
+   * @param start the index of the first character of the value within this chunk
+   * @param end the index after the last character of the chunk
+   */
+  private void hold(CharSequence html, int start, int end) {
+    carrying = true;
+
+    // values that are too long are skipped to keep memory bounded
+    if (carry.length() + end - start <= MAX_VALUE_LENGTH) {
+      carry.append(html, start, end);
+    } else {
+      carry.setLength(MAX_VALUE_LENGTH + 1);
+    }
+  }
+
+  /**
+   * Scans the remaining bytes of the provided buffer as a complete document, reporting every href
+   * value found within an anchor tag to the listener. Heap, direct and memory-mapped buffers are
+   * all supported. The position of the buffer is not changed. The scanner is reset afterwards.
+   *
+   * @param html the html bytes to scan
+   * @param charset the ASCII-compatible encoding of the html
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   */
+  public void scan(ByteBuffer html, Charset charset) {
+    checkCharset(charset);
+    scan(html, html.position(), html.limit(), charset);
+
+    if (!stopped) {
+      finish(html.limit());
+    }
+
+    reset();
+  }
+
+  /**
+   * Scans the next chunk of HTML bytes, continuing from the state left by the previous chunk. Any
+   * href value that is still open at the end of the chunk is reported once it is closed by a later
+   * chunk. Multibyte characters may be split between chunks.
+   *
+   * @param html the buffer containing the next chunk of html
+   * @param from the index of the first byte of the chunk
+   * @param to the index after the last byte of the chunk
+   * @param charset the ASCII-compatible encoding of the html
+   *
+   * @see #isAsciiCompatible(Charset)
+   */
+  public void scan(ByteBuffer html, int from, int to, Charset charset) {
+    int start = from;
+
+    for (int i = from; i < to; i++) {
+      if (state == TEXT || (state >= COMMENT && progress == 0)) {
+        // nothing outside of a tag of interest matters, and only one byte can end a comment or
+        // raw text, so skip ahead to the next one
+        i = state == TEXT ? nextCandidate(html, i, to) : nextByte(html, i, to, closing());
+
+        if (i >= to) {
+          break;
+        }
+      }
+
+      int c = html.get(i) & 0xFF;
+
+      if (c == '<' && state <= MARKUP) {
+        tagStart = i;
+      }
+
+      switch (advance(c)) {
+        case BEGIN_AFTER:
+          start = i + 1;
+          break;
+        case BEGIN_AT:
+          start = i;
+          break;
+        case END_BEFORE:
+          emit(html, start, i, charset);
+          break;
+        case END_BOTH:
+          emit(html, start, i, charset);
+          finish(i + 1);
+          break;
+        case END_TAG:
+          finish(i + 1);
+          break;
+        default:
+          break;
+      }
+
+      if (stopped) {
+        stopIndex = i + 1;
+        return;
+      }
+    }
+
+    if (capture && (state == QUOTED_VALUE || state == UNQUOTED_VALUE)) {
+      carrying = true;
+      hold(html, start, to);
+    }
+  }
+
+  /**
+   * Decodes and reports a value to the listener, including any part of it carried from previous
+   * chunks.
+   *
+   * @param html the buffer containing the end of the value
+   * @param start the index of the first byte of the value within this chunk
+   * @param end the index after the last byte of the value
+   * @param charset the encoding of the html
+   */
+  private void emit(ByteBuffer html, int start, int end, Charset charset) {
+    if (anchors != null) {
+      hrefStart = start;
+      hrefEnd = end;
+      return;
+    }
+
+    if (!carrying && decodeDirect(html, start, end, charset)) {
+      listener.href(decoded, 0, decoded.length());
+      return;
+    }
+
+    String value;
+
+    if (!carrying && html.hasArray()) {
+      value = new String(html.array(), html.arrayOffset() + start, end - start, charset);
+    } else {
+      // direct buffers must be copied before they can be decoded
+      hold(html, start, end);
+      carrying = false;
+
+      if (carryLength > MAX_VALUE_LENGTH) {
+        carryLength = 0;
+        return;
+      }
+
+      value = new String(carryBytes, 0, carryLength, charset);
+      carryLength = 0;
+    }
+
+    listener.href(value, 0, value.length());
+  }
+
+  /**
+   * Decodes a value into a reused buffer if every byte maps directly to a character, which is
+   * true of ASCII bytes in the standard ASCII-compatible encodings and of every byte in
+   * ISO-8859-1. Avoids creating a string (and copying direct buffers) for almost every value.
+   *
+   * @param html the buffer containing the value
+   * @param start the index of the first byte of the value
+   * @param end the index after the last byte of the value
+   * @param charset the encoding of the html
+   * @return true if the value was decoded, or false if it must be decoded by the encoding
+   */
+  private boolean decodeDirect(ByteBuffer html, int start, int end, Charset charset) {
+    boolean latin = charset.equals(StandardCharsets.ISO_8859_1);
+
+    if (!latin && !charset.equals(StandardCharsets.UTF_8)
+        && !charset.equals(StandardCharsets.US_ASCII)) {
+      return false;
+    }
+
+    decoded.setLength(0);
+
+    for (int i = start; i < end; i++) {
+      byte b = html.get(i);
+
+      if (b < 0 && !latin) {
+        return false;
+      }
+
+      decoded.append((char) (b & 0xFF));
+    }
+
+    return true;
+  }
+
+  /**
+   * Holds the bytes of a value until they can be decoded.
+   *
+   * @param html the buffer containing part of the value
+   * @param start the index of the first byte of the value within this chunk
+   * @param end the index after the last byte of the value within this chunk
+   */
+  private void hold(ByteBuffer html, int start, int end) {
+    int length = end - start;
+
+    // values that are too long are skipped to keep memory bounded
+    if (carryLength + length > MAX_VALUE_LENGTH) {
+      carryLength = MAX_VALUE_LENGTH + 1;
+      return;
+    }
+
+    if (carryBytes.length < carryLength + length) {
+      int capacity = Math.max(carryBytes.length * 2, carryLength + length);
+      carryBytes = Arrays.copyOf(carryBytes, Math.min(capacity, MAX_VALUE_LENGTH));
+    }
+
+    html.get(start, carryBytes, carryLength, length);
+    carryLength += length;
+  }
+
+  /**
+   * Tests whether the markup characters needed by this scanner are encoded as single ASCII bytes
+   * in the provided encoding, which is required for scanning bytes directly.
+   *
+   * @param charset the encoding to test
+   * @return true if the encoding is ASCII-compatible
+   */
+  public static boolean isAsciiCompatible(Charset charset) {
+    if (charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+        || charset.equals(StandardCharsets.ISO_8859_1)) {
+      return true;
+    }
+
+    String markup = "<>=/\"' \t\n\r\faAhHrReEfF";
+
+    return charset.canEncode()
+        && Arrays.equals(markup.getBytes(charset), markup.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Verifies the encoding may be used to scan bytes directly.
+   *
+   * @param charset the encoding to check
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   */
+  static void checkCharset(Charset charset) {
+    if (!isAsciiCompatible(charset)) {
+      throw new IllegalArgumentException("Encoding is not ASCII-compatible: " + charset);
+    }
+  }
+
+  /**
+   * Moves this scanner to its next state based on the provided character.
+   *
+   * @param c the next character of input
+   * @return the action the caller must take for this character
+   */
+  private int advance(int c) {
+    switch (state) {
+      case TEXT:
+        if (c == '<') {
+          state = OPEN;
+        }
+        return NONE;
+
+      case OPEN:
+        if (c == 'a' || c == 'A') {
+          state = TAG_NAME;
+        } else if (c == 's' || c == 'S') {
+          state = RAW_NAME;
+          name = RAW_NAMES[0];
+          progress = 1;
+        } else if (c == '!') {
+          state = MARKUP;
+          name = null;
+          progress = 0;
+        } else if (c != '<') {
+          state = TEXT;
+        }
+        return NONE;
+
+      case TAG_NAME:
+        if (isSpace(c) || c == '/') {
+          state = ATTRIBUTES;
+          found = false;
+          raw = false;
+        } else {
+          // either a different tag (like link) or an anchor without attributes
+          state = c == '<' ? OPEN : TEXT;
+        }
+        return NONE;
+
+      case RAW_NAME:
+        if (progress < name.length) {
+          name = matchRaw(name, progress, c);
+
+          if (name == null) {
+            state = c == '<' ? OPEN : TEXT;
+          } else {
+            progress++;
+          }
+        } else if (isSpace(c) || c == '/') {
+          state = ATTRIBUTES;
+          found = false;
+          raw = true;
+        } else if (c == '>') {
+          state = RAW_TEXT;
+          progress = 0;
+        } else {
+          // a different tag that starts with the same name (like scripts)
+          state = c == '<' ? OPEN : TEXT;
+        }
+        return NONE;
+
+      case MARKUP:
+        if (progress == 0) {
+          name = c == '-' && !comments ? COMMENT_OPEN : c == '[' ? CDATA_OPEN : null;
+        }
+
+        if (name == null || c != name[progress]) {
+          // a different declaration (like doctype) is treated as text
+          state = c == '<' ? OPEN : TEXT;
+        } else if (++progress == name.length) {
+          // the dashes that open a comment may also close it, as in <!-->
+          state = name == COMMENT_OPEN ? COMMENT : CDATA;
+          progress = name == COMMENT_OPEN ? 2 : 0;
+        }
+        return NONE;
+
+      case COMMENT:
+      case CDATA:
+        if (c == closing()) {
+          progress++;
+        } else if (c == '>' && progress >= 2) {
+          state = TEXT;
+        } else {
+          progress = 0;
+        }
+        return NONE;
+
+      case RAW_TEXT:
+        if (progress == 1) {
+          progress = c == '/' ? 2 : c == '<' ? 1 : 0;
+        } else if (progress < 2) {
+          progress = c == '<' ? 1 : 0;
+        } else if (progress - 2 < name.length) {
+          progress = (c | 0x20) == name[progress - 2] ? progress + 1 : c == '<' ? 1 : 0;
+        } else if (isSpace(c) || c == '/' || c == '>') {
+          // the rest of the end tag is treated as text
+          state = TEXT;
+        } else {
+          progress = c == '<' ? 1 : 0;
+        }
+        return NONE;
+
+      case ATTRIBUTES:
+        if (c == '>') {
+          return endTag();
+        } else if (!isSpace(c) && c != '/') {
+          beginName(c);
+        }
+        return NONE;
+
+      case ATTRIBUTE_NAME:
+        if (isSpace(c)) {
+          state = AFTER_NAME;
+        } else if (c == '=') {
+          state = BEFORE_VALUE;
+        } else if (c == '>') {
+          return endTag();
+        } else if (c == '/') {
+          state = ATTRIBUTES;
+        } else {
+          matchName(c);
+        }
+        return NONE;
+
+      case AFTER_NAME:
+        if (c == '=') {
+          state = BEFORE_VALUE;
+        } else if (c == '>') {
+          return endTag();
+        } else if (c == '/') {
+          state = ATTRIBUTES;
+        } else if (!isSpace(c)) {
+          beginName(c);
+        }
+        return NONE;
+
+      case BEFORE_VALUE:
+        if (isSpace(c)) {
+          return NONE;
+        }
+
+        if (c == '>') {
+          return endTag();
+        }
+
+        capture = !raw && !found && matched == HREF.length;
+        found |= capture;
+
+        if (c == '"' || c == '\'') {
+          quote = c;
+          state = QUOTED_VALUE;
+          return capture ? BEGIN_AFTER : NONE;
+        }
+
+        state = UNQUOTED_VALUE;
+        return capture ? BEGIN_AT : NONE;
+
+      case QUOTED_VALUE:
+        if (c != quote) {
+          return NONE;
+        }
+
+        state = ATTRIBUTES;
+        return capture ? END_BEFORE : NONE;
+
+      case UNQUOTED_VALUE:
+        if (isSpace(c)) {
+          state = ATTRIBUTES;
+          return capture ? END_BEFORE : NONE;
+        }
+
+        if (c == '>') {
+          if (capture) {
+            state = TEXT;
+            return END_BOTH;
+          }
+
+          return endTag();
+        }
+
+        return NONE;
+
+      default:
+        throw new IllegalStateException("Unknown state: " + state);
+    }
+  }
+
+  /**
+   * Ends the current tag, which starts raw text if it is a script or style tag.
+   *
+   * @return the action the caller must take for the end of the tag
+   */
+  private int endTag() {
+    if (raw) {
+      state = RAW_TEXT;
+      progress = 0;
+      return NONE;
+    }
+
+    state = TEXT;
+    return found ? END_TAG : NONE;
+  }
+
+  /**
+   * Matches the next character of a tag name against the names of the raw text elements (ignoring
+   * case), switching to another name with the same prefix if necessary.
+   *
+   * @param name the name matched so far
+   * @param length the number of characters matched so far
+   * @param c the next character of the tag name
+   * @return the name that matches, or null if none
+   */
+  private static char[] matchRaw(char[] name, int length, int c) {
+    for (char[] other : RAW_NAMES) {
+      if (other.length > length && other[length] == (c | 0x20)
+          && Arrays.equals(other, 0, length, name, 0, length)) {
+        return other;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Starts matching a new attribute name.
+   *
+   * @param c the first character of the name
+   */
+  private void beginName(int c) {
+    state = ATTRIBUTE_NAME;
+    matched = 0;
+    matchName(c);
+  }
+
+  /**
+   * Matches the next character of an attribute name against href (ignoring case).
+   *
+   * @param c the next character of the name
+   */
+  private void matchName(int c) {
+    if (matched >= 0 && matched < HREF.length && (c | 0x20) == HREF[matched]) {
+      matched++;
+    } else {
+      matched = -1;
+    }
+  }
+
+  /**
+   * Tests whether the character is considered whitespace within an HTML tag.
+   *
+   * @param c the character to test
+   * @return true if the character is whitespace
+   */
+  private static boolean isSpace(int c) {
+    return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+  }
+}
@@ -0,0 +1,317 @@
+package edu.usfca.cs212.linkparser;
+
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The locations of the anchor tags and href values within a document, for callers that need to
+ * know where each link came from (such as to audit or rewrite the html). Only four numbers are
+ * stored per anchor. The text of a tag or href value is returned as a view of the original input
+ * that is not copied, and href values are only resolved into links on demand. Callers that only
+ * count or filter anchors therefore allocate almost nothing per anchor.
+ *
+ * <p>Every anchor tag with an href attribute is included, even if its value is not a valid HTTP(S)
+ * link; {@link #resolve(int)} returns null for those anchors.
+ *
+ * @see AnchorScanner.AnchorListener
+ */
+public class Anchors {
+
+  /** The base url used to resolve href values. */
+  private final URL base;
+
+  /** The html the anchors were found in, or null if the html was bytes. */
+  private final CharSequence text;
+
+  /** The html bytes the anchors were found in, or null if the html was text. */
+  private final ByteBuffer bytes;
+
+  /** The encoding of the html bytes, or null if the html was text. */
+  private final Charset charset;
+
+  /** The tag start, tag end, href start and href end of each anchor. */
+  private int[] offsets;
+
+  /** The number of anchors. */
+  private int size;
+
+  /** Resolves href values on demand, or null until first needed. */
+  private LinkResolver resolver;
+
+  /**
+   * Initializes an empty list of anchors.
+   *
+   * @param base the base url used to resolve href values
+   * @param text the html text, or null if the html is bytes
+   * @param bytes the html bytes, or null if the html is text
+   * @param charset the encoding of the html bytes, or null if the html is text
+   */
+  private Anchors(URL base, CharSequence text, ByteBuffer bytes, Charset charset) {
+    this.base = base;
+    this.text = text;
+    this.bytes = bytes;
+    this.charset = charset;
+    this.offsets = new int[64];
+    this.size = 0;
+  }
+
+  /**
+   * Finds the anchors in the provided HTML. The html is referenced, not copied, so it must not be
+   * modified while these anchors are in use.
+   *
+   * @param base the base url used to resolve href values
+   * @param html the raw html associated with the base url
+   * @return the anchors in the order they were found
+   */
+  public static Anchors extract(URL base, CharSequence html) {
+    Anchors anchors = new Anchors(base, html, null, null);
+    new AnchorScanner(anchors::add).scan(html);
+    return anchors;
+  }
+
+  /**
+   * Finds the anchors in the remaining bytes of the provided HTML without decoding any of it.
+   * Offsets are indices into the buffer. The buffer is referenced, not copied, so its content must
+   * not be modified while these anchors are in use.
+   *
+   * @param base the base url used to resolve href values
+   * @param html the remaining bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html (such as UTF-8)
+   * @return the anchors in the order they were found
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   */
+  public static Anchors extract(URL base, ByteBuffer html, Charset charset) {
+    Anchors anchors = new Anchors(base, null, html.duplicate(), charset);
+    new AnchorScanner(anchors::add).scan(html, charset);
+    return anchors;
+  }
+
+  /**
+   * Adds the location of an anchor.
+   *
+   * @param tagStart the index of the start of the tag
+   * @param tagEnd the index after the end of the tag
+   * @param hrefStart the index of the first character of the href value
+   * @param hrefEnd the index after the last character of the href value
+   */
+  private void add(int tagStart, int tagEnd, int hrefStart, int hrefEnd) {
+    if (size * 4 == offsets.length) {
+      offsets = Arrays.copyOf(offsets, offsets.length * 2);
+    }
+
+    int i = size * 4;
+    offsets[i] = tagStart;
+    offsets[i + 1] = tagEnd;
+    offsets[i + 2] = hrefStart;
+    offsets[i + 3] = hrefEnd;
+    size++;
+  }
+
+  /**
+   * Returns the number of anchor tags with an href attribute.
+   *
+   * @return the number of anchors
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the index of the {@code <} character that starts an anchor tag.
+   *
+   * @param anchor the index of the anchor
+   * @return the index of the start of the tag in the html
+   */
+  public int getTagStart(int anchor) {
+    return offset(anchor, 0);
+  }
+
+  /**
+   * Returns the index after the {@code >} character that ends an anchor tag, or the end of the
+   * html if the tag is never closed.
+   *
+   * @param anchor the index of the anchor
+   * @return the index after the end of the tag in the html
+   */
+  public int getTagEnd(int anchor) {
+    return offset(anchor, 1);
+  }
+
+  /**
+   * Returns the index of the first character of the raw href value of an anchor.
+   *
+   * @param anchor the index of the anchor
+   * @return the index of the start of the href value in the html
+   */
+  public int getHrefStart(int anchor) {
+    return offset(anchor, 2);
+  }
+
+  /**
+   * Returns the index after the last character of the raw href value of an anchor.
+   *
+   * @param anchor the index of the anchor
+   * @return the index after the end of the href value in the html
+   */
+  public int getHrefEnd(int anchor) {
+    return offset(anchor, 3);
+  }
+
+  /**
+   * Returns a view of the text of an entire anchor tag, which is not copied.
+   *
+   * @param anchor the index of the anchor
+   * @return a read-only view of the tag
+   * @throws IllegalStateException if the html was bytes
+   */
+  public CharSequence getTag(int anchor) {
+    return view(getTagStart(anchor), getTagEnd(anchor));
+  }
+
+  /**
+   * Returns a view of the raw href value of an anchor, before resolving or cleaning, which is not
+   * copied.
+   *
+   * @param anchor the index of the anchor
+   * @return a read-only view of the href value
+   * @throws IllegalStateException if the html was bytes
+   */
+  public CharSequence getHref(int anchor) {
+    return view(getHrefStart(anchor), getHrefEnd(anchor));
+  }
+
+  /**
+   * Returns a view of the bytes of an entire anchor tag, which are not copied.
+   *
+   * @param anchor the index of the anchor
+   * @return a read-only view of the tag
+   * @throws IllegalStateException if the html was text
+   */
+  public ByteBuffer getTagBytes(int anchor) {
+    return slice(getTagStart(anchor), getTagEnd(anchor));
+  }
+
+  /**
+   * Returns a view of the bytes of the raw href value of an anchor, which are not copied.
+   *
+   * @param anchor the index of the anchor
+   * @return a read-only view of the href value
+   * @throws IllegalStateException if the html was text
+   */
+  public ByteBuffer getHrefBytes(int anchor) {
+    return slice(getHrefStart(anchor), getHrefEnd(anchor));
+  }
+
+  /**
+   * Resolves the href value of an anchor into an absolute and cleaned link.
+   *
+   * @param anchor the index of the anchor
+   * @return the link, or null if the href value is not a valid HTTP(S) link
+   */
+  public Link resolve(int anchor) {
+    if (resolver == null) {
+      resolver = new LinkResolver(base, LinkCache.shared());
+    }
+
+    int start = getHrefStart(anchor);
+    int end = getHrefEnd(anchor);
+
+    if (text != null) {
+      return resolver.resolve(text, start, end);
+    }
+
+    // only the bytes of the value are decoded
+    String href = bytes.hasArray()
+        ? new String(bytes.array(), bytes.arrayOffset() + start, end - start, charset)
+        : new String(copy(start, end), charset);
+    return resolver.resolve(href, 0, href.length());
+  }
+
+  /**
+   * Resolves the href values of all anchors, skipping any that are not valid HTTP(S) links.
+   *
+   * @return cleaned list of all http(s) links in the order they were found
+   *
+   * @see LinkParser#parseLinks(URL, String)
+   */
+  public ArrayList<Link> resolveAll() {
+    ArrayList<Link> links = new ArrayList<>(size);
+
+    for (int i = 0; i < size; i++) {
+      Link link = resolve(i);
+
+      if (link != null) {
+        links.add(link);
+      }
+    }
+
+    return links;
+  }
+
+  /**
+   * Returns one of the offsets of an anchor.
+   *
+   * @param anchor the index of the anchor
+   * @param which which of the four offsets to return
+   * @return the offset
+   */
+  private int offset(int anchor, int which) {
+    if (anchor < 0 || anchor >= size) {
+      throw new IndexOutOfBoundsException("Index " + anchor + " out of bounds for " + size);
+    }
+
+    return offsets[anchor * 4 + which];
+  }
+
+  /**
+   * Returns a view of a range of the html text.
+   *
+   * @param start the index of the first character
+   * @param end the index after the last character
+   * @return a read-only view of the range
+   */
+  private CharSequence view(int start, int end) {
+    if (text == null) {
+      throw new IllegalStateException("Anchors were found in bytes, not text.");
+    }
+
+    return CharBuffer.wrap(text, start, end);
+  }
+
+  /**
+   * Returns a view of a range of the html bytes.
+   *
+   * @param start the index of the first byte
+   * @param end the index after the last byte
+   * @return a read-only view of the range
+   */
+  private ByteBuffer slice(int start, int end) {
+    if (bytes == null) {
+      throw new IllegalStateException("Anchors were found in text, not bytes.");
+    }
+
+    return bytes.duplicate().limit(end).position(start).slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Copies a range of the html bytes so they can be decoded.
+   *
+   * @param start the index of the first byte
+   * @param end the index after the last byte
+   * @return the copied bytes
+   */
+  private byte[] copy(int start, int end) {
+    byte[] copy = new byte[end - start];
+    bytes.get(start, copy);
+    return copy;
+  }
+
+  @Override
+  public String toString() {
+    return size + " anchors";
+  }
+}
@@ -0,0 +1,445 @@
+package edu.usfca.cs212.linkparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Locale;
+
+/**
+ * Detects the character encoding of HTML bytes cheaply, without decoding them. A byte order mark
+ * is used first, then a {@code charset} declared by a {@code meta} tag within the first
+ * {@link #SNIFF_LENGTH} bytes, then the encoding hinted at by the caller (such as the one from a
+ * {@code Content-Type} header), and finally UTF-8.
+ *
+ * <p>Meta tags are found with a simplified version of the prescan HTML uses, which skips comments
+ * and the attributes of other tags. Both {@code <meta charset="...">} and
+ * {@code <meta http-equiv="Content-Type" content="...; charset=...">} are supported. Since the
+ * tag could not have been found in a UTF-16 document, a declared UTF-16 encoding means UTF-8.
+ *
+ * @see LinkParser#listLinks(java.net.URL, byte[])
+ */
+public class CharsetSniffer {
+
+  /** Number of bytes at the start of a document searched for a meta tag. */
+  public static final int SNIFF_LENGTH = 4096;
+
+  /** Does not allow instantiation of this class. */
+  private CharsetSniffer() {
+  }
+
+  /**
+   * Detects the encoding of the remaining bytes of a buffer. The position of the buffer is not
+   * changed.
+   *
+   * @param html the html bytes
+   * @param hint the encoding to use if none is declared, or null to use UTF-8
+   * @return the detected encoding
+   */
+  public static Charset detect(ByteBuffer html, Charset hint) {
+    Charset bom = fromBom(html);
+
+    if (bom != null) {
+      return bom;
+    }
+
+    Charset meta = fromMeta(html, html.position(),
+        (int) Math.min(html.limit(), (long) html.position() + SNIFF_LENGTH));
+
+    if (meta != null) {
+      return meta;
+    }
+
+    return hint == null ? StandardCharsets.UTF_8 : hint;
+  }
+
+  /**
+   * Detects the encoding of a stream without consuming any of it, which requires a stream that
+   * supports {@link InputStream#mark(int)} (such as a {@link java.io.BufferedInputStream}).
+   *
+   * @param html the html stream
+   * @param hint the encoding to use if none is declared, or null to use UTF-8
+   * @return the detected encoding
+   * @throws IOException if unable to read from the stream
+   * @throws IllegalArgumentException if the stream does not support mark
+   */
+  public static Charset detect(InputStream html, Charset hint) throws IOException {
+    if (!html.markSupported()) {
+      throw new IllegalArgumentException("Stream must support mark.");
+    }
+
+    html.mark(SNIFF_LENGTH);
+
+    try {
+      return detect(ByteBuffer.wrap(html.readNBytes(SNIFF_LENGTH)), hint);
+    } finally {
+      html.reset();
+    }
+  }
+
+  /**
+   * Decodes html bytes into text using the detected encoding, without any byte order mark.
+   *
+   * @param html the html bytes
+   * @param hint the encoding to use if none is declared, or null to use UTF-8
+   * @return the decoded html
+   */
+  public static String decode(byte[] html, Charset hint) {
+    ByteBuffer buffer = ByteBuffer.wrap(html);
+    Charset charset = detect(buffer, hint);
+    int skip = fromBom(buffer) == null ? 0 : charset.equals(StandardCharsets.UTF_8) ? 3 : 2;
+    return new String(html, skip, html.length - skip, charset);
+  }
+
+  /**
+   * Returns the encoding declared by a content type, such as
+   * {@code text/html; charset=ISO-8859-1}.
+   *
+   * @param type the content type, or null if unknown
+   * @return the declared encoding, or null if none or if it is not supported
+   */
+  public static Charset fromContentType(String type) {
+    return type == null ? null : lookup(extract(type));
+  }
+
+  /**
+   * Returns the encoding indicated by a byte order mark at the start of the buffer.
+   *
+   * @param html the html bytes
+   * @return the encoding, or null if there is no byte order mark
+   */
+  private static Charset fromBom(ByteBuffer html) {
+    int start = html.position();
+    int length = html.remaining();
+    int first = length > 0 ? html.get(start) & 0xFF : -1;
+    int second = length > 1 ? html.get(start + 1) & 0xFF : -1;
+
+    if (first == 0xEF && second == 0xBB && length > 2 && (html.get(start + 2) & 0xFF) == 0xBF) {
+      return StandardCharsets.UTF_8;
+    } else if (first == 0xFE && second == 0xFF) {
+      return StandardCharsets.UTF_16BE;
+    } else if (first == 0xFF && second == 0xFE) {
+      return StandardCharsets.UTF_16LE;
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the supported encoding declared by the first meta tag that declares one.
+   *
+   * @param html the html bytes
+   * @param from the index of the first byte to search
+   * @param to the index after the last byte to search
+   * @return the declared encoding, or null if none is found
+   */
+  private static Charset fromMeta(ByteBuffer html, int from, int to) {
+    int i = from;
+
+    while (i < to) {
+      if (html.get(i) != '<') {
+        i++;
+      } else if (startsWith(html, i, to, "<!--")) {
+        i = skipComment(html, i + 4, to);
+      } else if (startsWith(html, i, to, "<meta") && i + 5 < to
+          && (isSpace(html.get(i + 5)) || html.get(i + 5) == '/')) {
+        Meta meta = new Meta();
+        i = parseTag(html, i + 5, to, meta);
+
+        Charset charset = meta.charset();
+
+        if (charset != null) {
+          return charset;
+        }
+      } else if (i + 1 < to && (isLetter(html.get(i + 1)) || html.get(i + 1) == '/')) {
+        // skip the attributes of other tags, so a quoted > does not end them early
+        i = parseTag(html, i + 1, to, null);
+      } else {
+        i++;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Finds the end of a comment.
+   *
+   * @param html the html bytes
+   * @param from the index after the {@code <!--} characters
+   * @param to the index after the last byte to search
+   * @return the index after the comment, or the end of the search if it does not end
+   */
+  private static int skipComment(ByteBuffer html, int from, int to) {
+    for (int i = from; i + 2 < to; i++) {
+      if (html.get(i) == '-' && html.get(i + 1) == '-' && html.get(i + 2) == '>') {
+        return i + 3;
+      }
+    }
+
+    return to;
+  }
+
+  /**
+   * Parses the attributes of a tag, keeping only the first value of each attribute of interest.
+   *
+   * @param html the html bytes
+   * @param from the index after the start of the tag name
+   * @param to the index after the last byte to search
+   * @param meta receives the attributes of interest, or null if the tag is only skipped
+   * @return the index after the tag
+   */
+  private static int parseTag(ByteBuffer html, int from, int to, Meta meta) {
+    int i = from;
+
+    // the rest of the tag name is skipped
+    while (i < to && !isSpace(html.get(i)) && html.get(i) != '/' && html.get(i) != '>') {
+      i++;
+    }
+
+    while (i < to) {
+      byte b = html.get(i);
+
+      if (b == '>') {
+        return i + 1;
+      } else if (isSpace(b) || b == '/') {
+        i++;
+        continue;
+      }
+
+      int nameStart = i;
+
+      while (i < to && !isSpace(html.get(i)) && html.get(i) != '=' && html.get(i) != '>'
+          && html.get(i) != '/') {
+        i++;
+      }
+
+      int nameEnd = i;
+
+      while (i < to && isSpace(html.get(i))) {
+        i++;
+      }
+
+      if (i >= to || html.get(i) != '=') {
+        continue;
+      }
+
+      i++;
+
+      while (i < to && isSpace(html.get(i))) {
+        i++;
+      }
+
+      int valueStart = i;
+
+      if (i < to && (html.get(i) == '"' || html.get(i) == '\'')) {
+        byte quote = html.get(i);
+        valueStart = ++i;
+
+        while (i < to && html.get(i) != quote) {
+          i++;
+        }
+      } else {
+        while (i < to && !isSpace(html.get(i)) && html.get(i) != '>') {
+          i++;
+        }
+      }
+
+      if (meta != null) {
+        meta.attribute(html, nameStart, nameEnd, valueStart, i);
+      }
+
+      // skip the closing quote, if any
+      i = i < to && html.get(i) != '>' && !isSpace(html.get(i)) ? i + 1 : i;
+    }
+
+    return to;
+  }
+
+  /**
+   * The attributes of a single tag that matter for detecting the encoding.
+   */
+  private static class Meta {
+
+    /** The value of the charset attribute, or null if none. */
+    private String charset;
+
+    /** The value of the content attribute, or null if none. */
+    private String content;
+
+    /** The value of the http-equiv attribute, or null if none. */
+    private String httpEquiv;
+
+    /**
+     * Keeps the value of an attribute if it is of interest and has not been seen yet.
+     *
+     * @param html the html bytes
+     * @param nameStart the index of the first byte of the attribute name
+     * @param nameEnd the index after the last byte of the attribute name
+     * @param valueStart the index of the first byte of the attribute value
+     * @param valueEnd the index after the last byte of the attribute value
+     */
+    private void attribute(ByteBuffer html, int nameStart, int nameEnd, int valueStart,
+        int valueEnd) {
+      if (charset == null && isName(html, nameStart, nameEnd, "charset")) {
+        charset = ascii(html, valueStart, valueEnd);
+      } else if (content == null && isName(html, nameStart, nameEnd, "content")) {
+        content = ascii(html, valueStart, valueEnd);
+      } else if (httpEquiv == null && isName(html, nameStart, nameEnd, "http-equiv")) {
+        httpEquiv = ascii(html, valueStart, valueEnd);
+      }
+    }
+
+    /**
+     * Returns the supported encoding declared by this tag.
+     *
+     * @return the declared encoding, or null if none
+     */
+    private Charset charset() {
+      Charset declared = null;
+
+      if (charset != null) {
+        declared = lookup(charset);
+      } else if (content != null && "content-type".equalsIgnoreCase(httpEquiv)) {
+        declared = lookup(extract(content));
+      }
+
+      if (declared != null && declared.name().startsWith("UTF-16")) {
+        return StandardCharsets.UTF_8;
+      }
+
+      return declared;
+    }
+  }
+
+  /**
+   * Extracts the encoding name that follows {@code charset=} within a content type.
+   *
+   * @param type the content type
+   * @return the encoding name, or null if there is none
+   */
+  private static String extract(String type) {
+    int index = type.toLowerCase(Locale.ROOT).indexOf("charset");
+
+    while (index >= 0) {
+      int i = index + 7;
+
+      while (i < type.length() && type.charAt(i) <= ' ') {
+        i++;
+      }
+
+      if (i < type.length() && type.charAt(i) == '=') {
+        String value = type.substring(i + 1).strip();
+
+        if (value.startsWith("\"") || value.startsWith("'")) {
+          int end = value.indexOf(value.charAt(0), 1);
+          return end < 0 ? null : value.substring(1, end);
+        }
+
+        return value.split("[;\\s]", 2)[0];
+      }
+
+      index = type.toLowerCase(Locale.ROOT).indexOf("charset", i);
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the supported encoding with the provided name.
+   *
+   * @param name the name of the encoding, or null
+   * @return the encoding, or null if the name is null or not supported
+   */
+  private static Charset lookup(String name) {
+    if (name == null || name.isBlank()) {
+      return null;
+    }
+
+    try {
+      return Charset.forName(name.strip());
+    } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+      // unknown encodings are treated as if none were declared
+      return null;
+    }
+  }
+
+  /**
+   * Tests whether the bytes are exactly the provided lowercase ASCII name, ignoring case.
+   *
+   * @param html the html bytes
+   * @param from the index of the first byte of the name
+   * @param to the index after the last byte of the name
+   * @param name the lowercase name
+   * @return true if the bytes are the name
+   */
+  private static boolean isName(ByteBuffer html, int from, int to, String name) {
+    return to - from == name.length() && startsWith(html, from, to, name);
+  }
+
+  /**
+   * Tests whether the bytes start with the provided lowercase ASCII prefix, ignoring case.
+   *
+   * @param html the html bytes
+   * @param from the index of the first byte to compare
+   * @param to the index after the last byte that may be compared
+   * @param prefix the lowercase prefix
+   * @return true if the bytes start with the prefix
+   */
+  private static boolean startsWith(ByteBuffer html, int from, int to, String prefix) {
+    if (to - from < prefix.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < prefix.length(); i++) {
+      byte b = html.get(from + i);
+
+      if ((isLetter(b) ? b | 0x20 : b) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Converts bytes into text, treating each byte as a single character.
+   *
+   * @param html the html bytes
+   * @param from the index of the first byte
+   * @param to the index after the last byte
+   * @return the text
+   */
+  private static String ascii(ByteBuffer html, int from, int to) {
+    char[] chars = new char[Math.max(0, to - from)];
+
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) (html.get(from + i) & 0xFF);
+    }
+
+    return new String(chars);
+  }
+
+  /**
+   * Tests whether the byte is an ASCII letter.
+   *
+   * @param b the byte to test
+   * @return true if the byte is an ASCII letter
+   */
+  private static boolean isLetter(byte b) {
+    return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+  }
+
+  /**
+   * Tests whether the byte is considered whitespace within an HTML tag.
+   *
+   * @param b the byte to test
+   * @return true if the byte is whitespace
+   */
+  private static boolean isSpace(byte b) {
+    return b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f';
+  }
+}
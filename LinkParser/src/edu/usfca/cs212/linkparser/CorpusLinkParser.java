@@ -0,0 +1,389 @@
+package edu.usfca.cs212.linkparser;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Parses the links from a corpus of HTML files stored on disk, such as an archived crawl. Large
+ * files are memory-mapped and scanned in place without copying them onto the heap, and files
+ * larger than 2 GB are mapped one region at a time. Small files are read into a single reused
+ * buffer instead, since mapping a file has a fixed cost that dominates for tiny files.
+ *
+ * @see LinkParser#parseLinks(URL, ByteBuffer, Charset)
+ */
+public class CorpusLinkParser {
+
+  /** Files smaller than this many bytes are read instead of mapped. */
+  public static final int MAP_THRESHOLD = 64 * 1024;
+
+  /** Largest region of a file that is mapped at once. */
+  public static final long REGION_SIZE = 1L << 30;
+
+  /** Receives each file and link found. */
+  private final BiConsumer<Path, Link> output;
+
+  /** The encoding of the HTML files. */
+  private final Charset charset;
+
+  /** The largest region of a file that is mapped at once. */
+  private final long regionSize;
+
+  /** Used to scan every file. */
+  private final AnchorScanner scanner;
+
+  /** Reused to read small files. */
+  private final ByteBuffer buffer;
+
+  /** The file currently being parsed. */
+  private Path file;
+
+  /** Resolves the links of the file currently being parsed. */
+  private LinkResolver resolver;
+
+  /** Measures the file currently being parsed, or null if it is not measured. */
+  private ScanProbe probe;
+
+  /** Number of files parsed. */
+  private long files;
+
+  /** Number of bytes parsed. */
+  private long bytes;
+
+  /** Number of links found. */
+  private long links;
+
+  /** Number of files that could not be parsed. */
+  private long failed;
+
+  /** Nanoseconds spent parsing files. */
+  private long elapsed;
+
+  /**
+   * Initializes a parser for HTML files in the provided encoding.
+   *
+   * @param charset the ASCII-compatible encoding of the HTML files
+   * @param output receives each file and the links found within it, in order
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   */
+  public CorpusLinkParser(Charset charset, BiConsumer<Path, Link> output) {
+    this(charset, output, REGION_SIZE);
+  }
+
+  /**
+   * Initializes a parser for HTML files in the provided encoding that maps large files one region
+   * of the provided size at a time.
+   *
+   * @param charset the ASCII-compatible encoding of the HTML files
+   * @param output receives each file and the links found within it, in order
+   * @param regionSize the largest region of a file to map at once
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   */
+  CorpusLinkParser(Charset charset, BiConsumer<Path, Link> output, long regionSize) {
+    if (!AnchorScanner.isAsciiCompatible(charset)) {
+      throw new IllegalArgumentException("Encoding is not ASCII-compatible: " + charset);
+    }
+
+    this.charset = charset;
+    this.output = output;
+    this.regionSize = regionSize;
+    this.buffer = ByteBuffer.allocate(MAP_THRESHOLD);
+
+    this.scanner = new AnchorScanner((text, start, end) -> {
+      Link link = resolver.resolve(text, start, end);
+
+      if (probe != null) {
+        probe.anchor(link != null);
+      }
+
+      if (link != null) {
+        links++;
+        this.output.accept(file, link);
+      }
+    });
+  }
+
+  /**
+   * Parses a single file or every HTML file within a directory. The base url of each file is found
+   * by resolving its path relative to the root against the base url of the root. If no base url is
+   * provided, the file url is used instead (so only absolute links will be found).
+   *
+   * @param root the file or directory to parse
+   * @param rootBase the base url of the root (ending in a slash for directories), or null
+   * @throws IOException if unable to walk the directory
+   */
+  public void parse(Path root, URL rootBase) throws IOException {
+    if (!Files.isDirectory(root)) {
+      // a file name on its own has no parent unless made absolute
+      Path absolute = root.toAbsolutePath();
+      parseFile(root, base(absolute, absolute.getParent(), rootBase));
+      return;
+    }
+
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+        if (attrs.isRegularFile() && isHtml(path)) {
+          try {
+            parseFile(path, base(path, root, rootBase));
+          } catch (IOException e) {
+            failed++;
+          }
+        }
+
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path path, IOException e) {
+        failed++;
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  /**
+   * Parses the links within a single file, mapping the file into memory if it is large.
+   *
+   * @param path the file to parse
+   * @param url the base url of the file
+   * @throws IOException if unable to read the file
+   */
+  public void parseFile(Path path, URL url) throws IOException {
+    long started = System.nanoTime();
+    this.file = path;
+
+    if (resolver == null) {
+      resolver = new LinkResolver(url, LinkCache.shared());
+    } else {
+      resolver.setBase(url);
+    }
+
+    this.probe = ScanProbe.start(url);
+
+    if (probe != null) {
+      probe.watch(resolver);
+    }
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+
+      if (size < MAP_THRESHOLD) {
+        int read = 0;
+        buffer.clear();
+
+        while (read >= 0 && buffer.hasRemaining()) {
+          read = channel.read(buffer);
+        }
+
+        buffer.flip();
+        scanner.scan(buffer, 0, buffer.limit(), charset);
+      } else {
+        // regions are scanned as chunks, so anchors may span regions
+        for (long position = 0; position < size; position += regionSize) {
+          long length = Math.min(regionSize, size - position);
+          MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+          scanner.scan(region, 0, region.limit(), charset);
+        }
+      }
+
+      files++;
+      bytes += size;
+
+      if (probe != null) {
+        probe.finish(size);
+      }
+    } finally {
+      scanner.reset();
+      probe = null;
+      elapsed += System.nanoTime() - started;
+    }
+  }
+
+  /**
+   * Returns the number of files parsed.
+   *
+   * @return number of files parsed
+   */
+  public long getFiles() {
+    return files;
+  }
+
+  /**
+   * Returns the number of bytes parsed.
+   *
+   * @return number of bytes parsed
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Returns the number of links found.
+   *
+   * @return number of links found
+   */
+  public long getLinks() {
+    return links;
+  }
+
+  /**
+   * Returns the number of files that could not be parsed.
+   *
+   * @return number of files that failed
+   */
+  public long getFailed() {
+    return failed;
+  }
+
+  /**
+   * Returns the number of files parsed per second.
+   *
+   * @return files per second
+   */
+  public double getFilesPerSecond() {
+    return elapsed == 0 ? 0 : files / (elapsed / 1e9);
+  }
+
+  /**
+   * Returns the number of megabytes parsed per second.
+   *
+   * @return megabytes per second
+   */
+  public double getMegabytesPerSecond() {
+    return elapsed == 0 ? 0 : bytes / (1024.0 * 1024.0) / (elapsed / 1e9);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d files, %d bytes, %d links, %d failed (%.1f files/sec, %.1f MB/sec)",
+        files, bytes, links, failed, getFilesPerSecond(), getMegabytesPerSecond());
+  }
+
+  /**
+   * Tests whether the path has an HTML file extension.
+   *
+   * @param path the path to test
+   * @return true if the path ends in .html or .htm (ignoring case)
+   */
+  public static boolean isHtml(Path path) {
+    String name = path.getFileName().toString().toLowerCase();
+    return name.endsWith(".html") || name.endsWith(".htm");
+  }
+
+  /**
+   * Determines the base url of a file within a corpus.
+   *
+   * @param path the file
+   * @param root the root of the corpus
+   * @param rootBase the base url of the root, or null to use the file url
+   * @return the base url of the file
+   * @throws MalformedURLException if unable to create the url
+   */
+  private static URL base(Path path, Path root, URL rootBase) throws MalformedURLException {
+    if (rootBase == null || root == null) {
+      return path.toUri().toURL();
+    }
+
+    StringBuilder relative = new StringBuilder();
+
+    for (Path part : root.relativize(path)) {
+      if (relative.length() > 0) {
+        relative.append('/');
+      }
+
+      relative.append(part.toString());
+    }
+
+    return new URL(rootBase, relative.toString());
+  }
+
+  /**
+   * Parses the links of the files provided as arguments, writing one tab-separated file and link
+   * per line. Statistics are written to the standard error stream.
+   *
+   * <p>Usage: {@code CorpusLinkParser [-base url] [-charset name] path...}
+   *
+   * @param args the optional flags followed by the files or directories to parse
+   * @throws IOException if unable to parse the files or write the output
+   */
+  public static void main(String[] args) throws IOException {
+    URL rootBase = null;
+    Charset charset = StandardCharsets.UTF_8;
+    List<Path> paths = new ArrayList<>();
+
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-base") && i + 1 < args.length) {
+        rootBase = new URL(args[++i]);
+      } else if (args[i].equals("-charset") && i + 1 < args.length) {
+        charset = Charset.forName(args[++i]);
+      } else {
+        paths.add(Path.of(args[i]));
+      }
+    }
+
+    if (paths.isEmpty()) {
+      System.err.println("Usage: CorpusLinkParser [-base url] [-charset name] path...");
+      return;
+    }
+
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, charset))) {
+      CorpusLinkParser parser = write(writer, charset, rootBase, paths);
+      writer.flush();
+      System.err.println(parser);
+    }
+  }
+
+  /**
+   * Parses the links of the files and directories, writing one tab-separated file and link per
+   * line.
+   *
+   * @param writer the writer to write the links to (not flushed or closed)
+   * @param charset the ASCII-compatible encoding of the HTML files
+   * @param rootBase the base url of each path, or null
+   * @param paths the files or directories to parse
+   * @return the parser used, with its statistics
+   * @throws IOException if unable to parse the files or write the output
+   */
+  static CorpusLinkParser write(Writer writer, Charset charset, URL rootBase, List<Path> paths)
+      throws IOException {
+    CorpusLinkParser parser = new CorpusLinkParser(charset, (file, link) -> {
+      try {
+        writer.write(file.toString());
+        writer.write('\t');
+        writer.write(link.toString());
+        writer.write('\n');
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+
+    try {
+      for (Path path : paths) {
+        parser.parse(path, rootBase);
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    return parser;
+  }
+}
@@ -0,0 +1,249 @@
+package edu.usfca.cs212.linkparser;
+
+/**
+ * Decodes the character references within HTML attribute values, such as {@code &amp;},
+ * {@code &#47;} and {@code &#x2F;}. Values are decoded one at a time into a caller-provided
+ * buffer, so the document itself is never unescaped or copied.
+ *
+ * <p>References are decoded the way HTML decodes them within attribute values. Numeric references
+ * may omit the trailing semicolon, and invalid code points are replaced with U+FFFD. Named
+ * references are supported for the markup characters ({@code amp}, {@code lt}, {@code gt},
+ * {@code quot} and {@code apos}) and the Latin-1 characters (such as {@code nbsp} and
+ * {@code eacute}); other names are left as they are. A named reference without a semicolon that
+ * is followed by {@code =} or a letter or digit is also left as it is, so query strings such as
+ * {@code ?a=1&copy=2} are not changed.
+ *
+ * @see LinkResolver
+ */
+public class Entities {
+
+  /** The names of the Latin-1 characters from U+00A0 to U+00FF, in order. */
+  private static final String[] LATIN1 = {
+      "nbsp", "iexcl", "cent", "pound", "curren", "yen", "brvbar", "sect", "uml", "copy", "ordf",
+      "laquo", "not", "shy", "reg", "macr", "deg", "plusmn", "sup2", "sup3", "acute", "micro",
+      "para", "middot", "cedil", "sup1", "ordm", "raquo", "frac14", "frac12", "frac34", "iquest",
+      "Agrave", "Aacute", "Acirc", "Atilde", "Auml", "Aring", "AElig", "Ccedil", "Egrave",
+      "Eacute", "Ecirc", "Euml", "Igrave", "Iacute", "Icirc", "Iuml", "ETH", "Ntilde", "Ograve",
+      "Oacute", "Ocirc", "Otilde", "Ouml", "times", "Oslash", "Ugrave", "Uacute", "Ucirc", "Uuml",
+      "Yacute", "THORN", "szlig", "agrave", "aacute", "acirc", "atilde", "auml", "aring", "aelig",
+      "ccedil", "egrave", "eacute", "ecirc", "euml", "igrave", "iacute", "icirc", "iuml", "eth",
+      "ntilde", "ograve", "oacute", "ocirc", "otilde", "ouml", "divide", "oslash", "ugrave",
+      "uacute", "ucirc", "uuml", "yacute", "thorn", "yuml"};
+
+  /** The names of the markup characters, including the uppercase names HTML also accepts. */
+  private static final String[] MARKUP = {
+      "amp", "AMP", "lt", "LT", "gt", "GT", "quot", "QUOT", "apos"};
+
+  /** The characters of {@link #MARKUP}, in the same order. */
+  private static final char[] MARKUP_CHARS = {'&', '&', '<', '<', '>', '>', '"', '"', '\''};
+
+  /** The characters numeric references from 0x80 to 0x9F refer to, as in Windows-1252. */
+  private static final char[] WINDOWS_1252 = {
+      '\u20AC', '\u0081', '\u201A', '\u0192', '\u201E', '\u2026', '\u2020', '\u2021',
+      '\u02C6', '\u2030', '\u0160', '\u2039', '\u0152', '\u008D', '\u017D', '\u008F',
+      '\u0090', '\u2018', '\u2019', '\u201C', '\u201D', '\u2022', '\u2013', '\u2014',
+      '\u02DC', '\u2122', '\u0161', '\u203A', '\u0153', '\u009D', '\u017E', '\u0178'};
+
+  /** Does not allow instantiation of this class. */
+  private Entities() {
+  }
+
+  /**
+   * Finds the first character that may start a character reference.
+   *
+   * @param text the text to search
+   * @param from the index of the first character to search
+   * @param to the index after the last character to search
+   * @return the index of the first {@code &} character, or -1 if there is none
+   */
+  public static int indexOf(CharSequence text, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (text.charAt(i) == '&') {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Decodes the character references within an attribute value.
+   *
+   * @param value the attribute value
+   * @return the decoded value, or the same value if it has no character references
+   */
+  public static String decode(String value) {
+    if (value.indexOf('&') < 0) {
+      return value;
+    }
+
+    StringBuilder decoded = new StringBuilder(value.length());
+    decode(value, 0, value.length(), decoded);
+    return decoded.toString();
+  }
+
+  /**
+   * Decodes the character references within part of the text, appending the decoded characters
+   * to the output.
+   *
+   * @param text the text containing the attribute value
+   * @param from the index of the first character of the value
+   * @param to the index after the last character of the value
+   * @param output receives the decoded value
+   */
+  public static void decode(CharSequence text, int from, int to, StringBuilder output) {
+    int i = from;
+
+    while (i < to) {
+      int amp = indexOf(text, i, to);
+
+      if (amp < 0) {
+        output.append(text, i, to);
+        return;
+      }
+
+      output.append(text, i, amp);
+      int end = amp + 1 < to && text.charAt(amp + 1) == '#'
+          ? numeric(text, amp + 2, to, output)
+          : named(text, amp + 1, to, output);
+
+      if (end < 0) {
+        output.append('&');
+        i = amp + 1;
+      } else {
+        i = end;
+      }
+    }
+  }
+
+  /**
+   * Decodes a numeric character reference.
+   *
+   * @param text the text containing the reference
+   * @param from the index after the {@code &#} characters
+   * @param to the index after the last character of the value
+   * @param output receives the decoded character
+   * @return the index after the reference, or -1 if there is no reference
+   */
+  private static int numeric(CharSequence text, int from, int to, StringBuilder output) {
+    boolean hex = from < to && (text.charAt(from) | 0x20) == 'x';
+    int radix = hex ? 16 : 10;
+    int start = hex ? from + 1 : from;
+    int i = start;
+    int code = 0;
+
+    for (int digit; i < to && (digit = Character.digit(text.charAt(i), radix)) >= 0
+        && text.charAt(i) < 0x80; i++) {
+      // anything past the largest code point is invalid, so stop growing to avoid overflow
+      code = Math.min(code * radix + digit, Character.MAX_CODE_POINT + 1);
+    }
+
+    if (i == start) {
+      return -1;
+    }
+
+    if (code >= 0x80 && code <= 0x9F) {
+      output.append(WINDOWS_1252[code - 0x80]);
+    } else if (code == 0 || code > Character.MAX_CODE_POINT
+        || (code >= Character.MIN_SURROGATE && code <= Character.MAX_SURROGATE)) {
+      output.append('\uFFFD');
+    } else {
+      output.appendCodePoint(code);
+    }
+
+    return i < to && text.charAt(i) == ';' ? i + 1 : i;
+  }
+
+  /**
+   * Decodes a named character reference, using the longest name that matches.
+   *
+   * @param text the text containing the reference
+   * @param from the index after the {@code &} character
+   * @param to the index after the last character of the value
+   * @param output receives the decoded character
+   * @return the index after the reference, or -1 if there is no reference that can be decoded
+   */
+  private static int named(CharSequence text, int from, int to, StringBuilder output) {
+    String name = null;
+    char decoded = 0;
+
+    for (int i = 0; i < MARKUP.length; i++) {
+      if (longer(MARKUP[i], name) && startsWith(text, from, to, MARKUP[i])) {
+        name = MARKUP[i];
+        decoded = MARKUP_CHARS[i];
+      }
+    }
+
+    for (int i = 0; i < LATIN1.length; i++) {
+      if (longer(LATIN1[i], name) && startsWith(text, from, to, LATIN1[i])) {
+        name = LATIN1[i];
+        decoded = (char) (0xA0 + i);
+      }
+    }
+
+    if (name == null) {
+      return -1;
+    }
+
+    int end = from + name.length();
+
+    if (end < to && text.charAt(end) == ';') {
+      output.append(decoded);
+      return end + 1;
+    }
+
+    // without a semicolon, values like ?a=1&copy=2 are left as they are
+    boolean ambiguous = end < to && (text.charAt(end) == '=' || isAlphanumeric(text.charAt(end)));
+
+    if (ambiguous || name.equals("apos")) {
+      return -1;
+    }
+
+    output.append(decoded);
+    return end;
+  }
+
+  /**
+   * Tests whether a name is longer than the longest name matched so far.
+   *
+   * @param name the name to test
+   * @param longest the longest name matched so far, or null if none
+   * @return true if the name is longer
+   */
+  private static boolean longer(String name, String longest) {
+    return longest == null || name.length() > longest.length();
+  }
+
+  /**
+   * Tests whether the text starts with the provided name at an index (matching case).
+   *
+   * @param text the text to test
+   * @param from the index of the first character to compare
+   * @param to the index after the last character that may be compared
+   * @param name the name to find
+   * @return true if the text starts with the name
+   */
+  private static boolean startsWith(CharSequence text, int from, int to, String name) {
+    if (to - from < name.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < name.length(); i++) {
+      if (text.charAt(from + i) != name.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Tests whether the character is an ASCII letter or digit.
+   *
+   * @param c the character to test
+   * @return true if the character is an ASCII letter or digit
+   */
+  private static boolean isAlphanumeric(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+  }
+}
@@ -0,0 +1,63 @@
+package edu.usfca.cs212.linkparser;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Holds idle {@link LinkExtractor} objects for tasks that may each run on a new thread (such as a
+ * virtual thread per task), where {@link LinkExtractor#local()} would create a new extractor for
+ * every page. Each task borrows an extractor for one page and releases it when done. Borrowing
+ * never blocks: a new extractor is created if none are idle. Extractors are only created when more
+ * pages are parsed at once than ever before (or than the capacity), and at most the capacity are
+ * kept.
+ *
+ * @see LinkExtractor
+ */
+class ExtractorPool {
+
+  /** The most idle extractors any pool keeps, whatever its capacity. */
+  static final int MAX_IDLE = 256;
+
+  /** The idle extractors. */
+  private final ArrayBlockingQueue<LinkExtractor> idle;
+
+  /**
+   * Initializes an empty pool.
+   *
+   * @param capacity the most idle extractors to keep, up to {@link #MAX_IDLE}
+   */
+  ExtractorPool(int capacity) {
+    this.idle = new ArrayBlockingQueue<>(Math.min(capacity, MAX_IDLE));
+  }
+
+  /**
+   * Returns an idle extractor, or a new one if none are idle.
+   *
+   * @return an extractor that is not parsing a page
+   */
+  LinkExtractor borrow() {
+    LinkExtractor extractor = idle.poll();
+    return extractor == null ? new LinkExtractor() : extractor;
+  }
+
+  /**
+   * Resets an extractor and returns it to the pool, unless it is still parsing a page or the pool
+   * is full.
+   *
+   * @param extractor the extractor borrowed from this pool
+   */
+  void release(LinkExtractor extractor) {
+    if (!extractor.isBusy()) {
+      extractor.reset();
+      idle.offer(extractor);
+    }
+  }
+
+  /**
+   * Returns the number of idle extractors.
+   *
+   * @return the number of idle extractors
+   */
+  int idle() {
+    return idle.size();
+  }
+}
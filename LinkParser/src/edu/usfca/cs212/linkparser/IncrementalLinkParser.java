@@ -0,0 +1,452 @@
+package edu.usfca.cs212.linkparser;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Lists the links of documents that are parsed repeatedly as they change, such as pages that are
+ * crawled again every day. The result of each parse is a {@link Snapshot} that remembers which
+ * links were found in which chunk of the document. When a new version of the document is parsed
+ * against a previous snapshot, only the chunks that changed are scanned again; the links of every
+ * other chunk are copied from the snapshot. A byte-identical document is detected with a single
+ * checksum of its bytes and returns the previous snapshot without scanning at all.
+ *
+ * <p>Documents are handled as raw bytes, since that is what a crawler downloads and since checksums
+ * of bytes are computed by dedicated processor instructions. Chunk boundaries are content-defined:
+ * a chunk may only end at a {@code <} character, and only when a hash of the bytes around that
+ * character has a particular pattern. Since a boundary only depends on the nearby bytes, an edit
+ * only changes the boundaries around it, and the chunks before and after the edit line up with the
+ * chunks of the previous version.
+ *
+ * <p>A chunk is only reused when the scanner was idle at both the start and the end of that chunk
+ * in the previous version, and is idle at its start in the new version. Scanning the same bytes
+ * from an idle scanner always produces the same links, so the results are exactly the same as
+ * {@link LinkParser#parseLinks(URL, ByteBuffer, Charset)}.
+ *
+ * @see SplitLinkParser
+ */
+public class IncrementalLinkParser {
+
+  /** Smallest number of bytes in a chunk, other than the last chunk. */
+  public static final int MIN_CHUNK_SIZE = 1 << 11;
+
+  /** Number of bytes after which a chunk ends at the next tag regardless of its content. */
+  public static final int MAX_CHUNK_SIZE = 1 << 16;
+
+  /** Number of high bits of the boundary hash that must be zero (so 1 in 8 tags may end a chunk). */
+  private static final int CUT_BITS = 3;
+
+  /** Reads eight bytes at a time from a byte array. */
+  private static final VarHandle LONGS =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  /** The {@code <} character repeated in every byte of a word. */
+  private static final long LESS_THANS = 0x3C3C3C3C3C3C3C3CL;
+
+  /**
+   * Parses a document for the first time, encoded as UTF-8.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @return the snapshot of the links in the document
+   */
+  public static Snapshot parse(URL base, String html) {
+    return parse(base, html.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, null);
+  }
+
+  /**
+   * Parses a document for the first time.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html (such as UTF-8)
+   * @return the snapshot of the links in the document
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   */
+  public static Snapshot parse(URL base, byte[] html, Charset charset) {
+    if (!AnchorScanner.isAsciiCompatible(charset)) {
+      throw new IllegalArgumentException("Encoding is not ASCII-compatible: " + charset);
+    }
+
+    return parse(base, html, charset, null);
+  }
+
+  /**
+   * Parses a new version of a previously parsed document, encoded with the same encoding as the
+   * previous version, scanning only the chunks that changed.
+   *
+   * @param previous the snapshot of the previous version of the document
+   * @param html the raw html of the new version
+   * @return the snapshot of the links in the new version, or the previous snapshot if the html is
+   *         identical
+   */
+  public static Snapshot parse(Snapshot previous, String html) {
+    return parse(previous, html.getBytes(previous.charset));
+  }
+
+  /**
+   * Parses a new version of a previously parsed document, scanning only the chunks that changed.
+   *
+   * @param previous the snapshot of the previous version of the document
+   * @param html the bytes of the new version, in the same encoding as the previous version
+   * @return the snapshot of the links in the new version, or the previous snapshot if the html is
+   *         identical
+   */
+  public static Snapshot parse(Snapshot previous, byte[] html) {
+    return parse(previous.base, html, previous.charset, previous);
+  }
+
+  /**
+   * Parses a document, reusing the links of any unchanged chunks from a previous snapshot.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html
+   * @param previous the snapshot of the previous version, or null if there is none
+   * @return the snapshot of the links in the document
+   */
+  private static Snapshot parse(URL base, byte[] html, Charset charset, Snapshot previous) {
+    Checksum checksum = new Checksum();
+    long hash = checksum.of(html, 0, html.length);
+
+    if (previous != null && previous.length == html.length && previous.hash == hash) {
+      return previous;
+    }
+
+    HashMap<Long, Integer> reusable = new HashMap<>();
+
+    if (previous != null) {
+      for (int i = 0; i < previous.ends.length; i++) {
+        if (previous.reusable[i]) {
+          reusable.putIfAbsent(previous.hashes[i], i);
+        }
+      }
+    }
+
+    ArrayList<Link> links = new ArrayList<>();
+    LinkResolver resolver = new LinkResolver(base, LinkCache.shared());
+    AnchorScanner scanner = new AnchorScanner((text, first, last) -> {
+      Link link = resolver.resolve(text, first, last);
+
+      if (link != null) {
+        links.add(link);
+      }
+    });
+
+    ByteBuffer buffer = ByteBuffer.wrap(html);
+    Builder chunks = new Builder();
+    int start = 0;
+
+    while (start < html.length) {
+      int end = boundary(html, start);
+      long chunk = checksum.of(html, start, end);
+      boolean idle = scanner.isIdle();
+      Integer match = idle ? reusable.get(chunk) : null;
+
+      if (match != null && previous.ends[match] - previous.start(match) == end - start) {
+        int from = match == 0 ? 0 : previous.linkEnds[match - 1];
+        links.addAll(previous.links.subList(from, previous.linkEnds[match]));
+        chunks.reused++;
+      } else {
+        scanner.scan(buffer, start, end, charset);
+      }
+
+      chunks.add(end, chunk, links.size(), idle && scanner.isIdle());
+      start = end;
+    }
+
+    scanner.reset();
+    return new Snapshot(base, charset, html.length, hash, links, chunks);
+  }
+
+  /**
+   * Finds the end of the chunk that starts at an index.
+   *
+   * @param html the html being chunked
+   * @param start the index of the first byte of the chunk
+   * @return the index after the last byte of the chunk
+   */
+  private static int boundary(byte[] html, int start) {
+    int limit = (int) Math.min(html.length, (long) start + MAX_CHUNK_SIZE);
+    int index = start + MIN_CHUNK_SIZE;
+
+    if (index >= html.length) {
+      return html.length;
+    }
+
+    while ((index = indexOf(html, index)) >= 0) {
+      if (index >= limit || isBoundary(html, index)) {
+        return index;
+      }
+
+      index++;
+    }
+
+    return html.length;
+  }
+
+  /**
+   * Tests whether a chunk may end at a {@code <} character, based on the eight bytes before and
+   * after it.
+   *
+   * @param html the html being chunked
+   * @param index the index of a {@code <} character at least eight bytes into the html
+   * @return true if a chunk may end at the character
+   */
+  private static boolean isBoundary(byte[] html, int index) {
+    if (index + 9 > html.length) {
+      return false;
+    }
+
+    long before = (long) LONGS.get(html, index - 8);
+    long after = (long) LONGS.get(html, index + 1);
+    long mixed = (before ^ Long.rotateLeft(after, 29)) * 0xBF58476D1CE4E5B9L;
+    mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+    return mixed >>> (64 - CUT_BITS) == 0;
+  }
+
+  /**
+   * Finds the next {@code <} character, testing eight bytes at a time.
+   *
+   * @param html the html to search
+   * @param from the index to start searching from
+   * @return the index of the next {@code <} character, or -1 if there is none
+   */
+  private static int indexOf(byte[] html, int from) {
+    int i = from;
+
+    for (; i + 8 <= html.length; i += 8) {
+      long word = (long) LONGS.get(html, i) ^ LESS_THANS;
+
+      // sets the high bit of the lowest zero byte (and possibly some bytes above it)
+      long found = (word - 0x0101010101010101L) & ~word & 0x8080808080808080L;
+
+      if (found != 0) {
+        return i + (Long.numberOfTrailingZeros(found) >>> 3);
+      }
+    }
+
+    for (; i < html.length; i++) {
+      if (html[i] == '<') {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * The links found in one version of a document, along with the checkpoints needed to parse the
+   * next version incrementally. Snapshots are immutable and only keep a few numbers per chunk, not
+   * the html itself.
+   */
+  public static class Snapshot {
+
+    /** The base url of the document. */
+    private final URL base;
+
+    /** The encoding of the document. */
+    private final Charset charset;
+
+    /** The number of bytes in the document. */
+    private final int length;
+
+    /** The checksum of the entire document. */
+    private final long hash;
+
+    /** The links found in the document, in order. */
+    private final List<Link> links;
+
+    /** The index after the last byte of each chunk. */
+    private final int[] ends;
+
+    /** The checksum of each chunk. */
+    private final long[] hashes;
+
+    /** The number of links found up to the end of each chunk. */
+    private final int[] linkEnds;
+
+    /** Whether the scanner was idle at both the start and the end of each chunk. */
+    private final boolean[] reusable;
+
+    /** The number of chunks copied from the previous snapshot. */
+    private final int reused;
+
+    /**
+     * Initializes a snapshot.
+     *
+     * @param base the base url of the document
+     * @param charset the encoding of the document
+     * @param length the number of bytes in the document
+     * @param hash the checksum of the entire document
+     * @param links the links found in the document
+     * @param chunks the checkpoints of each chunk
+     */
+    private Snapshot(URL base, Charset charset, int length, long hash, List<Link> links,
+        Builder chunks) {
+      int count = chunks.count;
+
+      this.base = base;
+      this.charset = charset;
+      this.length = length;
+      this.hash = hash;
+      this.links = Collections.unmodifiableList(links);
+      this.ends = Arrays.copyOf(chunks.ends, count);
+      this.hashes = Arrays.copyOf(chunks.hashes, count);
+      this.linkEnds = Arrays.copyOf(chunks.linkEnds, count);
+      this.reusable = Arrays.copyOf(chunks.reusable, count);
+      this.reused = chunks.reused;
+    }
+
+    /**
+     * Returns the index of the first byte of a chunk.
+     *
+     * @param chunk the index of the chunk
+     * @return the index of the first byte
+     */
+    private int start(int chunk) {
+      return chunk == 0 ? 0 : ends[chunk - 1];
+    }
+
+    /**
+     * Returns the base url of the document.
+     *
+     * @return the base url
+     */
+    public URL getBase() {
+      return base;
+    }
+
+    /**
+     * Returns the links found in the document.
+     *
+     * @return unmodifiable list of the cleaned links in the order they were found
+     */
+    public List<Link> getLinks() {
+      return links;
+    }
+
+    /**
+     * Returns the links found in the document as URLs.
+     *
+     * @return cleaned list of all http(s) links in the order they were found
+     *
+     * @see LinkParser#listLinks(URL, String)
+     */
+    public ArrayList<URL> listLinks() {
+      return LinkParser.toURLs(links);
+    }
+
+    /**
+     * Returns the number of chunks the document was split into.
+     *
+     * @return the number of chunks
+     */
+    public int getChunks() {
+      return ends.length;
+    }
+
+    /**
+     * Returns the number of chunks whose links were copied from the previous snapshot instead of
+     * being scanned.
+     *
+     * @return the number of reused chunks
+     */
+    public int getReused() {
+      return reused;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d links, %d chunks, %d reused", links.size(), ends.length, reused);
+    }
+  }
+
+  /**
+   * Collects the checkpoints of each chunk during a parse.
+   */
+  private static class Builder {
+
+    /** The index after the last byte of each chunk. */
+    private int[] ends = new int[16];
+
+    /** The checksum of each chunk. */
+    private long[] hashes = new long[16];
+
+    /** The number of links found up to the end of each chunk. */
+    private int[] linkEnds = new int[16];
+
+    /** Whether the scanner was idle at both the start and the end of each chunk. */
+    private boolean[] reusable = new boolean[16];
+
+    /** The number of chunks added. */
+    private int count;
+
+    /** The number of chunks copied from the previous snapshot. */
+    private int reused;
+
+    /**
+     * Adds the checkpoint of the next chunk.
+     *
+     * @param end the index after the last byte of the chunk
+     * @param hash the checksum of the chunk
+     * @param linkEnd the number of links found up to the end of the chunk
+     * @param idle whether the scanner was idle at both the start and the end of the chunk
+     */
+    private void add(int end, long hash, int linkEnd, boolean idle) {
+      if (count == ends.length) {
+        ends = Arrays.copyOf(ends, count * 2);
+        hashes = Arrays.copyOf(hashes, count * 2);
+        linkEnds = Arrays.copyOf(linkEnds, count * 2);
+        reusable = Arrays.copyOf(reusable, count * 2);
+      }
+
+      ends[count] = end;
+      hashes[count] = hash;
+      linkEnds[count] = linkEnd;
+      reusable[count] = idle;
+      count++;
+    }
+  }
+
+  /**
+   * Computes 64-bit checksums of ranges of bytes by combining two different 32-bit CRCs, both of
+   * which are computed by dedicated processor instructions on most hardware.
+   */
+  private static class Checksum {
+
+    /** Computes the high 32 bits. */
+    private final CRC32C high = new CRC32C();
+
+    /** Computes the low 32 bits. */
+    private final CRC32 low = new CRC32();
+
+    /**
+     * Returns the checksum of a range of bytes.
+     *
+     * @param bytes the bytes to checksum
+     * @param start the index of the first byte
+     * @param end the index after the last byte
+     * @return the checksum
+     */
+    private long of(byte[] bytes, int start, int end) {
+      high.reset();
+      low.reset();
+      high.update(bytes, start, end - start);
+      low.update(bytes, start, end - start);
+      return high.getValue() << 32 | low.getValue();
+    }
+  }
+}
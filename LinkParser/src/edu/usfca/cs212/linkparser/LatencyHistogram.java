@@ -0,0 +1,115 @@
+package edu.usfca.cs212.linkparser;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in a fixed number of buckets, in the same way as HdrHistogram. Small values
+ * each have their own bucket, and larger values share buckets that grow with the size of the
+ * value, so every value is recorded to within about 3% no matter how large it is. Recording a
+ * value only atomically increments a single bucket and never allocates.
+ *
+ * <p>Histograms may be recorded to and read by any number of threads at once. The values read
+ * may be slightly out of date.
+ *
+ * @see LinkMetrics
+ */
+class LatencyHistogram {
+
+  /** The number of bits of each value that are kept exactly. */
+  private static final int PRECISION = 5;
+
+  /** The number of buckets for each power of two. */
+  private static final int SUB_BUCKETS = 1 << PRECISION;
+
+  /** The number of buckets needed to record every non-negative long value. */
+  static final int BUCKETS = (Long.SIZE - PRECISION) * SUB_BUCKETS;
+
+  /** The number of values recorded in each bucket. */
+  private final AtomicLongArray counts;
+
+  /**
+   * Initializes an empty histogram.
+   */
+  LatencyHistogram() {
+    this.counts = new AtomicLongArray(BUCKETS);
+  }
+
+  /**
+   * Records a value.
+   *
+   * @param value the value to record (negative values are recorded as 0)
+   */
+  void record(long value) {
+    counts.incrementAndGet(index(Math.max(value, 0)));
+  }
+
+  /**
+   * Adds the counts of this histogram to the totals.
+   *
+   * @param totals the total count of each bucket
+   */
+  void addTo(long[] totals) {
+    for (int i = 0; i < totals.length; i++) {
+      totals[i] += counts.get(i);
+    }
+  }
+
+  /**
+   * Returns the bucket a value is recorded in.
+   *
+   * @param value the non-negative value
+   * @return the index of the bucket
+   */
+  static int index(long value) {
+    if (value < 2 * SUB_BUCKETS) {
+      return (int) value;
+    }
+
+    int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - PRECISION;
+    return shift * SUB_BUCKETS + (int) (value >>> shift);
+  }
+
+  /**
+   * Returns the largest value that is recorded in a bucket.
+   *
+   * @param index the index of the bucket
+   * @return the largest value in the bucket
+   */
+  static long highest(int index) {
+    if (index < 2 * SUB_BUCKETS) {
+      return index;
+    }
+
+    int shift = index / SUB_BUCKETS - 1;
+    long lowest = (long) (index - shift * SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  /**
+   * Finds a percentile of the values counted.
+   *
+   * @param totals the total count of each bucket
+   * @param percentile the percentile between 0 and 100 (such as 50 or 99)
+   * @return the largest value in the bucket containing the percentile, or 0 if there are no values
+   */
+  static long percentile(long[] totals, double percentile) {
+    long count = 0;
+
+    for (long total : totals) {
+      count += total;
+    }
+
+    long rank = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+    long seen = 0;
+
+    for (int i = 0; i < totals.length; i++) {
+      seen += totals[i];
+
+      if (seen >= rank) {
+        return highest(i);
+      }
+    }
+
+    return 0;
+  }
+}
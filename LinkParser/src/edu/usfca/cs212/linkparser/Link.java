@@ -0,0 +1,176 @@
+package edu.usfca.cs212.linkparser;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+
+/**
+ * A lightweight, immutable link. Unlike {@link URL}, which may perform DNS lookups in its
+ * {@link URL#equals(Object)} and {@link URL#hashCode()} methods and carries many fields, a link
+ * stores only its normalized text and the offsets of its components. Equality is purely lexical,
+ * and the hash code is the (cached) hash code of the text.
+ *
+ * <p>Links are created from already cleaned absolute URLs, and may be converted to a {@link URL}
+ * or {@link URI} when needed.
+ *
+ * @see LinkResolver
+ */
+public final class Link implements Comparable<Link> {
+
+  /** The normalized text of the link. */
+  private final String link;
+
+  /** The index of the first character of the authority (after the {@code //} if present). */
+  private final int authorityStart;
+
+  /** The index of the first character of the path (after the authority). */
+  private final int pathStart;
+
+  /** The index of the {@code ?} that starts the query, or -1 if there is no query. */
+  private final int queryStart;
+
+  /**
+   * Initializes a link from the text of an absolute URL, such as
+   * {@code https://www.usfca.edu/path?query}. The text is assumed to already be cleaned.
+   *
+   * @param link the text of the link
+   * @throws IllegalArgumentException if the text does not start with a scheme
+   */
+  public Link(String link) {
+    int colon = link.indexOf(':');
+
+    if (colon < 1) {
+      throw new IllegalArgumentException("Not an absolute link: " + link);
+    }
+
+    boolean authority = link.startsWith("//", colon + 1);
+    int start = authority ? colon + 3 : colon + 1;
+    int query = link.indexOf('?', start);
+    int end = query < 0 ? link.length() : query;
+    int slash = link.indexOf('/', start);
+
+    this.link = link;
+    this.authorityStart = start;
+    this.pathStart = !authority ? start : slash < 0 || slash > end ? end : slash;
+    this.queryStart = query;
+  }
+
+  /**
+   * Initializes a link from a URL.
+   *
+   * @param url the absolute url
+   */
+  public Link(URL url) {
+    this(url.toString());
+  }
+
+  /**
+   * Returns the scheme of this link, such as {@code https}.
+   *
+   * @return the scheme
+   */
+  public String getScheme() {
+    return link.substring(0, link.indexOf(':'));
+  }
+
+  /**
+   * Returns the authority of this link, including any user info and port.
+   *
+   * @return the authority
+   */
+  public String getAuthority() {
+    return link.substring(authorityStart, pathStart);
+  }
+
+  /**
+   * Returns the host of this link, without any user info or port.
+   *
+   * @return the host
+   */
+  public String getHost() {
+    int start = link.lastIndexOf('@', pathStart - 1);
+    start = start < authorityStart ? authorityStart : start + 1;
+
+    int end = pathStart;
+    int bracket = link.lastIndexOf(']', pathStart - 1);
+    int colon = link.lastIndexOf(':', pathStart - 1);
+
+    if (colon >= start && colon > bracket) {
+      end = colon;
+    }
+
+    return link.substring(start, end);
+  }
+
+  /**
+   * Returns the path of this link, which may be empty.
+   *
+   * @return the path
+   */
+  public String getPath() {
+    return link.substring(pathStart, queryStart < 0 ? link.length() : queryStart);
+  }
+
+  /**
+   * Returns the query of this link, or null if there is no query.
+   *
+   * @return the query
+   */
+  public String getQuery() {
+    return queryStart < 0 ? null : link.substring(queryStart + 1);
+  }
+
+  /**
+   * Tests whether this link has the provided host, ignoring case.
+   *
+   * @param host the host to test
+   * @return true if this link has the host
+   */
+  public boolean hasHost(String host) {
+    return getHost().equalsIgnoreCase(host);
+  }
+
+  /**
+   * Converts this link into a URL.
+   *
+   * @return the url
+   * @throws IllegalStateException if this link is not a valid url
+   */
+  public URL toURL() {
+    try {
+      return new URL(link);
+    } catch (MalformedURLException e) {
+      throw new IllegalStateException("Invalid link: " + link, e);
+    }
+  }
+
+  /**
+   * Converts this link into a URI.
+   *
+   * @return the uri
+   * @throws IllegalArgumentException if this link is not a valid uri
+   */
+  public URI toURI() {
+    return URI.create(link);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return this == other || other instanceof Link && link.equals(((Link) other).link);
+  }
+
+  @Override
+  public int hashCode() {
+    return link.hashCode();
+  }
+
+  @Override
+  public int compareTo(Link other) {
+    return link.compareTo(other.link);
+  }
+
+  @Override
+  public String toString() {
+    return link;
+  }
+}
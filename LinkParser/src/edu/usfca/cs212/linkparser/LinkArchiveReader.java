@@ -0,0 +1,383 @@
+package edu.usfca.cs212.linkparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Reads the links from an archive created by {@link LinkArchiveWriter}. Files are memory-mapped
+ * and read in place, and each link is decoded into a reused buffer, so no objects are created per
+ * link. Files larger than 2 GB are mapped one region at a time. For example:
+ *
+ * <pre>
+ * try (LinkArchiveReader reader = new LinkArchiveReader(path)) {
+ *   while (reader.nextDocument()) {
+ *     while (reader.nextLink()) {
+ *       System.out.println(reader.getSource() + "\t" + reader.getLink());
+ *     }
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>The links of a document do not need to be read before moving on to the next document; they
+ * are skipped without being decoded. Every length and number read is checked against the block it
+ * belongs to, so a truncated or corrupt archive is reported with an {@link IOException} rather
+ * than read past the end of a block. Readers are not thread-safe.
+ *
+ * @see LinkArchiveWriter
+ */
+public class LinkArchiveReader implements AutoCloseable {
+
+  /** Largest region of a file that is mapped at once. */
+  public static final long REGION_SIZE = 1L << 30;
+
+  /** The most bytes a variable-length integer may take. */
+  private static final int MAX_VARINT = 5;
+
+  /** The file being read, or null if reading from a buffer. */
+  private final FileChannel channel;
+
+  /** The size of the archive in bytes. */
+  private final long size;
+
+  /** The size of each region of the file that is mapped. */
+  private final long regionSize;
+
+  /** The region of the archive being read. */
+  private ByteBuffer buffer;
+
+  /** The offset of the region within the archive. */
+  private long offset;
+
+  /** The position of the next block within the region. */
+  private int blockEnd;
+
+  /** Whether the empty block at the end of the archive has been read. */
+  private boolean finished;
+
+  /** The prefixes of the links read so far, by number. */
+  private final ArrayList<String> prefixes;
+
+  /** The source of the current document. */
+  private final StringBuilder source;
+
+  /** The index within the source where the prefix ends. */
+  private int sourceSplit;
+
+  /** The current link. */
+  private final StringBuilder link;
+
+  /** The number of links in the current document. */
+  private int linkCount;
+
+  /** The number of links of the current document not yet read. */
+  private int remaining;
+
+  /** Reused to decode non-ASCII characters. */
+  private byte[] scratch;
+
+  /**
+   * Initializes a reader for an archive file, mapping it into memory.
+   *
+   * @param path the archive file
+   * @throws IOException if unable to read the file or it is not an archive
+   */
+  public LinkArchiveReader(Path path) throws IOException {
+    this(path, REGION_SIZE);
+  }
+
+  /**
+   * Initializes a reader for an archive file, mapping it one region at a time.
+   *
+   * @param path the archive file
+   * @param regionSize the largest region of the file to map at once
+   * @throws IOException if unable to read the file or it is not an archive
+   */
+  LinkArchiveReader(Path path, long regionSize) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.size = channel.size();
+    this.regionSize = regionSize;
+    this.prefixes = new ArrayList<>();
+    this.source = new StringBuilder();
+    this.link = new StringBuilder();
+
+    try {
+      map(0, LinkArchiveWriter.MAGIC.length);
+      readMagic();
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Initializes a reader for an archive already in memory, starting at the current position of
+   * the buffer. The buffer itself is not modified.
+   *
+   * @param archive the bytes of the archive
+   * @throws IOException if the bytes are not an archive
+   */
+  public LinkArchiveReader(ByteBuffer archive) throws IOException {
+    this.channel = null;
+    this.buffer = archive.slice();
+    this.size = buffer.limit();
+    this.regionSize = size;
+    this.prefixes = new ArrayList<>();
+    this.source = new StringBuilder();
+    this.link = new StringBuilder();
+    readMagic();
+  }
+
+  /**
+   * Checks the archive starts with the magic bytes.
+   *
+   * @throws IOException if the archive does not start with the magic bytes
+   */
+  private void readMagic() throws IOException {
+    for (byte expected : LinkArchiveWriter.MAGIC) {
+      if (!buffer.hasRemaining() || buffer.get() != expected) {
+        throw new IOException("Not a link archive (or an unsupported version).");
+      }
+    }
+
+    blockEnd = buffer.position();
+  }
+
+  /**
+   * Maps a region of the file into memory.
+   *
+   * @param start the offset of the region within the file
+   * @param needed the number of bytes that must be within the region, if the file has them
+   * @throws IOException if unable to map the file
+   */
+  private void map(long start, long needed) throws IOException {
+    long length = Math.min(size - start, Math.max(regionSize, needed));
+    buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+    offset = start;
+  }
+
+  /**
+   * Moves on to the next document, skipping any links of the current document that were not read.
+   *
+   * @return true if there is another document, or false at the end of the archive
+   * @throws IOException if unable to map the file or the archive is truncated
+   */
+  public boolean nextDocument() throws IOException {
+    if (finished) {
+      return false;
+    }
+
+    if (channel != null && buffer.limit() - blockEnd < MAX_VARINT) {
+      map(offset + blockEnd, MAX_VARINT);
+      blockEnd = 0;
+    }
+
+    buffer.position(blockEnd);
+
+    if (!buffer.hasRemaining()) {
+      throw new IOException("Truncated link archive.");
+    }
+
+    int length = readVarint(buffer.limit());
+
+    if (length == 0) {
+      finished = true;
+      remaining = 0;
+      return false;
+    }
+
+    if (channel != null && buffer.remaining() < length) {
+      map(offset + buffer.position(), length);
+    }
+
+    if (buffer.remaining() < length) {
+      throw new IOException("Truncated link archive.");
+    }
+
+    blockEnd = buffer.position() + length;
+    remaining = 0;
+
+    for (int added = readVarint(blockEnd); added > 0; added--) {
+      link.setLength(0);
+      readString(link);
+      prefixes.add(link.toString());
+    }
+
+    String prefix = readPrefix();
+    source.setLength(0);
+    source.append(prefix);
+    sourceSplit = prefix.length();
+    readString(source);
+
+    linkCount = readVarint(blockEnd);
+    remaining = linkCount;
+    link.setLength(0);
+    return true;
+  }
+
+  /**
+   * Moves on to the next link of the current document.
+   *
+   * @return true if there is another link, or false if every link of the document has been read
+   * @throws IOException if the archive is truncated or corrupt
+   */
+  public boolean nextLink() throws IOException {
+    if (remaining == 0) {
+      return false;
+    }
+
+    remaining--;
+    link.setLength(0);
+    link.append(readPrefix());
+
+    int shared = readVarint(blockEnd);
+
+    if (shared > source.length() - sourceSplit) {
+      throw new IOException("Corrupt link archive.");
+    }
+
+    link.append(source, sourceSplit, sourceSplit + shared);
+    readString(link);
+    return true;
+  }
+
+  /**
+   * Returns the source of the current document. The characters are only valid until the next
+   * document is read.
+   *
+   * @return the url (or other name) of the current document
+   */
+  public CharSequence getSource() {
+    return source;
+  }
+
+  /**
+   * Returns the current link. The characters are only valid until the next link is read, so must
+   * be copied (such as with {@link #toLink()}) to be kept.
+   *
+   * @return the current link
+   */
+  public CharSequence getLink() {
+    return link;
+  }
+
+  /**
+   * Creates a {@link Link} for the current link.
+   *
+   * @return the current link
+   */
+  public Link toLink() {
+    return new Link(link.toString());
+  }
+
+  /**
+   * Returns the number of links in the current document.
+   *
+   * @return number of links in the current document
+   */
+  public int getLinkCount() {
+    return linkCount;
+  }
+
+  /**
+   * Returns the size of the archive in bytes.
+   *
+   * @return size of the archive in bytes
+   */
+  public long getSize() {
+    return size;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+
+  /**
+   * Reads a variable-length integer that must end before the limit.
+   *
+   * @param limit the position the integer must end before
+   * @return the value read, which is never negative
+   * @throws IOException if the integer runs past the limit or is not a valid length or count
+   */
+  private int readVarint(int limit) throws IOException {
+    int position = buffer.position();
+    int end = Math.min(limit, position + MAX_VARINT);
+    int value = 0;
+
+    for (int shift = 0; position < end; shift += 7) {
+      byte b = buffer.get(position++);
+      value |= (b & 0x7F) << shift;
+
+      if (b >= 0) {
+        if (value < 0) {
+          break;
+        }
+
+        buffer.position(position);
+        return value;
+      }
+    }
+
+    throw new IOException(position < limit ? "Corrupt link archive." : "Truncated link archive.");
+  }
+
+  /**
+   * Reads the number of a prefix read so far.
+   *
+   * @return the prefix
+   * @throws IOException if the block is truncated or there is no such prefix
+   */
+  private String readPrefix() throws IOException {
+    int index = readVarint(blockEnd);
+
+    if (index >= prefixes.size()) {
+      throw new IOException("Corrupt link archive.");
+    }
+
+    return prefixes.get(index);
+  }
+
+  /**
+   * Reads a length followed by that many UTF-8 bytes, appending the decoded characters.
+   *
+   * @param output receives the decoded characters
+   * @throws IOException if the string runs past the end of the block
+   */
+  private void readString(StringBuilder output) throws IOException {
+    int length = readVarint(blockEnd);
+    int start = buffer.position();
+
+    if (length > blockEnd - start) {
+      throw new IOException("Truncated link archive.");
+    }
+
+    int end = start + length;
+
+    for (int i = start; i < end; i++) {
+      byte b = buffer.get(i);
+
+      if (b < 0) {
+        int count = end - i;
+
+        if (scratch == null || scratch.length < count) {
+          scratch = new byte[Math.max(count, 64)];
+        }
+
+        buffer.get(i, scratch, 0, count);
+        output.append(new String(scratch, 0, count, StandardCharsets.UTF_8));
+        break;
+      }
+
+      output.append((char) b);
+    }
+
+    buffer.position(end);
+  }
+}
@@ -0,0 +1,437 @@
+package edu.usfca.cs212.linkparser;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * Writes the links found in many documents to a compact binary archive, which is usually several
+ * times smaller than writing each link on its own line and can be read back with
+ * {@link LinkArchiveReader} without creating any {@link Link} or {@link java.net.URL} objects.
+ *
+ * <p>Each link (and the source of each document) is split into a prefix, which is the scheme and
+ * authority such as {@code https://www.usfca.edu}, and the rest of the link. Prefixes are stored
+ * only once in a dictionary and referred to by number. The rest of each link is front-coded
+ * against the rest of the document source: only the number of leading characters it shares with
+ * the source and the characters after those are stored. All numbers are stored as variable-length
+ * integers, so most take a single byte.
+ *
+ * <p>The archive starts with the {@link #MAGIC} bytes and is followed by one block per document.
+ * Each block starts with its length, so readers may skip over the links of a document, and ends
+ * with an empty block. A block is made up of:
+ *
+ * <ol>
+ * <li>the prefixes first used by the block, each as a length and UTF-8 bytes, added to the
+ * dictionary in order (preceded by the number of new prefixes)</li>
+ * <li>the source of the document, as a prefix number and the rest as a length and UTF-8 bytes</li>
+ * <li>the number of links, followed by each link as a prefix number, the number of characters
+ * shared with the rest of the source and the remaining characters as a length and UTF-8
+ * bytes</li>
+ * </ol>
+ *
+ * <p>Documents are buffered in memory until they end, so only the links of a single document are
+ * ever held at once. Writers are not thread-safe.
+ *
+ * @see LinkArchiveReader
+ */
+public class LinkArchiveWriter implements AutoCloseable {
+
+  /** The bytes every archive starts with, which include the version of the format. */
+  static final byte[] MAGIC = {'L', 'N', 'K', 'A', 1};
+
+  /** The stream the archive is written to. */
+  private final OutputStream output;
+
+  /** The number of each prefix in the dictionary. */
+  private final HashMap<String, Integer> prefixes;
+
+  /** The prefix used most recently, which most links share with the link before them. */
+  private String lastPrefix;
+
+  /** The number of the prefix used most recently. */
+  private int lastNumber;
+
+  /** The prefixes first used by the current document, in order. */
+  private final ArrayList<String> added;
+
+  /** The encoded source of the current document. */
+  private final Buffer source;
+
+  /** The encoded links of the current document. */
+  private final Buffer links;
+
+  /** Reused to encode each block. */
+  private final Buffer block;
+
+  /** The rest of the source of the current document (after the prefix), or null if none. */
+  private String sourceRest;
+
+  /** The number of links in the current document. */
+  private int linkCount;
+
+  /** The number of documents written. */
+  private long documents;
+
+  /** The number of links written. */
+  private long written;
+
+  /** The number of bytes written. */
+  private long bytes;
+
+  /**
+   * Initializes a writer that writes the archive to a stream, starting with the magic bytes.
+   *
+   * @param output the stream to write the archive to (closed when this writer is closed)
+   * @throws IOException if unable to write to the stream
+   */
+  public LinkArchiveWriter(OutputStream output) throws IOException {
+    this.output = output;
+    this.prefixes = new HashMap<>();
+    this.added = new ArrayList<>();
+    this.source = new Buffer();
+    this.links = new Buffer();
+    this.block = new Buffer();
+
+    output.write(MAGIC);
+    this.bytes = MAGIC.length;
+  }
+
+  /**
+   * Initializes a writer that writes the archive to a file, replacing the file if it exists.
+   *
+   * @param path the file to write the archive to
+   * @throws IOException if unable to create the file
+   */
+  public LinkArchiveWriter(Path path) throws IOException {
+    this(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+  }
+
+  /**
+   * Starts a new document, ending the current document if there is one.
+   *
+   * @param source the url (or other name) of the document
+   * @throws IOException if unable to write the current document
+   */
+  public void startDocument(CharSequence source) throws IOException {
+    if (sourceRest != null) {
+      endDocument();
+    }
+
+    String text = source.toString();
+    int split = split(text);
+    this.source.writeVarint(prefix(text, split));
+    this.source.writeString(text, split, text.length());
+    this.sourceRest = text.substring(split);
+  }
+
+  /**
+   * Adds a link to the current document.
+   *
+   * @param link the link to add
+   * @throws IllegalStateException if there is no current document
+   */
+  public void add(CharSequence link) {
+    if (sourceRest == null) {
+      throw new IllegalStateException("No document has been started.");
+    }
+
+    String text = link.toString();
+    int split = split(text);
+    int shared = 0;
+    int limit = Math.min(text.length() - split, sourceRest.length());
+
+    while (shared < limit && text.charAt(split + shared) == sourceRest.charAt(shared)) {
+      shared++;
+    }
+
+    // never store half of a surrogate pair on its own
+    if (shared > 0 && Character.isHighSurrogate(sourceRest.charAt(shared - 1))) {
+      shared--;
+    }
+
+    links.writeVarint(prefix(text, split));
+    links.writeVarint(shared);
+    links.writeString(text, split + shared, text.length());
+    linkCount++;
+  }
+
+  /**
+   * Adds a link to the current document.
+   *
+   * @param link the link to add
+   * @throws IllegalStateException if there is no current document
+   */
+  public void add(Link link) {
+    add(link.toString());
+  }
+
+  /**
+   * Ends the current document, writing its block to the archive. Does nothing if there is no
+   * current document.
+   *
+   * @throws IOException if unable to write the document
+   */
+  public void endDocument() throws IOException {
+    if (sourceRest == null) {
+      return;
+    }
+
+    block.length = 0;
+    block.writeVarint(added.size());
+
+    for (String prefix : added) {
+      block.writeString(prefix, 0, prefix.length());
+    }
+
+    block.write(source);
+    block.writeVarint(linkCount);
+    block.write(links);
+
+    writeVarint(block.length);
+    output.write(block.bytes, 0, block.length);
+    bytes += block.length;
+
+    documents++;
+    written += linkCount;
+
+    added.clear();
+    source.length = 0;
+    links.length = 0;
+    linkCount = 0;
+    sourceRest = null;
+  }
+
+  /**
+   * Writes a whole document with all of its links.
+   *
+   * @param source the url (or other name) of the document
+   * @param links the links found in the document
+   * @throws IOException if unable to write the document
+   */
+  public void write(CharSequence source, Collection<Link> links) throws IOException {
+    startDocument(source);
+
+    for (Link link : links) {
+      add(link);
+    }
+
+    endDocument();
+  }
+
+  /**
+   * Returns the number of documents written.
+   *
+   * @return number of documents written
+   */
+  public long getDocuments() {
+    return documents;
+  }
+
+  /**
+   * Returns the number of links written.
+   *
+   * @return number of links written
+   */
+  public long getLinks() {
+    return written;
+  }
+
+  /**
+   * Returns the number of bytes written, including the magic bytes but not the final empty block.
+   *
+   * @return number of bytes written
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Ends the current document and the archive, and closes the stream.
+   *
+   * @throws IOException if unable to write the archive
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      endDocument();
+      writeVarint(0);
+      output.flush();
+    } finally {
+      output.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d documents, %d links, %d bytes (%.1f bytes/link)", documents,
+        written, bytes, written == 0 ? 0 : (double) bytes / written);
+  }
+
+  /**
+   * Returns the number of a prefix, adding it to the dictionary if it is new.
+   *
+   * @param text the link or source
+   * @param split the index after the prefix
+   * @return the number of the prefix
+   */
+  private int prefix(String text, int split) {
+    if (lastPrefix != null && split == lastPrefix.length() && text.startsWith(lastPrefix)) {
+      return lastNumber;
+    }
+
+    String prefix = text.substring(0, split);
+    Integer number = prefixes.get(prefix);
+
+    if (number == null) {
+      number = prefixes.size();
+      prefixes.put(prefix, number);
+      added.add(prefix);
+    }
+
+    lastPrefix = prefix;
+    lastNumber = number;
+    return number;
+  }
+
+  /**
+   * Writes a variable-length integer directly to the stream.
+   *
+   * @param value the non-negative value
+   * @throws IOException if unable to write to the stream
+   */
+  private void writeVarint(int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      output.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+      bytes++;
+    }
+
+    output.write(value);
+    bytes++;
+  }
+
+  /**
+   * Finds where the prefix of a link ends, which is after the scheme and authority of absolute
+   * links such as {@code https://www.usfca.edu} and is 0 for anything else.
+   *
+   * @param text the link or source
+   * @return the index after the prefix
+   */
+  static int split(CharSequence text) {
+    int length = text.length();
+    int colon = -1;
+
+    for (int i = 0; i < length && colon < 0; i++) {
+      char c = text.charAt(i);
+
+      if (c == ':') {
+        colon = i;
+      } else if (c == '/' || c == '?' || c == '#') {
+        return 0;
+      }
+    }
+
+    if (colon < 1 || colon + 2 >= length || text.charAt(colon + 1) != '/'
+        || text.charAt(colon + 2) != '/') {
+      return 0;
+    }
+
+    for (int i = colon + 3; i < length; i++) {
+      char c = text.charAt(i);
+
+      if (c == '/' || c == '?' || c == '#') {
+        return i;
+      }
+    }
+
+    return length;
+  }
+
+  /**
+   * A growable array of encoded bytes.
+   */
+  private static class Buffer {
+
+    /** The encoded bytes. */
+    private byte[] bytes = new byte[256];
+
+    /** The number of encoded bytes. */
+    private int length;
+
+    /**
+     * Makes sure there is room for more bytes.
+     *
+     * @param needed the number of bytes that will be added
+     */
+    private void ensure(int needed) {
+      if (length + needed > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + needed));
+      }
+    }
+
+    /**
+     * Adds a variable-length integer, using 7 bits per byte with the highest bit set on every
+     * byte but the last.
+     *
+     * @param value the non-negative value
+     */
+    private void writeVarint(int value) {
+      ensure(5);
+
+      while ((value & ~0x7F) != 0) {
+        bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+
+      bytes[length++] = (byte) value;
+    }
+
+    /**
+     * Adds part of a sequence of characters as its length in bytes followed by its UTF-8 bytes.
+     *
+     * @param text the text to add
+     * @param from the index of the first character
+     * @param to the index after the last character
+     */
+    private void writeString(CharSequence text, int from, int to) {
+      int ascii = from;
+
+      while (ascii < to && text.charAt(ascii) < 0x80) {
+        ascii++;
+      }
+
+      if (ascii == to) {
+        writeVarint(to - from);
+        ensure(to - from);
+
+        for (int i = from; i < to; i++) {
+          bytes[length++] = (byte) text.charAt(i);
+        }
+      } else {
+        byte[] encoded = text.subSequence(from, to).toString().getBytes(StandardCharsets.UTF_8);
+        writeVarint(encoded.length);
+        ensure(encoded.length);
+        System.arraycopy(encoded, 0, bytes, length, encoded.length);
+        length += encoded.length;
+      }
+    }
+
+    /**
+     * Adds the bytes of another buffer.
+     *
+     * @param other the buffer to add
+     */
+    private void write(Buffer other) {
+      ensure(other.length);
+      System.arraycopy(other.bytes, 0, bytes, length, other.length);
+      length += other.length;
+    }
+  }
+}
@@ -0,0 +1,387 @@
+package edu.usfca.cs212.linkparser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of resolved links, keyed by the base url and the href value (without its
+ * fragment). Many pages repeat the same relative href, often with different fragments, hundreds of
+ * times, so caching avoids resolving and cleaning the same value over and over again.
+ *
+ * <p>The cache is split into segments that are each protected by their own lock, so it may be
+ * shared by many threads parsing different documents. Each segment evicts its least-recently used
+ * entry once it is full, and very long href values are never cached, so the memory used by the
+ * cache stays bounded.
+ *
+ * @see LinkResolver
+ */
+public class LinkCache {
+
+  /** Longest href value that will be cached. */
+  public static final int MAX_HREF_LENGTH = 256;
+
+  /** Cached for href values that do not resolve to an HTTP(S) link. */
+  public static final Link INVALID = new Link("invalid:");
+
+  /** The shared cache used by default. */
+  private static final LinkCache SHARED = new LinkCache(16, 1024);
+
+  /** Reused by each thread to look up href values without copying them. */
+  private static final ThreadLocal<Region> REGIONS = ThreadLocal.withInitial(Region::new);
+
+  /** The segments of this cache. */
+  private final Segment[] segments;
+
+  /** Number of lookups that found a cached link. */
+  private final LongAdder hits;
+
+  /** Number of lookups that did not find a cached link. */
+  private final LongAdder misses;
+
+  /** Number of links evicted from this cache. */
+  private final LongAdder evictions;
+
+  /**
+   * Initializes a cache.
+   *
+   * @param segments the number of independently locked segments
+   * @param capacity the maximum number of entries per segment
+   */
+  public LinkCache(int segments, int capacity) {
+    if (segments < 1 || capacity < 1) {
+      throw new IllegalArgumentException("Cache must have at least one segment and entry.");
+    }
+
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.evictions = new LongAdder();
+    this.segments = new Segment[segments];
+
+    for (int i = 0; i < segments; i++) {
+      this.segments[i] = new Segment(capacity);
+    }
+  }
+
+  /**
+   * Returns the cache shared by default, which holds up to 16,384 entries.
+   *
+   * @return the shared cache
+   */
+  public static LinkCache shared() {
+    return SHARED;
+  }
+
+  /**
+   * Returns the cached link for the href value relative to the base url.
+   *
+   * @param base the text of the base url
+   * @param href the href value, without the text of its fragment
+   * @return the cached link, {@link #INVALID} if the value is not a valid HTTP(S) link, or null if
+   *         the value is not cached
+   */
+  public Link get(String base, String href) {
+    return get(new Key(base, href));
+  }
+
+  /**
+   * Returns the cached link for part of a sequence of characters relative to the base url, without
+   * copying the characters first.
+   *
+   * @param base the text of the base url
+   * @param text the text containing the href value
+   * @param from the index of the first character of the value
+   * @param to the index after the last character of the value, not including its fragment
+   * @return the cached link, {@link #INVALID} if the value is not a valid HTTP(S) link, or null if
+   *         the value is not cached
+   *
+   * @see #get(String, String)
+   */
+  public Link get(String base, CharSequence text, int from, int to) {
+    Region region = REGIONS.get();
+    region.set(base, text, from, to);
+
+    try {
+      return get(region);
+    } finally {
+      region.set(null, null, 0, 0);
+    }
+  }
+
+  /**
+   * Returns the cached link for a key, counting the hit or miss.
+   *
+   * @param key the key to look up, which is either a {@link Key} or a {@link Region}
+   * @return the cached link, or null if the value is not cached
+   */
+  private Link get(Object key) {
+    Segment segment = segments[spread(key.hashCode()) % segments.length];
+    Link link;
+
+    synchronized (segment) {
+      link = segment.get(key);
+    }
+
+    if (link == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+
+    return link;
+  }
+
+  /**
+   * Caches the link for the href value relative to the base url. Values longer than
+   * {@link #MAX_HREF_LENGTH} are not cached.
+   *
+   * @param base the text of the base url
+   * @param href the href value, without the text of its fragment
+   * @param link the cleaned absolute link, or {@link #INVALID} if the value is not a valid HTTP(S)
+   *        link
+   */
+  public void put(String base, String href, Link link) {
+    if (href.length() > MAX_HREF_LENGTH) {
+      return;
+    }
+
+    Key key = new Key(base, href);
+
+    synchronized (segment(key)) {
+      segment(key).put(key, link);
+    }
+  }
+
+  /**
+   * Returns the segment responsible for a key.
+   *
+   * @param key the key
+   * @return the segment for the key
+   */
+  private Segment segment(Key key) {
+    return segments[spread(key.hash) % segments.length];
+  }
+
+  /**
+   * Spreads the higher bits of a hash code into the lower bits.
+   *
+   * @param hash the hash code
+   * @return a non-negative hash code
+   */
+  private static int spread(int hash) {
+    return (hash ^ (hash >>> 16)) & Integer.MAX_VALUE;
+  }
+
+  /**
+   * Returns the number of lookups that found a cached link.
+   *
+   * @return the number of hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of lookups that did not find a cached link.
+   *
+   * @return the number of misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the number of links evicted from this cache.
+   *
+   * @return the number of evictions
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Returns the number of links currently cached.
+   *
+   * @return the number of cached links
+   */
+  public int size() {
+    int size = 0;
+
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+
+    return size;
+  }
+
+  /**
+   * Removes all of the cached links. The counters are not reset.
+   */
+  public void clear() {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d links, %d hits, %d misses, %d evictions",
+        size(), getHits(), getMisses(), getEvictions());
+  }
+
+  /**
+   * A single segment of the cache, which evicts its least-recently used entry once full.
+   */
+  private class Segment extends LinkedHashMap<Key, Link> {
+
+    /** Unused serial version ID. */
+    private static final long serialVersionUID = 1L;
+
+    /** The maximum number of entries. */
+    private final int capacity;
+
+    /**
+     * Initializes a segment.
+     *
+     * @param capacity the maximum number of entries
+     */
+    private Segment(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Link> eldest) {
+      if (size() > capacity) {
+        evictions.increment();
+        return true;
+      }
+
+      return false;
+    }
+  }
+
+  /**
+   * The key of a cached link.
+   */
+  private static class Key {
+
+    /** The text of the base url. */
+    private final String base;
+
+    /** The raw href value. */
+    private final String href;
+
+    /** The precomputed hash code. */
+    private final int hash;
+
+    /**
+     * Initializes a key.
+     *
+     * @param base the text of the base url
+     * @param href the raw href value
+     */
+    private Key(String base, String href) {
+      this.base = base;
+      this.href = href;
+      this.hash = 31 * base.hashCode() + href.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+
+      if (!(other instanceof Key)) {
+        return false;
+      }
+
+      Key key = (Key) other;
+      return hash == key.hash && href.equals(key.href) && base.equals(key.base);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * Part of a sequence of characters that is looked up in place of a {@link Key}, so the
+   * characters do not need to be copied into a new String. The hash code is calculated in the
+   * same way as the hash code of the key with the same characters.
+   */
+  private static class Region {
+
+    /** The text of the base url. */
+    private String base;
+
+    /** The text containing the href value. */
+    private CharSequence text;
+
+    /** The index of the first character of the value. */
+    private int from;
+
+    /** The index after the last character of the value. */
+    private int to;
+
+    /** The hash code of the equivalent key. */
+    private int hash;
+
+    /**
+     * Sets the href value to look up.
+     *
+     * @param base the text of the base url
+     * @param text the text containing the href value
+     * @param from the index of the first character of the value
+     * @param to the index after the last character of the value
+     */
+    private void set(String base, CharSequence text, int from, int to) {
+      this.base = base;
+      this.text = text;
+      this.from = from;
+      this.to = to;
+
+      if (base != null) {
+        int href = 0;
+
+        for (int i = from; i < to; i++) {
+          href = 31 * href + text.charAt(i);
+        }
+
+        this.hash = 31 * base.hashCode() + href;
+      }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+
+      Key key = (Key) other;
+
+      if (hash != key.hash || key.href.length() != to - from || !base.equals(key.base)) {
+        return false;
+      }
+
+      for (int i = from; i < to; i++) {
+        if (text.charAt(i) != key.href.charAt(i - from)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
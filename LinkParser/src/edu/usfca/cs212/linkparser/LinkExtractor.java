@@ -0,0 +1,499 @@
+package edu.usfca.cs212.linkparser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Parses the links from many pages in turn, reusing the same scanner, resolver, buffers and list
+ * of results for every page. Once warmed up, parsing a page only creates the {@link Link} objects
+ * that are not already in the {@link LinkCache}. For example:
+ *
+ * <pre>
+ * LinkExtractor extractor = new LinkExtractor();
+ *
+ * for (Page page : pages) {
+ *   for (Link link : extractor.parseLinks(page.base, page.html)) {
+ *     ...
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>The list returned by {@link #parseLinks(URL, CharSequence)} belongs to the extractor: it is
+ * cleared by the next page parsed and by {@link #reset()}, so the links must be copied to be kept.
+ * Extractors are not thread-safe, but are cheap to hold one per thread (see {@link #local()}) or
+ * to pool. Each page scanned is counted by the installed {@link LinkMetrics}, if any.
+ *
+ * <p>When only some of the links are needed, a {@link LinkFilter} and a limit stop the work early:
+ * href values the filter rejects outright are skipped without being resolved, and scanning stops
+ * as soon as enough links are found (see {@link #firstLink(URL, CharSequence, LinkFilter)} and
+ * {@link #countLinks(URL, CharSequence, LinkFilter)}).
+ *
+ * @see LinkParser#parseLinks(URL, String)
+ */
+public class LinkExtractor {
+
+  /** The most links the list of results keeps room for after it is reset. */
+  public static final int MAX_RETAINED = 4096;
+
+  /** The extractor of each thread, used by the static methods of {@link LinkParser}. */
+  private static final ThreadLocal<LinkExtractor> LOCAL = ThreadLocal.withInitial(
+      LinkExtractor::new);
+
+  /** The cache used to resolve links, or null if none. */
+  private final LinkCache cache;
+
+  /** Used to scan every page. */
+  private final AnchorScanner scanner;
+
+  /** Resolves the links of every page, or null if no page has been parsed yet. */
+  private LinkResolver resolver;
+
+  /** The links found in the last page parsed into a list. */
+  private final ArrayList<Link> links;
+
+  /** The read-only view of the links returned to callers. */
+  private final List<Link> view;
+
+  /** Adds links to {@link #links}. */
+  private final Consumer<Link> collector;
+
+  /** Discards links that are only counted. */
+  private final Consumer<Link> discard;
+
+  /** Reused to read html from readers. */
+  private final CharBuffer buffer;
+
+  /** Selects the links of the page being parsed, or null if every link is selected. */
+  private LinkFilter filter;
+
+  /** The most links to select from the page being parsed. */
+  private int limit;
+
+  /** The number of links selected from the page being parsed. */
+  private int count;
+
+  /** Receives the links of the page being parsed, or null if none. */
+  private Consumer<Link> consumer;
+
+  /** Measures the page being parsed, or null if it is not measured. */
+  private ScanProbe probe;
+
+  /** Whether a page is being parsed. */
+  private boolean busy;
+
+  /**
+   * Initializes an extractor that uses the shared link cache.
+   *
+   * @see LinkCache#shared()
+   */
+  public LinkExtractor() {
+    this(LinkCache.shared());
+  }
+
+  /**
+   * Initializes an extractor that uses the provided link cache.
+   *
+   * @param cache the cache used to resolve links, or null to resolve every link
+   */
+  public LinkExtractor(LinkCache cache) {
+    this.cache = cache;
+    this.scanner = new AnchorScanner(this::found);
+    this.links = new ArrayList<>();
+    this.view = Collections.unmodifiableList(links);
+    this.collector = links::add;
+    this.discard = link -> { };
+    this.buffer = CharBuffer.allocate(AnchorScanner.BUFFER_SIZE);
+  }
+
+  /**
+   * Returns the extractor of the current thread. If that extractor is already parsing a page
+   * (such as when called by a consumer of links), a new extractor is returned instead.
+   *
+   * <p>This only pays off on threads that parse many pages, such as the platform threads of a
+   * pool. A thread that parses a single page (such as a virtual thread per task) creates a new
+   * extractor for it, so tasks like these should share a pool of extractors instead.
+   *
+   * @return an extractor that is not parsing a page
+   */
+  public static LinkExtractor local() {
+    LinkExtractor extractor = LOCAL.get();
+    return extractor.busy ? new LinkExtractor() : extractor;
+  }
+
+  /**
+   * Returns a list of all the HTTP(S) links found in the href attribute of the anchor tags in the
+   * provided HTML. The list is only valid until the next page is parsed or this extractor is
+   * reset.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @return read-only list of all http(s) links in the order they were found
+   *
+   * @see LinkParser#parseLinks(URL, String)
+   */
+  public List<Link> parseLinks(URL base, CharSequence html) {
+    parseLinks(base, html, collector);
+    return view;
+  }
+
+  /**
+   * Returns a list of all the HTTP(S) links found in the href attribute of the anchor tags in the
+   * provided HTML bytes, without decoding the entire HTML. The list is only valid until the next
+   * page is parsed or this extractor is reset.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the remaining bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html (such as UTF-8)
+   * @return read-only list of all http(s) links in the order they were found
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   *
+   * @see LinkParser#parseLinks(URL, ByteBuffer, Charset)
+   */
+  public List<Link> parseLinks(URL base, ByteBuffer html, Charset charset) {
+    parseLinks(base, html, charset, collector);
+    return view;
+  }
+
+  /**
+   * Passes all of the HTTP(S) links found in the href attribute of the anchor tags in the provided
+   * HTML to the consumer.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @param consumer receives the cleaned links in the order they were found
+   */
+  public void parseLinks(URL base, CharSequence html, Consumer<Link> consumer) {
+    parseLinks(base, html, null, Integer.MAX_VALUE, consumer);
+  }
+
+  /**
+   * Passes all of the HTTP(S) links found in the href attribute of the anchor tags in the provided
+   * HTML bytes to the consumer, without decoding the entire HTML.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the remaining bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html (such as UTF-8)
+   * @param consumer receives the cleaned links in the order they were found
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   */
+  public void parseLinks(URL base, ByteBuffer html, Charset charset, Consumer<Link> consumer) {
+    parseLinks(base, html, charset, null, Integer.MAX_VALUE, consumer);
+  }
+
+  /**
+   * Returns a list of the first links accepted by the filter, found in the href attribute of the
+   * anchor tags in the provided HTML. Scanning stops as soon as the limit is reached. The list is
+   * only valid until the next page is parsed or this extractor is reset.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @param filter selects the links to return, or null to return any link
+   * @param limit the most links to return
+   * @return read-only list of at most limit links in the order they were found
+   * @throws IllegalArgumentException if the limit is less than one
+   *
+   * @see LinkParser#parseLinks(URL, String, LinkFilter, int)
+   */
+  public List<Link> parseLinks(URL base, CharSequence html, LinkFilter filter, int limit) {
+    parseLinks(base, html, filter, limit, collector);
+    return view;
+  }
+
+  /**
+   * Returns a list of the first links accepted by the filter, found in the href attribute of the
+   * anchor tags in the provided HTML bytes. Scanning stops as soon as the limit is reached. The
+   * list is only valid until the next page is parsed or this extractor is reset.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the remaining bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html (such as UTF-8)
+   * @param filter selects the links to return, or null to return any link
+   * @param limit the most links to return
+   * @return read-only list of at most limit links in the order they were found
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible or the limit is less
+   *     than one
+   */
+  public List<Link> parseLinks(URL base, ByteBuffer html, Charset charset, LinkFilter filter,
+      int limit) {
+    parseLinks(base, html, charset, filter, limit, collector);
+    return view;
+  }
+
+  /**
+   * Passes the first links accepted by the filter, found in the href attribute of the anchor tags
+   * in the provided HTML, to the consumer. Scanning stops as soon as the limit is reached.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @param filter selects the links to pass on, or null to pass on any link
+   * @param limit the most links to pass on
+   * @param consumer receives the cleaned links in the order they were found
+   * @throws IllegalArgumentException if the limit is less than one
+   */
+  public void parseLinks(URL base, CharSequence html, LinkFilter filter, int limit,
+      Consumer<Link> consumer) {
+    start(base, filter, limit, consumer);
+
+    try {
+      scanner.scan(html, 0, html.length());
+      finish(scanner.isStopped() ? scanner.getStopIndex() : html.length());
+    } finally {
+      end();
+    }
+  }
+
+  /**
+   * Passes the first links accepted by the filter, found in the href attribute of the anchor tags
+   * in the provided HTML bytes, to the consumer. Scanning stops as soon as the limit is reached.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the remaining bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html (such as UTF-8)
+   * @param filter selects the links to pass on, or null to pass on any link
+   * @param limit the most links to pass on
+   * @param consumer receives the cleaned links in the order they were found
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible or the limit is less
+   *     than one
+   */
+  public void parseLinks(URL base, ByteBuffer html, Charset charset, LinkFilter filter,
+      int limit, Consumer<Link> consumer) {
+    AnchorScanner.checkCharset(charset);
+    start(base, filter, limit, consumer);
+
+    try {
+      int from = html.position();
+      scanner.scan(html, from, html.limit(), charset);
+      finish((scanner.isStopped() ? scanner.getStopIndex() : html.limit()) - from);
+    } finally {
+      end();
+    }
+  }
+
+  /**
+   * Returns the first link accepted by the filter in the provided HTML, scanning no further than
+   * the anchor tag it was found in.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @param filter selects the link to return, or null to return any link
+   * @return the first link accepted by the filter, or null if there is none
+   *
+   * @see LinkParser#firstLink(URL, String, LinkFilter)
+   */
+  public Link firstLink(URL base, CharSequence html, LinkFilter filter) {
+    parseLinks(base, html, filter, 1, collector);
+    return links.isEmpty() ? null : links.get(0);
+  }
+
+  /**
+   * Returns the first link accepted by the filter in the provided HTML bytes, scanning no further
+   * than the anchor tag it was found in.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the remaining bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html (such as UTF-8)
+   * @param filter selects the link to return, or null to return any link
+   * @return the first link accepted by the filter, or null if there is none
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   */
+  public Link firstLink(URL base, ByteBuffer html, Charset charset, LinkFilter filter) {
+    parseLinks(base, html, charset, filter, 1, collector);
+    return links.isEmpty() ? null : links.get(0);
+  }
+
+  /**
+   * Returns the number of links accepted by the filter in the provided HTML, without collecting
+   * them.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @param filter selects the links to count, or null to count every link
+   * @return the number of links accepted by the filter
+   *
+   * @see LinkParser#countLinks(URL, String, LinkFilter)
+   */
+  public int countLinks(URL base, CharSequence html, LinkFilter filter) {
+    parseLinks(base, html, filter, Integer.MAX_VALUE, discard);
+    return count;
+  }
+
+  /**
+   * Returns the number of links accepted by the filter in the provided HTML bytes, without
+   * collecting them.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the remaining bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html (such as UTF-8)
+   * @param filter selects the links to count, or null to count every link
+   * @return the number of links accepted by the filter
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   */
+  public int countLinks(URL base, ByteBuffer html, Charset charset, LinkFilter filter) {
+    parseLinks(base, html, charset, filter, Integer.MAX_VALUE, discard);
+    return count;
+  }
+
+  /**
+   * Passes all of the HTTP(S) links found in the href attribute of the anchor tags to the
+   * consumer as the HTML is read, using a buffer that is reused for every page. The reader is not
+   * closed.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the reader providing the raw html associated with the base url
+   * @param consumer receives the cleaned links in the order they were found
+   * @throws IOException if unable to read the html
+   *
+   * @see LinkParser#parseLinks(URL, Reader, Consumer)
+   */
+  public void parseLinks(URL base, Reader html, Consumer<Link> consumer) throws IOException {
+    start(base, null, Integer.MAX_VALUE, consumer);
+
+    try {
+      // the reader counts the characters scanned
+      scanner.scan(probe == null ? html : probe.count(html), buffer);
+      finish(0);
+    } finally {
+      end();
+    }
+  }
+
+  /**
+   * Returns the links found in the last page parsed into a list, or an empty list if this
+   * extractor was reset since.
+   *
+   * @return read-only list of the links found in the last page
+   */
+  public List<Link> getLinks() {
+    return view;
+  }
+
+  /**
+   * Tests whether this extractor is parsing a page.
+   *
+   * @return true if a page is being parsed
+   */
+  public boolean isBusy() {
+    return busy;
+  }
+
+  /**
+   * Resets this extractor so that it no longer refers to the links or base url of the last page
+   * parsed. If the last page had more than {@link #MAX_RETAINED} links, the room held for them is
+   * released as well. Buffers are otherwise kept for the next page.
+   *
+   * @throws IllegalStateException if a page is being parsed
+   */
+  public void reset() {
+    if (busy) {
+      throw new IllegalStateException("Cannot reset while parsing a page.");
+    }
+
+    boolean large = links.size() > MAX_RETAINED;
+    links.clear();
+
+    if (large) {
+      links.trimToSize();
+    }
+
+    scanner.reset();
+    resolver = null;
+  }
+
+  /**
+   * Prepares to parse a page, clearing the links of the last page.
+   *
+   * @param base the base url of the page
+   * @param filter selects the links of the page, or null if every link is selected
+   * @param limit the most links to select
+   * @param consumer receives the links of the page
+   * @throws IllegalStateException if a page is already being parsed
+   * @throws IllegalArgumentException if the limit is less than one
+   */
+  private void start(URL base, LinkFilter filter, int limit, Consumer<Link> consumer) {
+    if (busy) {
+      throw new IllegalStateException("Already parsing a page.");
+    }
+
+    if (limit < 1) {
+      throw new IllegalArgumentException("The limit must be at least one: " + limit);
+    }
+
+    busy = true;
+    links.clear();
+    this.filter = filter == LinkFilter.ANY ? null : filter;
+    this.limit = limit;
+    this.count = 0;
+    this.consumer = consumer;
+
+    if (resolver == null) {
+      resolver = new LinkResolver(base, cache);
+    } else {
+      resolver.setBase(base);
+    }
+
+    probe = ScanProbe.start(base);
+
+    if (probe != null) {
+      probe.watch(resolver);
+    }
+  }
+
+  /**
+   * Finishes measuring the page, if it is measured.
+   *
+   * @param length the number of bytes (or characters) scanned
+   */
+  private void finish(long length) {
+    if (probe != null) {
+      probe.finish(length);
+    }
+  }
+
+  /**
+   * Cleans up after parsing a page, even if the page could not be parsed.
+   */
+  private void end() {
+    scanner.reset();
+    consumer = null;
+    filter = null;
+    probe = null;
+    busy = false;
+  }
+
+  /**
+   * Resolves an href value found by the scanner and passes it on if it is a valid link accepted
+   * by the filter, stopping the scanner once the limit is reached. Values the filter rejects
+   * without resolving them are skipped entirely.
+   *
+   * @param text the text containing the href value
+   * @param start the index of the first character of the value
+   * @param end the index after the last character of the value
+   */
+  private void found(CharSequence text, int start, int end) {
+    if (filter != null && !resolver.mayMatch(text, start, end, filter)) {
+      return;
+    }
+
+    Link link = resolver.resolve(text, start, end);
+
+    if (probe != null) {
+      probe.anchor(link != null);
+    }
+
+    if (link != null && (filter == null || filter.test(link))) {
+      consumer.accept(link);
+
+      if (++count >= limit) {
+        scanner.stop();
+      }
+    }
+  }
+}
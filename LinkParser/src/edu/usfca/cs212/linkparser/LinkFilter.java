@@ -0,0 +1,194 @@
+package edu.usfca.cs212.linkparser;
+
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * Selects links by scheme, host and path prefix. Unlike other predicates, a filter is applied to
+ * href values before they are resolved whenever the answer can be read directly from the value
+ * (see {@link LinkResolver#mayMatch(CharSequence, int, int, LinkFilter)}), so values that could
+ * never match are skipped without being resolved or cleaned. For example, this finds the first
+ * link to the computer science pages, skipping links to any other host without resolving them:
+ *
+ * <pre>
+ * LinkFilter filter = LinkFilter.host("www.usfca.edu").withPathPrefix("/cs/");
+ * Link first = LinkParser.firstLink(base, html, filter);
+ * </pre>
+ *
+ * <p>Filters are immutable. Each part of a filter is optional, and a filter with no parts accepts
+ * every link.
+ *
+ * @see LinkParser#parseLinks(java.net.URL, String, LinkFilter, int)
+ */
+public final class LinkFilter implements Predicate<Link> {
+
+  /** A filter that accepts every link. */
+  public static final LinkFilter ANY = new LinkFilter(null, null, null);
+
+  /** The lowercase scheme links must have, or null if any. */
+  private final String scheme;
+
+  /** The host links must have, or null if any. */
+  private final String host;
+
+  /** The prefix the path of links must start with, or null if any. */
+  private final String pathPrefix;
+
+  /**
+   * Initializes a filter.
+   *
+   * @param scheme the scheme links must have, or null if any
+   * @param host the host links must have, or null if any
+   * @param pathPrefix the prefix the path of links must start with, or null if any
+   */
+  private LinkFilter(String scheme, String host, String pathPrefix) {
+    this.scheme = scheme == null ? null : scheme.toLowerCase(Locale.ROOT);
+    this.host = host;
+    this.pathPrefix = pathPrefix;
+  }
+
+  /**
+   * Returns a filter that only accepts links with the provided scheme.
+   *
+   * @param scheme the scheme, such as {@code https}
+   * @return the filter
+   */
+  public static LinkFilter scheme(String scheme) {
+    return ANY.withScheme(scheme);
+  }
+
+  /**
+   * Returns a filter that only accepts links with the provided host, ignoring case.
+   *
+   * @param host the host, without any port
+   * @return the filter
+   */
+  public static LinkFilter host(String host) {
+    return ANY.withHost(host);
+  }
+
+  /**
+   * Returns a filter that only accepts links whose path starts with the provided prefix.
+   *
+   * @param pathPrefix the prefix, percent-encoded in the same way as cleaned links
+   * @return the filter
+   */
+  public static LinkFilter pathPrefix(String pathPrefix) {
+    return ANY.withPathPrefix(pathPrefix);
+  }
+
+  /**
+   * Returns a copy of this filter that only accepts links with the provided scheme.
+   *
+   * @param scheme the scheme, such as {@code https}
+   * @return the filter
+   */
+  public LinkFilter withScheme(String scheme) {
+    return new LinkFilter(scheme, host, pathPrefix);
+  }
+
+  /**
+   * Returns a copy of this filter that only accepts links with the provided host, ignoring case.
+   *
+   * @param host the host, without any port
+   * @return the filter
+   */
+  public LinkFilter withHost(String host) {
+    return new LinkFilter(scheme, host, pathPrefix);
+  }
+
+  /**
+   * Returns a copy of this filter that only accepts links whose path starts with the provided
+   * prefix.
+   *
+   * @param pathPrefix the prefix, percent-encoded in the same way as cleaned links
+   * @return the filter
+   */
+  public LinkFilter withPathPrefix(String pathPrefix) {
+    return new LinkFilter(scheme, host, pathPrefix);
+  }
+
+  /**
+   * Tests whether a resolved link is accepted by this filter.
+   *
+   * @param link the link to test
+   * @return true if the link is accepted
+   */
+  @Override
+  public boolean test(Link link) {
+    return (scheme == null || link.getScheme().equalsIgnoreCase(scheme))
+        && (host == null || link.hasHost(host))
+        && (pathPrefix == null || link.getPath().startsWith(pathPrefix));
+  }
+
+  /**
+   * Tests whether a scheme is accepted by this filter.
+   *
+   * @param linkScheme the lowercase scheme
+   * @return true if the scheme is accepted
+   */
+  boolean acceptsScheme(String linkScheme) {
+    return scheme == null || scheme.equals(linkScheme);
+  }
+
+  /**
+   * Tests whether a host is accepted by this filter, ignoring case.
+   *
+   * @param text the text containing the host
+   * @param from the index of the first character of the host
+   * @param to the index after the last character of the host
+   * @return true if the host is accepted
+   */
+  boolean acceptsHost(CharSequence text, int from, int to) {
+    if (host == null) {
+      return true;
+    }
+
+    if (to - from != host.length()) {
+      return false;
+    }
+
+    for (int i = from; i < to; i++) {
+      char a = text.charAt(i);
+      char b = host.charAt(i - from);
+
+      if (a != b && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Tests whether a path is accepted by this filter.
+   *
+   * @param text the text containing the path
+   * @param from the index of the first character of the path
+   * @param to the index after the last character of the path
+   * @return true if the path is accepted
+   */
+  boolean acceptsPath(CharSequence text, int from, int to) {
+    if (pathPrefix == null) {
+      return true;
+    }
+
+    if (to - from < pathPrefix.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < pathPrefix.length(); i++) {
+      if (text.charAt(from + i) != pathPrefix.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("scheme %s, host %s, path prefix %s", scheme == null ? "any" : scheme,
+        host == null ? "any" : host, pathPrefix == null ? "any" : pathPrefix);
+  }
+}
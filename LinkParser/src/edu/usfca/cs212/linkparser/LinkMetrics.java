@@ -0,0 +1,256 @@
+package edu.usfca.cs212.linkparser;
+
+import java.net.URL;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects counts of the pages scanned by {@link LinkParser} and {@link CorpusLinkParser}: the
+ * bytes (or characters) scanned, the href values found, the links found and dropped, and how often
+ * links had to be resolved or cleaned the slow way. Latency percentiles of the time taken to scan
+ * each page may also be collected.
+ *
+ * <p>Metrics are only collected once installed with {@link #install(LinkMetrics)}. The parsers
+ * check for installed metrics once per page, so there is no cost per href value when there are
+ * none. Counts are kept in {@link LongAdder} counters and latencies in a fixed number of
+ * histograms shared by all threads, so threads rarely contend with each other while recording and
+ * memory does not grow with the number of threads that record (such as one virtual thread per
+ * page).
+ *
+ * @see ScanEvent
+ */
+public class LinkMetrics {
+
+  /** Index of the number of pages scanned. */
+  private static final int PAGES = 0;
+
+  /** Index of the number of bytes (or characters) scanned. */
+  private static final int SCANNED = 1;
+
+  /** Index of the number of href values found. */
+  private static final int ANCHORS = 2;
+
+  /** Index of the number of HTTP(S) links found. */
+  private static final int LINKS = 3;
+
+  /** Index of the number of href values resolved the slow way. */
+  private static final int FALLBACKS = 4;
+
+  /** Index of the number of links that could not be cleaned. */
+  private static final int CLEAN_FAILURES = 5;
+
+  /** The number of counters. */
+  private static final int COUNTERS = 6;
+
+  /** The number of latency histograms, a power of two no larger than 16. */
+  private static final int STRIPES = Math.min(16,
+      Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+  /** The installed metrics, or null if metrics are not being collected. */
+  private static volatile LinkMetrics installed =
+      Boolean.getBoolean("linkparser.metrics") ? new LinkMetrics(true) : null;
+
+  /** Whether latencies are recorded. */
+  private final boolean histograms;
+
+  /** The counters, by index. */
+  private final LongAdder[] counts;
+
+  /** The latency histograms, picked by thread, or null if latencies are not recorded. */
+  private final LatencyHistogram[] latencies;
+
+  /**
+   * Initializes metrics that only collect counts.
+   */
+  public LinkMetrics() {
+    this(false);
+  }
+
+  /**
+   * Initializes metrics that collect counts, and optionally latencies.
+   *
+   * @param histograms whether to record the time taken to scan each page
+   */
+  public LinkMetrics(boolean histograms) {
+    this.histograms = histograms;
+    this.counts = new LongAdder[COUNTERS];
+
+    for (int i = 0; i < COUNTERS; i++) {
+      counts[i] = new LongAdder();
+    }
+
+    if (histograms) {
+      this.latencies = new LatencyHistogram[STRIPES];
+
+      for (int i = 0; i < STRIPES; i++) {
+        latencies[i] = new LatencyHistogram();
+      }
+    } else {
+      this.latencies = null;
+    }
+  }
+
+  /**
+   * Installs the metrics that all parsers record into, replacing any already installed. Metrics
+   * are installed by default if the {@code linkparser.metrics} system property is true.
+   *
+   * @param metrics the metrics to install, or null to stop collecting metrics
+   */
+  public static void install(LinkMetrics metrics) {
+    installed = metrics;
+  }
+
+  /**
+   * Returns the installed metrics.
+   *
+   * @return the installed metrics, or null if metrics are not being collected
+   */
+  public static LinkMetrics installed() {
+    return installed;
+  }
+
+  /**
+   * Records a scanned page for the current thread.
+   *
+   * @param scanned the number of bytes (or characters) scanned
+   * @param anchors the number of href values found
+   * @param links the number of HTTP(S) links found
+   * @param fallbacks the number of href values resolved the slow way
+   * @param nanos the time taken to scan the page in nanoseconds
+   */
+  void record(long scanned, int anchors, int links, int fallbacks, long nanos) {
+    counts[PAGES].increment();
+    counts[SCANNED].add(scanned);
+    counts[ANCHORS].add(anchors);
+    counts[LINKS].add(links);
+    counts[FALLBACKS].add(fallbacks);
+
+    if (latencies != null) {
+      // spread threads over the histograms to keep them from contending on the same counts
+      int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+      latencies[stripe].record(nanos);
+    }
+  }
+
+  /**
+   * Records a link that could not be cleaned for the current thread.
+   */
+  void recordCleanFailure() {
+    counts[CLEAN_FAILURES].increment();
+  }
+
+  /**
+   * Returns the total of a counter.
+   *
+   * @param counter the index of the counter
+   * @return the total count
+   */
+  private long sum(int counter) {
+    return counts[counter].sum();
+  }
+
+  /**
+   * Returns the number of pages scanned.
+   *
+   * @return number of pages scanned
+   */
+  public long getPages() {
+    return sum(PAGES);
+  }
+
+  /**
+   * Returns the number of bytes scanned, or characters for pages scanned as text.
+   *
+   * @return number of bytes (or characters) scanned
+   */
+  public long getScanned() {
+    return sum(SCANNED);
+  }
+
+  /**
+   * Returns the number of href values found within anchor tags.
+   *
+   * @return number of href values found
+   */
+  public long getAnchors() {
+    return sum(ANCHORS);
+  }
+
+  /**
+   * Returns the number of HTTP(S) links found.
+   *
+   * @return number of links found
+   */
+  public long getLinks() {
+    return sum(LINKS);
+  }
+
+  /**
+   * Returns the number of href values dropped because they were not valid HTTP(S) links (such as
+   * {@code javascript:} or {@code mailto:} links).
+   *
+   * @return number of href values dropped
+   */
+  public long getDropped() {
+    return getAnchors() - getLinks();
+  }
+
+  /**
+   * Returns the number of href values that had to be resolved the slow way by
+   * {@link LinkParser#resolve(URL, String)} instead of by {@link LinkResolver} itself.
+   *
+   * @return number of href values resolved the slow way
+   */
+  public long getFallbacks() {
+    return sum(FALLBACKS);
+  }
+
+  /**
+   * Returns the number of links {@link LinkParser#clean(URL)} could not clean, which are used as
+   * they are instead.
+   *
+   * @return number of links that could not be cleaned
+   */
+  public long getCleanFailures() {
+    return sum(CLEAN_FAILURES);
+  }
+
+  /**
+   * Returns whether latencies are recorded.
+   *
+   * @return true if the time taken to scan each page is recorded
+   */
+  public boolean hasHistograms() {
+    return histograms;
+  }
+
+  /**
+   * Returns a percentile of the time taken to scan each page.
+   *
+   * @param percentile the percentile between 0 and 100 (such as 50 or 99)
+   * @return the latency in milliseconds (to within about 3%), or 0 if latencies are not recorded
+   */
+  public double getLatency(double percentile) {
+    if (!histograms) {
+      return 0;
+    }
+
+    long[] totals = new long[LatencyHistogram.BUCKETS];
+
+    for (LatencyHistogram histogram : latencies) {
+      histogram.addTo(totals);
+    }
+
+    return LatencyHistogram.percentile(totals, percentile) / 1e6;
+  }
+
+  @Override
+  public String toString() {
+    String summary = String.format("%d pages, %d bytes, %d anchors, %d links, %d dropped, "
+        + "%d fallbacks, %d clean failures", getPages(), getScanned(), getAnchors(), getLinks(),
+        getDropped(), getFallbacks(), getCleanFailures());
+
+    return histograms
+        ? String.format("%s, p50 %.3f ms, p99 %.3f ms", summary, getLatency(50), getLatency(99))
+        : summary;
+  }
+}
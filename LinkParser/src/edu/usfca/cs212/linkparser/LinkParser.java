@@ -0,0 +1,435 @@
+package edu.usfca.cs212.linkparser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parses URL links from the anchor tags within HTML text. Each page scanned is counted by the
+ * installed {@link LinkMetrics}, if any. These methods use the {@link LinkExtractor} of the
+ * current thread, which reuses its scanning state for every page.
+ */
+public class LinkParser {
+
+  /**
+   * Removes the fragment component of a URL (if present), and properly encodes the query string (if
+   * necessary).
+   *
+   * @param url the url to clean
+   * @return cleaned url (or original url if any issues occurred)
+   */
+  public static URL clean(URL url) {
+    try {
+      return new URI(
+          url.getProtocol(), url.getUserInfo(), url.getHost(), url.getPort(),
+          url.getPath(), url.getQuery(), null).toURL();
+    } catch (MalformedURLException | URISyntaxException e) {
+      LinkMetrics metrics = LinkMetrics.installed();
+
+      if (metrics != null) {
+        metrics.recordCleanFailure();
+      }
+
+      return url;
+    }
+  }
+
+  /**
+   * Returns a list of all the HTTP(S) links found in the href attribute of the anchor tags in the
+   * provided HTML. The links will be converted to absolute using the base URL and cleaned (removing
+   * fragments and encoding special characters as necessary).
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @return cleaned list of all http(s) links in the order they were found
+   *
+   * @see AnchorScanner
+   */
+  public static ArrayList<URL> listLinks(URL base, String html) {
+    return toURLs(parseLinks(base, html));
+  }
+
+  /**
+   * Returns a list of all the HTTP(S) links found in the href attribute of the anchor tags in the
+   * provided HTML as lightweight {@link Link} objects, which are much cheaper to create, store and
+   * compare than {@link URL} objects.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @return cleaned list of all http(s) links in the order they were found
+   *
+   * @see #listLinks(URL, String)
+   */
+  public static ArrayList<Link> parseLinks(URL base, String html) {
+    ArrayList<Link> links = new ArrayList<>();
+    LinkExtractor.local().parseLinks(base, html, links::add);
+    return links;
+  }
+
+  /**
+   * Returns a list of the first HTTP(S) links found in the href attribute of the anchor tags in
+   * the provided HTML. Scanning stops as soon as the limit is reached, so the rest of the HTML is
+   * never looked at.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @param limit the most links to return
+   * @return cleaned list of at most limit http(s) links in the order they were found
+   * @throws IllegalArgumentException if the limit is less than one
+   *
+   * @see #listLinks(URL, String)
+   */
+  public static ArrayList<URL> listLinks(URL base, String html, int limit) {
+    return toURLs(parseLinks(base, html, LinkFilter.ANY, limit));
+  }
+
+  /**
+   * Returns a list of the first HTTP(S) links accepted by the filter, found in the href attribute
+   * of the anchor tags in the provided HTML. Values the filter rejects outright (such as links to
+   * other hosts) are skipped without being resolved, and scanning stops as soon as the limit is
+   * reached.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @param filter selects the links to return, or null to return any link
+   * @param limit the most links to return
+   * @return cleaned list of at most limit links in the order they were found
+   * @throws IllegalArgumentException if the limit is less than one
+   *
+   * @see LinkFilter
+   */
+  public static ArrayList<Link> parseLinks(URL base, String html, LinkFilter filter, int limit) {
+    ArrayList<Link> links = new ArrayList<>();
+    LinkExtractor.local().parseLinks(base, html, filter, limit, links::add);
+    return links;
+  }
+
+  /**
+   * Returns the first HTTP(S) link accepted by the filter, found in the href attribute of the
+   * anchor tags in the provided HTML. Scanning stops at the anchor tag it was found in.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @param filter selects the link to return, or null to return any link
+   * @return the first link accepted by the filter, or null if there is none
+   *
+   * @see LinkFilter
+   */
+  public static Link firstLink(URL base, String html, LinkFilter filter) {
+    return LinkExtractor.local().firstLink(base, html, filter);
+  }
+
+  /**
+   * Returns the number of HTTP(S) links accepted by the filter, found in the href attribute of the
+   * anchor tags in the provided HTML, without creating a list of them.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @param filter selects the links to count, or null to count every link
+   * @return the number of links accepted by the filter
+   *
+   * @see LinkFilter
+   */
+  public static int countLinks(URL base, String html, LinkFilter filter) {
+    return LinkExtractor.local().countLinks(base, html, filter);
+  }
+
+  /**
+   * Returns a lazy stream of the HTTP(S) links found in the href attribute of the anchor tags in
+   * the provided HTML. The HTML is only scanned, and each link only resolved and cleaned, as the
+   * links are pulled from the stream, so short-circuiting operations such as
+   * {@link Stream#findFirst()} or {@link Stream#limit(long)} skip the rest of the page.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @return ordered stream of the cleaned http(s) links
+   *
+   * @see LinkSpliterator
+   */
+  public static Stream<Link> streamLinks(URL base, String html) {
+    return StreamSupport.stream(new LinkSpliterator(base, html), false);
+  }
+
+  /**
+   * Returns a lazy stream of the HTTP(S) links found in the href attribute of the anchor tags in
+   * the provided HTML bytes, without decoding the entire HTML.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the remaining bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html (such as UTF-8)
+   * @return ordered stream of the cleaned http(s) links
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   *
+   * @see #streamLinks(URL, String)
+   */
+  public static Stream<Link> streamLinks(URL base, ByteBuffer html, Charset charset) {
+    return StreamSupport.stream(new LinkSpliterator(base, html, charset), false);
+  }
+
+  /**
+   * Returns a lazy stream of the HTTP(S) links found in the href attribute of the anchor tags in
+   * the HTML from a reader, which is only read as far as needed to find the links pulled from the
+   * stream. The reader is not closed. Errors reading the html are thrown as
+   * {@link java.io.UncheckedIOException} by the stream operations.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the reader providing the raw html associated with the base url
+   * @return ordered stream of the cleaned http(s) links
+   *
+   * @see #streamLinks(URL, String)
+   */
+  public static Stream<Link> streamLinks(URL base, Reader html) {
+    return StreamSupport.stream(new LinkSpliterator(base, html), false);
+  }
+
+  /**
+   * Returns a lazy iterator over the HTTP(S) links found in the href attribute of the anchor tags
+   * in the provided HTML, which only scans as far as the next link each time it is asked for one.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @return iterator over the cleaned http(s) links in the order they are found
+   *
+   * @see #streamLinks(URL, String)
+   */
+  public static Iterator<Link> iterateLinks(URL base, String html) {
+    return Spliterators.iterator(new LinkSpliterator(base, html));
+  }
+
+  /**
+   * Returns a list of all the HTTP(S) links found in the href attribute of the anchor tags in the
+   * provided HTML bytes. The bytes are scanned directly without decoding the entire HTML; only the
+   * href values are decoded. Heap, direct and memory-mapped buffers are all supported.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the remaining bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html (such as UTF-8)
+   * @return cleaned list of all http(s) links in the order they were found
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   *
+   * @see #listLinks(URL, String)
+   */
+  public static ArrayList<URL> listLinks(URL base, ByteBuffer html, Charset charset) {
+    return toURLs(parseLinks(base, html, charset));
+  }
+
+  /**
+   * Returns a list of all the HTTP(S) links found in the href attribute of the anchor tags in the
+   * provided HTML bytes as lightweight {@link Link} objects, without decoding the entire HTML.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the remaining bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html (such as UTF-8)
+   * @return cleaned list of all http(s) links in the order they were found
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   *
+   * @see #listLinks(URL, ByteBuffer, Charset)
+   */
+  public static ArrayList<Link> parseLinks(URL base, ByteBuffer html, Charset charset) {
+    ArrayList<Link> links = new ArrayList<>();
+    LinkExtractor.local().parseLinks(base, html, charset, links::add);
+    return links;
+  }
+
+  /**
+   * Returns a list of all the HTTP(S) links found in the href attribute of the anchor tags in the
+   * provided HTML bytes, without decoding the entire HTML.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html (such as UTF-8)
+   * @return cleaned list of all http(s) links in the order they were found
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   *
+   * @see #listLinks(URL, ByteBuffer, Charset)
+   */
+  public static ArrayList<URL> listLinks(URL base, byte[] html, Charset charset) {
+    return listLinks(base, ByteBuffer.wrap(html), charset);
+  }
+
+  /**
+   * Returns a list of all the HTTP(S) links found in the href attribute of the anchor tags in the
+   * provided HTML bytes, detecting the encoding from a byte order mark or meta tag (or using UTF-8
+   * if neither is found). Bytes in ASCII-compatible encodings are scanned without decoding.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the bytes of the raw html associated with the base url
+   * @return cleaned list of all http(s) links in the order they were found
+   *
+   * @see CharsetSniffer#detect(ByteBuffer, Charset)
+   */
+  public static ArrayList<URL> listLinks(URL base, byte[] html) {
+    ByteBuffer buffer = ByteBuffer.wrap(html);
+    Charset charset = CharsetSniffer.detect(buffer, null);
+
+    return AnchorScanner.isAsciiCompatible(charset)
+        ? listLinks(base, buffer, charset)
+        : listLinks(base, CharsetSniffer.decode(html, charset));
+  }
+
+  /**
+   * Passes all of the HTTP(S) links found in the href attribute of the anchor tags to the
+   * consumer as the HTML is read. Only a small fixed-size buffer is used, regardless of the size
+   * of the HTML. The reader is not closed.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the reader providing the raw html associated with the base url
+   * @param consumer receives the cleaned links in the order they were found
+   * @throws IOException if unable to read the html
+   *
+   * @see #listLinks(URL, String)
+   */
+  public static void listLinks(URL base, Reader html, Consumer<URL> consumer) throws IOException {
+    parseLinks(base, html, link -> consumer.accept(link.toURL()));
+  }
+
+  /**
+   * Passes all of the HTTP(S) links found in the href attribute of the anchor tags to the
+   * consumer as lightweight {@link Link} objects as the HTML is read. The reader is not closed.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the reader providing the raw html associated with the base url
+   * @param consumer receives the cleaned links in the order they were found
+   * @throws IOException if unable to read the html
+   *
+   * @see #listLinks(URL, Reader, Consumer)
+   */
+  public static void parseLinks(URL base, Reader html, Consumer<Link> consumer)
+      throws IOException {
+    LinkExtractor.local().parseLinks(base, html, consumer);
+  }
+
+  /**
+   * Passes all of the HTTP(S) links found in the href attribute of the anchor tags to the
+   * consumer as the HTML is read. The stream is not closed.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the stream providing the raw html associated with the base url
+   * @param charset the character encoding of the stream
+   * @param consumer receives the cleaned links in the order they were found
+   * @throws IOException if unable to read the html
+   *
+   * @see #listLinks(URL, Reader, Consumer)
+   */
+  public static void listLinks(URL base, InputStream html, Charset charset,
+      Consumer<URL> consumer) throws IOException {
+    listLinks(base, new InputStreamReader(html, charset), consumer);
+  }
+
+  /**
+   * Passes all of the HTTP(S) links found in the href attribute of the anchor tags to the
+   * consumer as the HTML is read, detecting the encoding from the start of the stream. The stream
+   * is not closed.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the stream providing the raw html associated with the base url
+   * @param consumer receives the cleaned links in the order they were found
+   * @throws IOException if unable to read the html
+   *
+   * @see CharsetSniffer#detect(InputStream, Charset)
+   */
+  public static void listLinks(URL base, InputStream html, Consumer<URL> consumer)
+      throws IOException {
+    InputStream marked = html.markSupported() ? html : new BufferedInputStream(html);
+    listLinks(base, marked, CharsetSniffer.detect(marked, null), consumer);
+  }
+
+  /**
+   * Passes all of the HTTP(S) links found in the href attribute of the anchor tags to the
+   * consumer as the HTML is read. The channel is not closed.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the channel providing the raw html associated with the base url
+   * @param charset the character encoding of the channel
+   * @param consumer receives the cleaned links in the order they were found
+   * @throws IOException if unable to read the html
+   *
+   * @see #listLinks(URL, Reader, Consumer)
+   */
+  public static void listLinks(URL base, ReadableByteChannel html, Charset charset,
+      Consumer<URL> consumer) throws IOException {
+    Reader reader = Channels.newReader(html, charset.newDecoder(), AnchorScanner.BUFFER_SIZE);
+    listLinks(base, reader, consumer);
+  }
+
+  /**
+   * Converts a list of links into a list of URLs.
+   *
+   * @param links the links to convert
+   * @return the converted urls in the same order
+   */
+  public static ArrayList<URL> toURLs(List<Link> links) {
+    ArrayList<URL> urls = new ArrayList<>(links.size());
+
+    for (Link link : links) {
+      urls.add(link.toURL());
+    }
+
+    return urls;
+  }
+
+  /**
+   * Converts an href value into an absolute and cleaned HTTP(S) link. This is the reference
+   * implementation used by {@link LinkResolver}, which avoids most of the intermediate objects.
+   * Unlike the resolver, character references in the value are not decoded.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param href the href value (may be relative or absolute)
+   * @return the cleaned absolute link, or null if the value is not a valid HTTP(S) link
+   */
+  public static URL resolve(URL base, String href) {
+    try {
+      URL absolute = new URL(base, href);
+      String protocol = absolute.getProtocol();
+
+      if (protocol.equals("http") || protocol.equals("https")) {
+        return clean(absolute);
+      }
+    } catch (MalformedURLException e) {
+      // invalid links (like javascript links) are skipped
+    }
+
+    return null;
+  }
+
+  /**
+   * Demonstrates this class.
+   *
+   * @param args unused
+   * @throws MalformedURLException if unable to create URLs
+   */
+  public static void main(String[] args) throws MalformedURLException {
+    // this demonstrates cleaning
+    URL valid = new URL("https://docs.python.org/3/library/functions.html?highlight=string#format");
+    System.out.println(" Link: " + valid);
+    System.out.println("Clean: " + clean(valid));
+    System.out.println();
+
+    // this demonstrates encoding
+    URL space = new URL("https://www.google.com/search?q=hello world");
+    System.out.println(" Link: " + space);
+    System.out.println("Clean: " + clean(space));
+    System.out.println();
+
+    // this throws an exception
+    URL invalid = new URL("javascript:alert('Hello!');");
+    System.out.println(invalid);
+  }
+}
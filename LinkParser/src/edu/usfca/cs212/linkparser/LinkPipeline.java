@@ -0,0 +1,1062 @@
+package edu.usfca.cs212.linkparser;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Fetches pages and parses their links in a pipeline of stages. Each stage has its own bounded
+ * queue and number of threads, so a slow stage holds back the stages before it (and eventually
+ * the network) instead of letting work pile up in memory. The stages are:
+ *
+ * <ol>
+ * <li>{@link Stage#FETCH}: requests are sent by {@link HttpClient} without blocking, and the body
+ * of each page is delivered in chunks as they arrive. The next chunk of a page is only requested
+ * once the last one was scanned.</li>
+ * <li>{@link Stage#SCAN}: each chunk is scanned for href values as soon as it arrives, continuing
+ * from the previous chunk of the same page. The encoding is detected from the first chunk. Bytes in
+ * ASCII-compatible encodings are scanned without decoding; other encodings are decoded one chunk at
+ * a time.</li>
+ * <li>{@link Stage#RESOLVE}: href values are converted into absolute and cleaned links.</li>
+ * <li>{@link Stage#DEDUPE}: links that were already emitted are dropped, unless there is no
+ * visited set.</li>
+ * <li>{@link Stage#EMIT}: each page and link found within it are passed to the output.</li>
+ * </ol>
+ *
+ * <p>The links of a page may be emitted out of order if more than one thread resolves links. The
+ * output is only called by one thread at a time unless the emit stage is given more threads. Each
+ * stage counts the items it processes and how many items are waiting in its queue. For example:
+ *
+ * <pre>
+ * try (LinkPipeline pipeline = new LinkPipeline((page, link) -&gt; System.out.println(link))) {
+ *   for (URL url : urls) {
+ *     pipeline.submit(url);
+ *   }
+ *
+ *   pipeline.await();
+ *   System.err.println(pipeline);
+ * }
+ * </pre>
+ *
+ * @see WebCrawler
+ */
+public class LinkPipeline implements AutoCloseable {
+
+  /**
+   * The stages of the pipeline, in order.
+   */
+  public enum Stage {
+    /** Fetches pages, counting each request sent. */
+    FETCH,
+
+    /** Decodes and scans the chunks of each page, counting each chunk. */
+    SCAN,
+
+    /** Resolves href values, counting each value. */
+    RESOLVE,
+
+    /** Drops links that were already emitted, counting each link. */
+    DEDUPE,
+
+    /** Passes links to the output, counting each link. */
+    EMIT
+  }
+
+  /** Default number of items each stage may hold in its queue. */
+  public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+  /** Receives each page and link found within it. */
+  private final BiConsumer<Link, Link> output;
+
+  /** The size of each queue. */
+  private final int queueSize;
+
+  /** The queue and counts of each stage. */
+  private final EnumMap<Stage, Pipe<?>> pipes;
+
+  /** The pages waiting to be fetched. */
+  private final Pipe<Link> fetching;
+
+  /** The chunks of pages waiting to be scanned. */
+  private final Pipe<Chunk> scanning;
+
+  /** The href values waiting to be resolved. */
+  private final Pipe<Href> resolving;
+
+  /** The links waiting to be checked against the visited set. */
+  private final Pipe<Found> deduping;
+
+  /** The links waiting to be output. */
+  private final Pipe<Found> emitting;
+
+  /** The number of threads (or for fetching, pages at once) of each stage. */
+  private final EnumMap<Stage, Integer> parallelism;
+
+  /** The links already emitted, or null if links are not deduplicated. */
+  private VisitedSet visited;
+
+  /** Timeout used when connecting to and fetching pages. */
+  private Duration timeout;
+
+  /** Limits the number of pages being fetched at once, or null if not started. */
+  private Semaphore connections;
+
+  /** Runs the threads of every stage, or null if not started. */
+  private ExecutorService workers;
+
+  /** Runs the tasks of the client, or null if not started. */
+  private ExecutorService network;
+
+  /** Fetches the pages, or null if not started. */
+  private HttpClient client;
+
+  /** Guards the number of pending items. */
+  private final Object lock;
+
+  /** Number of items queued or in progress in any stage, including pages being fetched. */
+  private long pending;
+
+  /** When the pipeline started, in nanoseconds. */
+  private long started;
+
+  /** How long the pipeline ran before it was closed, in nanoseconds, or 0 if still running. */
+  private long elapsed;
+
+  /** Number of pages successfully fetched and scanned. */
+  private final LongAdder pages;
+
+  /** Number of pages that could not be fetched or were not HTML. */
+  private final LongAdder failed;
+
+  /** Number of bytes of html received. */
+  private final LongAdder bytes;
+
+  /**
+   * Initializes a pipeline that uses the default queue size.
+   *
+   * @param output receives each page and link found within it
+   */
+  public LinkPipeline(BiConsumer<Link, Link> output) {
+    this(DEFAULT_QUEUE_SIZE, output);
+  }
+
+  /**
+   * Initializes a pipeline.
+   *
+   * @param queueSize the number of items each stage may hold in its queue
+   * @param output receives each page and link found within it
+   */
+  public LinkPipeline(int queueSize, BiConsumer<Link, Link> output) {
+    if (queueSize < 1) {
+      throw new IllegalArgumentException("Queues must hold at least one item.");
+    }
+
+    this.output = output;
+    this.queueSize = queueSize;
+    this.lock = new Object();
+
+    this.fetching = new Pipe<>(queueSize);
+    this.scanning = new Pipe<>(queueSize);
+    this.resolving = new Pipe<>(queueSize);
+    this.deduping = new Pipe<>(queueSize);
+    this.emitting = new Pipe<>(queueSize);
+
+    this.pipes = new EnumMap<>(Stage.class);
+    pipes.put(Stage.FETCH, fetching);
+    pipes.put(Stage.SCAN, scanning);
+    pipes.put(Stage.RESOLVE, resolving);
+    pipes.put(Stage.DEDUPE, deduping);
+    pipes.put(Stage.EMIT, emitting);
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    this.parallelism = new EnumMap<>(Stage.class);
+    parallelism.put(Stage.FETCH, Math.min(16, queueSize));
+    parallelism.put(Stage.SCAN, cores);
+    parallelism.put(Stage.RESOLVE, cores);
+    parallelism.put(Stage.DEDUPE, 1);
+    parallelism.put(Stage.EMIT, 1);
+
+    this.visited = new VisitedSet();
+    this.timeout = Duration.ofMillis(WebCrawler.DEFAULT_TIMEOUT);
+
+    this.pages = new LongAdder();
+    this.failed = new LongAdder();
+    this.bytes = new LongAdder();
+  }
+
+  /**
+   * Sets the number of threads of a stage. For the fetch stage, this is the number of pages
+   * fetched at once instead, which may not be more than the queue size since each page may have
+   * one chunk waiting to be scanned. Must be called before any pages are submitted.
+   *
+   * @param stage the stage
+   * @param threads the number of threads (or pages at once)
+   * @throws IllegalStateException if pages were already submitted
+   */
+  public void setParallelism(Stage stage, int threads) {
+    checkNotStarted();
+
+    if (threads < 1 || (stage == Stage.FETCH && threads > queueSize)) {
+      throw new IllegalArgumentException("Invalid parallelism for " + stage + ": " + threads);
+    }
+
+    parallelism.put(stage, threads);
+  }
+
+  /**
+   * Sets the visited set used to drop links that were already emitted, which may be shared with
+   * other pipelines or a crawler. Must be called before any pages are submitted.
+   *
+   * @param visited the visited set, or null to emit every link found (including duplicates)
+   * @throws IllegalStateException if pages were already submitted
+   */
+  public void setVisitedSet(VisitedSet visited) {
+    checkNotStarted();
+    this.visited = visited;
+  }
+
+  /**
+   * Sets the timeout used when connecting to and fetching pages. Must be called before any pages
+   * are submitted.
+   *
+   * @param timeout the timeout
+   * @throws IllegalStateException if pages were already submitted
+   */
+  public void setTimeout(Duration timeout) {
+    checkNotStarted();
+    this.timeout = timeout;
+  }
+
+  /**
+   * Makes sure the pipeline has not started.
+   *
+   * @throws IllegalStateException if the pipeline has started
+   */
+  private void checkNotStarted() {
+    if (workers != null) {
+      throw new IllegalStateException("Pipeline already started.");
+    }
+  }
+
+  /**
+   * Submits a page to be fetched, starting the pipeline if needed. Waits if the fetch queue is
+   * full.
+   *
+   * @param page the page to fetch
+   * @throws InterruptedException if interrupted while waiting
+   * @throws IllegalStateException if the pipeline was closed
+   */
+  public void submit(URL page) throws InterruptedException {
+    submit(new Link(LinkParser.clean(page)));
+  }
+
+  /**
+   * Submits a page to be fetched, starting the pipeline if needed. Waits if the fetch queue is
+   * full.
+   *
+   * @param page the page to fetch
+   * @throws InterruptedException if interrupted while waiting
+   * @throws IllegalStateException if the pipeline was closed
+   */
+  public void submit(Link page) throws InterruptedException {
+    synchronized (lock) {
+      if (elapsed > 0) {
+        throw new IllegalStateException("Pipeline already closed.");
+      }
+
+      if (workers == null) {
+        start();
+      }
+    }
+
+    enter();
+    fetching.put(page);
+  }
+
+  /**
+   * Starts the threads of every stage and the client.
+   */
+  private void start() {
+    int threads = 1;
+
+    for (Stage stage : Stage.values()) {
+      threads += stage == Stage.FETCH ? 0 : parallelism.get(stage);
+    }
+
+    started = System.nanoTime();
+    connections = new Semaphore(parallelism.get(Stage.FETCH));
+    workers = Executors.newFixedThreadPool(threads);
+    network = Executors.newCachedThreadPool();
+    client = HttpClient.newBuilder()
+        .executor(network)
+        .connectTimeout(timeout)
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .build();
+
+    // a single thread sends requests, since the client fetches the pages without blocking
+    workers.execute(() -> work(fetching, this::fetch));
+    start(Stage.SCAN, scanning, this::scan);
+    start(Stage.DEDUPE, deduping, this::dedupe);
+    start(Stage.EMIT, emitting, this::emit);
+
+    for (int i = 0; i < parallelism.get(Stage.RESOLVE); i++) {
+      Resolver resolver = new Resolver();
+      workers.execute(() -> work(resolving, resolver));
+    }
+  }
+
+  /**
+   * Starts the threads of a stage.
+   *
+   * @param <T> the type of item processed by the stage
+   * @param stage the stage
+   * @param pipe the queue of the stage
+   * @param handler processes each item
+   */
+  private <T> void start(Stage stage, Pipe<T> pipe, Handler<T> handler) {
+    for (int i = 0; i < parallelism.get(stage); i++) {
+      workers.execute(() -> work(pipe, handler));
+    }
+  }
+
+  /**
+   * Processes the items of a stage until interrupted. Items that fail, even with an error, are
+   * counted and skipped so the stage never loses a worker.
+   *
+   * @param <T> the type of item processed by the stage
+   * @param pipe the queue of the stage
+   * @param handler processes each item
+   */
+  private <T> void work(Pipe<T> pipe, Handler<T> handler) {
+    try {
+      while (true) {
+        T item = pipe.queue.take();
+
+        try {
+          handler.handle(item);
+          pipe.processed.increment();
+        } catch (RuntimeException | Error e) {
+          pipe.failed.increment();
+        } finally {
+          exit();
+        }
+      }
+    } catch (InterruptedException e) {
+      // the pipeline was closed
+    }
+  }
+
+  /**
+   * Counts an item that was queued or started.
+   */
+  private void enter() {
+    synchronized (lock) {
+      pending++;
+    }
+  }
+
+  /**
+   * Counts an item that finished, waking up any threads waiting for the pipeline to be idle.
+   */
+  private void exit() {
+    synchronized (lock) {
+      if (--pending == 0) {
+        lock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Waits until every page submitted so far has been fetched and every link found was output.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void await() throws InterruptedException {
+    synchronized (lock) {
+      while (pending > 0) {
+        lock.wait();
+      }
+    }
+  }
+
+  /**
+   * Sends the request for a page, waiting until fewer than the maximum number of pages are being
+   * fetched. The body is delivered to the scan stage as it arrives.
+   *
+   * @param link the page to fetch
+   * @throws InterruptedException if interrupted while waiting
+   */
+  private void fetch(Link link) throws InterruptedException {
+    connections.acquire();
+    enter();
+
+    try {
+      HttpRequest request = HttpRequest.newBuilder(link.toURI()).timeout(timeout).GET().build();
+
+      client.sendAsync(request, BodyHandlers.ofPublisher()).whenComplete((response, error) -> {
+        if (error != null) {
+          done(false);
+          return;
+        }
+
+        try {
+          receive(link, response);
+        } catch (RuntimeException | Error e) {
+          done(false);
+        }
+      });
+    } catch (RuntimeException | Error e) {
+      done(false);
+      throw e;
+    }
+  }
+
+  /**
+   * Starts receiving the body of a page, or discards it if the page is not HTML.
+   *
+   * @param link the page that was fetched
+   * @param response the response with the body still to be received
+   */
+  private void receive(Link link, HttpResponse<Flow.Publisher<List<ByteBuffer>>> response) {
+    String type = response.headers().firstValue("Content-Type").orElse(null);
+    URL base = null;
+
+    try {
+      // redirects change the base url used for relative links
+      base = response.uri().toURL();
+    } catch (MalformedURLException | IllegalArgumentException e) {
+      // treated as a failed page below
+    }
+
+    if (response.statusCode() != 200 || base == null || type == null
+        || !type.toLowerCase(Locale.ROOT).startsWith("text/html")) {
+      response.body().subscribe(BodySubscribers.discarding());
+      done(false);
+      return;
+    }
+
+    response.body().subscribe(new Page(link, base, CharsetSniffer.fromContentType(type)));
+  }
+
+  /**
+   * Marks a page as finished.
+   *
+   * @param success whether the page was fetched and scanned
+   */
+  private void done(boolean success) {
+    (success ? pages : failed).increment();
+    connections.release();
+    exit();
+  }
+
+  /**
+   * Scans a chunk of a page, or finishes the page if there are no more chunks.
+   *
+   * @param chunk the chunk to scan
+   */
+  private void scan(Chunk chunk) {
+    Page page = chunk.page;
+
+    if (chunk.buffers == null) {
+      page.finish();
+      return;
+    }
+
+    try {
+      for (ByteBuffer buffer : chunk.buffers) {
+        bytes.add(buffer.remaining());
+        page.scan(buffer);
+      }
+    } catch (RuntimeException | Error e) {
+      page.fail();
+    }
+
+    page.next();
+  }
+
+  /**
+   * Drops a link if it was already emitted.
+   *
+   * @param found the page and link
+   * @throws InterruptedException if interrupted while waiting for the emit queue
+   */
+  private void dedupe(Found found) throws InterruptedException {
+    if (visited == null || visited.add(found.link)) {
+      enter();
+      emitting.put(found);
+    }
+  }
+
+  /**
+   * Passes a link to the output.
+   *
+   * @param found the page and link
+   */
+  private void emit(Found found) {
+    output.accept(found.page, found.link);
+  }
+
+  /**
+   * Returns the number of pages successfully fetched and scanned.
+   *
+   * @return the number of pages
+   */
+  public long getPages() {
+    return pages.sum();
+  }
+
+  /**
+   * Returns the number of pages that could not be fetched or were not HTML.
+   *
+   * @return the number of failed pages
+   */
+  public long getFailed() {
+    return failed.sum();
+  }
+
+  /**
+   * Returns the number of bytes of html received.
+   *
+   * @return the number of bytes
+   */
+  public long getBytes() {
+    return bytes.sum();
+  }
+
+  /**
+   * Returns the number of items a stage processed.
+   *
+   * @param stage the stage
+   * @return the number of items processed
+   */
+  public long getProcessed(Stage stage) {
+    return pipes.get(stage).processed.sum();
+  }
+
+  /**
+   * Returns the number of items of a stage that failed, such as when the output throws an
+   * exception.
+   *
+   * @param stage the stage
+   * @return the number of items that failed
+   */
+  public long getFailed(Stage stage) {
+    return pipes.get(stage).failed.sum();
+  }
+
+  /**
+   * Returns the number of items waiting in the queue of a stage.
+   *
+   * @param stage the stage
+   * @return the number of items waiting
+   */
+  public int getQueued(Stage stage) {
+    return pipes.get(stage).queue.size();
+  }
+
+  /**
+   * Returns the most items that were ever waiting in the queue of a stage.
+   *
+   * @param stage the stage
+   * @return the most items waiting at once
+   */
+  public int getMaxQueued(Stage stage) {
+    return pipes.get(stage).depth.get();
+  }
+
+  /**
+   * Returns the number of items a stage processed per second since the pipeline started.
+   *
+   * @param stage the stage
+   * @return the items per second
+   */
+  public double getThroughput(Stage stage) {
+    long nanos;
+
+    synchronized (lock) {
+      nanos = workers == null ? 0 : elapsed > 0 ? elapsed : System.nanoTime() - started;
+    }
+
+    return nanos == 0 ? 0 : getProcessed(stage) / (nanos / 1e9);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(String.format("%d pages, %d failed, %d bytes",
+        getPages(), getFailed(), getBytes()));
+
+    for (Stage stage : Stage.values()) {
+      builder.append(String.format(Locale.ROOT, "; %s %d (%.1f/sec, %d queued, max %d)",
+          stage.name().toLowerCase(Locale.ROOT), getProcessed(stage), getThroughput(stage),
+          getQueued(stage), getMaxQueued(stage)));
+    }
+
+    return builder.toString();
+  }
+
+  /**
+   * Waits for every page submitted to be finished, then stops the threads of every stage.
+   */
+  @Override
+  public void close() {
+    try {
+      await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    synchronized (lock) {
+      if (workers == null || elapsed > 0) {
+        elapsed = Math.max(elapsed, 1);
+        return;
+      }
+
+      elapsed = Math.max(System.nanoTime() - started, 1);
+    }
+
+    workers.shutdownNow();
+    network.shutdownNow();
+
+    try {
+      workers.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Processes the items of a stage.
+   *
+   * @param <T> the type of item
+   */
+  @FunctionalInterface
+  private interface Handler<T> {
+
+    /**
+     * Processes an item.
+     *
+     * @param item the item to process
+     * @throws InterruptedException if interrupted while waiting for the next stage
+     */
+    void handle(T item) throws InterruptedException;
+  }
+
+  /**
+   * The queue and counts of a stage.
+   *
+   * @param <T> the type of item in the queue
+   */
+  private static class Pipe<T> {
+
+    /** The items waiting to be processed. */
+    private final ArrayBlockingQueue<T> queue;
+
+    /** Number of items processed. */
+    private final LongAdder processed;
+
+    /** Number of items that failed. */
+    private final LongAdder failed;
+
+    /** The most items ever waiting at once. */
+    private final AtomicInteger depth;
+
+    /**
+     * Initializes a stage.
+     *
+     * @param size the number of items the queue may hold
+     */
+    private Pipe(int size) {
+      this.queue = new ArrayBlockingQueue<>(size);
+      this.processed = new LongAdder();
+      this.failed = new LongAdder();
+      this.depth = new AtomicInteger();
+    }
+
+    /**
+     * Adds an item to the queue, waiting if it is full.
+     *
+     * @param item the item to add
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void put(T item) throws InterruptedException {
+      queue.put(item);
+      depth.accumulateAndGet(queue.size(), Math::max);
+    }
+  }
+
+  /**
+   * Resolves href values with its own resolver, since resolvers are not thread-safe.
+   */
+  private class Resolver implements Handler<Href> {
+
+    /** The resolver of this thread, or null if no values were resolved yet. */
+    private LinkResolver resolver;
+
+    @Override
+    public void handle(Href href) throws InterruptedException {
+      if (resolver == null) {
+        resolver = new LinkResolver(href.page.base, LinkCache.shared());
+      } else {
+        resolver.setBase(href.page.base);
+      }
+
+      Link link = resolver.resolve(href.value, 0, href.value.length());
+
+      if (link != null) {
+        enter();
+        deduping.put(new Found(href.page.link, link));
+      }
+    }
+  }
+
+  /**
+   * A page whose body is being received and scanned. At most one chunk of the page is queued or
+   * being scanned at a time, so the scanner never sees two chunks at once.
+   */
+  private class Page implements Flow.Subscriber<List<ByteBuffer>> {
+
+    /** The page that was fetched. */
+    private final Link link;
+
+    /** The base url used to resolve links, after any redirects. */
+    private final URL base;
+
+    /** The encoding from the content type, or null if none. */
+    private final Charset hint;
+
+    /** Scans the chunks of the page. */
+    private final AnchorScanner scanner;
+
+    /** The encoding of the page, or null until the first chunk is scanned. */
+    private Charset charset;
+
+    /** Decodes the page if it is not in an ASCII-compatible encoding, or null if not needed. */
+    private CharsetDecoder decoder;
+
+    /** Holds bytes not yet decoded, such as part of a character split between chunks. */
+    private ByteBuffer undecoded;
+
+    /** Holds the decoded characters of a chunk. */
+    private CharBuffer decoded;
+
+    /** Requests the chunks of the page. */
+    private Flow.Subscription subscription;
+
+    /** Whether a chunk (or the end of the page) is queued or being scanned. */
+    private boolean busy;
+
+    /** Whether all of the chunks have been received. */
+    private boolean complete;
+
+    /** Whether the page could not be received or scanned. */
+    private boolean error;
+
+    /**
+     * Initializes a page.
+     *
+     * @param link the page that was fetched
+     * @param base the base url used to resolve links
+     * @param hint the encoding from the content type, or null if none
+     */
+    private Page(Link link, URL base, Charset hint) {
+      this.link = link;
+      this.base = base;
+      this.hint = hint;
+      this.scanner = new AnchorScanner(this::found);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+      synchronized (this) {
+        busy = true;
+      }
+
+      queue(buffers);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      end(true);
+    }
+
+    @Override
+    public void onComplete() {
+      end(false);
+    }
+
+    /**
+     * Marks the page as received, queueing its end unless a chunk is being scanned (in which case
+     * the page is finished once the chunk is scanned).
+     *
+     * @param error whether the page could not be received
+     */
+    private void end(boolean error) {
+      synchronized (this) {
+        this.error |= error;
+        complete = true;
+
+        if (busy) {
+          return;
+        }
+
+        busy = true;
+      }
+
+      queue(null);
+    }
+
+    /**
+     * Queues a chunk of the page or its end to be scanned. Only happens on the threads of the
+     * client, which may wait for room in the queue.
+     *
+     * @param buffers the chunk, or null for the end of the page
+     */
+    private void queue(List<ByteBuffer> buffers) {
+      enter();
+
+      try {
+        scanning.put(new Chunk(this, buffers));
+      } catch (InterruptedException e) {
+        // the pipeline was closed
+        exit();
+        subscription.cancel();
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /**
+     * Requests the next chunk after a chunk was scanned, or finishes the page if every chunk was
+     * received.
+     */
+    private void next() {
+      boolean finished;
+
+      synchronized (this) {
+        finished = complete;
+        busy = complete;
+      }
+
+      if (finished) {
+        finish();
+      } else {
+        subscription.request(1);
+      }
+    }
+
+    /**
+     * Stops receiving the page after it could not be scanned.
+     */
+    private void fail() {
+      synchronized (this) {
+        error = true;
+        complete = true;
+      }
+
+      subscription.cancel();
+    }
+
+    /**
+     * Scans a buffer of the page.
+     *
+     * @param buffer the buffer to scan
+     */
+    private void scan(ByteBuffer buffer) {
+      if (!buffer.hasRemaining()) {
+        return;
+      }
+
+      if (charset == null) {
+        charset = CharsetSniffer.detect(buffer, hint);
+
+        if (!AnchorScanner.isAsciiCompatible(charset)) {
+          decoder = charset.newDecoder()
+              .onMalformedInput(CodingErrorAction.REPLACE)
+              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+          undecoded = ByteBuffer.allocate(buffer.remaining());
+          decoded = CharBuffer.allocate(AnchorScanner.BUFFER_SIZE);
+        }
+      }
+
+      if (decoder == null) {
+        scanner.scan(buffer, buffer.position(), buffer.limit(), charset);
+        return;
+      }
+
+      if (undecoded.remaining() < buffer.remaining()) {
+        undecoded.flip();
+        undecoded = ByteBuffer.allocate(undecoded.remaining() + buffer.remaining())
+            .put(undecoded);
+      }
+
+      undecoded.put(buffer.duplicate()).flip();
+      decode(false);
+      undecoded.compact();
+    }
+
+    /**
+     * Decodes and scans the bytes not yet decoded.
+     *
+     * @param last whether there are no more bytes
+     */
+    private void decode(boolean last) {
+      CoderResult result;
+
+      do {
+        decoded.clear();
+        result = decoder.decode(undecoded, decoded, last);
+        decoded.flip();
+        scanner.scan(decoded, 0, decoded.limit());
+      } while (result.isOverflow());
+
+      if (last) {
+        do {
+          decoded.clear();
+          result = decoder.flush(decoded);
+          decoded.flip();
+          scanner.scan(decoded, 0, decoded.limit());
+        } while (result.isOverflow());
+      }
+    }
+
+    /**
+     * Finishes scanning the page.
+     */
+    private void finish() {
+      boolean success;
+
+      synchronized (this) {
+        success = !error;
+      }
+
+      try {
+        if (decoder != null && success) {
+          undecoded.flip();
+          decode(true);
+        }
+      } catch (RuntimeException | Error e) {
+        success = false;
+      } finally {
+        scanner.reset();
+        done(success);
+      }
+    }
+
+    /**
+     * Queues an href value found by the scanner to be resolved.
+     *
+     * @param text the text containing the href value
+     * @param start the index of the first character of the value
+     * @param end the index after the last character of the value
+     */
+    private void found(CharSequence text, int start, int end) {
+      enter();
+
+      try {
+        resolving.put(new Href(this, text.subSequence(start, end).toString()));
+      } catch (InterruptedException e) {
+        exit();
+        Thread.currentThread().interrupt();
+        throw new CancellationException("Pipeline closed.");
+      }
+    }
+  }
+
+  /**
+   * A chunk of a page waiting to be scanned.
+   */
+  private static class Chunk {
+
+    /** The page the chunk belongs to. */
+    private final Page page;
+
+    /** The bytes of the chunk, or null for the end of the page. */
+    private final List<ByteBuffer> buffers;
+
+    /**
+     * Initializes a chunk.
+     *
+     * @param page the page the chunk belongs to
+     * @param buffers the bytes of the chunk, or null for the end of the page
+     */
+    private Chunk(Page page, List<ByteBuffer> buffers) {
+      this.page = page;
+      this.buffers = buffers;
+    }
+  }
+
+  /**
+   * An href value waiting to be resolved.
+   */
+  private static class Href {
+
+    /** The page the value was found in. */
+    private final Page page;
+
+    /** The href value. */
+    private final String value;
+
+    /**
+     * Initializes an href value.
+     *
+     * @param page the page the value was found in
+     * @param value the href value
+     */
+    private Href(Page page, String value) {
+      this.page = page;
+      this.value = value;
+    }
+  }
+
+  /**
+   * A link found within a page.
+   */
+  private static class Found {
+
+    /** The page the link was found in. */
+    private final Link page;
+
+    /** The link. */
+    private final Link link;
+
+    /**
+     * Initializes a link found within a page.
+     *
+     * @param page the page the link was found in
+     * @param link the link
+     */
+    private Found(Link page, Link link) {
+      this.page = page;
+      this.link = link;
+    }
+  }
+}
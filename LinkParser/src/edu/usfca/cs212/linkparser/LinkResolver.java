@@ -0,0 +1,772 @@
+package edu.usfca.cs212.linkparser;
+
+import java.net.URL;
+
+/**
+ * Converts href values into absolute and cleaned HTTP(S) links for a single base url. This gives
+ * the same results as {@link LinkParser#resolve(URL, String)}, which creates a new {@link URL}
+ * relative to the base and then calls {@link LinkParser#clean(URL)} on it. That approach creates
+ * several intermediate objects per link and uses exceptions for control flow.
+ *
+ * <p>This resolver instead works on the href characters in place. It resolves the value against
+ * the pre-parsed base, removes the fragment and percent-encodes the path and query, all within a
+ * reusable buffer. Only the final {@link Link} is created. Values the resolver is not sure how to
+ * handle exactly (such as user info, IPv6 hosts, unusual hosts or non-ASCII characters) fall back
+ * to {@link LinkParser#resolve(URL, String)}.
+ *
+ * <p>Values are taken as they appear within the HTML, so any character references (such as
+ * {@code &amp;}) are decoded first using {@link Entities}. Only values that contain an {@code &}
+ * are decoded, into another reusable buffer, so the results are the same as
+ * {@link LinkParser#resolve(URL, String)} for the decoded value.
+ *
+ * <p>Resolvers may optionally share a {@link LinkCache}, so repeated href values are only resolved
+ * once. Instances reuse their buffers and are not thread-safe, but the cache is. A resolver may be
+ * reused for another page with {@link #setBase(URL)}.
+ *
+ * @see LinkParser#resolve(URL, String)
+ */
+public class LinkResolver {
+
+  /** Characters (besides letters and digits) that are not encoded in a path. */
+  private static final String PATH_LEGAL = "-_.!~*'(),;:$&+=/@";
+
+  /** Characters (besides letters and digits) that are not encoded in a query. */
+  private static final String QUERY_LEGAL = "-_.!~*'();/?:@&=+$,[]";
+
+  /** Hexadecimal digits used for percent-encoding. */
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  /** Returned by {@link #scheme(CharSequence, int, int)} for values with another scheme. */
+  private static final int NOT_HTTP = -1;
+
+  /** Returned by {@link #scheme(CharSequence, int, int)} for values resolved the slow way. */
+  private static final int UNSURE = -2;
+
+  /** The base url used to convert relative links to absolute. */
+  private URL base;
+
+  /** The protocol of the base url, or null if the base cannot be resolved against quickly. */
+  private String protocol;
+
+  /** The host and port of the base url. */
+  private String authority;
+
+  /** The path of the base url. */
+  private String path;
+
+  /** The query of the base url, or null if there is none. */
+  private String query;
+
+  /** Reusable buffer for the resolved path. */
+  private final StringBuilder pathBuffer;
+
+  /** Reusable buffer for the final link. */
+  private final StringBuilder linkBuffer;
+
+  /** Reusable buffer for values with decoded character references. */
+  private final StringBuilder valueBuffer;
+
+  /** The cache of resolved links, or null if links are not cached. */
+  private final LinkCache cache;
+
+  /** The text of the base url, used as part of the cache key. */
+  private String baseText;
+
+  /** The number of href values resolved the slow way. */
+  private long fallbacks;
+
+  /**
+   * Initializes a resolver for the provided base url that does not cache links.
+   *
+   * @param base the base url used to convert relative links to absolute
+   */
+  public LinkResolver(URL base) {
+    this(base, null);
+  }
+
+  /**
+   * Initializes a resolver for the provided base url.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param cache the cache of resolved links, or null if links should not be cached
+   */
+  public LinkResolver(URL base, LinkCache cache) {
+    this.cache = cache;
+    this.pathBuffer = new StringBuilder();
+    this.linkBuffer = new StringBuilder();
+    this.valueBuffer = new StringBuilder();
+    setBase(base);
+  }
+
+  /**
+   * Changes the base url used to convert relative links to absolute, so the resolver and its
+   * buffers may be reused for another page. Does nothing if the base url is the same object.
+   *
+   * @param base the base url used to convert relative links to absolute
+   */
+  public void setBase(URL base) {
+    if (base == this.base) {
+      return;
+    }
+
+    this.base = base;
+    this.baseText = base.toString();
+
+    String host = base.getHost();
+    boolean simple = isHttp(base.getProtocol()) && base.getUserInfo() == null
+        && isSimpleHost(host, 0, host.length())
+        && (base.getPath().isEmpty() || base.getPath().startsWith("/"));
+
+    this.protocol = simple ? base.getProtocol() : null;
+    this.authority = base.getPort() < 0 ? host : host + ":" + base.getPort();
+    this.path = base.getPath();
+    this.query = base.getQuery();
+  }
+
+  /**
+   * Returns the base url used by this resolver.
+   *
+   * @return the base url
+   */
+  public URL getBase() {
+    return base;
+  }
+
+  /**
+   * Returns the number of href values this resolver could not handle itself, which were resolved
+   * the slow way by {@link LinkParser#resolve(URL, String)} instead.
+   *
+   * @return number of href values resolved the slow way
+   */
+  public long getFallbacks() {
+    return fallbacks;
+  }
+
+  /**
+   * Converts an href value into an absolute and cleaned HTTP(S) link.
+   *
+   * @param href the href value (may be relative or absolute)
+   * @return the cleaned absolute link, or null if the value is not a valid HTTP(S) link
+   *
+   * @see LinkParser#resolve(URL, String)
+   */
+  public Link resolve(CharSequence href) {
+    return resolve(href, 0, href.length());
+  }
+
+  /**
+   * Converts part of a sequence of characters into an absolute and cleaned HTTP(S) link, without
+   * copying the characters first.
+   *
+   * @param text the text containing the href value
+   * @param from the index of the first character of the value
+   * @param to the index after the last character of the value
+   * @return the cleaned absolute link, or null if the value is not a valid HTTP(S) link
+   *
+   * @see LinkParser#resolve(URL, String)
+   */
+  public Link resolve(CharSequence text, int from, int to) {
+    if (Entities.indexOf(text, from, to) >= 0) {
+      valueBuffer.setLength(0);
+      Entities.decode(text, from, to, valueBuffer);
+      return resolveDecoded(valueBuffer, 0, valueBuffer.length());
+    }
+
+    return resolveDecoded(text, from, to);
+  }
+
+  /**
+   * Converts part of a sequence of characters without any character references into an absolute
+   * and cleaned HTTP(S) link.
+   *
+   * @param text the text containing the href value
+   * @param from the index of the first character of the value
+   * @param to the index after the last character of the value
+   * @return the cleaned absolute link, or null if the value is not a valid HTTP(S) link
+   */
+  private Link resolveDecoded(CharSequence text, int from, int to) {
+    if (cache == null || protocol == null) {
+      return uncached(text, from, to);
+    }
+
+    // the fragment never changes a link built here, so only the # is part of the cache key
+    int end = indexOf(text, '#', from, to);
+    end = end < 0 ? to : end + 1;
+
+    if (end - from > LinkCache.MAX_HREF_LENGTH) {
+      return uncached(text, from, to);
+    }
+
+    Link link = cache.get(baseText, text, from, end);
+
+    if (link == null) {
+      String built = build(text, from, to);
+
+      if (built == null) {
+        return fallback(text, from, to);
+      }
+
+      link = built.isEmpty() ? LinkCache.INVALID : new Link(built);
+      cache.put(baseText, text.subSequence(from, end).toString(), link);
+    }
+
+    return link == LinkCache.INVALID ? null : link;
+  }
+
+  /**
+   * Converts part of a sequence of characters into an absolute and cleaned HTTP(S) link without
+   * consulting the cache.
+   *
+   * @param text the text containing the href value
+   * @param from the index of the first character of the value
+   * @param to the index after the last character of the value
+   * @return the cleaned absolute link, or null if the value is not a valid HTTP(S) link
+   *
+   * @see #resolve(CharSequence, int, int)
+   */
+  public Link resolveUncached(CharSequence text, int from, int to) {
+    if (Entities.indexOf(text, from, to) >= 0) {
+      valueBuffer.setLength(0);
+      Entities.decode(text, from, to, valueBuffer);
+      return uncached(valueBuffer, 0, valueBuffer.length());
+    }
+
+    return uncached(text, from, to);
+  }
+
+  /**
+   * Converts part of a sequence of characters without any character references into an absolute
+   * and cleaned HTTP(S) link without consulting the cache.
+   *
+   * @param text the text containing the href value
+   * @param from the index of the first character of the value
+   * @param to the index after the last character of the value
+   * @return the cleaned absolute link, or null if the value is not a valid HTTP(S) link
+   */
+  private Link uncached(CharSequence text, int from, int to) {
+    String link = protocol == null ? null : build(text, from, to);
+
+    if (link == null) {
+      return fallback(text, from, to);
+    }
+
+    return link.isEmpty() ? null : new Link(link);
+  }
+
+  /**
+   * Converts part of a sequence of characters into an absolute and cleaned HTTP(S) link the slow
+   * way, using {@link LinkParser#resolve(URL, String)}.
+   *
+   * @param text the text containing the href value
+   * @param from the index of the first character of the value
+   * @param to the index after the last character of the value
+   * @return the cleaned absolute link, or null if the value is not a valid HTTP(S) link
+   */
+  private Link fallback(CharSequence text, int from, int to) {
+    fallbacks++;
+    URL url = LinkParser.resolve(base, text.subSequence(from, to).toString());
+    return url == null ? null : new Link(url);
+  }
+
+  /**
+   * Builds the cleaned absolute link in the same way as {@link URL#URL(URL, String)} followed by
+   * {@link LinkParser#clean(URL)}.
+   *
+   * @param text the text containing the href value
+   * @param from the index of the first character of the value
+   * @param to the index after the last character of the value
+   * @return the cleaned link, an empty String if the value is not an HTTP(S) link, or null if the
+   *         value must be resolved the slow way instead
+   */
+  private String build(CharSequence text, int from, int to) {
+    int start = from;
+    int limit = to;
+
+    while (limit > start && text.charAt(limit - 1) <= ' ') {
+      limit--;
+    }
+
+    while (start < limit && text.charAt(start) <= ' ') {
+      start++;
+    }
+
+    int length = scheme(text, start, limit);
+
+    if (length == UNSURE) {
+      return null;
+    } else if (length == NOT_HTTP) {
+      return "";
+    }
+
+    boolean relative = length == 0;
+    String scheme = relative ? protocol : length == 4 ? "http" : "https";
+    start = relative ? start : start + length + 1;
+
+    int fragment = indexOf(text, '#', start, limit);
+    limit = fragment < 0 ? limit : fragment;
+
+    String host = authority;
+    String linkQuery = null;
+    int queryStart = -1;
+    boolean queryOnly = false;
+
+    if (relative && start == limit) {
+      linkQuery = query;
+    } else {
+      queryStart = indexOf(text, '?', start, limit);
+      queryOnly = queryStart == start;
+    }
+
+    pathBuffer.setLength(0);
+    boolean relativePath = false;
+    boolean parsedAuthority = false;
+
+    if (limit - start >= 2 && text.charAt(start) == '/' && text.charAt(start + 1) == '/') {
+      int end = queryStart < 0 ? limit : queryStart;
+      int slash = indexOf(text, '/', start + 2, end);
+      slash = slash < 0 ? end : slash;
+
+      if (slash == start + 2 || !isSimpleAuthority(text, start + 2, slash)) {
+        return null;
+      }
+
+      host = text.subSequence(start + 2, slash).toString();
+      start = slash;
+      parsedAuthority = true;
+    }
+
+    int pathEnd = queryStart < 0 ? limit : queryStart;
+
+    if (start < pathEnd) {
+      if (text.charAt(start) == '/') {
+        pathBuffer.append(text, start, pathEnd);
+      } else if (!parsedAuthority && !path.isEmpty()) {
+        relativePath = true;
+        int slash = path.lastIndexOf('/');
+        pathBuffer.append(path, 0, slash + 1);
+        pathBuffer.append(text, start, pathEnd);
+      } else {
+        pathBuffer.append('/');
+        pathBuffer.append(text, start, pathEnd);
+      }
+    } else if (queryOnly) {
+      int slash = Math.max(path.lastIndexOf('/'), 0);
+      pathBuffer.append(path, 0, slash);
+      pathBuffer.append('/');
+    } else if (!parsedAuthority) {
+      pathBuffer.append(path);
+    }
+
+    if (relativePath) {
+      removeDots(pathBuffer);
+    }
+
+    linkBuffer.setLength(0);
+    linkBuffer.append(scheme).append("://").append(host);
+
+    if (!encode(pathBuffer, 0, pathBuffer.length(), PATH_LEGAL)) {
+      return null;
+    }
+
+    if (queryStart >= 0) {
+      linkBuffer.append('?');
+
+      if (!encode(text, queryStart + 1, limit, QUERY_LEGAL)) {
+        return null;
+      }
+    } else if (linkQuery != null) {
+      linkBuffer.append('?');
+
+      if (!encode(linkQuery, 0, linkQuery.length(), QUERY_LEGAL)) {
+        return null;
+      }
+    }
+
+    return linkBuffer.toString();
+  }
+
+  /**
+   * Tests whether part of a sequence of characters could be resolved into a link the filter
+   * accepts, without resolving it. Only the scheme, host and path that can be read directly from
+   * the value (or that come from the base url) are checked. Values that would take more work to
+   * tell, such as relative paths, are assumed to match, so the filter must still be applied to the
+   * resolved link.
+   *
+   * @param text the text containing the href value
+   * @param from the index of the first character of the value
+   * @param to the index after the last character of the value
+   * @param filter the filter to check
+   * @return false if the value is never resolved into a link the filter accepts
+   *
+   * @see LinkFilter#test(Link)
+   */
+  public boolean mayMatch(CharSequence text, int from, int to, LinkFilter filter) {
+    if (protocol == null || Entities.indexOf(text, from, to) >= 0) {
+      return true;
+    }
+
+    int start = from;
+    int limit = to;
+
+    while (limit > start && text.charAt(limit - 1) <= ' ') {
+      limit--;
+    }
+
+    while (start < limit && text.charAt(start) <= ' ') {
+      start++;
+    }
+
+    int length = scheme(text, start, limit);
+
+    if (length == UNSURE) {
+      return true;
+    }
+
+    boolean relative = length == 0;
+
+    if (length == NOT_HTTP
+        || !filter.acceptsScheme(relative ? protocol : length == 4 ? "http" : "https")) {
+      return false;
+    }
+
+    start = relative ? start : start + length + 1;
+    int end = indexOf(text, '#', start, limit);
+    end = end < 0 ? limit : end;
+    int queryStart = indexOf(text, '?', start, end);
+    end = queryStart < 0 ? end : queryStart;
+
+    if (regionMatches(text, start, end, "//")) {
+      int slash = indexOf(text, '/', start + 2, end);
+      slash = slash < 0 ? end : slash;
+
+      if (slash == start + 2 || !isSimpleAuthority(text, start + 2, slash)) {
+        return true;
+      }
+
+      int colon = indexOf(text, ':', start + 2, slash);
+
+      if (!filter.acceptsHost(text, start + 2, colon < 0 ? slash : colon)) {
+        return false;
+      }
+
+      start = slash;
+    } else if (!filter.acceptsHost(base.getHost(), 0, base.getHost().length())) {
+      return false;
+    }
+
+    if (start == end || text.charAt(start) != '/') {
+      // relative paths (and values without a path) take the path of the base url
+      return true;
+    }
+
+    for (int i = start; i < end; i++) {
+      char c = text.charAt(i);
+
+      // the path would be encoded or have its dot segments removed
+      boolean dot = c == '.' && text.charAt(i - 1) == '/';
+
+      if (dot || !isAlphanumeric(c) && PATH_LEGAL.indexOf(c) < 0) {
+        return true;
+      }
+    }
+
+    return filter.acceptsPath(text, start, end);
+  }
+
+  /**
+   * Finds the scheme at the start of an href value without any leading or trailing whitespace.
+   *
+   * @param text the text containing the href value
+   * @param start the index of the first character of the value
+   * @param limit the index after the last character of the value
+   * @return the length of the {@code http} or {@code https} scheme, 0 if the value is relative,
+   *         {@link #NOT_HTTP} if the value has any other scheme, or {@link #UNSURE} if the value
+   *         must be resolved the slow way
+   */
+  private static int scheme(CharSequence text, int start, int limit) {
+    if (regionMatches(text, start, limit, "url:")) {
+      return UNSURE;
+    }
+
+    if (start < limit && text.charAt(start) == '#') {
+      return 0;
+    }
+
+    // find the scheme (if any) before the first slash
+    for (int i = start; i < limit && text.charAt(i) != '/'; i++) {
+      if (text.charAt(i) >= 0x80) {
+        // url allows any unicode letters in a protocol name
+        return UNSURE;
+      }
+
+      if (text.charAt(i) == ':') {
+        if (!isProtocol(text, start, i)) {
+          return 0;
+        }
+
+        int length = i - start;
+
+        if (!(length == 4 && regionMatches(text, start, i, "http"))
+            && !(length == 5 && regionMatches(text, start, i, "https"))) {
+          return NOT_HTTP;
+        }
+
+        // explicit http(s) links are only handled with an authority
+        return regionMatches(text, i + 1, limit, "//") ? length : UNSURE;
+      }
+    }
+
+    return 0;
+  }
+
+  /**
+   * Removes the {@code .} and {@code ..} segments from a relative path in exactly the same way as
+   * the default URL stream handler.
+   *
+   * @param path the path to modify
+   */
+  private static void removeDots(StringBuilder path) {
+    int i;
+    int limit;
+
+    while ((i = path.indexOf("/./")) >= 0) {
+      path.delete(i, i + 2);
+    }
+
+    i = 0;
+
+    while ((i = path.indexOf("/../", i)) >= 0) {
+      if (i > 0 && (limit = path.lastIndexOf("/", i - 1)) >= 0
+          && path.indexOf("/../", limit) != 0) {
+        path.delete(limit, i + 3);
+        i = 0;
+      } else {
+        i = i + 3;
+      }
+    }
+
+    while (endsWith(path, "/..")) {
+      i = path.indexOf("/..");
+
+      if ((limit = path.lastIndexOf("/", i - 1)) >= 0) {
+        path.setLength(limit + 1);
+      } else {
+        break;
+      }
+    }
+
+    if (path.length() > 2 && path.charAt(0) == '.' && path.charAt(1) == '/') {
+      path.delete(0, 2);
+    }
+
+    if (endsWith(path, "/.")) {
+      path.setLength(path.length() - 1);
+    }
+  }
+
+  /**
+   * Appends characters to the link buffer, percent-encoding any ASCII characters that are not
+   * legal (including the percent character itself).
+   *
+   * @param text the text to encode
+   * @param from the index of the first character to encode
+   * @param to the index after the last character to encode
+   * @param legal the characters (besides letters and digits) that are not encoded
+   * @return true if successful, or false if the text has non-ASCII characters
+   */
+  private boolean encode(CharSequence text, int from, int to, String legal) {
+    for (int i = from; i < to; i++) {
+      char c = text.charAt(i);
+
+      if (c >= 0x80) {
+        return false;
+      }
+
+      if (isAlphanumeric(c) || legal.indexOf(c) >= 0) {
+        linkBuffer.append(c);
+      } else {
+        linkBuffer.append('%').append(HEX[c >> 4]).append(HEX[c & 0xF]);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Tests whether the protocol is HTTP or HTTPS.
+   *
+   * @param protocol the protocol to test
+   * @return true if the protocol is HTTP or HTTPS
+   */
+  private static boolean isHttp(String protocol) {
+    return protocol.equals("http") || protocol.equals("https");
+  }
+
+  /**
+   * Tests whether the characters form a valid protocol name in the same way as {@link URL}.
+   *
+   * @param text the text to test
+   * @param from the index of the first character
+   * @param to the index after the last character
+   * @return true if the characters form a valid protocol name
+   */
+  private static boolean isProtocol(CharSequence text, int from, int to) {
+    if (from >= to || !isLetter(text.charAt(from))) {
+      return false;
+    }
+
+    for (int i = from + 1; i < to; i++) {
+      char c = text.charAt(i);
+
+      if (!isAlphanumeric(c) && c != '.' && c != '+' && c != '-') {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Tests whether an authority is a simple host name with an optional port number.
+   *
+   * @param text the text containing the authority
+   * @param from the index of the first character
+   * @param to the index after the last character
+   * @return true if the authority is simple
+   */
+  private static boolean isSimpleAuthority(CharSequence text, int from, int to) {
+    int colon = indexOf(text, ':', from, to);
+
+    if (colon < 0) {
+      return isSimpleHost(text, from, to);
+    }
+
+    // ports with leading zeros are normalized by url, so are not simple
+    if (to - colon < 2 || to - colon > 6 || text.charAt(colon + 1) == '0') {
+      return false;
+    }
+
+    for (int i = colon + 1; i < to; i++) {
+      if (!isDigit(text.charAt(i))) {
+        return false;
+      }
+    }
+
+    return isSimpleHost(text, from, colon);
+  }
+
+  /**
+   * Tests whether a host is a simple host name, made of labels of letters, digits and hyphens
+   * where the last label starts with a letter.
+   *
+   * @param text the text containing the host
+   * @param from the index of the first character
+   * @param to the index after the last character
+   * @return true if the host is simple
+   */
+  private static boolean isSimpleHost(CharSequence text, int from, int to) {
+    int label = from;
+
+    for (int i = from; i <= to; i++) {
+      if (i == to || text.charAt(i) == '.') {
+        if (i == label || text.charAt(i - 1) == '-' || text.charAt(label) == '-') {
+          return false;
+        }
+
+        if (i == to && !isLetter(text.charAt(label))) {
+          return false;
+        }
+
+        label = i + 1;
+      } else if (!isAlphanumeric(text.charAt(i)) && text.charAt(i) != '-') {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Tests whether the characters start with the provided lowercase prefix, ignoring case.
+   *
+   * @param text the text to test
+   * @param from the index of the first character
+   * @param to the index after the last character
+   * @param prefix the lowercase prefix
+   * @return true if the characters start with the prefix
+   */
+  private static boolean regionMatches(CharSequence text, int from, int to, String prefix) {
+    if (to - from < prefix.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < prefix.length(); i++) {
+      if (Character.toLowerCase(text.charAt(from + i)) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Finds the first occurrence of a character.
+   *
+   * @param text the text to search
+   * @param c the character to find
+   * @param from the index to start searching from
+   * @param to the index to stop searching at
+   * @return the index of the character, or -1 if not found
+   */
+  private static int indexOf(CharSequence text, char c, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (text.charAt(i) == c) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Tests whether the buffer ends with the provided suffix.
+   *
+   * @param buffer the buffer to test
+   * @param suffix the suffix
+   * @return true if the buffer ends with the suffix
+   */
+  private static boolean endsWith(StringBuilder buffer, String suffix) {
+    int offset = buffer.length() - suffix.length();
+    return offset >= 0 && buffer.indexOf(suffix, offset) == offset;
+  }
+
+  /**
+   * Tests whether the character is an ASCII letter.
+   *
+   * @param c the character to test
+   * @return true if the character is an ASCII letter
+   */
+  private static boolean isLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  /**
+   * Tests whether the character is an ASCII digit.
+   *
+   * @param c the character to test
+   * @return true if the character is an ASCII digit
+   */
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * Tests whether the character is an ASCII letter or digit.
+   *
+   * @param c the character to test
+   * @return true if the character is an ASCII letter or digit
+   */
+  private static boolean isAlphanumeric(char c) {
+    return isLetter(c) || isDigit(c);
+  }
+}
@@ -0,0 +1,392 @@
+package edu.usfca.cs212.linkparser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Finds the HTTP(S) links of a page lazily, only scanning as far into the HTML as needed to find
+ * the next link that is asked for. Each href value is only resolved and cleaned once it is
+ * reached, so a consumer that stops early (such as {@code findFirst()} or {@code limit(n)} on a
+ * stream) never pays for the rest of the page. For example:
+ *
+ * <pre>
+ * Optional&lt;Link&gt; first = LinkParser.streamLinks(base, html)
+ *     .filter(link -&gt; link.hasHost("www.usfca.edu"))
+ *     .findFirst();
+ * </pre>
+ *
+ * <p>Only the link being passed on is held at any time, and HTML from a reader is read one buffer
+ * at a time, so memory does not grow with the number of links on the page. Parallel streams split
+ * off batches of raw href values (each larger than the last) from the front of the page, which are
+ * resolved by whichever thread consumes them. The order of the links is always kept.
+ *
+ * <p>A spliterator must only be used by one thread at a time, and the input must not change while
+ * it is being scanned.
+ *
+ * @see LinkParser#streamLinks(URL, String)
+ * @see LinkExtractor
+ */
+public class LinkSpliterator implements Spliterator<Link> {
+
+  /** The number of href values split off by the first split, and added to each split after. */
+  public static final int BATCH_UNIT = 256;
+
+  /** The most href values split off by a single split. */
+  public static final int MAX_BATCH = 1 << 16;
+
+  /** The characteristics of every link spliterator. */
+  private static final int CHARACTERISTICS = ORDERED | NONNULL;
+
+  /** The base url used to convert relative links to absolute. */
+  private final URL base;
+
+  /** The cache used to resolve links, or null if none. */
+  private final LinkCache cache;
+
+  /** Resolves the links of the page. */
+  private final LinkResolver resolver;
+
+  /** Scans the html for href values. */
+  private final AnchorScanner scanner;
+
+  /** The html being scanned, or the buffer read into from a reader, or null for bytes. */
+  private CharSequence chars;
+
+  /** The html bytes being scanned, or null for text. */
+  private ByteBuffer bytes;
+
+  /** The encoding of the html bytes. */
+  private final Charset charset;
+
+  /** The reader providing the html, or null if the html is already in memory. */
+  private Reader reader;
+
+  /** The index of the next character (or byte) to scan. */
+  private int position;
+
+  /** The index after the last character (or byte) of the current chunk. */
+  private int limit;
+
+  /** Whether all of the html has been scanned. */
+  private boolean done;
+
+  /** The link found by the last scan, held until it is passed on. */
+  private Link next;
+
+  /** Receives every remaining link without stopping, or null if links are found one at a time. */
+  private Consumer<? super Link> consumer;
+
+  /** Collects the raw href values being split off, or null if not splitting. */
+  private List<String> batch;
+
+  /** The number of href values the next split collects. */
+  private int batchSize;
+
+  /**
+   * Initializes a spliterator over the links of the html, using the shared link cache.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   */
+  public LinkSpliterator(URL base, CharSequence html) {
+    this(base, html, null, null, null);
+    this.limit = html.length();
+  }
+
+  /**
+   * Initializes a spliterator over the links of the remaining html bytes, using the shared link
+   * cache. The position of the buffer is not changed.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the remaining bytes of the raw html associated with the base url
+   * @param charset the ASCII-compatible encoding of the html (such as UTF-8)
+   * @throws IllegalArgumentException if the encoding is not ASCII-compatible
+   */
+  public LinkSpliterator(URL base, ByteBuffer html, Charset charset) {
+    this(base, null, html, charset, null);
+    AnchorScanner.checkCharset(charset);
+    this.position = html.position();
+    this.limit = html.limit();
+  }
+
+  /**
+   * Initializes a spliterator over the links of the html from a reader, using the shared link
+   * cache. The html is read one buffer at a time as links are asked for. The reader is not closed.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the reader providing the raw html associated with the base url
+   */
+  public LinkSpliterator(URL base, Reader html) {
+    this(base, CharBuffer.allocate(AnchorScanner.BUFFER_SIZE), null, null, html);
+  }
+
+  /**
+   * Initializes a spliterator over exactly one kind of input.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param chars the html text or the buffer to read into, or null for bytes
+   * @param bytes the html bytes, or null for text
+   * @param charset the encoding of the html bytes, or null for text
+   * @param reader the reader providing the html, or null if the html is in memory
+   */
+  private LinkSpliterator(URL base, CharSequence chars, ByteBuffer bytes, Charset charset,
+      Reader reader) {
+    this.base = base;
+    this.cache = LinkCache.shared();
+    this.resolver = new LinkResolver(base, cache);
+    this.scanner = new AnchorScanner(this::found);
+    this.chars = chars;
+    this.bytes = bytes;
+    this.charset = charset;
+    this.reader = reader;
+    this.batchSize = BATCH_UNIT;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super Link> action) {
+    if (!scan()) {
+      return false;
+    }
+
+    Link link = next;
+    next = null;
+    action.accept(link);
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super Link> action) {
+    consumer = action;
+
+    try {
+      scan();
+    } finally {
+      consumer = null;
+    }
+  }
+
+  /**
+   * Splits off a batch of the raw href values at the front of the remaining html, which are only
+   * resolved once they are consumed. Each batch is larger than the last, up to {@link #MAX_BATCH}.
+   *
+   * @return a spliterator over the links of the next batch of values, or null if the html has
+   *         been scanned
+   */
+  @Override
+  public Spliterator<Link> trySplit() {
+    if (done) {
+      return null;
+    }
+
+    List<String> values = new ArrayList<>(batchSize);
+    batch = values;
+
+    try {
+      scan();
+    } finally {
+      batch = null;
+      batchSize = Math.min(batchSize + BATCH_UNIT, MAX_BATCH);
+    }
+
+    return values.isEmpty() ? null : new Values(base, cache, values, 0, values.size());
+  }
+
+  /**
+   * Returns {@link Long#MAX_VALUE} since the number of links is unknown until the html has been
+   * scanned, or 0 once it has been.
+   *
+   * @return the estimated number of links left
+   */
+  @Override
+  public long estimateSize() {
+    return done ? 0 : Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return CHARACTERISTICS;
+  }
+
+  /**
+   * Scans the html until the scanner is stopped by the listener or the html runs out.
+   *
+   * @return true if the scanner was stopped, or false if the html ran out
+   * @throws UncheckedIOException if unable to read the html
+   */
+  private boolean scan() {
+    try {
+      while (!done) {
+        if (position >= limit && !fill()) {
+          done = true;
+          scanner.reset();
+          chars = null;
+          bytes = null;
+          reader = null;
+          return false;
+        }
+
+        if (bytes == null) {
+          scanner.scan(chars, position, limit);
+        } else {
+          scanner.scan(bytes, position, limit, charset);
+        }
+
+        if (scanner.isStopped()) {
+          position = scanner.getStopIndex();
+          scanner.resume();
+          return true;
+        }
+
+        position = limit;
+      }
+
+      return false;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads the next chunk of html from the reader, if there is one.
+   *
+   * @return true if a chunk was read, or false if the html ran out
+   * @throws IOException if unable to read the html
+   */
+  private boolean fill() throws IOException {
+    if (reader == null) {
+      return false;
+    }
+
+    CharBuffer buffer = (CharBuffer) chars;
+    buffer.clear();
+    int read = reader.read(buffer.array());
+    position = 0;
+    limit = Math.max(read, 0);
+    return read > 0;
+  }
+
+  /**
+   * Passes on or holds an href value found by the scanner, stopping the scanner once there is a
+   * link to pass on or the batch being split off is full.
+   *
+   * @param text the text containing the href value
+   * @param start the index of the first character of the value
+   * @param end the index after the last character of the value
+   */
+  private void found(CharSequence text, int start, int end) {
+    if (batch != null) {
+      batch.add(text.subSequence(start, end).toString());
+
+      if (batch.size() >= batchSize) {
+        scanner.stop();
+      }
+
+      return;
+    }
+
+    Link link = resolver.resolve(text, start, end);
+
+    if (link == null) {
+      return;
+    }
+
+    if (consumer != null) {
+      consumer.accept(link);
+    } else {
+      next = link;
+      scanner.stop();
+    }
+  }
+
+  /**
+   * Resolves a batch of raw href values split off from the front of a page as they are consumed.
+   */
+  private static class Values implements Spliterator<Link> {
+
+    /** The base url used to convert relative links to absolute. */
+    private final URL base;
+
+    /** The cache used to resolve links, or null if none. */
+    private final LinkCache cache;
+
+    /** The raw href values, shared with other splits of the same batch. */
+    private final List<String> values;
+
+    /** The index of the next value. */
+    private int index;
+
+    /** The index after the last value. */
+    private final int end;
+
+    /** Resolves the values, or null until the first value is consumed. */
+    private LinkResolver resolver;
+
+    /**
+     * Initializes a spliterator over part of a batch of values.
+     *
+     * @param base the base url used to convert relative links to absolute
+     * @param cache the cache used to resolve links, or null if none
+     * @param values the raw href values
+     * @param index the index of the first value
+     * @param end the index after the last value
+     */
+    private Values(URL base, LinkCache cache, List<String> values, int index, int end) {
+      this.base = base;
+      this.cache = cache;
+      this.values = values;
+      this.index = index;
+      this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Link> action) {
+      if (resolver == null) {
+        resolver = new LinkResolver(base, cache);
+      }
+
+      while (index < end) {
+        String value = values.get(index++);
+        Link link = resolver.resolve(value, 0, value.length());
+
+        if (link != null) {
+          action.accept(link);
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    @Override
+    public Spliterator<Link> trySplit() {
+      int middle = (index + end) >>> 1;
+
+      if (middle <= index) {
+        return null;
+      }
+
+      Values prefix = new Values(base, cache, values, index, middle);
+      index = middle;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return CHARACTERISTICS;
+    }
+  }
+}
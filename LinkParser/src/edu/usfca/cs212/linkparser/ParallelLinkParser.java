@@ -0,0 +1,178 @@
+package edu.usfca.cs212.linkparser;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lists the links of many documents in parallel. Each document is parsed independently by a
+ * single task, so the links of each document are always in the order they were found. By default a
+ * work-stealing {@link ForkJoinPool} is used, but any executor may be provided instead (such as a
+ * virtual-thread-per-task executor on newer versions of Java). The tasks share a pool of
+ * {@link LinkExtractor} objects rather than one per thread, so an executor that starts a new
+ * thread for every task does not create a new extractor for every document.
+ *
+ * <p>At most a fixed number of documents may be pending at once. Once that limit is reached,
+ * submitting another document blocks until a pending one completes, so a fast producer cannot fill
+ * the heap with documents waiting to be parsed.
+ *
+ * @see LinkParser#listLinks(URL, String)
+ */
+public class ParallelLinkParser implements AutoCloseable {
+
+  /** Runs the parsing tasks. */
+  private final ExecutorService executor;
+
+  /** Whether this parser created (and must shut down) the executor. */
+  private final boolean owned;
+
+  /** Limits the number of pending documents. */
+  private final Semaphore pending;
+
+  /** The extractors shared by the parsing tasks, one for each document being parsed. */
+  private final ExtractorPool extractors;
+
+  /**
+   * Initializes a parser that uses a new work-stealing pool.
+   *
+   * @param threads the number of threads to use
+   * @param maxPending the maximum number of documents pending at once
+   */
+  public ParallelLinkParser(int threads, int maxPending) {
+    this(new ForkJoinPool(threads), maxPending, true);
+  }
+
+  /**
+   * Initializes a parser that uses the provided executor, which is not shut down when this parser
+   * is closed.
+   *
+   * @param executor the executor to run the parsing tasks
+   * @param maxPending the maximum number of documents pending at once
+   */
+  public ParallelLinkParser(ExecutorService executor, int maxPending) {
+    this(executor, maxPending, false);
+  }
+
+  /**
+   * Initializes a parser.
+   *
+   * @param executor the executor to run the parsing tasks
+   * @param maxPending the maximum number of documents pending at once
+   * @param owned whether the executor should be shut down when this parser is closed
+   */
+  private ParallelLinkParser(ExecutorService executor, int maxPending, boolean owned) {
+    if (maxPending < 1) {
+      throw new IllegalArgumentException("Must allow at least one pending document.");
+    }
+
+    this.executor = executor;
+    this.owned = owned;
+    this.pending = new Semaphore(maxPending);
+    this.extractors = new ExtractorPool(maxPending);
+  }
+
+  /**
+   * Submits a document to be parsed, blocking if too many documents are already pending.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @return the future list of links in the order they were found
+   * @throws InterruptedException if interrupted while waiting to submit
+   *
+   * @see LinkParser#listLinks(URL, String)
+   */
+  public CompletableFuture<ArrayList<URL>> submit(URL base, String html)
+      throws InterruptedException {
+    return submit(base, () -> html);
+  }
+
+  /**
+   * Submits a document to be parsed, blocking if too many documents are already pending. The html
+   * is not loaded until the document is parsed, so loading happens in parallel as well.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html loads the raw html associated with the base url
+   * @return the future list of links in the order they were found
+   * @throws InterruptedException if interrupted while waiting to submit
+   *
+   * @see LinkParser#listLinks(URL, String)
+   */
+  public CompletableFuture<ArrayList<URL>> submit(URL base, Callable<String> html)
+      throws InterruptedException {
+    pending.acquire();
+
+    try {
+      CompletableFuture<ArrayList<URL>> future = CompletableFuture.supplyAsync(() -> {
+        LinkExtractor extractor = extractors.borrow();
+
+        try {
+          return LinkParser.toURLs(extractor.parseLinks(base, html.call()));
+        } catch (Exception e) {
+          throw new CompletionException(e);
+        } finally {
+          extractors.release(extractor);
+        }
+      }, executor);
+
+      return future.whenComplete((links, error) -> pending.release());
+    } catch (RejectedExecutionException e) {
+      pending.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Lists the links of every document in parallel, waiting until all are parsed.
+   *
+   * @param bases the base url of each document
+   * @param pages the raw html of each document
+   * @return the links of each document, in the same order as the documents
+   * @throws InterruptedException if interrupted while waiting
+   * @throws ExecutionException if unable to parse a document
+   */
+  public List<ArrayList<URL>> listLinks(List<URL> bases, List<String> pages)
+      throws InterruptedException, ExecutionException {
+    if (bases.size() != pages.size()) {
+      throw new IllegalArgumentException("Every document must have a base url.");
+    }
+
+    List<CompletableFuture<ArrayList<URL>>> futures = new ArrayList<>(pages.size());
+
+    for (int i = 0; i < pages.size(); i++) {
+      futures.add(submit(bases.get(i), pages.get(i)));
+    }
+
+    List<ArrayList<URL>> results = new ArrayList<>(futures.size());
+
+    for (CompletableFuture<ArrayList<URL>> future : futures) {
+      results.add(future.get());
+    }
+
+    return results;
+  }
+
+  /**
+   * Shuts down the executor if it was created by this parser, waiting for pending documents.
+   */
+  @Override
+  public void close() {
+    if (owned) {
+      executor.shutdown();
+
+      try {
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package edu.usfca.cs212.linkparser;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import jdk.jfr.AnnotationElement;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventFactory;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.ValueDescriptor;
+
+/**
+ * A flight recorder event for each page scanned by {@link LinkParser}, so slow or unusual pages
+ * can be found in a recording alongside the garbage collection and I/O events. The event is
+ * disabled unless enabled in the recording settings (such as with
+ * {@code -XX:StartFlightRecording}), in which case creating it does nothing.
+ *
+ * <p>The event is defined with an {@link EventFactory} rather than as a subclass of {@link Event},
+ * since a subclass (or any direct call to the methods of an event) cannot be compiled against the
+ * Java 13 API with newer compilers. The methods of the event are called through method handles
+ * instead, which the compiler never needs to look up.
+ *
+ * @see LinkMetrics
+ */
+class ScanEvent {
+
+  /** Index of the base url of the page. */
+  private static final int BASE = 0;
+
+  /** Index of the number of bytes (or characters) scanned. */
+  private static final int SCANNED = 1;
+
+  /** Index of the number of href values found. */
+  private static final int ANCHORS = 2;
+
+  /** Index of the number of HTTP(S) links found. */
+  private static final int LINKS = 3;
+
+  /** Index of the number of href values that were resolved the slow way. */
+  private static final int FALLBACKS = 4;
+
+  /** Creates the events, registering the event type when this class is loaded. */
+  private static final EventFactory FACTORY = EventFactory.create(
+      List.of(
+          new AnnotationElement(Name.class, "edu.usfca.cs212.linkparser.Scan"),
+          new AnnotationElement(Label.class, "Link Scan"),
+          new AnnotationElement(Category.class, new String[] {"LinkParser"}),
+          new AnnotationElement(Description.class, "Scan of a single page for links"),
+          new AnnotationElement(StackTrace.class, false)),
+      List.of(
+          field(String.class, "base", "Base URL"),
+          new ValueDescriptor(long.class, "scanned", List.of(
+              new AnnotationElement(Label.class, "Scanned"),
+              new AnnotationElement(DataAmount.class, DataAmount.BYTES))),
+          field(int.class, "anchors", "Anchors"),
+          field(int.class, "links", "Links"),
+          field(int.class, "fallbacks", "Fallbacks")));
+
+  /** Calls {@code Event.begin()}. */
+  private static final MethodHandle BEGIN = handle("begin", MethodType.methodType(void.class));
+
+  /** Calls {@code Event.end()}. */
+  private static final MethodHandle END = handle("end", MethodType.methodType(void.class));
+
+  /** Calls {@code Event.shouldCommit()}. */
+  private static final MethodHandle SHOULD_COMMIT = handle("shouldCommit",
+      MethodType.methodType(boolean.class));
+
+  /** Calls {@code Event.commit()}. */
+  private static final MethodHandle COMMIT = handle("commit", MethodType.methodType(void.class));
+
+  /** Calls {@code Event.set(int, Object)}. */
+  private static final MethodHandle SET = handle("set",
+      MethodType.methodType(void.class, int.class, Object.class));
+
+  /** The underlying event. */
+  private final Object event;
+
+  /**
+   * Creates an event, which does nothing unless the event is enabled.
+   */
+  ScanEvent() {
+    this.event = FACTORY.newEvent();
+  }
+
+  /**
+   * Tests whether the event is enabled in any recording.
+   *
+   * @return true if the event is enabled
+   */
+  static boolean isEnabled() {
+    return FACTORY.getEventType().isEnabled();
+  }
+
+  /**
+   * Starts timing the event.
+   */
+  void begin() {
+    try {
+      BEGIN.invokeExact(event);
+    } catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  /**
+   * Stops timing the event.
+   */
+  void end() {
+    try {
+      END.invokeExact(event);
+    } catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  /**
+   * Tests whether the event is enabled and lasted longer than the threshold of any recording.
+   *
+   * @return true if the event should be committed
+   */
+  boolean shouldCommit() {
+    try {
+      return (boolean) SHOULD_COMMIT.invokeExact(event);
+    } catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  /**
+   * Sets the values of the event and writes it to the recordings.
+   *
+   * @param base the base url of the page
+   * @param scanned the number of bytes (or characters) scanned
+   * @param anchors the number of href values found
+   * @param links the number of HTTP(S) links found
+   * @param fallbacks the number of href values that were resolved the slow way
+   */
+  void commit(String base, long scanned, int anchors, int links, int fallbacks) {
+    try {
+      SET.invokeExact(event, BASE, (Object) base);
+      SET.invokeExact(event, SCANNED, (Object) scanned);
+      SET.invokeExact(event, ANCHORS, (Object) anchors);
+      SET.invokeExact(event, LINKS, (Object) links);
+      SET.invokeExact(event, FALLBACKS, (Object) fallbacks);
+      COMMIT.invokeExact(event);
+    } catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  /**
+   * Describes a labeled field of the event.
+   *
+   * @param type the type of the field
+   * @param name the name of the field
+   * @param label the label of the field
+   * @return the field
+   */
+  private static ValueDescriptor field(Class<?> type, String name, String label) {
+    return new ValueDescriptor(type, name, List.of(new AnnotationElement(Label.class, label)));
+  }
+
+  /**
+   * Looks up a method of {@link Event}, adapted to take the event as an {@link Object}.
+   *
+   * @param name the name of the method
+   * @param type the type of the method
+   * @return the method handle
+   */
+  private static MethodHandle handle(String name, MethodType type) {
+    try {
+      MethodHandle handle = MethodHandles.publicLookup().findVirtual(Event.class, name, type);
+      return handle.asType(handle.type().changeParameterType(0, Object.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /**
+   * Rethrows an unchecked exception or error thrown by an event method.
+   *
+   * @param e the exception or error
+   * @return never returns normally
+   */
+  private static RuntimeException rethrow(Throwable e) {
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    }
+
+    if (e instanceof Error) {
+      throw (Error) e;
+    }
+
+    throw new IllegalStateException(e);
+  }
+}
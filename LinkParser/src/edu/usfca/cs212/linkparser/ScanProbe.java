@@ -0,0 +1,136 @@
+package edu.usfca.cs212.linkparser;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URL;
+
+/**
+ * Measures a single page as it is scanned, for the installed {@link LinkMetrics} and the
+ * {@link ScanEvent} flight recorder event. Probes are only started when metrics are installed or
+ * the event is enabled, so pages are scanned without any extra work otherwise.
+ *
+ * @see LinkMetrics
+ */
+class ScanProbe {
+
+  /** The metrics to record into, or null if only the event is enabled. */
+  private final LinkMetrics metrics;
+
+  /** The flight recorder event for the page. */
+  private final ScanEvent event;
+
+  /** The base url of the page. */
+  private final URL base;
+
+  /** When the scan started, in nanoseconds. */
+  private final long started;
+
+  /** The resolver used for the page, or null if there is none. */
+  private LinkResolver resolver;
+
+  /** The number of values the resolver had already resolved the slow way before the page. */
+  private long fallbacksBefore;
+
+  /** The number of bytes (or characters) scanned. */
+  private long scanned;
+
+  /** The number of href values found. */
+  private int anchors;
+
+  /** The number of HTTP(S) links found. */
+  private int links;
+
+  /**
+   * Starts measuring a page.
+   *
+   * @param metrics the metrics to record into, or null
+   * @param event the flight recorder event for the page
+   * @param base the base url of the page
+   */
+  private ScanProbe(LinkMetrics metrics, ScanEvent event, URL base) {
+    this.metrics = metrics;
+    this.event = event;
+    this.base = base;
+    this.started = System.nanoTime();
+    event.begin();
+  }
+
+  /**
+   * Starts measuring a page if metrics are installed or the flight recorder event is enabled.
+   *
+   * @param base the base url of the page
+   * @return the probe for the page, or null if the page does not need to be measured
+   */
+  static ScanProbe start(URL base) {
+    LinkMetrics metrics = LinkMetrics.installed();
+    if (metrics == null && !ScanEvent.isEnabled()) {
+      return null;
+    }
+
+    return new ScanProbe(metrics, new ScanEvent(), base);
+  }
+
+  /**
+   * Sets the resolver used for the page, so the href values it resolved the slow way are counted.
+   * The resolver may have been used for earlier pages.
+   *
+   * @param resolver the resolver used for the page
+   */
+  void watch(LinkResolver resolver) {
+    this.resolver = resolver;
+    this.fallbacksBefore = resolver.getFallbacks();
+  }
+
+  /**
+   * Counts an href value found within the page.
+   *
+   * @param link whether the value was a valid HTTP(S) link
+   */
+  void anchor(boolean link) {
+    anchors++;
+
+    if (link) {
+      links++;
+    }
+  }
+
+  /**
+   * Wraps a reader so the characters read from it are counted as scanned.
+   *
+   * @param html the reader providing the html of the page
+   * @return the reader to scan instead
+   */
+  Reader count(Reader html) {
+    return new FilterReader(html) {
+      @Override
+      public int read(char[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        scanned += Math.max(read, 0);
+        return read;
+      }
+    };
+  }
+
+  /**
+   * Finishes measuring a page, recording it into the metrics and committing the event.
+   *
+   * @param length the number of bytes (or characters) scanned, not including any already counted
+   *        by a reader from {@link #count(Reader)}
+   */
+  void finish(long length) {
+    long elapsed = System.nanoTime() - started;
+    int fallbacks = resolver == null ? 0 : (int) (resolver.getFallbacks() - fallbacksBefore);
+    scanned += length;
+
+    if (metrics != null) {
+      metrics.record(scanned, anchors, links, fallbacks, elapsed);
+    }
+
+    event.end();
+
+    if (event.shouldCommit()) {
+      event.commit(base.toString(), scanned, anchors, links, fallbacks);
+    }
+  }
+}
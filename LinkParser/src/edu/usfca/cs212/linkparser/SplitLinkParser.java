@@ -0,0 +1,181 @@
+package edu.usfca.cs212.linkparser;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lists the links of a single large document in parallel by splitting it into chunks. Each chunk
+ * starts at a {@code <} character and is scanned on its own, assuming it starts outside of any
+ * tag. The chunks are then stitched back together in document order. If a chunk did not actually
+ * start outside of a tag (for example, an anchor straddles the boundary), that chunk is scanned
+ * again by continuing the scanner of the previous chunk. As a result, the links are always exactly
+ * the same as a sequential scan.
+ *
+ * @see LinkParser#listLinks(URL, String)
+ */
+public class SplitLinkParser {
+
+  /** Documents with fewer characters than this are scanned sequentially. */
+  public static final int PARALLEL_THRESHOLD = 1 << 20;
+
+  /** Smallest number of characters in a chunk. */
+  public static final int MIN_CHUNK_SIZE = 1 << 16;
+
+  /**
+   * Returns a list of all the HTTP(S) links found in the href attribute of the anchor tags in the
+   * provided HTML, scanning large documents in parallel using the common pool.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @return cleaned list of all http(s) links in the order they were found
+   *
+   * @see #listLinks(URL, String, ForkJoinPool)
+   */
+  public static ArrayList<URL> listLinks(URL base, String html) {
+    return listLinks(base, html, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns a list of all the HTTP(S) links found in the href attribute of the anchor tags in the
+   * provided HTML. Documents below {@link #PARALLEL_THRESHOLD} are scanned sequentially; larger
+   * documents are split into about one chunk per thread of the pool.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @param pool the pool used to scan the chunks
+   * @return cleaned list of all http(s) links in the order they were found
+   */
+  public static ArrayList<URL> listLinks(URL base, String html, ForkJoinPool pool) {
+    if (html.length() < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+      return LinkParser.listLinks(base, html);
+    }
+
+    int chunks = Math.min(pool.getParallelism(), html.length() / MIN_CHUNK_SIZE);
+    return listLinks(base, html, pool, chunks);
+  }
+
+  /**
+   * Returns a list of all the HTTP(S) links found in the href attribute of the anchor tags in the
+   * provided HTML, splitting the HTML into about the requested number of chunks regardless of its
+   * size.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @param pool the pool used to scan the chunks
+   * @param chunks the number of chunks to split the html into
+   * @return cleaned list of all http(s) links in the order they were found
+   */
+  public static ArrayList<URL> listLinks(URL base, String html, ForkJoinPool pool, int chunks) {
+    List<Chunk> tasks = split(base, html, chunks);
+    pool.invoke(new RecursiveAction() {
+      @Override
+      protected void compute() {
+        ForkJoinTask.invokeAll(tasks);
+      }
+    });
+
+    ArrayList<Link> links = new ArrayList<>();
+    Chunk previous = null;
+
+    for (Chunk chunk : tasks) {
+      if (previous != null && !previous.scanner.isIdle()) {
+        // the chunk started inside of a tag, so continue the previous scan instead
+        previous.scanner.scan(html, chunk.start, chunk.end);
+        continue;
+      }
+
+      if (previous != null) {
+        links.addAll(previous.links);
+      }
+
+      previous = chunk;
+    }
+
+    if (previous != null) {
+      links.addAll(previous.links);
+    }
+
+    return LinkParser.toURLs(links);
+  }
+
+  /**
+   * Splits the html into chunks that each start at a {@code <} character.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @param chunks the number of chunks to split the html into
+   * @return the chunks in document order
+   */
+  private static List<Chunk> split(URL base, String html, int chunks) {
+    int size = Math.max(1, html.length() / Math.max(1, chunks));
+    List<Chunk> tasks = new ArrayList<>(chunks);
+    int start = 0;
+
+    while (start < html.length()) {
+      int end = start + size < html.length() ? html.indexOf('<', start + size) : -1;
+      end = end < 0 ? html.length() : end;
+
+      tasks.add(new Chunk(base, html, start, end));
+      start = end;
+    }
+
+    return tasks;
+  }
+
+  /**
+   * Scans a single chunk of a document, assuming it starts outside of any tag.
+   */
+  private static class Chunk extends RecursiveAction {
+
+    /** Unused serial version ID. */
+    private static final long serialVersionUID = 1L;
+
+    /** The html containing the chunk. */
+    private final String html;
+
+    /** The index of the first character of the chunk. */
+    private final int start;
+
+    /** The index after the last character of the chunk. */
+    private final int end;
+
+    /** The links found so far, in order. */
+    private final ArrayList<Link> links;
+
+    /** Scans this chunk, and possibly chunks after it. */
+    private final AnchorScanner scanner;
+
+    /**
+     * Initializes a chunk.
+     *
+     * @param base the base url used to convert relative links to absolute
+     * @param html the html containing the chunk
+     * @param start the index of the first character of the chunk
+     * @param end the index after the last character of the chunk
+     */
+    private Chunk(URL base, String html, int start, int end) {
+      this.html = html;
+      this.start = start;
+      this.end = end;
+      this.links = new ArrayList<>();
+
+      LinkResolver resolver = new LinkResolver(base, LinkCache.shared());
+      this.scanner = new AnchorScanner((text, first, last) -> {
+        Link link = resolver.resolve(text, first, last);
+
+        if (link != null) {
+          links.add(link);
+        }
+      });
+    }
+
+    @Override
+    protected void compute() {
+      scanner.scan(html, start, end);
+    }
+  }
+}
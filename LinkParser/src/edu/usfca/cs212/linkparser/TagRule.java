@@ -0,0 +1,214 @@
+package edu.usfca.cs212.linkparser;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * An immutable rule for a {@link TagScanner}, which extracts the values of one attribute from one
+ * kind of tag, such as the {@code src} attribute of {@code img} tags. A rule may also require
+ * another attribute of the same tag to contain a particular value, such as {@code link} tags whose
+ * {@code rel} attribute is {@code canonical}. Tag and attribute names are case-insensitive.
+ *
+ * @see TagScanner
+ */
+public final class TagRule {
+
+  /** The href attribute of anchor tags, which matches {@link LinkParser#listLinks}. */
+  public static final TagRule ANCHOR = of("a", "href");
+
+  /** The src attribute of image tags. */
+  public static final TagRule IMAGE = of("img", "src");
+
+  /** The src attribute of script tags. */
+  public static final TagRule SCRIPT = of("script", "src");
+
+  /** The src attribute of inline frame tags. */
+  public static final TagRule IFRAME = of("iframe", "src");
+
+  /** The href attribute of link tags with a rel attribute of canonical. */
+  public static final TagRule CANONICAL = of("link", "href").when("rel", "canonical");
+
+  /** The url within the content attribute of meta tags that refresh or redirect the page. */
+  public static final TagRule REFRESH =
+      new TagRule("meta", "content", "http-equiv", "refresh", true);
+
+  /** All of the predefined rules for links to other pages and resources. */
+  public static final List<TagRule> RESOURCES =
+      List.of(ANCHOR, IMAGE, SCRIPT, IFRAME, CANONICAL, REFRESH);
+
+  /** The name of the tag (in lowercase). */
+  private final String tag;
+
+  /** The name of the attribute to extract (in lowercase). */
+  private final String attribute;
+
+  /** The name of the attribute that must contain a value (in lowercase), or null if none. */
+  private final String condition;
+
+  /** The value the condition attribute must contain, or null if none. */
+  private final String value;
+
+  /** Whether the values are meta refresh content, of which only the url is extracted. */
+  private final boolean refresh;
+
+  /**
+   * Initializes a rule.
+   *
+   * @param tag the name of the tag
+   * @param attribute the name of the attribute to extract
+   * @param condition the name of the attribute that must contain a value, or null if none
+   * @param value the value the condition attribute must contain, or null if none
+   * @param refresh whether the values are meta refresh content
+   */
+  private TagRule(String tag, String attribute, String condition, String value, boolean refresh) {
+    this.tag = checkName(tag);
+    this.attribute = checkName(attribute);
+    this.condition = condition == null ? null : checkName(condition);
+    this.value = value;
+    this.refresh = refresh;
+  }
+
+  /**
+   * Creates a rule that extracts the values of an attribute from a kind of tag.
+   *
+   * @param tag the name of the tag, such as {@code img}
+   * @param attribute the name of the attribute, such as {@code src}
+   * @return the rule
+   * @throws IllegalArgumentException if either name is empty or contains characters other than
+   *         letters, digits and hyphens
+   */
+  public static TagRule of(String tag, String attribute) {
+    return new TagRule(tag, attribute, null, null, false);
+  }
+
+  /**
+   * Creates a copy of this rule that only extracts values from tags where another attribute
+   * contains a value. The attribute contains the value if any of its whitespace-separated words
+   * are equal to the value, ignoring case.
+   *
+   * @param attribute the name of the other attribute, such as {@code rel}
+   * @param value the value it must contain, such as {@code canonical}
+   * @return the new rule
+   * @throws IllegalArgumentException if the name is invalid or the value is empty
+   */
+  public TagRule when(String attribute, String value) {
+    if (value.isBlank()) {
+      throw new IllegalArgumentException("Value must not be blank.");
+    }
+
+    return new TagRule(tag, this.attribute, attribute, value.strip(), refresh);
+  }
+
+  /**
+   * Verifies a tag or attribute name and converts it to lowercase.
+   *
+   * @param name the name to check
+   * @return the name in lowercase
+   * @throws IllegalArgumentException if the name is invalid
+   */
+  private static String checkName(String name) {
+    String lower = name.toLowerCase(Locale.ROOT);
+
+    if (lower.isEmpty() || !lower.chars().allMatch(c -> letter(c) >= 0)) {
+      throw new IllegalArgumentException("Invalid name: " + name);
+    }
+
+    return lower;
+  }
+
+  /**
+   * Returns the position of a character within the alphabet of names, ignoring case.
+   *
+   * @param c the character
+   * @return the position of the character, or -1 if it is not allowed in names
+   */
+  static int letter(int c) {
+    if (c >= 'a' && c <= 'z') {
+      return c - 'a';
+    }
+
+    if (c >= 'A' && c <= 'Z') {
+      return c - 'A';
+    }
+
+    if (c >= '0' && c <= '9') {
+      return c - '0' + 26;
+    }
+
+    return c == '-' ? 36 : -1;
+  }
+
+  /**
+   * Returns the name of the tag.
+   *
+   * @return the tag name in lowercase
+   */
+  public String getTag() {
+    return tag;
+  }
+
+  /**
+   * Returns the name of the attribute to extract.
+   *
+   * @return the attribute name in lowercase
+   */
+  public String getAttribute() {
+    return attribute;
+  }
+
+  /**
+   * Returns the name of the attribute that must contain a value.
+   *
+   * @return the attribute name in lowercase, or null if there is no condition
+   */
+  public String getCondition() {
+    return condition;
+  }
+
+  /**
+   * Returns the value the condition attribute must contain.
+   *
+   * @return the value, or null if there is no condition
+   */
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Tests whether the values are meta refresh content, of which only the url is extracted.
+   *
+   * @return true if only the url of each value is extracted
+   */
+  public boolean isRefresh() {
+    return refresh;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+
+    if (!(other instanceof TagRule)) {
+      return false;
+    }
+
+    TagRule rule = (TagRule) other;
+    return tag.equals(rule.tag) && attribute.equals(rule.attribute)
+        && Objects.equals(condition, rule.condition)
+        && (value == null ? rule.value == null : value.equalsIgnoreCase(rule.value))
+        && refresh == rule.refresh;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(tag, attribute, condition, refresh);
+  }
+
+  @Override
+  public String toString() {
+    String filter = condition == null ? "" : "[" + condition + "~=" + value + "]";
+    return tag + "[" + attribute + "]" + filter;
+  }
+}
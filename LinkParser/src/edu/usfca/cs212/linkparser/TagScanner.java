@@ -0,0 +1,856 @@
+package edu.usfca.cs212.linkparser;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A single-pass scanner that extracts the values of any number of configured (tag, attribute)
+ * rules from HTML, such as the href of anchors, the src of images and scripts and the href of
+ * canonical links, all at once. The rules are compiled up front into two tries, one of tag names
+ * and one of attribute names, so each character of a name costs a single table lookup no matter
+ * how many rules there are. Text outside of tags is skipped just like {@link AnchorScanner}, so
+ * the cost of a scan stays roughly flat as rules are added.
+ *
+ * <p>Tags and attributes are parsed exactly like {@link AnchorScanner}, so a scanner with only
+ * {@link TagRule#ANCHOR} (such as {@link #ANCHORS}) finds the same values as
+ * {@link LinkParser#listLinks(URL, String)}. This includes skipping comments, CDATA sections and
+ * the contents of script and style elements, so values within them (such as the markup in a script
+ * string) are not reported. The attributes of script and style tags themselves are still scanned.
+ * Only the first occurrence of an attribute within a tag is used. Values of rules without a
+ * condition are reported as soon as they end; values of rules with a condition are reported when
+ * their tag ends, since the condition may come later.
+ *
+ * <p>Compiled scanners are immutable and may be shared between threads. Values within comments are
+ * only reported by a scanner from {@link #withReportComments(boolean)}, or by default when
+ * {@link AnchorScanner#REPORT_COMMENTS} is true.
+ *
+ * @see TagRule
+ */
+public class TagScanner {
+
+  /**
+   * Receives the values found by a {@link TagScanner}.
+   */
+  @FunctionalInterface
+  public interface Listener {
+
+    /**
+     * Called for every value that matches a rule.
+     *
+     * @param rule the rule that matched
+     * @param text the text containing the value
+     * @param start the index of the first character of the value
+     * @param end the index after the last character of the value
+     */
+    void value(TagRule rule, CharSequence text, int start, int end);
+  }
+
+  /** A scanner with only the {@link TagRule#ANCHOR} rule, matching {@link LinkParser}. */
+  public static final TagScanner ANCHORS = new TagScanner(List.of(TagRule.ANCHOR));
+
+  /** A scanner with all of the {@link TagRule#RESOURCES} rules. */
+  public static final TagScanner RESOURCES = new TagScanner(TagRule.RESOURCES);
+
+  /** Outside of any tag. */
+  private static final int TEXT = 0;
+
+  /** Immediately after a {@code <} character. */
+  private static final int OPEN = 1;
+
+  /** Inside a tag name that matches the start of a rule or of a script or style tag. */
+  private static final int TAG_NAME = 2;
+
+  /** After {@code <!}, waiting to see if a comment or CDATA section starts. */
+  private static final int MARKUP = 3;
+
+  /** Inside a tag of interest, between attributes. */
+  private static final int ATTRIBUTES = 4;
+
+  /** Inside an attribute name. */
+  private static final int ATTRIBUTE_NAME = 5;
+
+  /** After an attribute name, waiting for either {@code =} or the next attribute. */
+  private static final int AFTER_NAME = 6;
+
+  /** After the {@code =} of an attribute, waiting for the value. */
+  private static final int BEFORE_VALUE = 7;
+
+  /** Inside a quoted attribute value. */
+  private static final int QUOTED_VALUE = 8;
+
+  /** Inside an unquoted attribute value. */
+  private static final int UNQUOTED_VALUE = 9;
+
+  /** Inside a comment, waiting for {@code -->}. */
+  private static final int COMMENT = 10;
+
+  /** Inside a CDATA section, waiting for {@code ]]>}. */
+  private static final int CDATA = 11;
+
+  /** Inside the contents of a script or style element, waiting for its end tag. */
+  private static final int RAW_TEXT = 12;
+
+  /** Number of different characters allowed in names: letters, digits and hyphens. */
+  private static final int ALPHABET = 37;
+
+  /** The names of the elements whose contents are raw text (in lowercase). */
+  private static final char[][] RAW_NAMES = {
+      {'s', 'c', 'r', 'i', 'p', 't'}, {'s', 't', 'y', 'l', 'e'}};
+
+  /** The characters after {@code <!} that start a comment. */
+  private static final char[] COMMENT_OPEN = {'-', '-'};
+
+  /** The characters after {@code <!} that start a CDATA section. */
+  private static final char[] CDATA_OPEN = {'[', 'C', 'D', 'A', 'T', 'A', '['};
+
+  /** The rules of this scanner. */
+  private final TagRule[] rules;
+
+  /** The attribute of each rule. */
+  private final int[] ruleAttributes;
+
+  /** The condition attribute of each rule, or -1 if none. */
+  private final int[] ruleConditions;
+
+  /** The child of each node of the tag name trie for each letter, or 0 if none. */
+  private final int[] tagTrie;
+
+  /** The tag at each node of the tag name trie, or -1 if none. */
+  private final int[] tagIds;
+
+  /** The child of each node of the attribute name trie for each letter, or 0 if none. */
+  private final int[] attributeTrie;
+
+  /** The attribute at each node of the attribute name trie, or -1 if none. */
+  private final int[] attributeIds;
+
+  /** The number of different attribute names. */
+  private final int attributes;
+
+  /** Whether to capture the value of each attribute of each tag (indexed by tag, attribute). */
+  private final boolean[] captured;
+
+  /** The rules whose values are each attribute of each tag, or null if none. */
+  private final int[][] targets;
+
+  /** The rules with a condition for each tag, or null if none. */
+  private final int[][] conditional;
+
+  /** Whether values within comments are reported. */
+  private final boolean comments;
+
+  /**
+   * Compiles a scanner for the provided rules.
+   *
+   * @param rules the rules to extract, in the order values of the same tag should be reported
+   * @throws IllegalArgumentException if there are no rules
+   */
+  public TagScanner(Collection<TagRule> rules) {
+    if (rules.isEmpty()) {
+      throw new IllegalArgumentException("At least one rule is required.");
+    }
+
+    this.rules = rules.toArray(new TagRule[0]);
+    this.ruleAttributes = new int[this.rules.length];
+    this.ruleConditions = new int[this.rules.length];
+
+    Trie tags = new Trie();
+    Trie names = new Trie();
+    int[] ruleTags = new int[this.rules.length];
+
+    for (int i = 0; i < this.rules.length; i++) {
+      TagRule rule = this.rules[i];
+      ruleTags[i] = tags.add(rule.getTag());
+      ruleAttributes[i] = names.add(rule.getAttribute());
+      ruleConditions[i] = rule.getCondition() == null ? -1 : names.add(rule.getCondition());
+    }
+
+    this.tagTrie = tags.children();
+    this.tagIds = tags.ids();
+    this.attributeTrie = names.children();
+    this.attributeIds = names.ids();
+    this.attributes = names.count;
+    this.captured = new boolean[tags.count * attributes];
+    this.targets = new int[tags.count * attributes][];
+    this.conditional = new int[tags.count][];
+
+    for (int i = 0; i < this.rules.length; i++) {
+      int tag = ruleTags[i] * attributes;
+      captured[tag + ruleAttributes[i]] = true;
+      targets[tag + ruleAttributes[i]] = append(targets[tag + ruleAttributes[i]], i);
+
+      if (ruleConditions[i] >= 0) {
+        captured[tag + ruleConditions[i]] = true;
+        conditional[ruleTags[i]] = append(conditional[ruleTags[i]], i);
+      }
+    }
+
+    this.comments = AnchorScanner.REPORT_COMMENTS;
+  }
+
+  /**
+   * Initializes a copy of a compiled scanner that differs only in whether comments are reported.
+   *
+   * @param other the scanner to copy
+   * @param comments whether to report values within comments
+   */
+  private TagScanner(TagScanner other, boolean comments) {
+    this.rules = other.rules;
+    this.ruleAttributes = other.ruleAttributes;
+    this.ruleConditions = other.ruleConditions;
+    this.tagTrie = other.tagTrie;
+    this.tagIds = other.tagIds;
+    this.attributeTrie = other.attributeTrie;
+    this.attributeIds = other.attributeIds;
+    this.attributes = other.attributes;
+    this.captured = other.captured;
+    this.targets = other.targets;
+    this.conditional = other.conditional;
+    this.comments = comments;
+  }
+
+  /**
+   * Returns a scanner with the same rules that reports values within comments as if the comments
+   * were regular markup, or skips them. Like {@link AnchorScanner#setReportComments(boolean)}, but
+   * returns a new scanner since compiled scanners are shared.
+   *
+   * @param comments whether to report values within comments
+   * @return a scanner with the same rules, or this scanner if it already matches
+   */
+  public TagScanner withReportComments(boolean comments) {
+    return comments == this.comments ? this : new TagScanner(this, comments);
+  }
+
+  /**
+   * Returns the rules of this scanner.
+   *
+   * @return unmodifiable list of the rules
+   */
+  public List<TagRule> getRules() {
+    return List.of(rules);
+  }
+
+  /**
+   * Scans the provided HTML as a complete document, reporting every value that matches a rule to
+   * the listener in the order they were found.
+   *
+   * @param html the html to scan
+   * @param listener receives the values found
+   */
+  public void scan(CharSequence html, Listener listener) {
+    new Scan(html, listener).run();
+  }
+
+  /**
+   * Returns the HTTP(S) links found by each rule in the provided HTML. The links will be converted
+   * to absolute using the base URL and cleaned.
+   *
+   * @param base the base url used to convert relative links to absolute
+   * @param html the raw html associated with the base url
+   * @return the cleaned links found by each rule in the order they were found, with an entry for
+   *         every rule in the order the rules were provided
+   */
+  public LinkedHashMap<TagRule, ArrayList<Link>> parseLinks(URL base, CharSequence html) {
+    LinkedHashMap<TagRule, ArrayList<Link>> links = new LinkedHashMap<>();
+    LinkResolver resolver = new LinkResolver(base, LinkCache.shared());
+
+    for (TagRule rule : rules) {
+      links.putIfAbsent(rule, new ArrayList<>());
+    }
+
+    scan(html, (rule, text, start, end) -> {
+      Link link = resolver.resolve(text, start, end);
+
+      if (link != null) {
+        links.get(rule).add(link);
+      }
+    });
+
+    return links;
+  }
+
+  /**
+   * Moves to the child of a trie node for a character.
+   *
+   * @param trie the children of each node
+   * @param node the current node
+   * @param c the next character of the name
+   * @return the child node, or 0 if there is none
+   */
+  private static int next(int[] trie, int node, int c) {
+    int letter = TagRule.letter(c);
+    return letter < 0 ? 0 : trie[node * ALPHABET + letter];
+  }
+
+  /**
+   * Adds a value to the end of an array.
+   *
+   * @param array the array, or null if empty
+   * @param value the value to add
+   * @return the new array
+   */
+  private static int[] append(int[] array, int value) {
+    int[] added = array == null ? new int[1] : Arrays.copyOf(array, array.length + 1);
+    added[added.length - 1] = value;
+    return added;
+  }
+
+  /**
+   * Matches the next character of a tag name against the names of the raw text elements (ignoring
+   * case), switching to another name with the same prefix if necessary.
+   *
+   * @param name the name matched so far
+   * @param length the number of characters matched so far
+   * @param c the next character of the tag name
+   * @return the name that matches, or null if none
+   */
+  private static char[] matchRaw(char[] name, int length, int c) {
+    for (char[] other : RAW_NAMES) {
+      if (other.length > length && other[length] == (c | 0x20)
+          && Arrays.equals(other, 0, length, name, 0, length)) {
+        return other;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Tests whether the character is considered whitespace within an HTML tag.
+   *
+   * @param c the character to test
+   * @return true if the character is whitespace
+   */
+  private static boolean isSpace(int c) {
+    return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+  }
+
+  /**
+   * The state of a single scan of a document.
+   */
+  private class Scan {
+
+    /** The html being scanned. */
+    private final CharSequence html;
+
+    /** Receives the values found. */
+    private final Listener listener;
+
+    /** The tag count at which the value of each attribute was last started. */
+    private final int[] started;
+
+    /** The tag count at which the value of each attribute was last closed. */
+    private final int[] closed;
+
+    /** The index of the first character of the captured value of each attribute. */
+    private final int[] starts;
+
+    /** The index after the last character of the captured value of each attribute. */
+    private final int[] ends;
+
+    /** The number of tags of interest found so far. */
+    private int stamp;
+
+    /**
+     * Initializes a scan.
+     *
+     * @param html the html to scan
+     * @param listener receives the values found
+     */
+    private Scan(CharSequence html, Listener listener) {
+      this.html = html;
+      this.listener = listener;
+      this.started = new int[attributes];
+      this.closed = new int[attributes];
+      this.starts = new int[attributes];
+      this.ends = new int[attributes];
+    }
+
+    /**
+     * Scans the entire document.
+     */
+    private void run() {
+      String string = html instanceof String ? (String) html : null;
+      int length = html.length();
+      int state = TEXT;
+      int node = 0;
+      int tag = -1;
+      int attribute = -1;
+      int quote = 0;
+      int start = 0;
+
+      // the raw text element name being matched, or of the current tag, or null if none
+      char[] raw = null;
+
+      // whether the current tag is a script or style tag, whose contents are skipped
+      boolean rawTag = false;
+
+      // the markup being matched after <!, or null if none
+      char[] markup = null;
+
+      // characters of the tag name or markup matched so far, or when inside a comment, CDATA
+      // section or raw text, characters of its ending matched so far
+      int progress = 0;
+
+      for (int i = 0; i < length; i++) {
+        if (state == TEXT || (state >= COMMENT && progress == 0)) {
+          // nothing outside of a tag matters, and only one character can end a comment or raw
+          // text, so skip ahead to the next one
+          char target = state == COMMENT ? '-' : state == CDATA ? ']' : '<';
+          i = string != null ? string.indexOf(target, i) : indexOf(target, i);
+
+          if (i < 0) {
+            break;
+          }
+        }
+
+        char c = html.charAt(i);
+
+        switch (state) {
+          case TEXT:
+            state = OPEN;
+            break;
+
+          case OPEN:
+            if (c == '!') {
+              state = MARKUP;
+              markup = null;
+              progress = 0;
+            } else if (c != '<') {
+              node = next(tagTrie, 0, c);
+              raw = matchRaw(RAW_NAMES[0], 0, c);
+              progress = 1;
+              state = node == 0 && raw == null ? TEXT : TAG_NAME;
+            }
+            break;
+
+          case TAG_NAME:
+            if (isSpace(c) || c == '/') {
+              tag = node == 0 ? -1 : tagIds[node];
+              rawTag = raw != null && progress == raw.length;
+              state = tag < 0 && !rawTag ? TEXT : ATTRIBUTES;
+              progress = 0;
+              stamp++;
+            } else if (c == '>') {
+              // a tag without attributes has no values, but may start raw text
+              state = raw != null && progress == raw.length ? RAW_TEXT : TEXT;
+              progress = 0;
+            } else if (c == '<') {
+              state = OPEN;
+            } else {
+              node = node == 0 ? 0 : next(tagTrie, node, c);
+              raw = raw == null || progress == raw.length ? null : matchRaw(raw, progress, c);
+              progress++;
+              state = node == 0 && raw == null ? TEXT : TAG_NAME;
+            }
+            break;
+
+          case MARKUP:
+            if (progress == 0) {
+              markup = c == '-' && !comments ? COMMENT_OPEN : c == '[' ? CDATA_OPEN : null;
+            }
+
+            if (markup == null || c != markup[progress]) {
+              // a different declaration (like doctype) is treated as text
+              state = c == '<' ? OPEN : TEXT;
+            } else if (++progress == markup.length) {
+              // the dashes that open a comment may also close it, as in <!-->
+              state = markup == COMMENT_OPEN ? COMMENT : CDATA;
+              progress = markup == COMMENT_OPEN ? 2 : 0;
+            }
+            break;
+
+          case COMMENT:
+          case CDATA:
+            if (c == (state == COMMENT ? '-' : ']')) {
+              progress++;
+            } else if (c == '>' && progress >= 2) {
+              state = TEXT;
+            } else {
+              progress = 0;
+            }
+            break;
+
+          case RAW_TEXT:
+            if (progress == 1) {
+              progress = c == '/' ? 2 : c == '<' ? 1 : 0;
+            } else if (progress < 2) {
+              progress = c == '<' ? 1 : 0;
+            } else if (progress - 2 < raw.length) {
+              progress = (c | 0x20) == raw[progress - 2] ? progress + 1 : c == '<' ? 1 : 0;
+            } else if (isSpace(c) || c == '/' || c == '>') {
+              // the rest of the end tag is treated as text
+              state = TEXT;
+            } else {
+              progress = c == '<' ? 1 : 0;
+            }
+            break;
+
+          case ATTRIBUTES:
+            if (c == '>') {
+              state = endTag(tag, rawTag);
+            } else if (!isSpace(c) && c != '/') {
+              node = next(attributeTrie, 0, c);
+              state = ATTRIBUTE_NAME;
+            }
+            break;
+
+          case ATTRIBUTE_NAME:
+            if (isSpace(c)) {
+              state = AFTER_NAME;
+            } else if (c == '=') {
+              state = BEFORE_VALUE;
+            } else if (c == '>') {
+              state = endTag(tag, rawTag);
+            } else if (c == '/') {
+              state = ATTRIBUTES;
+            } else if (node != 0) {
+              node = next(attributeTrie, node, c);
+            }
+            break;
+
+          case AFTER_NAME:
+            if (c == '=') {
+              state = BEFORE_VALUE;
+            } else if (c == '>') {
+              state = endTag(tag, rawTag);
+            } else if (c == '/') {
+              state = ATTRIBUTES;
+            } else if (!isSpace(c)) {
+              node = next(attributeTrie, 0, c);
+              state = ATTRIBUTE_NAME;
+            }
+            break;
+
+          case BEFORE_VALUE:
+            if (isSpace(c)) {
+              break;
+            }
+
+            if (c == '>') {
+              state = endTag(tag, rawTag);
+              break;
+            }
+
+            attribute = node == 0 || tag < 0 ? -1 : attributeIds[node];
+
+            if (attribute >= 0 && captured[tag * attributes + attribute]
+                && started[attribute] != stamp) {
+              started[attribute] = stamp;
+            } else {
+              attribute = -1;
+            }
+
+            if (c == '"' || c == '\'') {
+              quote = c;
+              start = i + 1;
+              state = QUOTED_VALUE;
+            } else {
+              start = i;
+              state = UNQUOTED_VALUE;
+            }
+            break;
+
+          case QUOTED_VALUE:
+            if (c == quote) {
+              state = ATTRIBUTES;
+              endValue(tag, attribute, start, i);
+            }
+            break;
+
+          case UNQUOTED_VALUE:
+            if (isSpace(c)) {
+              state = ATTRIBUTES;
+              endValue(tag, attribute, start, i);
+            } else if (c == '>') {
+              endValue(tag, attribute, start, i);
+              state = endTag(tag, rawTag);
+            }
+            break;
+
+          default:
+            throw new IllegalStateException("Unknown state: " + state);
+        }
+      }
+
+      if (state >= ATTRIBUTES && state <= UNQUOTED_VALUE) {
+        endTag(tag, rawTag);
+      }
+    }
+
+    /**
+     * Finds the next occurrence of a character in html that is not a string.
+     *
+     * @param c the character to find
+     * @param from the index to start searching from
+     * @return the index of the character, or -1 if not found
+     */
+    private int indexOf(char c, int from) {
+      for (int i = from; i < html.length(); i++) {
+        if (html.charAt(i) == c) {
+          return i;
+        }
+      }
+
+      return -1;
+    }
+
+    /**
+     * Records a captured value and reports it to the rules without a condition.
+     *
+     * @param tag the current tag
+     * @param attribute the attribute of the value, or -1 if it is not captured
+     * @param start the index of the first character of the value
+     * @param end the index after the last character of the value
+     */
+    private void endValue(int tag, int attribute, int start, int end) {
+      if (attribute < 0) {
+        return;
+      }
+
+      closed[attribute] = stamp;
+      starts[attribute] = start;
+      ends[attribute] = end;
+
+      int[] matches = targets[tag * attributes + attribute];
+
+      if (matches != null) {
+        for (int rule : matches) {
+          if (ruleConditions[rule] < 0) {
+            report(rule, start, end);
+          }
+        }
+      }
+    }
+
+    /**
+     * Reports the values of the rules with a condition once a tag ends.
+     *
+     * @param tag the tag that ended, or -1 if it is only a script or style tag
+     * @param raw whether the tag is a script or style tag, whose contents are raw text
+     * @return the state after the tag
+     */
+    private int endTag(int tag, boolean raw) {
+      int[] matches = tag < 0 ? null : conditional[tag];
+
+      if (matches == null) {
+        return raw ? RAW_TEXT : TEXT;
+      }
+
+      for (int rule : matches) {
+        int target = ruleAttributes[rule];
+        int condition = ruleConditions[rule];
+
+        if (closed[target] == stamp && closed[condition] == stamp
+            && containsWord(starts[condition], ends[condition], rules[rule].getValue())) {
+          report(rule, starts[target], ends[target]);
+        }
+      }
+
+      return raw ? RAW_TEXT : TEXT;
+    }
+
+    /**
+     * Reports a value to the listener, extracting the url first for meta refresh rules.
+     *
+     * @param rule the rule that matched
+     * @param start the index of the first character of the value
+     * @param end the index after the last character of the value
+     */
+    private void report(int rule, int start, int end) {
+      if (!rules[rule].isRefresh()) {
+        listener.value(rules[rule], html, start, end);
+        return;
+      }
+
+      // skips the delay, such as 5; url='page.html'
+      int i = start;
+
+      while (i < end && (Character.isDigit(html.charAt(i)) || html.charAt(i) == '.')) {
+        i++;
+      }
+
+      if (i == end || !(isSpace(html.charAt(i)) || html.charAt(i) == ';'
+          || html.charAt(i) == ',')) {
+        return;
+      }
+
+      i = skipSpaces(i, end);
+
+      if (i < end && (html.charAt(i) == ';' || html.charAt(i) == ',')) {
+        i = skipSpaces(i + 1, end);
+      }
+
+      if (i + 3 <= end && regionMatches(i, "url")) {
+        int equals = skipSpaces(i + 3, end);
+
+        if (equals < end && html.charAt(equals) == '=') {
+          i = skipSpaces(equals + 1, end);
+        }
+      }
+
+      int last = end;
+
+      if (i < end && (html.charAt(i) == '"' || html.charAt(i) == '\'')) {
+        char quote = html.charAt(i++);
+
+        for (int j = i; j < end; j++) {
+          if (html.charAt(j) == quote) {
+            last = j;
+            break;
+          }
+        }
+      }
+
+      while (last > i && isSpace(html.charAt(last - 1))) {
+        last--;
+      }
+
+      if (last > i) {
+        listener.value(rules[rule], html, i, last);
+      }
+    }
+
+    /**
+     * Skips any whitespace.
+     *
+     * @param from the index to start from
+     * @param end the index to stop at
+     * @return the index of the first character that is not whitespace, or the end
+     */
+    private int skipSpaces(int from, int end) {
+      int i = from;
+
+      while (i < end && isSpace(html.charAt(i))) {
+        i++;
+      }
+
+      return i;
+    }
+
+    /**
+     * Tests whether the html at an index matches a lowercase word, ignoring case.
+     *
+     * @param index the index in the html
+     * @param word the lowercase word
+     * @return true if the word is found at the index
+     */
+    private boolean regionMatches(int index, String word) {
+      for (int i = 0; i < word.length(); i++) {
+        if (Character.toLowerCase(html.charAt(index + i)) != word.charAt(i)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    /**
+     * Tests whether any of the whitespace-separated words of a value equal a word, ignoring case.
+     *
+     * @param start the index of the first character of the value
+     * @param end the index after the last character of the value
+     * @param word the word to find
+     * @return true if the value contains the word
+     */
+    private boolean containsWord(int start, int end, String word) {
+      int i = skipSpaces(start, end);
+
+      while (i < end) {
+        int last = i;
+
+        while (last < end && !isSpace(html.charAt(last))) {
+          last++;
+        }
+
+        if (last - i == word.length() && html.subSequence(i, last).toString()
+            .equalsIgnoreCase(word)) {
+          return true;
+        }
+
+        i = skipSpaces(last, end);
+      }
+
+      return false;
+    }
+  }
+
+  /**
+   * Builds a trie of names over the alphabet of letters, digits and hyphens.
+   */
+  private static class Trie {
+
+    /** The children of each node for each letter. */
+    private final ArrayList<int[]> children = new ArrayList<>();
+
+    /** The name at each node, or -1 if none. */
+    private final ArrayList<Integer> ids = new ArrayList<>();
+
+    /** The number of different names added. */
+    private int count;
+
+    /**
+     * Initializes a trie with only the root node.
+     */
+    private Trie() {
+      children.add(new int[ALPHABET]);
+      ids.add(-1);
+    }
+
+    /**
+     * Adds a name if not already present.
+     *
+     * @param name the lowercase name to add
+     * @return the id of the name
+     */
+    private int add(String name) {
+      int node = 0;
+
+      for (int i = 0; i < name.length(); i++) {
+        int letter = TagRule.letter(name.charAt(i));
+
+        if (children.get(node)[letter] == 0) {
+          children.get(node)[letter] = children.size();
+          children.add(new int[ALPHABET]);
+          ids.add(-1);
+        }
+
+        node = children.get(node)[letter];
+      }
+
+      if (ids.get(node) < 0) {
+        ids.set(node, count++);
+      }
+
+      return ids.get(node);
+    }
+
+    /**
+     * Returns the children of every node as a single array.
+     *
+     * @return the children of each node for each letter
+     */
+    private int[] children() {
+      int[] flat = new int[children.size() * ALPHABET];
+
+      for (int i = 0; i < children.size(); i++) {
+        System.arraycopy(children.get(i), 0, flat, i * ALPHABET, ALPHABET);
+      }
+
+      return flat;
+    }
+
+    /**
+     * Returns the name at every node as a single array.
+     *
+     * @return the name at each node, or -1 if none
+     */
+    private int[] ids() {
+      return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+  }
+}
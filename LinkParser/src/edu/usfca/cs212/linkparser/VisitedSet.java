@@ -0,0 +1,568 @@
+package edu.usfca.cs212.linkparser;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent set of visited links designed for crawls with many millions of links. Instead of
+ * {@link java.net.URL} or even {@link Link} objects, links are stored as compact encodings in up
+ * to two tiers:
+ *
+ * <ul>
+ * <li>The exact tier stores the UTF-8 bytes of each link (with the scheme packed into a single
+ * byte) in large shared arrays, along with a 64-bit hash of each link. There are no objects per
+ * link. The tier is split into stripes that each have their own lock, so threads adding different
+ * links rarely contend.</li>
+ * <li>The filter tier is a Bloom filter with a fixed size chosen from the expected number of links
+ * and the acceptable false positive rate. Bits are set without locking. When combined with the
+ * exact tier, {@link #contains(String)} rejects most links that were never added without taking a
+ * stripe lock. Adding a link still takes the stripe lock to check for and store it, and only sets
+ * the filter bits once the link is actually added. On its own, the filter uses a fixed amount of
+ * memory regardless of the number of links (about 1.2 bytes per expected link at a 1% false
+ * positive rate), but some new links will wrongly be reported as already visited.</li>
+ * </ul>
+ *
+ * @see WebCrawler
+ */
+public class VisitedSet {
+
+  /** Default number of stripes in the exact tier. */
+  public static final int DEFAULT_STRIPES = 64;
+
+  /** Sets bits of the filter without locking. */
+  private static final VarHandle BITS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  /** Scheme byte for links that start with {@code http://}. */
+  private static final byte HTTP = 1;
+
+  /** Scheme byte for links that start with {@code https://}. */
+  private static final byte HTTPS = 2;
+
+  /** Scheme byte for any other links, which are stored in full. */
+  private static final byte OTHER = 0;
+
+  /** The stripes of the exact tier, or null if there is no exact tier. */
+  private final Stripe[] stripes;
+
+  /** The bits of the filter tier, or null if there is no filter tier. */
+  private final long[] bits;
+
+  /** The number of bits in the filter tier. */
+  private final long filterSize;
+
+  /** The number of bits set per link in the filter tier. */
+  private final int hashes;
+
+  /** Number of links added. */
+  private final LongAdder size;
+
+  /**
+   * Initializes a set with only the exact tier.
+   */
+  public VisitedSet() {
+    this(DEFAULT_STRIPES, 0, 0);
+  }
+
+  /**
+   * Initializes a set.
+   *
+   * @param stripes the number of stripes in the exact tier (rounded up to a power of two), or 0
+   *        for no exact tier
+   * @param expected the expected number of links for the filter tier, or 0 for no filter tier
+   * @param probability the acceptable false positive rate of the filter tier, such as 0.01
+   */
+  public VisitedSet(int stripes, long expected, double probability) {
+    if (stripes <= 0 && expected <= 0) {
+      throw new IllegalArgumentException("Must have an exact tier, a filter tier or both.");
+    }
+
+    if (expected > 0 && !(probability > 0 && probability < 1)) {
+      throw new IllegalArgumentException("Invalid false positive rate: " + probability);
+    }
+
+    if (stripes > 0) {
+      int count = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+      this.stripes = new Stripe[count];
+
+      for (int i = 0; i < this.stripes.length; i++) {
+        this.stripes[i] = new Stripe();
+      }
+    } else {
+      this.stripes = null;
+    }
+
+    if (expected > 0) {
+      double ln2 = Math.log(2);
+      long size = (long) Math.ceil(-expected * Math.log(probability) / (ln2 * ln2));
+      long words = Math.max(1, (size + 63) >>> 6);
+
+      if (words > Integer.MAX_VALUE - 8) {
+        throw new IllegalArgumentException("Filter is too large: " + size + " bits");
+      }
+
+      this.bits = new long[(int) words];
+      this.filterSize = words << 6;
+      this.hashes = Math.max(1, (int) Math.round((double) filterSize / expected * ln2));
+    } else {
+      this.bits = null;
+      this.filterSize = 0;
+      this.hashes = 0;
+    }
+
+    this.size = new LongAdder();
+  }
+
+  /**
+   * Initializes a set with only the filter tier, which uses a fixed amount of memory but may
+   * report that some new links were already visited.
+   *
+   * @param expected the expected number of links
+   * @param probability the acceptable false positive rate, such as 0.01
+   * @return the new set
+   */
+  public static VisitedSet approximate(long expected, double probability) {
+    return new VisitedSet(0, expected, probability);
+  }
+
+  /**
+   * Adds a link to this set if it is not already present.
+   *
+   * @param link the link to add
+   * @return true if the link was added, false if it was already present (or, with only the filter
+   *         tier, might have been)
+   */
+  public boolean add(Link link) {
+    return add(link.toString());
+  }
+
+  /**
+   * Adds a link to this set if it is not already present.
+   *
+   * @param link the text of the cleaned link to add
+   * @return true if the link was added, false if it was already present (or, with only the filter
+   *         tier, might have been)
+   */
+  public boolean add(String link) {
+    long hash = hash(link);
+    boolean added;
+
+    if (stripes == null) {
+      added = setBits(hash);
+    } else {
+      // a link already in the exact tier already set its filter bits
+      added = stripe(hash).add(hash, link);
+
+      if (added && bits != null) {
+        setBits(hash);
+      }
+    }
+
+    if (added) {
+      size.increment();
+    }
+
+    return added;
+  }
+
+  /**
+   * Tests whether a link is in this set.
+   *
+   * @param link the link to test
+   * @return true if the link is present (or, with only the filter tier, might be)
+   */
+  public boolean contains(Link link) {
+    return contains(link.toString());
+  }
+
+  /**
+   * Tests whether a link is in this set.
+   *
+   * @param link the text of the cleaned link to test
+   * @return true if the link is present (or, with only the filter tier, might be)
+   */
+  public boolean contains(String link) {
+    long hash = hash(link);
+
+    if (bits != null && !testBits(hash)) {
+      return false;
+    }
+
+    return stripes == null || stripe(hash).contains(hash, link);
+  }
+
+  /**
+   * Returns the number of links added.
+   *
+   * @return the number of links
+   */
+  public long size() {
+    return size.sum();
+  }
+
+  /**
+   * Returns the approximate number of bytes used by this set.
+   *
+   * @return the number of bytes used
+   */
+  public long getMemory() {
+    long memory = bits == null ? 0 : bits.length * 8L;
+
+    if (stripes != null) {
+      for (Stripe stripe : stripes) {
+        memory += stripe.getMemory();
+      }
+    }
+
+    return memory;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d links, %.1f MB (%s%s)", size(), getMemory() / 1048576.0,
+        stripes == null ? "" : stripes.length + " stripes",
+        bits == null ? "" : (stripes == null ? "" : ", ") + hashes + "-hash filter");
+  }
+
+  /**
+   * Returns the stripe responsible for a hash.
+   *
+   * @param hash the hash of a link
+   * @return the stripe for the hash
+   */
+  private Stripe stripe(long hash) {
+    // the high bits choose the stripe, while the low bits choose the slot within it
+    return stripes[(int) (hash >>> 40) & (stripes.length - 1)];
+  }
+
+  /**
+   * Sets the filter bits for a hash.
+   *
+   * @param hash the hash of a link
+   * @return true if any bit was not already set (so the link is definitely new)
+   */
+  private boolean setBits(long hash) {
+    boolean changed = false;
+    long combined = hash;
+    long step = (hash >>> 32) | 1;
+
+    for (int i = 0; i < hashes; i++) {
+      long index = Long.remainderUnsigned(combined, filterSize);
+      long mask = 1L << index;
+      int word = (int) (index >>> 6);
+
+      if (((long) BITS.getAcquire(bits, word) & mask) == 0) {
+        changed |= ((long) BITS.getAndBitwiseOr(bits, word, mask) & mask) == 0;
+      }
+
+      combined += step;
+    }
+
+    return changed;
+  }
+
+  /**
+   * Tests whether all of the filter bits for a hash are set.
+   *
+   * @param hash the hash of a link
+   * @return true if all of the bits are set (so the link might be present)
+   */
+  private boolean testBits(long hash) {
+    long combined = hash;
+    long step = (hash >>> 32) | 1;
+
+    for (int i = 0; i < hashes; i++) {
+      long index = Long.remainderUnsigned(combined, filterSize);
+
+      if (((long) BITS.getAcquire(bits, (int) (index >>> 6)) & (1L << index)) == 0) {
+        return false;
+      }
+
+      combined += step;
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns a well-mixed 64-bit hash of the characters of a link. Four characters are combined
+   * into each multiplication, which is several times faster than hashing one at a time.
+   *
+   * @param link the text of the link
+   * @return the hash
+   */
+  private static long hash(String link) {
+    int length = link.length();
+    long hash = 0x9E3779B97F4A7C15L ^ length;
+    int i = 0;
+
+    for (; i + 4 <= length; i += 4) {
+      long word = link.charAt(i) | (long) link.charAt(i + 1) << 16
+          | (long) link.charAt(i + 2) << 32 | (long) link.charAt(i + 3) << 48;
+      hash = Long.rotateLeft((hash ^ word) * 0xC2B2AE3D27D4EB4FL, 31);
+    }
+
+    for (; i < length; i++) {
+      hash = Long.rotateLeft((hash ^ link.charAt(i)) * 0xC2B2AE3D27D4EB4FL, 31);
+    }
+
+    // finalizer from the SplitMix64 generator
+    hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+    hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+    return hash ^ (hash >>> 31);
+  }
+
+  /**
+   * Returns the byte that replaces the scheme of a link when stored.
+   *
+   * @param link the text of the link
+   * @return the scheme byte
+   */
+  private static byte scheme(String link) {
+    return link.startsWith("https://") ? HTTPS : link.startsWith("http://") ? HTTP : OTHER;
+  }
+
+  /**
+   * Returns the number of characters replaced by a scheme byte.
+   *
+   * @param scheme the scheme byte
+   * @return the number of characters replaced
+   */
+  private static int skip(byte scheme) {
+    return scheme == HTTPS ? 8 : scheme == HTTP ? 7 : 0;
+  }
+
+  /**
+   * Tests whether the characters of a link starting at an index are all ASCII.
+   *
+   * @param link the text of the link
+   * @param from the index of the first character to test
+   * @return true if all of the characters are ASCII
+   */
+  private static boolean isAscii(String link, int from) {
+    for (int i = from; i < link.length(); i++) {
+      if (link.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * A single stripe of the exact tier. Each link is stored as its 64-bit hash in an open-addressing
+   * table, with the offset of its encoded bytes in a shared byte array.
+   */
+  private static class Stripe {
+
+    /** The hash of the link in each slot. */
+    private long[] table;
+
+    /** One more than the offset of the encoded link in each slot, or 0 if the slot is empty. */
+    private int[] offsets;
+
+    /** The encoded links, each preceded by its length as a variable-length integer. */
+    private byte[] data;
+
+    /** The number of bytes of data used. */
+    private int used;
+
+    /** The number of links in this stripe. */
+    private int count;
+
+    /**
+     * Initializes an empty stripe.
+     */
+    private Stripe() {
+      this.table = new long[16];
+      this.offsets = new int[16];
+      this.data = new byte[256];
+    }
+
+    /**
+     * Adds a link if not already present.
+     *
+     * @param hash the hash of the link
+     * @param link the text of the link
+     * @return true if the link was added
+     */
+    private synchronized boolean add(long hash, String link) {
+      int slot = find(hash, link);
+
+      if (offsets[slot] != 0) {
+        return false;
+      }
+
+      table[slot] = hash;
+      offsets[slot] = append(link) + 1;
+      count++;
+
+      if (count * 4 > table.length * 3) {
+        resize();
+      }
+
+      return true;
+    }
+
+    /**
+     * Tests whether a link is present.
+     *
+     * @param hash the hash of the link
+     * @param link the text of the link
+     * @return true if the link is present
+     */
+    private synchronized boolean contains(long hash, String link) {
+      return offsets[find(hash, link)] != 0;
+    }
+
+    /**
+     * Finds the slot containing a link, or the empty slot where it belongs.
+     *
+     * @param hash the hash of the link
+     * @param link the text of the link
+     * @return the slot for the link
+     */
+    private int find(long hash, String link) {
+      int mask = table.length - 1;
+      int slot = (int) hash & mask;
+
+      while (offsets[slot] != 0) {
+        if (table[slot] == hash && matches(offsets[slot] - 1, link)) {
+          return slot;
+        }
+
+        slot = (slot + 1) & mask;
+      }
+
+      return slot;
+    }
+
+    /**
+     * Tests whether the stored link at an offset equals a link. Links are compared character by
+     * character without encoding them first, unless they contain non-ASCII characters.
+     *
+     * @param offset the offset of the stored link
+     * @param link the text of the link
+     * @return true if the links are equal
+     */
+    private boolean matches(int offset, String link) {
+      int length = 0;
+      int shift = 0;
+      byte b;
+
+      do {
+        b = data[offset++];
+        length |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+
+      byte scheme = scheme(link);
+      int skip = skip(scheme);
+
+      if (data[offset++] != scheme) {
+        return false;
+      }
+
+      length--;
+      int i = 0;
+
+      for (; i < length && skip + i < link.length(); i++) {
+        char c = link.charAt(skip + i);
+
+        if (c >= 0x80) {
+          byte[] bytes = link.substring(skip).getBytes(StandardCharsets.UTF_8);
+          return Arrays.equals(data, offset, offset + length, bytes, 0, bytes.length);
+        }
+
+        if (data[offset + i] != (byte) c) {
+          return false;
+        }
+      }
+
+      return i == length && skip + i == link.length();
+    }
+
+    /**
+     * Appends a link to the data, preceded by its encoded length.
+     *
+     * @param link the text of the link
+     * @return the offset of the link
+     */
+    private int append(String link) {
+      byte scheme = scheme(link);
+      int skip = skip(scheme);
+      byte[] bytes = isAscii(link, skip) ? null
+          : link.substring(skip).getBytes(StandardCharsets.UTF_8);
+      int length = 1 + (bytes == null ? link.length() - skip : bytes.length);
+
+      if (used + length + 5 < 0) {
+        throw new IllegalStateException("Stripe is full.");
+      }
+
+      if (used + length + 5 > data.length) {
+        long grown = Math.max((long) data.length * 2, (long) used + length + 5);
+        data = Arrays.copyOf(data, (int) Math.min(grown, Integer.MAX_VALUE - 8));
+      }
+
+      int offset = used;
+
+      for (int remaining = length; ; remaining >>>= 7) {
+        if (remaining < 0x80) {
+          data[used++] = (byte) remaining;
+          break;
+        }
+
+        data[used++] = (byte) (remaining | 0x80);
+      }
+
+      data[used++] = scheme;
+
+      if (bytes == null) {
+        for (int i = skip; i < link.length(); i++) {
+          data[used++] = (byte) link.charAt(i);
+        }
+      } else {
+        System.arraycopy(bytes, 0, data, used, bytes.length);
+        used += bytes.length;
+      }
+
+      return offset;
+    }
+
+    /**
+     * Doubles the size of the table.
+     */
+    private void resize() {
+      long[] oldTable = table;
+      int[] oldOffsets = offsets;
+
+      table = new long[oldTable.length * 2];
+      offsets = new int[oldOffsets.length * 2];
+      int mask = table.length - 1;
+
+      for (int i = 0; i < oldTable.length; i++) {
+        if (oldOffsets[i] != 0) {
+          int slot = (int) oldTable[i] & mask;
+
+          while (offsets[slot] != 0) {
+            slot = (slot + 1) & mask;
+          }
+
+          table[slot] = oldTable[i];
+          offsets[slot] = oldOffsets[i];
+        }
+      }
+    }
+
+    /**
+     * Returns the approximate number of bytes used by this stripe.
+     *
+     * @return the number of bytes used
+     */
+    private synchronized long getMemory() {
+      return table.length * 12L + data.length;
+    }
+  }
+}
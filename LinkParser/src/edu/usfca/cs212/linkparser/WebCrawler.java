@@ -0,0 +1,707 @@
+package edu.usfca.cs212.linkparser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Crawls the web starting from a seed url, fetching each page at most once and parsing its links
+ * as the body is streamed in. Pages are fetched concurrently in breadth-first order, each by its
+ * own task, while respecting the following limits:
+ *
+ * <ul>
+ * <li>At most a fixed number of pages are fetched (the page cap), and at most a fixed number of
+ * unique links are ever queued (the link cap).</li>
+ * <li>The frontier of links waiting to be fetched is bounded. Links found while it is full are
+ * dropped.</li>
+ * <li>Each host has its own limit on concurrent connections and a minimum delay between the start
+ * of each request, so a single host is never flooded. Links for a host that cannot be contacted
+ * yet wait with that host, so a slow or busy host does not hold up links for other hosts.</li>
+ * </ul>
+ *
+ * <p>By default a virtual-thread-per-task executor is used on versions of Java that support it,
+ * otherwise a fixed pool of threads. Any executor may be provided instead. The crawler also keeps
+ * statistics, including the pages fetched per second and the fetch and parse latency percentiles.
+ * Pages are parsed by a pool of {@link LinkExtractor} objects shared by the tasks, so a new
+ * extractor is not created for every page when each task runs on its own thread.
+ *
+ * @see LinkExtractor#parseLinks(URL, Reader, java.util.function.Consumer)
+ */
+public class WebCrawler implements AutoCloseable {
+
+  /** Default timeout used when connecting to and reading from pages, in milliseconds. */
+  public static final int DEFAULT_TIMEOUT = 10000;
+
+  /** Runs the fetching tasks. */
+  private final ExecutorService executor;
+
+  /** Whether this crawler created (and must shut down) the executor. */
+  private final boolean owned;
+
+  /** Limits the number of pages being fetched at once. */
+  private final Semaphore connections;
+
+  /** The extractors shared by the fetching tasks, one for each page being parsed. */
+  private final ExtractorPool extractors;
+
+  /** The links that have been found, whether or not they were queued or fetched. */
+  private VisitedSet visited;
+
+  /** The links waiting to be fetched, in the order they were found. */
+  private final ArrayDeque<Link> frontier;
+
+  /** The hosts with links set aside until the host can be contacted (guarded by the lock). */
+  private final ArrayDeque<Host> waiting;
+
+  /** The limits and politeness state of each host. */
+  private final ConcurrentHashMap<String, Host> hosts;
+
+  /** Guards the frontier, the waiting hosts, the counts of fetches and links, and the latencies. */
+  private final Object lock;
+
+  /** Maximum number of pages to fetch. */
+  private int maxPages;
+
+  /** Maximum number of unique links to queue. */
+  private int maxLinks;
+
+  /** Maximum number of links waiting in the frontier. */
+  private int maxFrontier;
+
+  /** Maximum number of concurrent connections per host. */
+  private int hostConnections;
+
+  /** Minimum delay between the start of requests to the same host, in nanoseconds. */
+  private long hostDelay;
+
+  /** Timeout used when connecting to and reading from pages, in milliseconds. */
+  private int timeout;
+
+  /** Number of fetches started (guarded by the lock). */
+  private int scheduled;
+
+  /** Number of fetches in progress (guarded by the lock). */
+  private int active;
+
+  /** Number of unique links queued (guarded by the lock). */
+  private int links;
+
+  /** Number of links in the frontier or waiting for their host (guarded by the lock). */
+  private int queued;
+
+  /** Time until a waiting host can next be contacted, in nanoseconds (guarded by the lock). */
+  private long pause;
+
+  /** Number of pages successfully fetched and parsed. */
+  private final LongAdder pages;
+
+  /** Number of pages that could not be fetched or were not HTML. */
+  private final LongAdder failed;
+
+  /** Number of links dropped because the frontier was full or the link cap was reached. */
+  private final LongAdder dropped;
+
+  /** Total time spent crawling, in nanoseconds. */
+  private volatile long elapsed;
+
+  /** The fetch and parse time of each page, in nanoseconds (guarded by the lock). */
+  private long[] latencies;
+
+  /** Number of latencies recorded (guarded by the lock). */
+  private int recorded;
+
+  /**
+   * Initializes a crawler that uses a new executor. Virtual threads are used if supported,
+   * otherwise a fixed pool with one thread per connection.
+   *
+   * @param connections the maximum number of pages to fetch at once
+   */
+  public WebCrawler(int connections) {
+    this(newExecutor(connections), connections, true);
+  }
+
+  /**
+   * Initializes a crawler that uses the provided executor, which is not shut down when this
+   * crawler is closed.
+   *
+   * @param executor the executor to run the fetching tasks
+   * @param connections the maximum number of pages to fetch at once
+   */
+  public WebCrawler(ExecutorService executor, int connections) {
+    this(executor, connections, false);
+  }
+
+  /**
+   * Initializes a crawler.
+   *
+   * @param executor the executor to run the fetching tasks
+   * @param connections the maximum number of pages to fetch at once
+   * @param owned whether the executor should be shut down when this crawler is closed
+   */
+  private WebCrawler(ExecutorService executor, int connections, boolean owned) {
+    if (connections < 1) {
+      throw new IllegalArgumentException("Must allow at least one connection.");
+    }
+
+    this.executor = executor;
+    this.owned = owned;
+    this.connections = new Semaphore(connections);
+    this.extractors = new ExtractorPool(connections);
+    this.visited = new VisitedSet();
+    this.frontier = new ArrayDeque<>();
+    this.waiting = new ArrayDeque<>();
+    this.hosts = new ConcurrentHashMap<>();
+    this.lock = new Object();
+
+    this.maxPages = 100;
+    this.maxLinks = Integer.MAX_VALUE;
+    this.maxFrontier = 100000;
+    this.hostConnections = 2;
+    this.hostDelay = 0;
+    this.timeout = DEFAULT_TIMEOUT;
+
+    this.pages = new LongAdder();
+    this.failed = new LongAdder();
+    this.dropped = new LongAdder();
+    this.latencies = new long[64];
+  }
+
+  /**
+   * Sets the maximum number of pages to fetch (whether or not successfully), counting pages
+   * fetched by earlier crawls.
+   *
+   * @param maxPages the maximum number of pages to fetch
+   */
+  public void setMaxPages(int maxPages) {
+    this.maxPages = maxPages;
+  }
+
+  /**
+   * Sets the maximum number of unique links to queue, counting the seeds.
+   *
+   * @param maxLinks the maximum number of unique links to queue
+   */
+  public void setMaxLinks(int maxLinks) {
+    this.maxLinks = maxLinks;
+  }
+
+  /**
+   * Sets the maximum number of links waiting to be fetched.
+   *
+   * @param maxFrontier the maximum number of links waiting to be fetched
+   */
+  public void setMaxFrontier(int maxFrontier) {
+    this.maxFrontier = maxFrontier;
+  }
+
+  /**
+   * Sets the set used to track the links found, such as an approximate set for very large crawls.
+   * Links already in the set are never queued.
+   *
+   * @param visited the set of links found
+   *
+   * @see VisitedSet#approximate(long, double)
+   */
+  public void setVisitedSet(VisitedSet visited) {
+    this.visited = visited;
+  }
+
+  /**
+   * Sets the politeness limits of each host. Only applies to hosts not yet contacted.
+   *
+   * @param connections the maximum number of concurrent connections per host
+   * @param delay the minimum delay between the start of requests to the same host
+   * @param unit the unit of the delay
+   */
+  public void setHostLimit(int connections, long delay, TimeUnit unit) {
+    if (connections < 1) {
+      throw new IllegalArgumentException("Must allow at least one connection per host.");
+    }
+
+    this.hostConnections = connections;
+    this.hostDelay = unit.toNanos(delay);
+  }
+
+  /**
+   * Sets the timeout used when connecting to and reading from pages.
+   *
+   * @param timeout the timeout in milliseconds
+   */
+  public void setTimeout(int timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Crawls the web starting from the seed url until there are no more links to fetch or the page
+   * cap is reached, then waits for all fetches in progress to finish.
+   *
+   * @param seed the url to start crawling from
+   * @return the pages successfully fetched and parsed, in the order they completed
+   * @throws InterruptedException if interrupted while crawling
+   */
+  public synchronized List<Link> crawl(URL seed) throws InterruptedException {
+    List<Link> crawled = Collections.synchronizedList(new ArrayList<>());
+    long start = System.nanoTime();
+
+    offer(new Link(LinkParser.clean(seed)));
+
+    try {
+      while (true) {
+        Link link = null;
+
+        // no fetch ever waits for its host while holding a connection
+        connections.acquire();
+
+        try {
+          synchronized (lock) {
+            while (scheduled < maxPages && (queued > 0 || active > 0)) {
+              link = poll(System.nanoTime());
+
+              if (link != null) {
+                break;
+              }
+
+              TimeUnit.NANOSECONDS.timedWait(lock, pause);
+            }
+
+            if (link != null) {
+              scheduled++;
+              active++;
+            }
+          }
+        } finally {
+          if (link == null) {
+            connections.release();
+          }
+        }
+
+        if (link == null) {
+          break;
+        }
+
+        Link next = link;
+        Host host = hosts.get(link.getAuthority());
+
+        try {
+          executor.execute(() -> {
+            try {
+              visit(next, crawled);
+            } finally {
+              host.release();
+              finish();
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          host.release();
+          finish();
+          throw e;
+        }
+      }
+    } finally {
+      synchronized (lock) {
+        while (active > 0) {
+          lock.wait();
+        }
+      }
+
+      elapsed += System.nanoTime() - start;
+    }
+
+    return crawled;
+  }
+
+  /**
+   * Queues a link to be fetched, unless it was already found or a limit was reached. Links that
+   * are dropped because of a limit are never queued again.
+   *
+   * @param link the link to queue
+   */
+  private void offer(Link link) {
+    if (!visited.add(link)) {
+      return;
+    }
+
+    synchronized (lock) {
+      if (queued >= maxFrontier || links >= maxLinks) {
+        dropped.increment();
+      } else {
+        links++;
+        queued++;
+        frontier.add(link);
+        lock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Takes the next link whose host can be contacted now, along with a connection to that host.
+   * Links for hosts that are busy or must be waited for are set aside with their host, which is
+   * tried again first the next time. Must be called while holding the lock.
+   *
+   * @param now the current time in nanoseconds
+   * @return the link to fetch, or null if no link can be fetched yet (in which case
+   *         {@link #pause} is the time until a waiting host may be contacted)
+   */
+  private Link poll(long now) {
+    pause = Long.MAX_VALUE;
+    Iterator<Host> iterator = waiting.iterator();
+
+    while (iterator.hasNext()) {
+      Host host = iterator.next();
+      long wait = host.tryAcquire(now);
+
+      if (wait == 0) {
+        Link link = host.pending.poll();
+
+        if (host.pending.isEmpty()) {
+          iterator.remove();
+        }
+
+        queued--;
+        return link;
+      }
+
+      pause = Math.min(pause, wait);
+    }
+
+    while (!frontier.isEmpty()) {
+      Link link = frontier.poll();
+      Host host = hosts.computeIfAbsent(link.getAuthority(),
+          authority -> new Host(hostConnections, hostDelay));
+
+      if (host.pending.isEmpty()) {
+        long wait = host.tryAcquire(now);
+
+        if (wait == 0) {
+          queued--;
+          return link;
+        }
+
+        pause = Math.min(pause, wait);
+        waiting.add(host);
+      }
+
+      host.pending.add(link);
+    }
+
+    return null;
+  }
+
+  /**
+   * Marks a fetch as finished.
+   */
+  private void finish() {
+    connections.release();
+
+    synchronized (lock) {
+      active--;
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Fetches a single page, streaming its body into the link scanner.
+   *
+   * @param link the page to fetch
+   * @param crawled the pages successfully fetched and parsed
+   */
+  private void visit(Link link, List<Link> crawled) {
+    long start = System.nanoTime();
+
+    try {
+      URLConnection connection = link.toURL().openConnection();
+      connection.setConnectTimeout(timeout);
+      connection.setReadTimeout(timeout);
+
+      String type = connection.getContentType();
+      boolean okay = !(connection instanceof HttpURLConnection)
+          || ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_OK;
+
+      // redirects change the base url used for relative links, and the final url is now visited
+      URL base = connection.getURL();
+      Link target = new Link(LinkParser.clean(base));
+
+      if (!target.equals(link)) {
+        visited.add(target);
+      }
+
+      if (!okay || type == null || !type.toLowerCase(Locale.ROOT).startsWith("text/html")) {
+        failed.increment();
+
+        if (connection instanceof HttpURLConnection) {
+          ((HttpURLConnection) connection).disconnect();
+        }
+
+        return;
+      }
+
+      // each task runs on its own thread by default, so extractors are pooled instead
+      LinkExtractor extractor = extractors.borrow();
+
+      try (InputStream input = new BufferedInputStream(connection.getInputStream())) {
+        Charset charset = CharsetSniffer.detect(input, CharsetSniffer.fromContentType(type));
+        extractor.parseLinks(base, new InputStreamReader(input, charset), this::offer);
+      } finally {
+        extractors.release(extractor);
+      }
+
+      pages.increment();
+      crawled.add(link);
+      record(System.nanoTime() - start);
+    } catch (IOException | RuntimeException e) {
+      failed.increment();
+    }
+  }
+
+  /**
+   * Records the fetch and parse time of a page.
+   *
+   * @param nanos the time in nanoseconds
+   */
+  private void record(long nanos) {
+    synchronized (lock) {
+      if (recorded == latencies.length) {
+        latencies = Arrays.copyOf(latencies, recorded * 2);
+      }
+
+      latencies[recorded++] = nanos;
+    }
+  }
+
+  /**
+   * Returns the number of pages successfully fetched and parsed.
+   *
+   * @return the number of pages
+   */
+  public long getPages() {
+    return pages.sum();
+  }
+
+  /**
+   * Returns the number of pages that could not be fetched or were not HTML.
+   *
+   * @return the number of failed pages
+   */
+  public long getFailed() {
+    return failed.sum();
+  }
+
+  /**
+   * Returns the number of unique links queued, including the seeds.
+   *
+   * @return the number of links
+   */
+  public int getLinks() {
+    synchronized (lock) {
+      return links;
+    }
+  }
+
+  /**
+   * Returns the number of links dropped because the frontier was full or the link cap was reached.
+   *
+   * @return the number of dropped links
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * Returns the number of pages successfully fetched and parsed per second of crawling.
+   *
+   * @return the pages per second
+   */
+  public double getPagesPerSecond() {
+    return elapsed == 0 ? 0 : getPages() / (elapsed / 1e9);
+  }
+
+  /**
+   * Returns a percentile of the time taken to fetch and parse each page, not including any time
+   * spent waiting for the host.
+   *
+   * @param percentile the percentile between 0 and 100 (such as 50 or 99)
+   * @return the latency in milliseconds, or 0 if no pages were fetched
+   */
+  public double getLatency(double percentile) {
+    long[] sorted;
+
+    synchronized (lock) {
+      sorted = Arrays.copyOf(latencies, recorded);
+    }
+
+    if (sorted.length == 0) {
+      return 0;
+    }
+
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d pages, %d failed, %d links, %d dropped, %.1f pages/sec, "
+        + "p50 %.2f ms, p99 %.2f ms", getPages(), getFailed(), getLinks(), getDropped(),
+        getPagesPerSecond(), getLatency(50), getLatency(99));
+  }
+
+  /**
+   * Shuts down the executor if it was created by this crawler, waiting for any running tasks.
+   */
+  @Override
+  public void close() {
+    if (!owned) {
+      return;
+    }
+
+    executor.shutdown();
+
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        // keep waiting for running tasks
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Creates an executor that starts a new virtual thread per task if supported, or a fixed pool
+   * of platform threads otherwise.
+   *
+   * @param threads the number of threads to use if virtual threads are not supported
+   * @return the new executor
+   */
+  public static ExecutorService newExecutor(int threads) {
+    try {
+      // virtual threads are only available on newer versions of Java
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(threads);
+    }
+  }
+
+  /**
+   * The politeness limits of a single host.
+   */
+  private static class Host {
+
+    /** Limits the number of concurrent connections to this host. */
+    private final Semaphore permits;
+
+    /** Minimum delay between the start of requests, in nanoseconds. */
+    private final long delay;
+
+    /** The earliest time the next request may start (guarded by this host). */
+    private long next;
+
+    /** The links set aside until this host can be contacted (guarded by the crawler's lock). */
+    private final ArrayDeque<Link> pending;
+
+    /**
+     * Initializes a host.
+     *
+     * @param connections the maximum number of concurrent connections
+     * @param delay the minimum delay between the start of requests, in nanoseconds
+     */
+    private Host(int connections, long delay) {
+      this.permits = new Semaphore(connections);
+      this.delay = delay;
+      this.next = System.nanoTime();
+      this.pending = new ArrayDeque<>();
+    }
+
+    /**
+     * Takes a connection to this host without waiting, if one is free and the delay since the
+     * start of the last request has passed.
+     *
+     * @param now the current time in nanoseconds
+     * @return 0 if a connection was taken, otherwise the time to wait before trying again in
+     *         nanoseconds (or {@link Long#MAX_VALUE} until a request to this host finishes)
+     */
+    private synchronized long tryAcquire(long now) {
+      if (next - now > 0) {
+        return next - now;
+      }
+
+      if (!permits.tryAcquire()) {
+        return Long.MAX_VALUE;
+      }
+
+      next = now + delay;
+      return 0;
+    }
+
+    /**
+     * Marks a request to this host as finished.
+     */
+    private void release() {
+      permits.release();
+    }
+  }
+
+  /**
+   * Crawls the web from the command line, outputting each page fetched and the statistics.
+   *
+   * @param args the command-line arguments
+   * @throws Exception if unable to crawl
+   */
+  public static void main(String[] args) throws Exception {
+    int connections = 16;
+    int maxPages = 100;
+    long delay = 0;
+    List<URL> seeds = new ArrayList<>();
+
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-connections") && i + 1 < args.length) {
+        connections = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-pages") && i + 1 < args.length) {
+        maxPages = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-delay") && i + 1 < args.length) {
+        delay = Long.parseLong(args[++i]);
+      } else {
+        seeds.add(new URL(args[i]));
+      }
+    }
+
+    if (seeds.isEmpty()) {
+      System.err.println("Usage: WebCrawler [-connections n] [-pages n] [-delay ms] seed...");
+      return;
+    }
+
+    try (WebCrawler crawler = new WebCrawler(connections)) {
+      crawler.setMaxPages(maxPages);
+      crawler.setHostLimit(2, delay, TimeUnit.MILLISECONDS);
+
+      for (URL seed : seeds) {
+        for (Link page : crawler.crawl(seed)) {
+          System.out.println(page);
+        }
+      }
+
+      System.err.println(crawler);
+    }
+  }
+}
@@ -0,0 +1,3603 @@
+package edu.usfca.cs212.linkparser;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer.Alphanumeric;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.TestMethodOrder;
+
+/**
+ * Tests the {@link LinkParser} class.
+ *
+ * @see LinkParser
+ */
+@TestMethodOrder(Alphanumeric.class)
+public class LinkParserTest {
+
+  /**
+   * Local copies of the remote pages, stored by host and path. The location may be changed using
+   * the {@code linkparser.fixtures} system property.
+   */
+  public static final Path FIXTURES =
+      Path.of(System.getProperty("linkparser.fixtures", "test/fixtures"));
+
+  /**
+   * Whether the remote pages are fetched from the network instead of the local copies, which is
+   * false unless the {@code linkparser.remote} system property is set to true.
+   */
+  public static final boolean REMOTE = Boolean.getBoolean("linkparser.remote");
+
+  /**
+   * Tests links on locally-created HTML text (not actual webpages).
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class A_LocalURLTests {
+
+    /**
+     * Tests a valid link.
+     *
+     * @param link the link that should be found
+     * @param html the html to parse for that link
+     * @throws MalformedURLException if unable to create URLs
+     */
+    public void testValid(String link, String html) throws MalformedURLException {
+      URL base = new URL("http://www.example.com");
+      URL expected = new URL(link);
+      ArrayList<URL> actual = LinkParser.listLinks(base, html);
+
+      String debug = String.format("%nHTML:%n%s%n%n", html);
+      Assertions.assertEquals(expected, actual.get(0), debug);
+    }
+
+    /**
+     * Tests an invalid link.
+     *
+     * @param html the html to parse without a valid link
+     * @throws MalformedURLException if unable to create URLs
+     */
+    public void testInvalid(String html) throws MalformedURLException {
+      URL base = new URL("http://www.example.com");
+      ArrayList<URL> actual = LinkParser.listLinks(base, html);
+
+      String debug = String.format("%nHTML:%n%s%n%nLinks:%n%s%n", html, actual);
+      Assertions.assertEquals(0, actual.size(), debug);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(1)
+    public void testSimple() throws MalformedURLException {
+      String link = "http://www.usfca.edu/";
+      String html = "<a href=\"http://www.usfca.edu/\">";
+      testValid(link, html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(2)
+    public void testFragment() throws MalformedURLException {
+      String link = "http://docs.python.org/library/string.html?highlight=string";
+      String html =
+          "<a href=\"http://docs.python.org/library/string.html?highlight=string#module-string\">";
+      testValid(link, html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(3)
+    public void testUppercase() throws MalformedURLException {
+      String link = "HTTP://WWW.USFCA.EDU";
+      String html = "<A HREF=\"HTTP://WWW.USFCA.EDU\">";
+      testValid(link, html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(4)
+    public void testMixedCase() throws MalformedURLException {
+      String link = "http://www.usfca.edu";
+      String html = "<A hREf=\"http://www.usfca.edu\">";
+      testValid(link, html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(5)
+    public void testSpaces() throws MalformedURLException {
+      String link = "http://www.usfca.edu";
+      String html = "<a href = \"http://www.usfca.edu\" >";
+      testValid(link, html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(6)
+    public void testOneNewline() throws MalformedURLException {
+      String link = "http://www.usfca.edu";
+      String html = "<a href = \n \"http://www.usfca.edu\">";
+      testValid(link, html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(7)
+    public void testManyNewlines() throws MalformedURLException {
+      String link = "http://www.usfca.edu";
+      String html = "<a\n\nhref\n=\n\"http://www.usfca.edu\"\n>";
+      testValid(link, html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(8)
+    public void testSnippet() throws MalformedURLException {
+      String link = "http://www.usfca.edu";
+      String html = "<p><a href=\"http://www.usfca.edu\">USFCA</a> is in San Francisco.</p>";
+      testValid(link, html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(9)
+    public void testRelative() throws MalformedURLException {
+      String link = "http://www.example.com/index.html";
+      String html = "<a href=\"index.html\">";
+      testValid(link, html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(10)
+    public void testHREFLast() throws MalformedURLException {
+      String link = "http://www.example.com/index.html";
+      String html = "<a name=\"home\" href=\"index.html\">";
+      testValid(link, html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(11)
+    public void testHREFFirst() throws MalformedURLException {
+      String link = "http://www.example.com/index.html";
+      String html = "<a href=\"index.html\" class=\"primary\">";
+      testValid(link, html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(12)
+    public void testMultipleAttributes() throws MalformedURLException {
+      String link = "http://www.example.com/index.html";
+      String html =
+          "<a name=\"home\" target=\"_top\" href=\"index.html\" id=\"home\" accesskey=\"A\">";
+      testValid(link, html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(13)
+    public void testNoHREF() throws MalformedURLException {
+      String html = "<a name = \"home\">";
+      testInvalid(html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(14)
+    public void testNoAnchor() throws MalformedURLException {
+      String html = "<h1>Home</h1>";
+      testInvalid(html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(15)
+    public void testMixedNoHREF() throws MalformedURLException {
+      String html = "<a name=href>The href = \"link\" attribute is useful.</a>";
+      testInvalid(html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(16)
+    public void testLinkTag() throws MalformedURLException {
+      String html = "<link rel=\"stylesheet\" type=\"text/css\" href=\"style.css\">";
+      testInvalid(html);
+    }
+
+    /**
+     * Tests a single link.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(17)
+    public void testNoTag() throws MalformedURLException {
+      String html = "<p>The a href=\"http://www.google.com\" attribute is often used in HTML.</p>";
+      testInvalid(html);
+    }
+
+    /**
+     * Tests multiple links within the HTML text.
+     *
+     * @see LinkParser#listLinks(URL, String)
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(18)
+    public void testMultiple() throws MalformedURLException {
+      String html = String.join("",
+          List.of(
+              "<h1><a name=\"about\">About</a></h1>\n",
+              "<p>The <a class=\"primary\" href=\"index.html\">Department of ",
+              "Computer Science</a> offers an undergraduate and graduate degree at ",
+              "<a href=\"http://www.usfca.edu\">University of San Francisco</a>.</p>\n",
+              "<p>Find out more about those degrees at <a href=\"https://www.usfca.edu/",
+              "catalog/undergraduate/arts-sciences/computer-science\">https://www.usfca.edu/",
+              "catalog/undergraduate/arts-sciences/computer-science</a>.</p>"));
+
+      List<URL> expected = List.of(
+          new URL("https://www.cs.usfca.edu/index.html"),
+          new URL("http://www.usfca.edu"),
+          new URL("https://www.usfca.edu/catalog/undergraduate/arts-sciences/computer-science"));
+
+      URL base = new URL("https://www.cs.usfca.edu/");
+      ArrayList<URL> actual = LinkParser.listLinks(base, html);
+
+      String debug = String.format("%nHTML:%n%s%n%n", html);
+      Assertions.assertEquals(expected, actual, debug);
+    }
+  }
+
+  /**
+   * Tests link parsing for actual webpages. Should not be run unless the other tests pass.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  @TestInstance(Lifecycle.PER_CLASS)
+  @Tag("remote")
+  public class B_RemoteLinkTest {
+
+    /*
+     * Do not run these tests until you are passing the others! You risk being rate-limited or
+     * banned from the web server if you access it too frequently while testing.
+     *
+     * These are the same seed URLs you will use in project 4, so getting the parsing correct now
+     * will help tremendously!
+     */
+
+    /**
+     * Cancels running these tests until the local ones fully pass.
+     */
+    @BeforeAll
+    public void setup() {
+      Class<A_LocalURLTests> test = A_LocalURLTests.class;
+
+      Stream.of(test.getMethods())
+        .filter(method -> method.getAnnotation(Test.class) != null)
+        .forEach(method -> {
+          try {
+            method.invoke(new LinkParserTest().new A_LocalURLTests());
+          }
+          catch (Exception e) {
+            Assertions.fail("Cannot verify local tests pass.", e);
+          }
+        });
+    }
+
+    /**
+     * Tests link parsing from a remote URL.
+     *
+     * @param url the url to fetch
+     * @param expected the expected links
+     * @throws MalformedURLException if unable to create URLs
+     */
+    public void testRemote(String url, List<URL> expected) throws MalformedURLException {
+      URL base = new URL(url);
+
+      Assertions.assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+        String html = getHTML(base);
+        List<URL> actual = LinkParser.listLinks(base, html);
+
+        Assertions.assertEquals(expected, actual, () -> {
+          StringBuffer debug = new StringBuffer("\nLinks (Expected, Actual):\n");
+
+          for (int i = 0; i < Math.max(expected.size(), actual.size()); i++) {
+            debug.append(i + ":\t");
+
+            if (i < expected.size() && i < actual.size() && expected.get(i).equals(actual.get(i))) {
+              debug.append("OKAY\t ");
+              debug.append(expected.get(i));
+            } else {
+              debug.append("ERROR\t");
+              debug.append(i < expected.size() ? expected.get(i) : "null");
+              debug.append(",\t");
+              debug.append(i < actual.size() ? actual.get(i) : "null");
+            }
+
+            debug.append("\n");
+          }
+
+          debug.append("\nHTML:\n");
+          debug.append(html);
+          debug.append("\n");
+
+          return debug.toString();
+        });
+      });
+    }
+
+    /**
+     * Tests listing links for a remote URL.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(1)
+    public void testHello() throws MalformedURLException {
+      ArrayList<URL> expected = new ArrayList<>();
+      testRemote("https://www.cs.usfca.edu/~cs212/simple/hello.html", expected);
+    }
+
+    /**
+     * Tests listing links for a remote URL.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(2)
+    public void testSimple() throws MalformedURLException {
+      List<URL> expected =
+          List.of(
+              new URL("https://www.cs.usfca.edu/~cs212/simple/a/b/c/subdir.html"),
+              new URL("https://www.cs.usfca.edu/~cs212/simple/capital_extension.HTML"),
+              new URL("https://www.cs.usfca.edu/~cs212/simple/double_extension.html.txt"),
+              new URL("https://www.cs.usfca.edu/~cs212/simple/empty.html"),
+              new URL("https://www.cs.usfca.edu/~cs212/simple/hello.html"),
+              new URL("https://www.cs.usfca.edu/~cs212/simple/mixed_case.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/simple/no_extension"),
+              new URL("https://www.cs.usfca.edu/~cs212/simple/position.html"),
+              new URL("https://www.cs.usfca.edu/~cs212/simple/symbols.html"));
+
+      testRemote("https://www.cs.usfca.edu/~cs212/simple/index.html", expected);
+    }
+
+    /**
+     * Tests listing links for a remote URL.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(3)
+    public void testBirds() throws MalformedURLException {
+      List<URL> expected = getBirdURLs();
+      testRemote("https://www.cs.usfca.edu/~cs212/birds/birds.html", expected);
+    }
+
+    /**
+     * Tests listing links for a remote URL.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(4)
+    public void testRecurse() throws MalformedURLException {
+      List<URL> expected = List.of(new URL("https://www.cs.usfca.edu/~cs212/recurse/link02.html"));
+      testRemote("https://www.cs.usfca.edu/~cs212/recurse/link01.html", expected);
+    }
+
+    /**
+     * Tests listing links for a remote URL.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(5)
+    public void testGuten1400() throws MalformedURLException {
+      List<URL> expected =
+          List.of(
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0012.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0037.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/pip.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0072.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0082.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0132.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0189.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0223.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0242.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0245.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0279.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0295.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0335.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0348.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0393.jpg"),
+              new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/images/0399.jpg"));
+
+      testRemote("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm", expected);
+    }
+
+    /**
+     * Tests listing links for a remote URL.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(6)
+    public void testGutenberg() throws MalformedURLException {
+      List<URL> expected = getGutenURLs();
+      testRemote("https://www.cs.usfca.edu/~cs212/guten/index.html", expected);
+    }
+
+    /**
+     * Tests listing links for a remote URL.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(7)
+    public void testNumpy() throws MalformedURLException {
+      List<URL> expected = List.of(
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/index.html"),
+          new URL("https://numpy.org/"),
+          new URL("https://numpy.org/doc"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/index.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/genindex.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/user/setting-up.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/contents.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/contents.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/user/setting-up.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/user/index.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/reference/index.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/user/setting-up.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/user/quickstart.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/user/basics.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/user/misc.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/user/numpy-for-matlab-users.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/user/building.html"),
+          new URL("https://www.cs.usfca.edu/~cs212/numpy/user/c-info.html"),
+          new URL("http://sphinx.pocoo.org/"));
+
+      testRemote("https://www.cs.usfca.edu/~cs212/numpy/user/index.html", expected);
+    }
+  }
+
+  /**
+   * Tests links parsed from streams of HTML instead of a complete String.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class C_StreamingTests {
+
+    /** The html to parse. */
+    private final String html = String.join("",
+        List.of(
+            "<h1><a name=\"about\">About</a></h1>\n",
+            "<p>The <a class=\"primary\" href=\"index.html\">Department of ",
+            "Computer Science</a> offers degrees at <A\nHREF = ",
+            "http://www.usfca.edu>University of San Francisco</a>.</p>\n",
+            "<link href=\"style.css\"><a href='https://www.usfca.edu/catalog#cs'>"));
+
+    /** The expected links. */
+    private final List<URL> expected;
+
+    /** The base url for the html. */
+    private final URL base;
+
+    /**
+     * Sets up the expected links.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    public C_StreamingTests() throws MalformedURLException {
+      base = new URL("https://www.cs.usfca.edu/");
+      expected = List.of(
+          new URL("https://www.cs.usfca.edu/index.html"),
+          new URL("http://www.usfca.edu"),
+          new URL("https://www.usfca.edu/catalog"));
+    }
+
+    /**
+     * Tests links parsed from a reader.
+     *
+     * @throws IOException if unable to read the html
+     */
+    @Test
+    @Order(1)
+    public void testReader() throws IOException {
+      List<URL> actual = new ArrayList<>();
+      LinkParser.listLinks(base, new StringReader(html), actual::add);
+      Assertions.assertEquals(expected, actual);
+    }
+
+    /**
+     * Tests links parsed from a reader that provides one character at a time, so every tag spans
+     * multiple reads.
+     *
+     * @throws IOException if unable to read the html
+     */
+    @Test
+    @Order(2)
+    public void testBoundaries() throws IOException {
+      Reader reader = new StringReader(html) {
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+          return super.read(buffer, offset, Math.min(length, 1));
+        }
+      };
+
+      List<URL> actual = new ArrayList<>();
+      LinkParser.listLinks(base, reader, actual::add);
+      Assertions.assertEquals(expected, actual);
+    }
+
+    /**
+     * Tests links parsed from an input stream.
+     *
+     * @throws IOException if unable to read the html
+     */
+    @Test
+    @Order(3)
+    public void testInputStream() throws IOException {
+      InputStream input = new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8));
+      List<URL> actual = new ArrayList<>();
+      LinkParser.listLinks(base, input, StandardCharsets.UTF_8, actual::add);
+      Assertions.assertEquals(expected, actual);
+    }
+
+    /**
+     * Tests links parsed from a channel.
+     *
+     * @throws IOException if unable to read the html
+     */
+    @Test
+    @Order(4)
+    public void testChannel() throws IOException {
+      InputStream input = new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8));
+      List<URL> actual = new ArrayList<>();
+      LinkParser.listLinks(base, Channels.newChannel(input), StandardCharsets.UTF_8, actual::add);
+      Assertions.assertEquals(expected, actual);
+    }
+
+    /**
+     * Tests the streamed links match the links parsed from a String.
+     */
+    @Test
+    @Order(5)
+    public void testString() {
+      Assertions.assertEquals(expected, LinkParser.listLinks(base, html));
+    }
+
+    /**
+     * Tests links parsed directly from bytes.
+     */
+    @Test
+    @Order(6)
+    public void testBytes() {
+      byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+      Assertions.assertEquals(expected, LinkParser.listLinks(base, bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests links parsed directly from a direct byte buffer.
+     */
+    @Test
+    @Order(7)
+    public void testDirectBuffer() {
+      byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+      ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+      Assertions.assertEquals(expected, LinkParser.listLinks(base, buffer, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests non-ASCII characters are only decoded within the link.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(8)
+    public void testNonAscii() throws MalformedURLException {
+      String unicode = "<p>caf\u00e9 \u2192 <a href=\"caf\u00e9.html\">caf\u00e9</a></p>";
+      byte[] bytes = unicode.getBytes(StandardCharsets.UTF_8);
+
+      Assertions.assertEquals(
+          LinkParser.listLinks(base, unicode),
+          LinkParser.listLinks(base, bytes, StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Tests links parsed from many documents in parallel.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class D_ParallelTests {
+
+    /**
+     * Tests each document keeps its own links in order, even with little pending capacity.
+     *
+     * @throws Exception if unable to parse the documents
+     */
+    @Test
+    @Order(1)
+    public void testOrder() throws Exception {
+      List<URL> bases = new ArrayList<>();
+      List<String> pages = new ArrayList<>();
+      List<List<URL>> expected = new ArrayList<>();
+
+      for (int i = 0; i < 100; i++) {
+        StringBuilder html = new StringBuilder();
+        List<URL> links = new ArrayList<>();
+
+        for (int j = 0; j < i; j++) {
+          html.append(String.format("<p><a href=\"page%d.html#top\">%d</a></p>%n", j, j));
+          links.add(new URL(String.format("https://www.example.com/%d/page%d.html", i, j)));
+        }
+
+        bases.add(new URL(String.format("https://www.example.com/%d/", i)));
+        pages.add(html.toString());
+        expected.add(links);
+      }
+
+      try (ParallelLinkParser parser = new ParallelLinkParser(4, 3)) {
+        Assertions.assertEquals(expected, parser.listLinks(bases, pages));
+      }
+    }
+
+    /**
+     * Tests splitting a single document into chunks gives the same links as a sequential scan,
+     * including anchors that straddle chunk boundaries.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(2)
+    public void testSplit() throws MalformedURLException {
+      URL base = new URL("https://www.example.com/");
+      StringBuilder html = new StringBuilder();
+
+      for (int i = 0; i < 500; i++) {
+        html.append(String.format("<p>Paragraph %d <a href=\"a%d.html\">a</a></p>%n", i, i));
+        html.append(String.format("<a title=\"<b>%d</b>\" href='b%d.html'>b</a>%n", i, i));
+        html.append(String.format("<A\n\nHREF =\nc%d.html>%d</A>%n", i, i));
+      }
+
+      List<URL> expected = LinkParser.listLinks(base, html.toString());
+      Assertions.assertEquals(1500, expected.size());
+
+      ForkJoinPool pool = new ForkJoinPool(4);
+
+      try {
+        for (int chunks = 1; chunks < 200; chunks += 7) {
+          ArrayList<URL> actual = SplitLinkParser.listLinks(base, html.toString(), pool, chunks);
+          Assertions.assertEquals(expected, actual, "Chunks: " + chunks);
+        }
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Tests the link resolver gives the same links as creating and cleaning a new URL.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class E_ResolverTests {
+
+    /** Relative and absolute href values, including several unusual ones. */
+    private final List<String> hrefs = List.of(
+        "", "#top", "?q=1", "?", "index.html", "a/b/../c.html", "./", "..", "../../../x",
+        "/abs/./path", "//other.com", "//other.com:8080/x?y#z", "http://www.usfca.edu",
+        "HTTP://WWW.USFCA.EDU", "https://a.com:080/", "http:relative.html", "a b.html?c d",
+        "100%.html", "q?a=[1]&b={2}|3", " \n padded.html \t", "mailto:cs212@usfca.edu",
+        "javascript:alert('Hello!');", "url:http://a.com", "ftp://a.com", "caf\u00e9.html",
+        "\u00e9:x", "//user@host.com/", "//[::1]/", "//under_score.com/", "//1.2.3.4/");
+
+    /**
+     * Tests the links for a single base url.
+     *
+     * @param base the base url
+     * @throws MalformedURLException if unable to create URLs
+     */
+    public void testBase(String base) throws MalformedURLException {
+      URL url = new URL(base);
+      LinkResolver resolver = new LinkResolver(url);
+
+      for (String href : hrefs) {
+        URL expected = LinkParser.resolve(url, href);
+        Link actual = resolver.resolve(href);
+        Assertions.assertEquals(String.valueOf(expected), String.valueOf(actual), href);
+      }
+    }
+
+    /**
+     * Tests a base url without a path.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(1)
+    public void testNoPath() throws MalformedURLException {
+      testBase("http://www.example.com");
+    }
+
+    /**
+     * Tests a base url with a path and query.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(2)
+    public void testPathQuery() throws MalformedURLException {
+      testBase("https://www.cs.usfca.edu/~cs212/simple/index.html?x=1#y");
+    }
+
+    /**
+     * Tests a base url with a port and dot segments.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(3)
+    public void testPort() throws MalformedURLException {
+      testBase("http://localhost:8080/a/./b/../c/");
+    }
+
+    /**
+     * Tests a base url that must be resolved the slow way.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(4)
+    public void testUserInfo() throws MalformedURLException {
+      testBase("http://user@www.example.com/a b/%41/");
+    }
+
+    /**
+     * Tests the components and equality of links.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(5)
+    public void testLink() throws MalformedURLException {
+      Link link = new Link("https://user@www.usfca.edu:8080/a/b.html?c=d");
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals("https", link.getScheme()),
+          () -> Assertions.assertEquals("user@www.usfca.edu:8080", link.getAuthority()),
+          () -> Assertions.assertEquals("www.usfca.edu", link.getHost()),
+          () -> Assertions.assertEquals("/a/b.html", link.getPath()),
+          () -> Assertions.assertEquals("c=d", link.getQuery()),
+          () -> Assertions.assertEquals(new Link(link.toURL()), link),
+          () -> Assertions.assertEquals(link.hashCode(), new Link(link.toString()).hashCode()),
+          () -> Assertions.assertEquals("", new Link("http://www.usfca.edu").getPath()));
+    }
+
+    /**
+     * Tests cached links are the same as uncached links, and that the cache stays bounded.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(6)
+    public void testCache() throws MalformedURLException {
+      URL url = new URL("https://www.cs.usfca.edu/~cs212/simple/index.html?x=1#y");
+      LinkCache cache = new LinkCache(2, 64);
+      LinkResolver resolver = new LinkResolver(url, cache);
+
+      for (int i = 0; i < 2; i++) {
+        for (String href : hrefs) {
+          URL expected = LinkParser.resolve(url, href);
+          Assertions.assertEquals(String.valueOf(expected),
+              String.valueOf(resolver.resolve(href)), href);
+          Assertions.assertEquals(String.valueOf(LinkParser.resolve(url, href + "#other")),
+              String.valueOf(resolver.resolve(href + "#other")), href);
+        }
+      }
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(4 * hrefs.size(), cache.getHits() + cache.getMisses()),
+          () -> Assertions.assertTrue(cache.getHits() >= hrefs.size(), cache.toString()),
+          () -> Assertions.assertEquals(0, cache.getEvictions()));
+
+      for (int i = 0; i < 1000; i++) {
+        resolver.resolve("page" + i + ".html");
+      }
+
+      Assertions.assertTrue(cache.size() <= 128, cache.toString());
+      Assertions.assertTrue(cache.getEvictions() > 0, cache.toString());
+    }
+  }
+
+  /**
+   * Tests the web crawler against a local server.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  @TestInstance(Lifecycle.PER_CLASS)
+  public class F_CrawlerTests {
+
+    /** Number of pages on the local site. */
+    private static final int PAGES = 40;
+
+    /** The local server. */
+    private HttpServer server;
+
+    /** Number of requests for each path. */
+    private final ConcurrentHashMap<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    /** Number of requests being handled. */
+    private final AtomicInteger concurrent = new AtomicInteger();
+
+    /** Largest number of requests handled at once. */
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    /**
+     * Starts the local server. Each page links to two other pages (once with a fragment), itself,
+     * an email address, a missing page and a plain text file. There are also slow and fast pages
+     * under {@code /mixed/} and a redirect under {@code /redirect/}.
+     *
+     * @throws IOException if unable to start the server
+     */
+    @BeforeAll
+    public void startServer() throws IOException {
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.setExecutor(Executors.newCachedThreadPool());
+      server.createContext("/", exchange -> {
+        String path = exchange.getRequestURI().getPath();
+        requests.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+        maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+
+        try {
+          Thread.sleep(2);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          concurrent.decrementAndGet();
+        }
+
+        String body = "";
+        String type = "text/html; charset=utf-8";
+        int status = 200;
+
+        if (path.matches("/mixed/slow\\d\\.html")) {
+          try {
+            Thread.sleep(200);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+
+        if (path.matches("/site/page\\d+\\.html")) {
+          int page = Integer.parseInt(path.replaceAll("\\D", ""));
+          body = String.format("<html><body><a href=\"page%d.html\">next</a> "
+              + "<A HREF='/site/page%d.html#top'>jump</A> <a href=\"../site/page%d.html\">self</a> "
+              + "<a href=\"mailto:cs212@usfca.edu\">email</a> <a href=\"missing.html\">x</a> "
+              + "<a href=\"plain.txt\">text</a></body></html>",
+              (page + 1) % PAGES, page * 7 % PAGES, page);
+        } else if (path.equals("/site/plain.txt")) {
+          type = "text/plain";
+          body = "<a href=\"hidden.html\">not html</a>";
+        } else if (path.matches("/mixed/(slow|fast)\\d\\.html")) {
+          body = "<html><body>done</body></html>";
+        } else if (path.equals("/redirect/moved.html")) {
+          exchange.getResponseHeaders().set("Location", "final.html");
+          status = 301;
+        } else if (path.equals("/redirect/final.html")) {
+          body = "<html><body><a href=\"final.html\">self</a></body></html>";
+        } else {
+          status = 404;
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+
+        try (OutputStream output = exchange.getResponseBody()) {
+          output.write(bytes);
+        }
+      });
+      server.start();
+    }
+
+    /**
+     * Stops the local server.
+     */
+    @AfterAll
+    public void stopServer() {
+      server.stop(0);
+      ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    /**
+     * Resets the request counts.
+     */
+    @BeforeEach
+    public void reset() {
+      requests.clear();
+      maxConcurrent.set(0);
+    }
+
+    /**
+     * Returns the url of a page on the local site.
+     *
+     * @param page the page number
+     * @return the url of the page
+     * @throws MalformedURLException if unable to create the url
+     */
+    public URL page(int page) throws MalformedURLException {
+      return new URL(String.format("http://localhost:%d/site/page%d.html",
+          server.getAddress().getPort(), page));
+    }
+
+    /**
+     * Tests every page is fetched exactly once.
+     *
+     * @throws Exception if unable to crawl
+     */
+    @Test
+    @Order(1)
+    public void testCrawl() throws Exception {
+      try (WebCrawler crawler = new WebCrawler(8)) {
+        crawler.setMaxPages(1000);
+        crawler.setHostLimit(4, 0, TimeUnit.MILLISECONDS);
+
+        List<Link> pages = crawler.crawl(page(0));
+        String debug = crawler.toString();
+
+        Assertions.assertAll(
+            () -> Assertions.assertEquals(PAGES, pages.size(), debug),
+            () -> Assertions.assertEquals(PAGES, crawler.getPages(), debug),
+            () -> Assertions.assertEquals(2, crawler.getFailed(), debug),
+            () -> Assertions.assertEquals(PAGES + 2, requests.size(), requests::toString),
+            () -> Assertions.assertTrue(requests.values().stream().allMatch(c -> c.get() == 1)),
+            () -> Assertions.assertTrue(maxConcurrent.get() <= 4, debug),
+            () -> Assertions.assertTrue(crawler.getLatency(99) >= crawler.getLatency(50)),
+            () -> Assertions.assertTrue(crawler.getPagesPerSecond() > 0, debug));
+      }
+    }
+
+    /**
+     * Returns the url of a page on the local site from another host, which is the address of the
+     * server instead of its name.
+     *
+     * @param path the path of the page
+     * @return the url of the page
+     * @throws MalformedURLException if unable to create the url
+     */
+    public URL other(String path) throws MalformedURLException {
+      return new URL("http", server.getAddress().getAddress().getHostAddress(),
+          server.getAddress().getPort(), path);
+    }
+
+    /**
+     * Tests the page cap and per-host limits.
+     *
+     * @throws Exception if unable to crawl
+     */
+    @Test
+    @Order(2)
+    public void testLimits() throws Exception {
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+
+      try (WebCrawler crawler = new WebCrawler(executor, 8)) {
+        crawler.setMaxPages(10);
+        crawler.setHostLimit(1, 1, TimeUnit.MILLISECONDS);
+        crawler.crawl(page(0));
+
+        Assertions.assertEquals(10, crawler.getPages() + crawler.getFailed(), crawler::toString);
+        Assertions.assertEquals(1, maxConcurrent.get(), crawler::toString);
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    /**
+     * Tests a slow host does not hold up the links for other hosts, even when its links were
+     * found first.
+     *
+     * @throws Exception if unable to crawl
+     */
+    @Test
+    @Order(3)
+    public void testSlowHost() throws Exception {
+      Path seed = Files.createTempFile("mixed", ".html");
+
+      try (WebCrawler crawler = new WebCrawler(2)) {
+        StringBuilder html = new StringBuilder("<html><body>");
+        URL slow = page(0);
+
+        for (int i = 0; i < 4; i++) {
+          html.append(String.format("<a href=\"%s\">slow</a>", new URL(slow, "/mixed/slow" + i
+              + ".html")));
+        }
+
+        for (int i = 0; i < 4; i++) {
+          html.append(String.format("<a href=\"%s\">fast</a>", other("/mixed/fast" + i
+              + ".html")));
+        }
+
+        Files.writeString(seed, html.append("</body></html>"), StandardCharsets.UTF_8);
+        crawler.setHostLimit(1, 0, TimeUnit.MILLISECONDS);
+
+        List<String> order = crawler.crawl(seed.toUri().toURL()).stream()
+            .map(link -> link.toString().replaceAll(".*/", "")).collect(Collectors.toList());
+
+        // only the first slow page may finish before every fast page
+        Assertions.assertEquals(9, order.size(), order::toString);
+        Assertions.assertTrue(order.indexOf("slow1.html") > order.indexOf("fast3.html"),
+            order::toString);
+      } finally {
+        Files.delete(seed);
+      }
+    }
+
+    /**
+     * Tests a page is not fetched again under the url it was redirected to.
+     *
+     * @throws Exception if unable to crawl
+     */
+    @Test
+    @Order(4)
+    public void testRedirect() throws Exception {
+      try (WebCrawler crawler = new WebCrawler(2)) {
+        List<Link> pages = crawler.crawl(new URL(page(0), "/redirect/moved.html"));
+
+        Assertions.assertAll(
+            () -> Assertions.assertEquals(1, pages.size(), pages::toString),
+            () -> Assertions.assertEquals(1, requests.get("/redirect/final.html").get()),
+            () -> Assertions.assertEquals(1, crawler.getLinks(), crawler::toString));
+      }
+    }
+
+    /**
+     * Tests links are dropped instead of growing the frontier or exceeding the link cap.
+     *
+     * @throws Exception if unable to crawl
+     */
+    @Test
+    @Order(5)
+    public void testFrontier() throws Exception {
+      try (WebCrawler crawler = new WebCrawler(2)) {
+        crawler.setMaxFrontier(1);
+        crawler.setMaxLinks(20);
+        crawler.crawl(page(0));
+
+        Assertions.assertAll(
+            () -> Assertions.assertTrue(crawler.getDropped() > 0, crawler::toString),
+            () -> Assertions.assertTrue(crawler.getLinks() <= 20, crawler::toString),
+            () -> Assertions.assertTrue(requests.values().stream().allMatch(c -> c.get() == 1)));
+      }
+    }
+  }
+
+  /**
+   * Tests the visited set used by the crawler.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class G_VisitedSetTests {
+
+    /**
+     * Adds the same links from several threads at once.
+     *
+     * @param visited the set to add to
+     * @param links the number of unique links
+     * @return the number of links each thread reported as added
+     * @throws Exception if unable to add the links
+     */
+    public long addAll(VisitedSet visited, int links) throws Exception {
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      AtomicInteger added = new AtomicInteger();
+
+      try {
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int thread = 0; thread < 4; thread++) {
+          tasks.add(() -> {
+            for (int i = 0; i < links; i++) {
+              String scheme = i % 3 == 0 ? "http://" : i % 3 == 1 ? "https://" : "ftp://";
+
+              if (visited.add(scheme + "www.example.com/caf\u00e9/" + (i / 3) + ".html")) {
+                added.incrementAndGet();
+              }
+            }
+
+            return null;
+          });
+        }
+
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+      }
+
+      return added.get();
+    }
+
+    /**
+     * Tests each link is added exactly once by the exact tier, with and without a filter.
+     *
+     * @throws Exception if unable to add the links
+     */
+    @Test
+    @Order(1)
+    public void testExact() throws Exception {
+      for (VisitedSet visited : List.of(new VisitedSet(), new VisitedSet(4, 1000, 0.01))) {
+        Assertions.assertEquals(30000, addAll(visited, 30000), visited::toString);
+        Assertions.assertEquals(30000, visited.size());
+        Assertions.assertTrue(visited.contains("https://www.example.com/caf\u00e9/0.html"));
+        Assertions.assertFalse(visited.contains("https://www.example.com/caf\u00e9/-1.html"));
+        Assertions.assertFalse(visited.contains(new Link("https://www.example.com/")));
+      }
+    }
+
+    /**
+     * Tests the filter tier uses a fixed amount of memory with few false positives.
+     *
+     * @throws Exception if unable to add the links
+     */
+    @Test
+    @Order(2)
+    public void testApproximate() throws Exception {
+      VisitedSet visited = VisitedSet.approximate(30000, 0.01);
+      long memory = visited.getMemory();
+      long added = addAll(visited, 30000);
+
+      Assertions.assertAll(
+          () -> Assertions.assertTrue(added <= 30000 && added > 29400, visited::toString),
+          () -> Assertions.assertEquals(memory, visited.getMemory()),
+          () -> Assertions.assertTrue(memory < 30000 * 2, visited::toString));
+    }
+
+    /**
+     * Tests the filter still finds every link added through the exact tier, and duplicates are
+     * rejected whether or not their filter bits are set.
+     *
+     * @throws Exception if unable to add the links
+     */
+    @Test
+    @Order(3)
+    public void testCombined() throws Exception {
+      VisitedSet visited = new VisitedSet(4, 30000, 0.01);
+      Assertions.assertEquals(30000, addAll(visited, 30000), visited::toString);
+
+      for (int i = 0; i < 10000; i++) {
+        String link = "https://www.example.com/caf\u00e9/" + i + ".html";
+        Assertions.assertTrue(visited.contains(link), link);
+        Assertions.assertFalse(visited.add(link), link);
+      }
+
+      Assertions.assertEquals(30000, visited.size());
+    }
+  }
+
+  /**
+   * Tests parsing new versions of a document incrementally.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class H_IncrementalTests {
+
+    /** The base url of the document. */
+    public URL base;
+
+    /**
+     * Sets up the base url.
+     *
+     * @throws MalformedURLException if unable to create the url
+     */
+    @BeforeEach
+    public void setup() throws MalformedURLException {
+      base = new URL("https://www.example.com/docs/index.html");
+    }
+
+    /**
+     * Generates a document with many links of different kinds.
+     *
+     * @param random used to choose the content
+     * @return the html of the document
+     */
+    public String generate(Random random) {
+      StringBuilder html = new StringBuilder("<html><body>\n");
+
+      for (int i = 0; i < 2000; i++) {
+        html.append("<p>Paragraph ").append(i).append(" of the document.");
+
+        switch (random.nextInt(3)) {
+          case 0:
+            html.append("<a href=\"page").append(i).append(".html#top\">relative</a>");
+            break;
+          case 1:
+            html.append("<a\n class=\"x\" href=\"https://host").append(i % 7).append("/\">");
+            break;
+          default:
+            html.append("<a name=\"anchor").append(i).append("\">none</a>");
+            break;
+        }
+
+        html.append("</p>\n");
+      }
+
+      return html.append("</body></html>\n").toString();
+    }
+
+    /**
+     * Tests an identical document returns the previous snapshot without scanning.
+     */
+    @Test
+    @Order(1)
+    public void testIdentical() {
+      String html = generate(new Random(1));
+      IncrementalLinkParser.Snapshot first = IncrementalLinkParser.parse(base, html);
+      IncrementalLinkParser.Snapshot second = IncrementalLinkParser.parse(first, new String(html));
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(LinkParser.parseLinks(base, html), first.getLinks()),
+          () -> Assertions.assertEquals(LinkParser.listLinks(base, html), first.listLinks()),
+          () -> Assertions.assertSame(first, second));
+    }
+
+    /**
+     * Tests small edits (including ones that leave a tag or value open) only scan the chunks that
+     * changed and always find the same links as a full parse.
+     */
+    @Test
+    @Order(2)
+    public void testEdits() {
+      String[] inserts = {"<a href=\"inserted.html\">", "<a href=\"", "<a ", "\"", "<p>text</p>"};
+      Random random = new Random(2);
+      String html = generate(random);
+      IncrementalLinkParser.Snapshot snapshot = IncrementalLinkParser.parse(base, html);
+
+      for (int i = 0; i < 50; i++) {
+        int index = random.nextInt(html.length());
+
+        if (random.nextBoolean()) {
+          html = html.substring(0, index) + inserts[random.nextInt(inserts.length)]
+              + html.substring(index);
+        } else {
+          html = html.substring(0, index) + html.substring(Math.min(html.length(), index + 20));
+        }
+
+        snapshot = IncrementalLinkParser.parse(snapshot, html);
+        String debug = snapshot.toString();
+
+        Assertions.assertEquals(LinkParser.parseLinks(base, html), snapshot.getLinks(), debug);
+        Assertions.assertTrue(snapshot.getReused() > 0, debug);
+      }
+    }
+  }
+
+  /**
+   * Tests finding the locations of anchors and their href values.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class I_AnchorTests {
+
+    /** Html with a mix of anchors, including some without valid links. */
+    public final String html = "<p><a name=\"top\">Top</a> <A class=x HREF = 'a.html#b'>A</A>"
+        + "<a href=javascript:void(0)>js</a><link href=\"style.css\">"
+        + "<a title=\"<a href=no>\" href=\"https://www.example.com/caf\u00e9\">caf\u00e9</a>"
+        + "<a href=\"end.html\" ";
+
+    /**
+     * Tests the offsets of each anchor within text.
+     *
+     * @throws MalformedURLException if unable to create the url
+     */
+    @Test
+    @Order(1)
+    public void testText() throws MalformedURLException {
+      URL base = new URL("https://www.example.com/docs/");
+      Anchors anchors = Anchors.extract(base, html);
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(4, anchors.size()),
+          () -> Assertions.assertEquals("<A class=x HREF = 'a.html#b'>",
+              anchors.getTag(0).toString()),
+          () -> Assertions.assertEquals("a.html#b", anchors.getHref(0).toString()),
+          () -> Assertions.assertEquals("javascript:void(0)", anchors.getHref(1).toString()),
+          () -> Assertions.assertEquals("https://www.example.com/caf\u00e9",
+              anchors.getHref(2).toString()),
+          () -> Assertions.assertEquals(html.indexOf("<a title"), anchors.getTagStart(2)),
+          () -> Assertions.assertEquals("<a href=\"end.html\" ", anchors.getTag(3).toString()),
+          () -> Assertions.assertNull(anchors.resolve(1)),
+          () -> Assertions.assertEquals(LinkParser.parseLinks(base, html), anchors.resolveAll()));
+    }
+
+    /**
+     * Tests the offsets of each anchor within bytes match the offsets within text.
+     *
+     * @throws MalformedURLException if unable to create the url
+     */
+    @Test
+    @Order(2)
+    public void testBytes() throws MalformedURLException {
+      URL base = new URL("https://www.example.com/docs/");
+      Anchors text = Anchors.extract(base, html);
+      Anchors bytes = Anchors.extract(base,
+          ByteBuffer.wrap(html.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+
+      Assertions.assertEquals(text.size(), bytes.size());
+      Assertions.assertEquals(text.resolveAll(), bytes.resolveAll());
+
+      for (int i = 0; i < text.size(); i++) {
+        String tag = text.getTag(i).toString();
+        Assertions.assertEquals(tag,
+            StandardCharsets.UTF_8.decode(bytes.getTagBytes(i)).toString());
+        Assertions.assertEquals(
+            html.substring(0, text.getTagStart(i)).getBytes(StandardCharsets.UTF_8).length,
+            bytes.getTagStart(i));
+      }
+    }
+  }
+
+  /**
+   * Tests extracting several kinds of tags and attributes in a single pass.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class J_TagScannerTests {
+
+    /**
+     * Tests the anchor preset finds the same links as {@link LinkParser} for random markup,
+     * including comments, CDATA sections and script and style elements, and the same values as
+     * {@link AnchorScanner} whether or not comments are reported.
+     *
+     * @throws MalformedURLException if unable to create the url
+     */
+    @Test
+    @Order(1)
+    public void testAnchors() throws MalformedURLException {
+      URL base = new URL("https://www.example.com/docs/");
+      String[] parts = {"<", ">", "a", "A", " ", "\n", "href", "HREF", "=", "\"", "'", "x.html",
+          "/", "<a ", "<a href=", "<abbr ", "hre", "f", "#", "http://h/", "javascript:", "-",
+          "--", "-->", "<!--", "<!", "!", "]", "]]>", "<![CDATA[", "<script>", "<SCRIPT ",
+          "</script>", "</scrip", "t", "<style>", "</style ", "<s", "s"};
+      Random random = new Random(16);
+
+      for (int i = 0; i < 10000; i++) {
+        StringBuilder html = new StringBuilder();
+
+        for (int j = random.nextInt(20); j > 0; j--) {
+          html.append(parts[random.nextInt(parts.length)]);
+        }
+
+        String debug = html.toString();
+        Assertions.assertEquals(LinkParser.parseLinks(base, debug),
+            TagScanner.ANCHORS.parseLinks(base, debug).get(TagRule.ANCHOR), debug);
+
+        for (boolean comments : new boolean[] {false, true}) {
+          List<String> expected = new ArrayList<>();
+          AnchorScanner scanner = new AnchorScanner(
+              (text, start, end) -> expected.add(text.subSequence(start, end).toString()));
+          scanner.setReportComments(comments);
+          scanner.scan(debug);
+
+          List<String> actual = new ArrayList<>();
+          TagScanner.ANCHORS.withReportComments(comments).scan(debug,
+              (rule, text, start, end) -> actual.add(text.subSequence(start, end).toString()));
+          Assertions.assertEquals(expected, actual, debug);
+        }
+      }
+    }
+
+    /**
+     * Tests all of the predefined rules at once.
+     *
+     * @throws MalformedURLException if unable to create the url
+     */
+    @Test
+    @Order(2)
+    public void testResources() throws MalformedURLException {
+      URL base = new URL("https://www.example.com/docs/");
+      String html = "<html><head>"
+          + "<META HTTP-EQUIV=\"Refresh\" CONTENT=\"5; URL='moved.html'\">"
+          + "<meta http-equiv=\"refresh\" content=\"30\">"
+          + "<link href=\"style.css\" rel=\"stylesheet\">"
+          + "<link href=\"/canonical.html\" rel=\"alternate Canonical\">"
+          + "<script src=\"app.js\"></script><script>var a = '<a href=x>';</script>"
+          + "</head><body><IMG SRC=cat.png alt=\"<img src=no.png>\"><a href=\"page.html\">"
+          + "<iframe src=\"https://www.example.org/frame\"></iframe><img data-src=lazy.png>";
+
+      TagScanner scanner = new TagScanner(TagRule.RESOURCES);
+      Map<TagRule, ArrayList<Link>> links = scanner.parseLinks(base, html);
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(List.of(TagRule.ANCHOR, TagRule.IMAGE, TagRule.SCRIPT,
+              TagRule.IFRAME, TagRule.CANONICAL, TagRule.REFRESH), List.copyOf(links.keySet())),
+          () -> Assertions.assertEquals(List.of(new Link("https://www.example.com/docs/page.html")),
+              links.get(TagRule.ANCHOR)),
+          () -> Assertions.assertEquals(List.of(new Link("https://www.example.com/docs/cat.png")),
+              links.get(TagRule.IMAGE)),
+          () -> Assertions.assertEquals(List.of(new Link("https://www.example.com/docs/app.js")),
+              links.get(TagRule.SCRIPT)),
+          () -> Assertions.assertEquals(List.of(new Link("https://www.example.org/frame")),
+              links.get(TagRule.IFRAME)),
+          () -> Assertions.assertEquals(List.of(new Link("https://www.example.com/canonical.html")),
+              links.get(TagRule.CANONICAL)),
+          () -> Assertions.assertEquals(List.of(new Link("https://www.example.com/docs/moved.html")),
+              links.get(TagRule.REFRESH)));
+    }
+
+    /**
+     * Tests values within comments, CDATA sections and script and style elements are skipped,
+     * while the attributes of script and style tags are still found.
+     *
+     * @throws MalformedURLException if unable to create the url
+     */
+    @Test
+    @Order(3)
+    public void testRawText() throws MalformedURLException {
+      URL base = new URL("https://www.example.com/");
+      String html = "<script src=a.js>document.write('<img src=no.png><script src=no.js>');"
+          + "</script><!-- <img src=old.png> --><img src=a.png><style>/* <img src=no.png> */"
+          + "</style><![CDATA[<iframe src=no.html>]]><SCRIPT\nsrc=b.js></SCRIPT ><img src=b.png>"
+          + "<!--><img src=c.png>";
+
+      Map<TagRule, ArrayList<Link>> links = TagScanner.RESOURCES.parseLinks(base, html);
+      Map<TagRule, ArrayList<Link>> comments = TagScanner.RESOURCES.withReportComments(true)
+          .parseLinks(base, html);
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(List.of(new Link("https://www.example.com/a.js"),
+              new Link("https://www.example.com/b.js")), links.get(TagRule.SCRIPT)),
+          () -> Assertions.assertEquals(List.of(new Link("https://www.example.com/a.png"),
+              new Link("https://www.example.com/b.png"), new Link("https://www.example.com/c.png")),
+              links.get(TagRule.IMAGE)),
+          () -> Assertions.assertEquals(List.of(), links.get(TagRule.IFRAME)),
+          () -> Assertions.assertEquals(List.of(new Link("https://www.example.com/old.png"),
+              new Link("https://www.example.com/a.png"), new Link("https://www.example.com/b.png"),
+              new Link("https://www.example.com/c.png")), comments.get(TagRule.IMAGE)),
+          () -> Assertions.assertSame(TagScanner.RESOURCES,
+              TagScanner.RESOURCES.withReportComments(false)));
+    }
+  }
+
+  /**
+   * Tests searching bytes for anchor tags eight at a time finds the same values as searching one
+   * byte at a time.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class K_WordSearchTests {
+
+    /**
+     * Scans bytes in chunks and returns the values found.
+     *
+     * @param bytes the bytes to scan
+     * @param chunk the size of each chunk
+     * @param words whether to search eight bytes at a time
+     * @return the values found
+     */
+    public List<String> scan(ByteBuffer bytes, int chunk, boolean words) {
+      List<String> values = new ArrayList<>();
+      AnchorScanner scanner = new AnchorScanner(
+          (text, start, end) -> values.add(text.subSequence(start, end).toString()), words);
+
+      for (int i = bytes.position(); i < bytes.limit(); i += chunk) {
+        scanner.scan(bytes, i, Math.min(i + chunk, bytes.limit()), StandardCharsets.UTF_8);
+      }
+
+      return values;
+    }
+
+    /**
+     * Tests random markup in both byte orders, at every alignment and in several chunk sizes.
+     */
+    @Test
+    @Order(1)
+    public void testRandom() {
+      String[] parts = {"<", ">", "a", "A", " ", "<<", "href", "=", "\"", "x.html", "<a ",
+          "<a href=", "<A HREF='", "<abbr ", "<b>", "\u00e9", "text without tags ", "<!-- <a -->"};
+      Random random = new Random(17);
+
+      for (int i = 0; i < 5000; i++) {
+        StringBuilder html = new StringBuilder();
+
+        for (int j = random.nextInt(30); j > 0; j--) {
+          html.append(parts[random.nextInt(parts.length)]);
+        }
+
+        String debug = html.toString();
+        List<String> expected = new ArrayList<>();
+        new AnchorScanner((text, start, end) -> expected.add(text.subSequence(start, end)
+            .toString())).scan(debug);
+
+        byte[] bytes = debug.getBytes(StandardCharsets.UTF_8);
+        int offset = i % 8;
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + offset);
+        buffer.position(offset).mark();
+        buffer.put(bytes).reset();
+
+        if (i % 2 == 0) {
+          buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        int chunk = 1 + random.nextInt(bytes.length + 1);
+        Assertions.assertEquals(expected, scan(buffer, bytes.length + 1, true), debug);
+        Assertions.assertEquals(expected, scan(buffer, bytes.length + 1, false), debug);
+        Assertions.assertEquals(expected, scan(buffer, chunk, true), debug);
+      }
+    }
+
+    /**
+     * Tests a large page where most words contain no candidates, read from direct memory.
+     */
+    @Test
+    @Order(2)
+    public void testLarge() {
+      StringBuilder html = new StringBuilder();
+
+      for (int i = 0; i < 2000; i++) {
+        html.append("<p class=\"para\">Some <em>text</em> & more text ".repeat(i % 5));
+        html.append(i % 3 == 0 ? "<A  HREF=" : "<a href=").append(i).append(".html>");
+      }
+
+      byte[] bytes = html.toString().getBytes(StandardCharsets.UTF_8);
+      ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+
+      List<String> expected = scan(direct, bytes.length, false);
+      Assertions.assertEquals(2000, expected.size());
+      Assertions.assertEquals(expected, scan(direct, bytes.length, true));
+      Assertions.assertEquals(expected, scan(direct, 4096, true));
+    }
+  }
+
+  /**
+   * Tests skipping comments, CDATA sections and the contents of script and style elements.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class L_MarkupTests {
+
+    /**
+     * Scans html in chunks and returns the values found.
+     *
+     * @param html the html to scan
+     * @param chunk the size of each chunk
+     * @param comments whether to report values within comments
+     * @return the values found
+     */
+    public List<String> scan(String html, int chunk, boolean comments) {
+      List<String> values = new ArrayList<>();
+      AnchorScanner scanner = new AnchorScanner(
+          (text, start, end) -> values.add(text.subSequence(start, end).toString()));
+      scanner.setReportComments(comments);
+
+      for (int i = 0; i < html.length(); i += chunk) {
+        scanner.scan(html, i, Math.min(i + chunk, html.length()));
+      }
+
+      return values;
+    }
+
+    /**
+     * Tests values within comments are only reported when requested.
+     */
+    @Test
+    @Order(1)
+    public void testComments() {
+      String html = "<!-- <a href=no> --><a href=a><!--><a href=b><!---><a href=c>"
+          + "<!-- -- > <a href=no> ---><a href=d><!--<a href=no>";
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(List.of("a", "b", "c", "d"), scan(html, 1024, false)),
+          () -> Assertions.assertEquals(List.of("no", "a", "b", "c", "no", "d", "no"),
+              scan(html, 1024, true)));
+    }
+
+    /**
+     * Tests values within script and style elements and CDATA sections are never reported.
+     */
+    @Test
+    @Order(2)
+    public void testRawText() {
+      String html = "<script src=app.js href=no>var a = '<a href=no>';</scriptx><a href=no>"
+          + "</SCRIPT\n><a href=a><style>a[href] { }</style ><a href=b><scripts><a href=c>"
+          + "<script data-end=\"</script>\"><a href=no></script><a href=d><script/>"
+          + "<a href=no></script><![CDATA[<a href=no>]]]><a href=e><!DOCTYPE html><a href=f>"
+          + "<a title=\"<!--\" href=g>";
+
+      Assertions.assertEquals(List.of("a", "b", "c", "d", "e", "f", "g"),
+          scan(html, 1024, false));
+    }
+
+    /**
+     * Tests random markup gives the same values regardless of how it is split into chunks or
+     * whether it is scanned as text or bytes.
+     */
+    @Test
+    @Order(3)
+    public void testChunks() {
+      String[] parts = {"<", ">", "a", " ", "<a href=", "x.html", "\"", "-", "--", "-->", "<!--",
+          "<!", "!", "]", "]]>", "<![CDATA[", "<script>", "<SCRIPT ", "</script>", "</scrip", "t",
+          "<style>", "</style ", "<s", "s", "/", "\u00e9"};
+      Random random = new Random(18);
+
+      for (int i = 0; i < 5000; i++) {
+        StringBuilder html = new StringBuilder();
+
+        for (int j = random.nextInt(30); j > 0; j--) {
+          html.append(parts[random.nextInt(parts.length)]);
+        }
+
+        String debug = html.toString();
+        boolean comments = i % 3 == 0;
+        List<String> expected = scan(debug, debug.length() + 1, comments);
+
+        List<String> bytes = new ArrayList<>();
+        AnchorScanner scanner = new AnchorScanner(
+            (text, start, end) -> bytes.add(text.subSequence(start, end).toString()));
+        scanner.setReportComments(comments);
+        scanner.scan(ByteBuffer.wrap(debug.getBytes(StandardCharsets.UTF_8)),
+            StandardCharsets.UTF_8);
+
+        Assertions.assertEquals(expected, scan(debug, 1, comments), debug);
+        Assertions.assertEquals(expected, scan(debug, 1 + random.nextInt(8), comments), debug);
+        Assertions.assertEquals(expected, bytes, debug);
+      }
+    }
+
+    /**
+     * Tests splitting a document with long comments and scripts into chunks gives the same links
+     * as a sequential scan.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(4)
+    public void testSplit() throws MalformedURLException {
+      URL base = new URL("https://www.example.com/");
+      StringBuilder html = new StringBuilder();
+
+      for (int i = 0; i < 500; i++) {
+        html.append(String.format("<p><a href=\"a%d.html\">a</a></p>%n", i));
+        html.append(String.format("<!-- <p><a href=\"old%d.html\">old</a></p> -->%n", i));
+        html.append(String.format("<script>document.write('<a href=\"js%d.html\">');</script>%n",
+            i));
+      }
+
+      List<URL> expected = LinkParser.listLinks(base, html.toString());
+      Assertions.assertEquals(500, expected.size());
+
+      ForkJoinPool pool = new ForkJoinPool(4);
+
+      try {
+        for (int chunks = 1; chunks < 200; chunks += 7) {
+          ArrayList<URL> actual = SplitLinkParser.listLinks(base, html.toString(), pool, chunks);
+          Assertions.assertEquals(expected, actual, "Chunks: " + chunks);
+        }
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Tests decoding character references within href values and detecting the encoding of pages.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class M_CharsetTests {
+
+    /**
+     * Tests numeric and named references, including the ones left as they are.
+     */
+    @Test
+    @Order(1)
+    public void testEntities() {
+      Assertions.assertAll(
+          () -> Assertions.assertEquals("a?x=1&y=2", Entities.decode("a?x=1&amp;y=2")),
+          () -> Assertions.assertEquals("/p/q/r", Entities.decode("&#47;p&#x2F;q&#X2f;r")),
+          () -> Assertions.assertEquals("/p", Entities.decode("&#47p")),
+          () -> Assertions.assertEquals("caf\u00e9 \u00e9t\u00e9",
+              Entities.decode("caf&eacute; &eacute;t&eacute")),
+          () -> Assertions.assertEquals("?a=1&copy=2&copyx\u00a9",
+              Entities.decode("?a=1&copy=2&copyx&copy;")),
+          () -> Assertions.assertEquals("\u00ac&notin;", Entities.decode("&not;&notin;")),
+          () -> Assertions.assertEquals("&apos '", Entities.decode("&apos &apos;")),
+          () -> Assertions.assertEquals("&&# &#x; &unknown;",
+              Entities.decode("&AMP;&# &#x; &unknown;")),
+          () -> Assertions.assertEquals("\ufffd\ufffd\u2013\ufffd",
+              Entities.decode("&#0;&#xD800;&#150;&#x110000;")),
+          () -> Assertions.assertEquals("\ud83d\ude00", Entities.decode("&#x1F600;")),
+          () -> Assertions.assertSame("plain.html", Entities.decode("plain.html")));
+    }
+
+    /**
+     * Tests the resolver decodes references the same way as decoding the href first.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @Test
+    @Order(2)
+    public void testResolver() throws MalformedURLException {
+      URL base = new URL("https://www.example.com/docs/index.html");
+      LinkResolver resolver = new LinkResolver(base);
+      List<String> hrefs = List.of("a.html?x=1&amp;y=2", "&#47;root.html", "caf&eacute;.html",
+          "?a=1&copy=2", "&#x2F;&#x2F;other.com/", "&lt;b&gt;.html", "#&quot;top&quot;");
+
+      for (String href : hrefs) {
+        URL expected = LinkParser.resolve(base, Entities.decode(href));
+        Assertions.assertEquals(String.valueOf(expected),
+            String.valueOf(resolver.resolve(href)), href);
+        Assertions.assertEquals(String.valueOf(expected),
+            String.valueOf(resolver.resolve(href)), href);
+      }
+
+      String html = "<a href=\"a.html?x=1&amp;y=2\">";
+      Assertions.assertEquals(List.of(new URL("https://www.example.com/docs/a.html?x=1&y=2")),
+          LinkParser.listLinks(base, html));
+    }
+
+    /**
+     * Tests detecting the encoding from byte order marks, meta elements and hints.
+     */
+    @Test
+    @Order(3)
+    public void testSniffing() {
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(StandardCharsets.UTF_8, sniff("<p>", null)),
+          () -> Assertions.assertEquals(StandardCharsets.ISO_8859_1,
+              sniff("<p>", StandardCharsets.ISO_8859_1)),
+          () -> Assertions.assertEquals("windows-1252",
+              sniff("<meta charset=\"windows-1252\">", StandardCharsets.UTF_8).name()),
+          () -> Assertions.assertEquals(StandardCharsets.ISO_8859_1, sniff("<head><meta "
+              + "http-equiv=Content-Type content='text/html; charset=iso-8859-1'>", null)),
+          () -> Assertions.assertEquals(StandardCharsets.UTF_8,
+              sniff("<!-- <meta charset=iso-8859-1> --><p>", null)),
+          () -> Assertions.assertEquals(StandardCharsets.UTF_8,
+              sniff("<meta content=\"<meta charset=iso-8859-1>\">", null)),
+          () -> Assertions.assertEquals(StandardCharsets.UTF_8,
+              sniff("<meta charset=utf-16>", null)),
+          () -> Assertions.assertEquals(StandardCharsets.UTF_8,
+              sniff("<meta charset=unknown>", null)),
+          () -> Assertions.assertEquals(StandardCharsets.UTF_16LE,
+              CharsetSniffer.detect(ByteBuffer.wrap(new byte[] {(byte) 0xFF, (byte) 0xFE}),
+                  null)),
+          () -> Assertions.assertEquals("windows-1252",
+              CharsetSniffer.fromContentType("text/html; Charset=\"windows-1252\"").name()),
+          () -> Assertions.assertNull(CharsetSniffer.fromContentType("text/html")),
+          () -> Assertions.assertNull(CharsetSniffer.fromContentType("text/html; charset=x")));
+    }
+
+    /**
+     * Tests listing the links of pages that are not encoded in UTF-8.
+     *
+     * @throws IOException if unable to read the page
+     */
+    @Test
+    @Order(4)
+    public void testEncodedPages() throws IOException {
+      URL base = new URL("https://www.example.com/");
+      String html = "<meta charset=\"iso-8859-1\"><a href=\"caf\u00e9.html\">"
+          + "<a href=\"&eacute;t&eacute;.html\">";
+      List<URL> expected = List.of(
+          LinkParser.resolve(base, "caf\u00e9.html"),
+          LinkParser.resolve(base, "\u00e9t\u00e9.html"));
+
+      byte[] latin = html.getBytes(StandardCharsets.ISO_8859_1);
+      byte[] utf16 = ("\ufeff" + html).getBytes(StandardCharsets.UTF_16BE);
+      List<URL> streamed = new ArrayList<>();
+      LinkParser.listLinks(base, new ByteArrayInputStream(latin), streamed::add);
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(expected, LinkParser.listLinks(base, latin)),
+          () -> Assertions.assertEquals(expected, LinkParser.listLinks(base, utf16)),
+          () -> Assertions.assertEquals(expected, streamed),
+          () -> Assertions.assertEquals(html, CharsetSniffer.decode(utf16, null)));
+    }
+
+    /**
+     * Detects the encoding of text encoded as ASCII.
+     *
+     * @param html the html to detect the encoding of
+     * @param hint the encoding to use if none is declared
+     * @return the encoding detected
+     */
+    private Charset sniff(String html, Charset hint) {
+      return CharsetSniffer.detect(ByteBuffer.wrap(html.getBytes(StandardCharsets.US_ASCII)),
+          hint);
+    }
+  }
+
+  /**
+   * Tests the metrics and flight recorder events collected while parsing.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class N_MetricsTests {
+
+    /** Two links that are dropped, one resolved the slow way and three valid links in total. */
+    private final String html = "<a href=a.html><a href=\"javascript:alert('Hello!');\">"
+        + "<a href=mailto:cs212@usfca.edu><a href=//[::1]/x><a href='http://a.com/b#c'>";
+
+    /**
+     * Removes any installed metrics.
+     */
+    @AfterEach
+    public void uninstall() {
+      LinkMetrics.install(null);
+    }
+
+    /**
+     * Tests the counts for text, bytes and readers, and that nothing is counted once the metrics
+     * are removed.
+     *
+     * @throws IOException if unable to read the html
+     */
+    @Test
+    @Order(1)
+    public void testCounts() throws IOException {
+      URL base = new URL("https://www.example.com/");
+      LinkMetrics metrics = new LinkMetrics(true);
+      LinkMetrics.install(metrics);
+
+      Assertions.assertEquals(3, LinkParser.listLinks(base, html).size());
+      Assertions.assertEquals(3, LinkParser.listLinks(base,
+          html.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8).size());
+      LinkParser.listLinks(base, new StringReader(html), url -> { });
+      LinkParser.clean(new URL("http://a b.com/"));
+
+      LinkMetrics.install(null);
+      LinkParser.listLinks(base, html);
+      LinkParser.clean(new URL("http://a b.com/"));
+
+      String debug = metrics.toString();
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(3, metrics.getPages(), debug),
+          () -> Assertions.assertEquals(3L * html.length(), metrics.getScanned(), debug),
+          () -> Assertions.assertEquals(15, metrics.getAnchors(), debug),
+          () -> Assertions.assertEquals(9, metrics.getLinks(), debug),
+          () -> Assertions.assertEquals(6, metrics.getDropped(), debug),
+          () -> Assertions.assertEquals(3, metrics.getFallbacks(), debug),
+          () -> Assertions.assertEquals(1, metrics.getCleanFailures(), debug),
+          () -> Assertions.assertTrue(metrics.getLatency(50) > 0, debug),
+          () -> Assertions.assertTrue(metrics.getLatency(50) <= metrics.getLatency(99), debug));
+    }
+
+    /**
+     * Tests the counts of several threads are added together.
+     *
+     * @throws Exception if unable to parse the pages
+     */
+    @Test
+    @Order(2)
+    public void testThreads() throws Exception {
+      URL base = new URL("https://www.example.com/");
+      LinkMetrics metrics = new LinkMetrics();
+      LinkMetrics.install(metrics);
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 400; i++) {
+          futures.add(executor.submit(() -> LinkParser.parseLinks(base, html)));
+        }
+
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+      }
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(400, metrics.getPages()),
+          () -> Assertions.assertEquals(1200, metrics.getLinks()),
+          () -> Assertions.assertEquals(800, metrics.getDropped()),
+          () -> Assertions.assertEquals(0.0, metrics.getLatency(99)));
+    }
+
+    /**
+     * Tests the histogram records every value to within about 3%.
+     */
+    @Test
+    @Order(3)
+    public void testHistogram() {
+      Random random = new Random(20);
+
+      for (int i = 0; i < 100000; i++) {
+        long value = random.nextLong() >>> (1 + random.nextInt(63));
+        long highest = LatencyHistogram.highest(LatencyHistogram.index(value));
+        Assertions.assertTrue(highest >= value && highest - value <= value / 32, "" + value);
+      }
+
+      LatencyHistogram histogram = new LatencyHistogram();
+
+      for (int i = 1; i <= 10000; i++) {
+        histogram.record(i);
+      }
+
+      long[] totals = new long[LatencyHistogram.BUCKETS];
+      histogram.addTo(totals);
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(1, LatencyHistogram.percentile(totals, 0)),
+          () -> Assertions.assertEquals(5000, LatencyHistogram.percentile(totals, 50), 160),
+          () -> Assertions.assertEquals(9900, LatencyHistogram.percentile(totals, 99), 310),
+          () -> Assertions.assertEquals(10000, LatencyHistogram.percentile(totals, 100), 310),
+          () -> Assertions.assertEquals(0, LatencyHistogram.percentile(new long[8], 50)));
+    }
+
+    /**
+     * Tests a flight recorder event is committed for each page when enabled.
+     *
+     * @throws IOException if unable to record or read the events
+     */
+    @Test
+    @Order(4)
+    public void testFlightRecorder() throws IOException {
+      URL base = new URL("https://www.example.com/events/");
+      Path file = Files.createTempFile("linkparser", ".jfr");
+
+      try (Recording recording = new Recording()) {
+        recording.enable("edu.usfca.cs212.linkparser.Scan").withoutThreshold();
+        recording.start();
+        LinkParser.listLinks(base, html);
+        recording.stop();
+        recording.dump(file);
+
+        List<RecordedEvent> events = new ArrayList<>();
+
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+          if (base.toString().equals(event.getString("base"))) {
+            events.add(event);
+          }
+        }
+
+        Assertions.assertEquals(1, events.size(), events::toString);
+        Assertions.assertEquals(5, events.get(0).getInt("anchors"));
+        Assertions.assertEquals(3, events.get(0).getInt("links"));
+        Assertions.assertEquals(html.length(), events.get(0).getLong("scanned"));
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+
+    /**
+     * Tests pages scanned on short-lived threads (such as one virtual thread per page) are all
+     * counted, including their latencies, after the threads have ended.
+     *
+     * @throws Exception if unable to parse the pages
+     */
+    @Test
+    @Order(5)
+    public void testShortThreads() throws Exception {
+      URL base = new URL("https://www.example.com/");
+      LinkMetrics metrics = new LinkMetrics(true);
+      LinkMetrics.install(metrics);
+
+      for (int i = 0; i < 50; i++) {
+        List<Thread> threads = new ArrayList<>();
+
+        for (int j = 0; j < 20; j++) {
+          Thread thread = new Thread(() -> LinkParser.parseLinks(base, html));
+          thread.start();
+          threads.add(thread);
+        }
+
+        for (Thread thread : threads) {
+          thread.join();
+        }
+      }
+
+      String debug = metrics.toString();
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(1000, metrics.getPages(), debug),
+          () -> Assertions.assertEquals(3000, metrics.getLinks(), debug),
+          () -> Assertions.assertEquals(2000, metrics.getDropped(), debug),
+          () -> Assertions.assertTrue(metrics.getLatency(100) > 0, debug));
+    }
+  }
+
+  /**
+   * Tests writing links to binary archives and reading them back.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class O_ArchiveTests {
+
+    /** The source of each document. */
+    private final List<String> sources = new ArrayList<>();
+
+    /** The links of each document. */
+    private final List<List<Link>> documents = new ArrayList<>();
+
+    /**
+     * Parses several synthetic documents with links to the same and other hosts.
+     *
+     * @throws MalformedURLException if unable to create URLs
+     */
+    @BeforeEach
+    public void setup() throws MalformedURLException {
+      sources.clear();
+      documents.clear();
+
+      for (int i = 0; i < 50; i++) {
+        URL base = new URL(String.format("https://www.example.com/docs/%d/index.html", i));
+        StringBuilder html = new StringBuilder();
+
+        for (int j = 0; j < i; j++) {
+          html.append(String.format("<a href=\"page%d.html?q=%d\">", j, i));
+          html.append(String.format("<a href=\"https://other%d.org/caf\u00e9\">", j % 3));
+          html.append("<a href=\"//[::1]/\ud83d\ude00\">");
+        }
+
+        sources.add(base.toString());
+        documents.add(LinkParser.parseLinks(base, html.toString()));
+      }
+    }
+
+    /**
+     * Writes the documents to an archive.
+     *
+     * @param output the stream to write to
+     * @throws IOException if unable to write the archive
+     */
+    private void write(OutputStream output) throws IOException {
+      try (LinkArchiveWriter writer = new LinkArchiveWriter(output)) {
+        for (int i = 0; i < sources.size(); i++) {
+          writer.write(sources.get(i), documents.get(i));
+        }
+
+        Assertions.assertEquals(150 * 49 / 2, writer.getLinks());
+      }
+    }
+
+    /**
+     * Reads every document from an archive, skipping the links of every third document.
+     *
+     * @param reader the reader to read from
+     * @throws IOException if unable to read the archive
+     */
+    private void read(LinkArchiveReader reader) throws IOException {
+      for (int i = 0; i < sources.size(); i++) {
+        Assertions.assertTrue(reader.nextDocument());
+        Assertions.assertEquals(sources.get(i), reader.getSource().toString());
+        Assertions.assertEquals(documents.get(i).size(), reader.getLinkCount());
+
+        if (i % 3 != 0) {
+          List<Link> links = new ArrayList<>();
+
+          while (reader.nextLink()) {
+            links.add(reader.toLink());
+          }
+
+          Assertions.assertEquals(documents.get(i), links);
+        }
+      }
+
+      Assertions.assertFalse(reader.nextDocument());
+      Assertions.assertFalse(reader.nextLink());
+    }
+
+    /**
+     * Tests reading an archive from memory.
+     *
+     * @throws IOException if unable to write or read the archive
+     */
+    @Test
+    @Order(1)
+    public void testMemory() throws IOException {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      write(output);
+      read(new LinkArchiveReader(ByteBuffer.wrap(output.toByteArray())));
+    }
+
+    /**
+     * Tests reading an archive file, mapped all at once and in regions smaller than a document.
+     *
+     * @throws IOException if unable to write or read the archive
+     */
+    @Test
+    @Order(2)
+    public void testFile() throws IOException {
+      Path file = Files.createTempFile("linkparser", ".lka");
+
+      try {
+        write(Files.newOutputStream(file));
+
+        for (long region : new long[] {LinkArchiveReader.REGION_SIZE, 1000, 3}) {
+          try (LinkArchiveReader reader = new LinkArchiveReader(file, region)) {
+            read(reader);
+          }
+        }
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+
+    /**
+     * Tests the archive is much smaller than the same links as text.
+     *
+     * @throws IOException if unable to write the archive
+     */
+    @Test
+    @Order(3)
+    public void testSize() throws IOException {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      write(output);
+
+      long text = 0;
+
+      for (int i = 0; i < sources.size(); i++) {
+        for (Link link : documents.get(i)) {
+          text += sources.get(i).length() + link.toString().length() + 2;
+        }
+      }
+
+      Assertions.assertTrue(output.size() * 5 < text, output.size() + " vs " + text);
+    }
+
+    /**
+     * Tests invalid and truncated archives are reported.
+     *
+     * @throws IOException if unable to write the archive
+     */
+    @Test
+    @Order(4)
+    public void testInvalid() throws IOException {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      write(output);
+      byte[] truncated = Arrays.copyOf(output.toByteArray(), output.size() / 2);
+      LinkArchiveReader reader = new LinkArchiveReader(ByteBuffer.wrap(truncated));
+
+      Assertions.assertAll(
+          () -> Assertions.assertThrows(IOException.class,
+              () -> new LinkArchiveReader(ByteBuffer.wrap(new byte[] {'<', 'a'}))),
+          () -> Assertions.assertThrows(IOException.class, () -> {
+            while (reader.nextDocument()) {
+              reader.nextLink();
+            }
+          }),
+          () -> Assertions.assertThrows(IllegalStateException.class,
+              () -> new LinkArchiveWriter(new ByteArrayOutputStream()).add("https://a.com/")));
+    }
+
+    /**
+     * Tests archives that are truncated, have blocks shorter than their contents or have corrupt
+     * bytes are only ever reported with an {@link IOException}.
+     *
+     * @throws IOException if unable to write the archive
+     */
+    @Test
+    @Order(5)
+    public void testTruncated() throws IOException {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+      try (LinkArchiveWriter writer = new LinkArchiveWriter(output)) {
+        writer.write("https://www.example.com/a/index.html", List.of(
+            new Link("https://www.example.com/a/b.html"),
+            new Link("https://www.example.com/a/c/\u00e9.html"),
+            new Link("https://www.usfca.edu/")));
+      }
+
+      byte[] archive = output.toByteArray();
+      int start = LinkArchiveWriter.MAGIC.length;
+      int length = archive[start];
+      Assertions.assertTrue(length > 0 && archive.length == start + length + 2);
+
+      for (int size = start; size < archive.length; size++) {
+        byte[] truncated = Arrays.copyOf(archive, size);
+        Assertions.assertThrows(IOException.class, () -> readAll(truncated), "Size: " + size);
+      }
+
+      // the links of a block that is too short run into the blocks after it
+      for (int shorter = 1; shorter < length; shorter++) {
+        byte[] shortened = archive.clone();
+        shortened[start] = (byte) (length - shorter);
+        Assertions.assertThrows(IOException.class, () -> readAll(shortened), "By: " + shorter);
+      }
+
+      for (int i = start; i < archive.length; i++) {
+        for (int value : new int[] {0x00, 0x7F, 0x80, 0xFF}) {
+          byte[] corrupt = archive.clone();
+          corrupt[i] = (byte) value;
+
+          try {
+            readAll(corrupt);
+          } catch (IOException e) {
+            Assertions.assertTrue(e.getMessage().endsWith("link archive."), e.getMessage());
+          }
+        }
+      }
+    }
+
+    /**
+     * Reads every link of every document from an archive in memory.
+     *
+     * @param archive the bytes of the archive
+     * @throws IOException if unable to read the archive
+     */
+    private void readAll(byte[] archive) throws IOException {
+      LinkArchiveReader reader = new LinkArchiveReader(ByteBuffer.wrap(archive));
+
+      while (reader.nextDocument()) {
+        while (reader.nextLink()) {
+          reader.getLink();
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests reusing a link extractor for many pages.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class P_ExtractorTests {
+
+    /** Links that are relative, absolute, dropped and encoded as character references. */
+    private final String html = "<a href=a.html><a href=\"javascript:alert('Hello!');\">"
+        + "<a href='../b.html#c'><a href=http://a.com/&amp;x><a href=//[::1]/x>";
+
+    /**
+     * Tests an extractor finds the same links as the static methods for text, bytes and readers.
+     *
+     * @throws IOException if unable to read the html
+     */
+    @Test
+    @Order(1)
+    public void testSame() throws IOException {
+      URL base = new URL("https://www.example.com/dir/index.html");
+      ArrayList<Link> expected = LinkParser.parseLinks(base, html);
+      byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+      ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+      direct.put(bytes).flip();
+
+      LinkExtractor extractor = new LinkExtractor();
+      ArrayList<Link> actual = new ArrayList<>();
+      extractor.parseLinks(base, new StringReader(html), actual::add);
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(4, expected.size()),
+          () -> Assertions.assertEquals(expected, extractor.parseLinks(base, html)),
+          () -> Assertions.assertEquals(expected,
+              extractor.parseLinks(base, ByteBuffer.wrap(bytes), StandardCharsets.UTF_8)),
+          () -> Assertions.assertEquals(expected,
+              extractor.parseLinks(base, direct, StandardCharsets.UTF_8)),
+          () -> Assertions.assertEquals(expected, actual),
+          () -> Assertions.assertEquals(expected, new LinkExtractor(null).parseLinks(base, html)));
+    }
+
+    /**
+     * Tests the links of each page are resolved against the base url of that page, and that the
+     * list returned is reused for every page.
+     *
+     * @throws MalformedURLException if unable to create the urls
+     */
+    @Test
+    @Order(2)
+    public void testBases() throws MalformedURLException {
+      LinkExtractor extractor = new LinkExtractor();
+      String page = "<a href=x.html><a href=/y?q=1>";
+      List<Link> first = null;
+
+      for (String host : List.of("a.com", "b.com", "a.com")) {
+        for (String path : List.of("/", "/p/q/")) {
+          URL base = new URL("http://" + host + path);
+          List<Link> links = extractor.parseLinks(base, page);
+          first = first == null ? links : first;
+
+          Assertions.assertSame(first, links);
+          Assertions.assertEquals(
+              List.of(new Link(base + "x.html"), new Link("http://" + host + "/y?q=1")), links);
+        }
+      }
+    }
+
+    /**
+     * Tests the list of links is read-only, cleared by the next page and by a reset, and that a
+     * page that fails leaves the extractor ready for the next page.
+     *
+     * @throws MalformedURLException if unable to create the url
+     */
+    @Test
+    @Order(3)
+    public void testReset() throws MalformedURLException {
+      URL base = new URL("https://www.example.com/");
+      LinkExtractor extractor = new LinkExtractor();
+      List<Link> links = extractor.parseLinks(base, html);
+
+      Assertions.assertThrows(UnsupportedOperationException.class, () -> links.add(null));
+      Assertions.assertEquals(4, extractor.getLinks().size());
+
+      extractor.parseLinks(base, "<a href=a.html>", link -> { });
+      Assertions.assertTrue(extractor.getLinks().isEmpty());
+
+      extractor.parseLinks(base, html);
+      extractor.reset();
+      Assertions.assertTrue(links.isEmpty());
+
+      Assertions.assertThrows(IllegalStateException.class,
+          () -> extractor.parseLinks(base, html, link -> {
+            throw new IllegalStateException();
+          }));
+      Assertions.assertFalse(extractor.isBusy());
+
+      // a value cut off by the failed page must not be carried into the next page
+      Assertions.assertThrows(IllegalArgumentException.class,
+          () -> extractor.parseLinks(base, ByteBuffer.wrap(new byte[1]),
+              StandardCharsets.UTF_16));
+      Assertions.assertEquals(extractor.parseLinks(base, html),
+          LinkParser.parseLinks(base, html));
+    }
+
+    /**
+     * Tests a consumer may parse other pages while its own page is parsed, and that an extractor
+     * may not be reused until its page is done.
+     *
+     * @throws MalformedURLException if unable to create the url
+     */
+    @Test
+    @Order(4)
+    public void testReentrant() throws MalformedURLException {
+      URL base = new URL("https://www.example.com/");
+      LinkExtractor extractor = LinkExtractor.local();
+      List<Integer> sizes = new ArrayList<>();
+
+      extractor.parseLinks(base, html, link -> {
+        Assertions.assertNotSame(extractor, LinkExtractor.local());
+        sizes.add(LinkParser.parseLinks(link.toURL(), html).size());
+
+        Assertions.assertThrows(IllegalStateException.class,
+            () -> extractor.parseLinks(base, html));
+        Assertions.assertThrows(IllegalStateException.class, extractor::reset);
+      });
+
+      Assertions.assertEquals(List.of(4, 4, 4, 4), sizes);
+      Assertions.assertSame(extractor, LinkExtractor.local());
+    }
+
+    /**
+     * Tests many pages parsed by the extractors of several threads at once.
+     *
+     * @throws Exception if unable to parse the pages
+     */
+    @Test
+    @Order(5)
+    public void testThreads() throws Exception {
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      List<Future<Boolean>> futures = new ArrayList<>();
+
+      try {
+        for (int i = 0; i < 200; i++) {
+          URL base = new URL("https://www.example.com/" + i + "/");
+          List<Link> expected = LinkParser.parseLinks(base, html);
+
+          futures.add(executor.submit(
+              () -> expected.equals(LinkExtractor.local().parseLinks(base, html))));
+        }
+
+        for (Future<Boolean> future : futures) {
+          Assertions.assertTrue(future.get());
+        }
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    /**
+     * Tests a pool of extractors is reused by pages parsed on short-lived threads, keeps no more
+     * idle extractors than its capacity, and drops extractors still parsing a page.
+     *
+     * @throws Exception if unable to parse the pages
+     */
+    @Test
+    @Order(6)
+    public void testPool() throws Exception {
+      URL base = new URL("https://www.example.com/dir/index.html");
+      List<Link> expected = LinkParser.parseLinks(base, html);
+      ExtractorPool pool = new ExtractorPool(2);
+      Set<LinkExtractor> used = ConcurrentHashMap.newKeySet();
+
+      // one page per thread, as with a virtual thread per task
+      for (int i = 0; i < 50; i++) {
+        Thread thread = new Thread(() -> {
+          LinkExtractor extractor = pool.borrow();
+          used.add(extractor);
+
+          try {
+            Assertions.assertEquals(expected, extractor.parseLinks(base, html));
+          } finally {
+            pool.release(extractor);
+          }
+        });
+
+        thread.start();
+        thread.join();
+      }
+
+      Assertions.assertEquals(1, used.size());
+      Assertions.assertEquals(1, pool.idle());
+      Assertions.assertTrue(pool.borrow().getLinks().isEmpty());
+
+      for (int i = 0; i < 5; i++) {
+        pool.release(new LinkExtractor());
+      }
+
+      Assertions.assertEquals(2, pool.idle());
+      pool.borrow();
+
+      LinkExtractor busy = new LinkExtractor();
+      busy.parseLinks(base, html, link -> pool.release(busy));
+      Assertions.assertEquals(1, pool.idle());
+    }
+  }
+
+  /**
+   * Tests the fetch and parse pipeline against a local server.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  @TestInstance(Lifecycle.PER_CLASS)
+  public class Q_PipelineTests {
+
+    /** Number of small pages on the local site. */
+    private static final int PAGES = 30;
+
+    /** The local server. */
+    private HttpServer server;
+
+    /** The html of each page, by path. */
+    private final Map<String, String> pages = new ConcurrentHashMap<>();
+
+    /**
+     * Starts the local server. Every page is sent in several chunks, so chunks arrive while earlier
+     * chunks are being scanned and some href values are split between chunks.
+     *
+     * @throws IOException if unable to start the server
+     */
+    @BeforeAll
+    public void startServer() throws IOException {
+      for (int i = 0; i < PAGES; i++) {
+        pages.put("/pipe/page" + i + ".html", String.format("<html><body><a href=page%d.html>"
+            + "next</a> <a href='/pipe/page%d.html#top'>jump</a> <a href=\"shared.html\">s</a> "
+            + "<a href=\"mailto:cs212@usfca.edu\">email</a></body></html>",
+            (i + 1) % PAGES, i * 7 % PAGES));
+      }
+
+      StringBuilder big = new StringBuilder("<html><body>");
+
+      for (int i = 0; i < 20000; i++) {
+        big.append("<p>Some text &amp; <a class=x href=\"/pipe/big/").append(i % 5000)
+            .append(".html?q=").append(i).append("\">link</a></p>\n");
+      }
+
+      pages.put("/pipe/big.html", big.append("</body></html>").toString());
+      pages.put("/pipe/utf16.html", "\uFEFF<a href=\"caf\u00e9.html\">x</a> <a href=/pipe/a.html>");
+      pages.put("/pipe/latin.html", "<a href=\"na\u00efve.html\">x</a> <a href=b.html>");
+      pages.put("/pipe/deep/moved.html", "<a href=here.html>x</a>");
+
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.setExecutor(Executors.newCachedThreadPool());
+      server.createContext("/", exchange -> {
+        String path = exchange.getRequestURI().getPath();
+        String html = pages.get(path);
+        Charset charset = StandardCharsets.UTF_8;
+        String type = "text/html; charset=utf-8";
+
+        if (path.equals("/pipe/redirect.html")) {
+          exchange.getResponseHeaders().set("Location", "/pipe/deep/moved.html");
+          exchange.sendResponseHeaders(302, -1);
+          exchange.close();
+          return;
+        } else if (path.equals("/pipe/utf16.html")) {
+          charset = StandardCharsets.UTF_16LE;
+          type = "text/html";
+        } else if (path.equals("/pipe/latin.html")) {
+          charset = StandardCharsets.ISO_8859_1;
+          type = "text/html; charset=ISO-8859-1";
+        } else if (path.equals("/pipe/plain.txt")) {
+          html = "<a href=\"hidden.html\">not html</a>";
+          type = "text/plain";
+        }
+
+        if (html == null) {
+          exchange.sendResponseHeaders(404, -1);
+          exchange.close();
+          return;
+        }
+
+        byte[] bytes = html.getBytes(charset);
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(200, 0);
+
+        try (OutputStream output = exchange.getResponseBody()) {
+          for (int i = 0; i < 4; i++) {
+            output.write(bytes, bytes.length * i / 4, bytes.length * (i + 1) / 4
+                - bytes.length * i / 4);
+            output.flush();
+            Thread.sleep(1);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      server.start();
+    }
+
+    /**
+     * Stops the local server.
+     */
+    @AfterAll
+    public void stopServer() {
+      server.stop(0);
+      ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    /**
+     * Returns the url of a page on the local site.
+     *
+     * @param path the path of the page
+     * @return the url of the page
+     * @throws MalformedURLException if unable to create the url
+     */
+    public URL url(String path) throws MalformedURLException {
+      return new URL(String.format("http://localhost:%d%s", server.getAddress().getPort(), path));
+    }
+
+    /**
+     * Submits every page on the local site, along with pages that fail.
+     *
+     * @param pipeline the pipeline to submit to
+     * @throws Exception if unable to submit the pages
+     */
+    public void submitAll(LinkPipeline pipeline) throws Exception {
+      for (String path : pages.keySet()) {
+        pipeline.submit(url(path));
+      }
+
+      pipeline.submit(url("/pipe/redirect.html"));
+      pipeline.submit(url("/pipe/plain.txt"));
+      pipeline.submit(url("/pipe/missing.html"));
+    }
+
+    /**
+     * Returns the sorted links the static methods find in each page.
+     *
+     * @return the links of each page
+     * @throws MalformedURLException if unable to create the urls
+     */
+    public Map<Link, List<Link>> expected() throws MalformedURLException {
+      Map<Link, List<Link>> expected = new ConcurrentHashMap<>();
+
+      for (Map.Entry<String, String> entry : pages.entrySet()) {
+        URL base = url(entry.getKey());
+        List<Link> links = LinkParser.parseLinks(base, entry.getValue());
+        links.sort(null);
+        expected.put(new Link(base), links);
+      }
+
+      // relative links of a redirected page are resolved against where it moved to
+      expected.put(new Link(url("/pipe/redirect.html")),
+          LinkParser.parseLinks(url("/pipe/deep/moved.html"), pages.get("/pipe/deep/moved.html")));
+      return expected;
+    }
+
+    /**
+     * Tests every link of every page is found, including pages that are redirected, large, or not
+     * in UTF-8, when links are not deduplicated.
+     *
+     * @throws Exception if unable to fetch the pages
+     */
+    @Test
+    @Order(1)
+    public void testLinks() throws Exception {
+      Map<Link, List<Link>> actual = new ConcurrentHashMap<>();
+      Map<Link, List<Link>> expected = expected();
+      int total = expected.values().stream().mapToInt(List::size).sum();
+
+      try (LinkPipeline pipeline = new LinkPipeline((page, link) ->
+          actual.computeIfAbsent(page, key -> new ArrayList<>()).add(link))) {
+        pipeline.setVisitedSet(null);
+        submitAll(pipeline);
+        pipeline.await();
+
+        actual.values().forEach(links -> links.sort(null));
+        String debug = pipeline.toString();
+
+        Assertions.assertAll(
+            () -> Assertions.assertEquals(expected, actual, debug),
+            () -> Assertions.assertEquals(pages.size() + 1, pipeline.getPages(), debug),
+            () -> Assertions.assertEquals(2, pipeline.getFailed(), debug),
+            () -> Assertions.assertEquals(pages.size() + 3,
+                pipeline.getProcessed(LinkPipeline.Stage.FETCH), debug),
+            () -> Assertions.assertTrue(
+                pipeline.getProcessed(LinkPipeline.Stage.SCAN) > pages.size(), debug),
+            () -> Assertions.assertEquals(total,
+                pipeline.getProcessed(LinkPipeline.Stage.EMIT), debug),
+            () -> Assertions.assertTrue(
+                pipeline.getProcessed(LinkPipeline.Stage.RESOLVE) > total, debug),
+            () -> Assertions.assertTrue(pipeline.getBytes() > pages.get("/pipe/big.html")
+                .length(), debug),
+            () -> Assertions.assertTrue(
+                pipeline.getThroughput(LinkPipeline.Stage.EMIT) > 0, debug),
+            () -> Assertions.assertEquals(0, pipeline.getQueued(LinkPipeline.Stage.EMIT), debug));
+      }
+    }
+
+    /**
+     * Tests each link is only emitted once by default.
+     *
+     * @throws Exception if unable to fetch the pages
+     */
+    @Test
+    @Order(2)
+    public void testDedupe() throws Exception {
+      List<Link> actual = new ArrayList<>();
+
+      try (LinkPipeline pipeline = new LinkPipeline((page, link) -> actual.add(link))) {
+        submitAll(pipeline);
+        pipeline.await();
+      }
+
+      List<Link> expected = expected().values().stream()
+          .flatMap(List::stream).distinct().sorted().collect(Collectors.toList());
+      actual.sort(null);
+      Assertions.assertEquals(expected, actual);
+    }
+
+    /**
+     * Tests tiny queues and a slow output hold back the earlier stages without losing any links.
+     *
+     * @throws Exception if unable to fetch the pages
+     */
+    @Test
+    @Order(3)
+    public void testBounded() throws Exception {
+      AtomicInteger emitted = new AtomicInteger();
+
+      try (LinkPipeline pipeline = new LinkPipeline(2, (page, link) -> {
+        if (emitted.incrementAndGet() % 1000 == 0) {
+          try {
+            Thread.sleep(5);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      })) {
+        pipeline.setVisitedSet(null);
+        pipeline.setParallelism(LinkPipeline.Stage.FETCH, 2);
+        pipeline.setParallelism(LinkPipeline.Stage.RESOLVE, 3);
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> pipeline.setParallelism(LinkPipeline.Stage.FETCH, 3));
+
+        submitAll(pipeline);
+        pipeline.await();
+
+        for (LinkPipeline.Stage stage : LinkPipeline.Stage.values()) {
+          Assertions.assertTrue(pipeline.getMaxQueued(stage) <= 2, pipeline::toString);
+        }
+
+        Assertions.assertEquals(pipeline.getProcessed(LinkPipeline.Stage.EMIT), emitted.get());
+        Assertions.assertThrows(IllegalStateException.class,
+            () -> pipeline.setTimeout(Duration.ofSeconds(1)));
+      }
+
+      int total = expected().values().stream().mapToInt(List::size).sum();
+      Assertions.assertEquals(total, emitted.get());
+    }
+
+    /**
+     * Tests an output that throws exceptions does not stop the pipeline, and that pages may not be
+     * submitted once it is closed.
+     *
+     * @throws Exception if unable to fetch the pages
+     */
+    @Test
+    @Order(4)
+    public void testFailures() throws Exception {
+      LinkPipeline pipeline = new LinkPipeline((page, link) -> {
+        throw new IllegalStateException();
+      });
+
+      try (pipeline) {
+        pipeline.submit(url("/pipe/page0.html"));
+        pipeline.submit(url("/pipe/page1.html"));
+        pipeline.await();
+
+        Assertions.assertEquals(2, pipeline.getPages(), pipeline::toString);
+        Assertions.assertEquals(pipeline.getProcessed(LinkPipeline.Stage.DEDUPE) - 1,
+            pipeline.getFailed(LinkPipeline.Stage.EMIT), pipeline::toString);
+      }
+
+      Assertions.assertThrows(IllegalStateException.class,
+          () -> pipeline.submit(url("/pipe/page0.html")));
+    }
+
+    /**
+     * Tests an output that throws errors instead of exceptions does not stop the pipeline, and
+     * that every link is still either output or counted as failed.
+     */
+    @Test
+    @Order(5)
+    public void testErrors() {
+      AtomicInteger calls = new AtomicInteger();
+      LinkPipeline pipeline = new LinkPipeline((page, link) -> {
+        if (calls.incrementAndGet() % 2 == 1) {
+          throw new AssertionError(link);
+        }
+      });
+
+      Assertions.assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+        try (pipeline) {
+          pipeline.submit(url("/pipe/page0.html"));
+          pipeline.submit(url("/pipe/page1.html"));
+          pipeline.await();
+        }
+      });
+
+      long emitted = pipeline.getProcessed(LinkPipeline.Stage.EMIT);
+      long failed = pipeline.getFailed(LinkPipeline.Stage.EMIT);
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(2, pipeline.getPages(), pipeline::toString),
+          () -> Assertions.assertEquals(calls.get(), emitted + failed, pipeline::toString),
+          () -> Assertions.assertEquals((calls.get() + 1) / 2, failed, pipeline::toString),
+          () -> Assertions.assertTrue(emitted > 0, pipeline::toString));
+    }
+  }
+
+  /**
+   * Tests finding only some of the links with filters and limits.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class R_QueryTests {
+
+    /** Href values with every kind of scheme, host and path the filters look at. */
+    private final String[] hrefs = {"x.html", "../docs/y.html", "/docs/z.html", "/other/z.html",
+        "/docs", "/docs/a%20b.html", "/docs/a b.html", "/docs/./c.html", "/docs/../d.html", "?q=1",
+        "#top", "", "//www.example.com/docs/e.html", "//WWW.EXAMPLE.COM:8080/docs/f.html",
+        "//other.com/docs/g.html", "//www.example.com", "http://www.example.com/docs/h.html",
+        "https://www.example.com/docs/i.html?q=1", "HTTPS://www.Example.com/other/j.html",
+        "https://other.com/docs/k.html", "http://user@www.example.com/docs/l.html",
+        "http:/docs/m.html", "mailto:a@b.com", "javascript:alert(1)", "/docs/&amp;n.html",
+        " /docs/o.html ", "\u00e9/p.html", "/d\u00e9cs/q.html", "url:http://other.com/"};
+
+    /** Filters with every combination of parts. */
+    private final List<LinkFilter> filters = List.of(LinkFilter.ANY, LinkFilter.scheme("https"),
+        LinkFilter.scheme("HTTP"), LinkFilter.host("www.example.com"), LinkFilter.host("OTHER.com"),
+        LinkFilter.pathPrefix("/docs/"), LinkFilter.pathPrefix("/"), LinkFilter.pathPrefix("/d%C3"),
+        LinkFilter.host("www.example.com").withPathPrefix("/docs/"),
+        LinkFilter.scheme("https").withHost("www.example.com").withPathPrefix("/other/"));
+
+    /**
+     * Creates html with an anchor for each of the href values in a random order.
+     *
+     * @param random the source of randomness
+     * @return the html
+     */
+    private String generate(Random random) {
+      StringBuilder html = new StringBuilder();
+
+      for (int i = random.nextInt(20); i > 0; i--) {
+        html.append("<p><a href=\"").append(hrefs[random.nextInt(hrefs.length)]).append("\">");
+      }
+
+      return html.toString();
+    }
+
+    /**
+     * Tests filters and limits find exactly the same links as filtering the full list, for text
+     * and for bytes, against bases that are and are not resolved against quickly.
+     *
+     * @throws MalformedURLException if unable to create the urls
+     */
+    @Test
+    @Order(1)
+    public void testSame() throws MalformedURLException {
+      List<URL> bases = List.of(new URL("https://www.example.com/docs/index.html"),
+          new URL("http://other.com/"), new URL("https://www.example.com:443/docs/"));
+      LinkExtractor extractor = new LinkExtractor();
+      Random random = new Random(24);
+
+      for (int i = 0; i < 2000; i++) {
+        URL base = bases.get(random.nextInt(bases.size()));
+        String html = generate(random);
+        LinkFilter filter = filters.get(random.nextInt(filters.size()));
+        int limit = 1 + random.nextInt(5);
+
+        List<Link> all = LinkParser.parseLinks(base, html).stream().filter(filter)
+            .collect(Collectors.toList());
+        ByteBuffer bytes = ByteBuffer.wrap(html.getBytes(StandardCharsets.UTF_8));
+        String debug = base + " " + filter + " " + html;
+
+        Assertions.assertEquals(all.subList(0, Math.min(limit, all.size())),
+            LinkParser.parseLinks(base, html, filter, limit), debug);
+        Assertions.assertEquals(all.subList(0, Math.min(limit, all.size())),
+            extractor.parseLinks(base, bytes, StandardCharsets.UTF_8, filter, limit), debug);
+        Assertions.assertEquals(all.size(), LinkParser.countLinks(base, html, filter), debug);
+        Assertions.assertEquals(all.size(),
+            extractor.countLinks(base, bytes, StandardCharsets.UTF_8, filter), debug);
+        Assertions.assertEquals(all.isEmpty() ? null : all.get(0),
+            LinkParser.firstLink(base, html, filter), debug);
+      }
+    }
+
+    /**
+     * Tests values are only rejected before they are resolved when they can never match.
+     *
+     * @throws MalformedURLException if unable to create the url
+     */
+    @Test
+    @Order(2)
+    public void testMayMatch() throws MalformedURLException {
+      LinkResolver resolver = new LinkResolver(new URL("https://www.example.com/docs/"), null);
+      LinkFilter filter = LinkFilter.host("www.example.com").withPathPrefix("/docs/");
+      String[] rejected = {"https://other.com/docs/", "//other.com/docs/", "/other/x.html",
+          "mailto:a@b.com", "javascript:x", "http://www.example.com/"};
+      String[] unsure = {"x.html", "../x.html", "/docs/../x.html", "/%64ocs/x.html", "&#47;docs",
+          "http://user@other.com/"};
+
+      for (String href : rejected) {
+        Assertions.assertFalse(resolver.mayMatch(href, 0, href.length(), filter), href);
+      }
+
+      for (String href : unsure) {
+        Assertions.assertTrue(resolver.mayMatch(href, 0, href.length(), filter), href);
+      }
+
+      Assertions.assertFalse(resolver.mayMatch("http://a.com/", 0, 13, LinkFilter.scheme("https")));
+    }
+
+    /**
+     * Tests scanning stops at the anchor tag with the last link needed.
+     *
+     * @throws MalformedURLException if unable to create the url
+     */
+    @Test
+    @Order(3)
+    public void testStops() throws MalformedURLException {
+      URL base = new URL("https://www.example.com/");
+      String head = "<a href=/a.html><a href=//other.com/b.html>";
+      String html = head + "<a href=/c.html>".repeat(1000);
+      int[] read = {0};
+
+      CharSequence tracked = new CharSequence() {
+        @Override
+        public char charAt(int index) {
+          read[0] = Math.max(read[0], index);
+          return html.charAt(index);
+        }
+
+        @Override
+        public int length() {
+          return html.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+          return html.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+          return html;
+        }
+      };
+
+      LinkExtractor extractor = new LinkExtractor();
+      Link first = extractor.firstLink(base, tracked, LinkFilter.host("other.com"));
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(new Link("https://other.com/b.html"), first),
+          () -> Assertions.assertTrue(read[0] < head.length(), () -> Integer.toString(read[0])),
+          () -> Assertions.assertEquals(1002, extractor.countLinks(base, html, null)),
+          () -> Assertions.assertEquals(1001,
+              extractor.countLinks(base, html, LinkFilter.host("www.example.com"))),
+          () -> Assertions.assertEquals(3, LinkParser.listLinks(base, html, 3).size()),
+          () -> Assertions.assertNull(extractor.firstLink(base, html, LinkFilter.scheme("ftp"))),
+          () -> Assertions.assertThrows(IllegalArgumentException.class,
+              () -> extractor.parseLinks(base, html, null, 0)),
+          () -> Assertions.assertFalse(extractor.isBusy()));
+    }
+
+    /**
+     * Tests filters applied to resolved links.
+     */
+    @Test
+    @Order(4)
+    public void testFilter() {
+      Link link = new Link("https://WWW.example.com/docs/a.html?q=1");
+
+      Assertions.assertAll(
+          () -> Assertions.assertTrue(LinkFilter.ANY.test(link)),
+          () -> Assertions.assertTrue(LinkFilter.scheme("HTTPS").test(link)),
+          () -> Assertions.assertFalse(LinkFilter.scheme("http").test(link)),
+          () -> Assertions.assertTrue(LinkFilter.host("www.EXAMPLE.com").test(link)),
+          () -> Assertions.assertTrue(LinkFilter.pathPrefix("/docs/a").test(link)),
+          () -> Assertions.assertFalse(LinkFilter.pathPrefix("/docs/a.html?").test(link)),
+          () -> Assertions.assertFalse(
+              LinkFilter.host("www.example.com").withScheme("http").test(link)));
+    }
+  }
+
+  /**
+   * Tests the lazy stream, iterator and spliterator of links.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  public class S_StreamTests {
+
+    /** Pieces of html, including anchors without links and anchors that are not scanned. */
+    private final String[] parts = {"<a href=x.html>", "<a href=\"../y.html#z\">", "<p>text</p>",
+        "<A HREF='https://other.com/a b'>", "<a href=mailto:a@b.com>", "<!-- <a href=c.html> -->",
+        "<script><a href=d.html></script>", "<a href=&#47;e.html>", "<a href=\"\u00e9.html\">",
+        "<a\n href=\n//www.example.com/f.html\n>", "<a href=\"unclosed"};
+
+    /** The base url of every page. */
+    private final URL base;
+
+    /**
+     * Initializes the base url.
+     *
+     * @throws MalformedURLException if unable to create the url
+     */
+    public S_StreamTests() throws MalformedURLException {
+      base = new URL("https://www.example.com/docs/index.html");
+    }
+
+    /**
+     * Creates html made of random pieces.
+     *
+     * @param random the source of randomness
+     * @param pieces the number of pieces
+     * @return the html
+     */
+    private String generate(Random random, int pieces) {
+      StringBuilder html = new StringBuilder();
+
+      for (int i = 0; i < pieces; i++) {
+        html.append(parts[random.nextInt(parts.length)]);
+      }
+
+      return html.toString();
+    }
+
+    /**
+     * Returns a reader that never returns more than a few characters at a time.
+     *
+     * @param html the html to read
+     * @return the reader
+     */
+    private Reader trickle(String html) {
+      return new Reader() {
+        private int position = 0;
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+          if (position == html.length()) {
+            return -1;
+          }
+
+          int read = Math.min(Math.min(length, 7), html.length() - position);
+          html.getChars(position, position + read, buffer, offset);
+          position += read;
+          return read;
+        }
+
+        @Override
+        public void close() {
+        }
+      };
+    }
+
+    /**
+     * Tests streams and iterators find the same links as a full parse, for text, bytes and
+     * readers, and that parallel streams keep the order of the links.
+     */
+    @Test
+    @Order(1)
+    public void testSame() {
+      Random random = new Random(25);
+
+      for (int i = 0; i < 500; i++) {
+        String html = generate(random, random.nextInt(i < 450 ? 20 : 3000));
+        ArrayList<Link> expected = LinkParser.parseLinks(base, html);
+        ByteBuffer bytes = ByteBuffer.wrap(html.getBytes(StandardCharsets.UTF_8));
+        ArrayList<Link> iterated = new ArrayList<>();
+        LinkParser.iterateLinks(base, html).forEachRemaining(iterated::add);
+        String debug = html.length() > 500 ? html.substring(0, 500) : html;
+
+        Assertions.assertEquals(expected,
+            LinkParser.streamLinks(base, html).collect(Collectors.toList()), debug);
+        Assertions.assertEquals(expected,
+            LinkParser.streamLinks(base, bytes, StandardCharsets.UTF_8)
+                .collect(Collectors.toList()), debug);
+        Assertions.assertEquals(expected,
+            LinkParser.streamLinks(base, trickle(html)).collect(Collectors.toList()), debug);
+        Assertions.assertEquals(expected, iterated, debug);
+        Assertions.assertEquals(expected,
+            LinkParser.streamLinks(base, html).parallel().collect(Collectors.toList()), debug);
+        Assertions.assertEquals(0, bytes.position());
+      }
+    }
+
+    /**
+     * Tests the html is only scanned as far as needed for the links pulled.
+     */
+    @Test
+    @Order(2)
+    public void testLazy() {
+      String head = "<a href=mailto:a@b.com><a href=a.html><a href=https://other.com/>";
+      String html = head + "<p><a href=b.html></p>".repeat(10000);
+      int[] read = {0};
+
+      CharSequence tracked = new CharSequence() {
+        @Override
+        public char charAt(int index) {
+          read[0] = Math.max(read[0], index);
+          return html.charAt(index);
+        }
+
+        @Override
+        public int length() {
+          return html.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+          return html.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+          return html;
+        }
+      };
+
+      Spliterator<Link> links = new LinkSpliterator(base, tracked);
+      Link[] found = new Link[1];
+
+      Assertions.assertTrue(links.tryAdvance(link -> found[0] = link));
+      Assertions.assertEquals(new Link("https://www.example.com/docs/a.html"), found[0]);
+      Assertions.assertTrue(read[0] < head.indexOf("https"), () -> Integer.toString(read[0]));
+
+      Assertions.assertTrue(links.tryAdvance(link -> found[0] = link));
+      Assertions.assertEquals(new Link("https://other.com/"), found[0]);
+      Assertions.assertTrue(read[0] < head.length(), () -> Integer.toString(read[0]));
+
+      int[] chars = {0};
+      Reader reader = new StringReader(html) {
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+          int count = super.read(buffer, offset, length);
+          chars[0] += Math.max(count, 0);
+          return count;
+        }
+      };
+
+      Assertions.assertEquals(5, LinkParser.streamLinks(base, reader).limit(5).count());
+      Assertions.assertEquals(AnchorScanner.BUFFER_SIZE, chars[0]);
+    }
+
+    /**
+     * Tests splitting off batches that are prefixes of the remaining links.
+     */
+    @Test
+    @Order(3)
+    public void testSplit() {
+      String html = generate(new Random(26), 5000);
+      ArrayList<Link> expected = LinkParser.parseLinks(base, html);
+      Spliterator<Link> links = new LinkSpliterator(base, html);
+      ArrayList<Link> actual = new ArrayList<>();
+
+      Assertions.assertTrue(links.hasCharacteristics(Spliterator.ORDERED | Spliterator.NONNULL));
+      Assertions.assertFalse(links.hasCharacteristics(Spliterator.SIZED));
+
+      Spliterator<Link> first = links.trySplit();
+      Spliterator<Link> half = first.trySplit();
+
+      Assertions.assertEquals(LinkSpliterator.BATCH_UNIT / 2, half.estimateSize());
+      half.forEachRemaining(actual::add);
+      first.forEachRemaining(actual::add);
+      links.tryAdvance(actual::add);
+      links.trySplit().forEachRemaining(actual::add);
+      links.forEachRemaining(actual::add);
+
+      Assertions.assertAll(
+          () -> Assertions.assertEquals(expected, actual),
+          () -> Assertions.assertEquals(0, links.estimateSize()),
+          () -> Assertions.assertNull(links.trySplit()),
+          () -> Assertions.assertFalse(links.tryAdvance(link -> { })));
+    }
+  }
+
+  /**
+   * Tests parsing a corpus of HTML files on disk.
+   */
+  @Nested
+  @TestMethodOrder(OrderAnnotation.class)
+  @TestInstance(Lifecycle.PER_CLASS)
+  public class T_CorpusTests {
+
+    /** The base url of the corpus. */
+    private URL rootBase;
+
+    /** The directory of the corpus. */
+    private Path root;
+
+    /** The links expected in each html file. */
+    private final Map<Path, List<Link>> expected = new HashMap<>();
+
+    /**
+     * Creates html of exactly the provided size in UTF-8 bytes, with anchors (and multibyte
+     * characters) spread throughout so that some cross every boundary.
+     *
+     * @param random the source of randomness
+     * @param size the size in bytes
+     * @return the html
+     */
+    private String generate(Random random, int size) {
+      String[] parts = {"<a href=\"x.html\">", "<a href='../y.htm#z'>",
+          "<p>caf\u00e9 \ud83d\ude00</p>",
+          "<a href=\"https://other.com/\u00e9t\u00e9\">", "<a\n href=\n/abs/\u00e9.html>",
+          "<a href=\"mailto:a@b.com\">", "<!-- <a href=skipped.html> -->", "<p>text</p>\n"};
+      StringBuilder html = new StringBuilder();
+      int bytes = 0;
+
+      while (true) {
+        String part = parts[random.nextInt(parts.length)];
+        int length = part.getBytes(StandardCharsets.UTF_8).length;
+
+        if (bytes + length > size) {
+          break;
+        }
+
+        html.append(part);
+        bytes += length;
+      }
+
+      return html.append(" ".repeat(size - bytes)).toString();
+    }
+
+    /**
+     * Writes a small file, a file just below the mapping threshold, a large file that is mapped
+     * and a file that is not html.
+     *
+     * @throws IOException if unable to write the files
+     */
+    @BeforeAll
+    public void setup() throws IOException {
+      rootBase = new URL("https://www.example.com/corpus/");
+      root = Files.createTempDirectory("linkparser");
+      Random random = new Random(4);
+      Map<String, Integer> sizes = Map.of("small.html", 2000,
+          "sub/medium.HTM", CorpusLinkParser.MAP_THRESHOLD - 1, "sub/deep/large.html", 300000);
+
+      for (Map.Entry<String, Integer> entry : sizes.entrySet()) {
+        Path file = root.resolve(entry.getKey());
+        String html = generate(random, entry.getValue());
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, html, StandardCharsets.UTF_8);
+        expected.put(file, LinkParser.parseLinks(new URL(rootBase, entry.getKey()), html));
+      }
+
+      Files.writeString(root.resolve("sub/notes.txt"), "<a href=\"notes.html\">");
+    }
+
+    /**
+     * Deletes the corpus.
+     *
+     * @throws IOException if unable to delete the files
+     */
+    @AfterAll
+    public void cleanup() throws IOException {
+      try (Stream<Path> paths = Files.walk(root)) {
+        for (Path path : paths.sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList())) {
+          Files.delete(path);
+        }
+      }
+    }
+
+    /**
+     * Tests every html file is found with the same links as parsing its text, whether read or
+     * mapped, and whether mapped all at once or in regions that split anchors and characters.
+     *
+     * @throws IOException if unable to parse the corpus
+     */
+    @Test
+    @Order(1)
+    public void testFiles() throws IOException {
+      long bytes = 0;
+      long links = 0;
+
+      for (Map.Entry<Path, List<Link>> entry : expected.entrySet()) {
+        bytes += Files.size(entry.getKey());
+        links += entry.getValue().size();
+      }
+
+      for (long region : new long[] {CorpusLinkParser.REGION_SIZE, 4099, 61}) {
+        Map<Path, List<Link>> actual = new HashMap<>();
+        CorpusLinkParser parser = new CorpusLinkParser(StandardCharsets.UTF_8,
+            (file, link) -> actual.computeIfAbsent(file, key -> new ArrayList<>()).add(link),
+            region);
+        parser.parse(root, rootBase);
+
+        String debug = region + ": " + parser;
+        Assertions.assertEquals(expected, actual, debug);
+        Assertions.assertEquals(3, parser.getFiles(), debug);
+        Assertions.assertEquals(0, parser.getFailed(), debug);
+        Assertions.assertEquals(bytes, parser.getBytes(), debug);
+        Assertions.assertEquals(links, parser.getLinks(), debug);
+      }
+    }
+
+    /**
+     * Tests the tab-separated output, and that a single file without a base url only has the
+     * links it would have relative to its file url.
+     *
+     * @throws IOException if unable to parse the corpus
+     */
+    @Test
+    @Order(2)
+    public void testOutput() throws IOException {
+      StringWriter writer = new StringWriter();
+      CorpusLinkParser.write(writer, StandardCharsets.UTF_8, rootBase, List.of(root));
+      Map<Path, List<Link>> actual = new HashMap<>();
+
+      for (String line : writer.toString().split("\n")) {
+        String[] parts = line.split("\t");
+        Assertions.assertEquals(2, parts.length, line);
+        actual.computeIfAbsent(Path.of(parts[0]), key -> new ArrayList<>())
+            .add(new Link(parts[1]));
+      }
+
+      Assertions.assertEquals(expected, actual);
+
+      Path small = root.resolve("small.html");
+      List<Link> links = new ArrayList<>();
+      new CorpusLinkParser(StandardCharsets.UTF_8, (file, link) -> links.add(link))
+          .parse(small, null);
+
+      Assertions.assertEquals(LinkParser.parseLinks(small.toUri().toURL(),
+          Files.readString(small, StandardCharsets.UTF_8)), links);
+    }
+
+    /**
+     * Tests a single file given by its name alone is still resolved against the base url.
+     *
+     * @throws IOException if unable to parse the file
+     */
+    @Test
+    @Order(3)
+    public void testRelativeFile() throws IOException {
+      Path file = Files.createTempFile(Path.of(""), "corpus", ".html");
+
+      try {
+        String html = generate(new Random(5), 2000);
+        Files.writeString(file, html, StandardCharsets.UTF_8);
+        Assertions.assertNull(file.getParent(), file.toString());
+
+        StringWriter writer = new StringWriter();
+        CorpusLinkParser.write(writer, StandardCharsets.UTF_8, rootBase, List.of(file));
+        List<Link> links = new ArrayList<>();
+
+        for (String line : writer.toString().split("\n")) {
+          String[] parts = line.split("\t");
+          Assertions.assertEquals(file.toString(), parts[0], line);
+          links.add(new Link(parts[1]));
+        }
+
+        Assertions.assertEquals(LinkParser.parseLinks(new URL(rootBase, file.toString()), html),
+            links);
+      } finally {
+        Files.delete(file);
+      }
+    }
+  }
+
+  /**
+   * Helper method to get the expected URLs from a remote webpage.
+   *
+   * @return list of expected URLs
+   * @throws MalformedURLException if unable to create URLs
+   */
+  public static final List<URL> getBirdURLs() throws MalformedURLException {
+    return List.of(
+        new URL("https://www.cs.usfca.edu/~cs212/birds/albatross.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/blackbird.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/bluebird.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/cardinal.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/chickadee.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/crane.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/crow.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/cuckoo.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/dove.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/duck.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/eagle.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/egret.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/falcon.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/finch.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/goose.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/gull.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/hawk.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/heron.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/hummingbird.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/ibis.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/kingfisher.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/loon.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/magpie.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/mallard.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/meadowlark.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/mockingbird.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/nighthawk.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/osprey.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/owl.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/pelican.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/pheasant.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/pigeon.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/puffin.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/quail.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/raven.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/roadrunner.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/robin.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/sandpiper.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/sparrow.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/starling.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/stork.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/swallow.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/swan.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/tern.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/turkey.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/vulture.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/warbler.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/woodpecker.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/wren.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/yellowthroat.html"),
+        new URL("https://www.cs.usfca.edu/~cs212/birds/birds.html"));
+  }
+
+  /**
+   * Helper method to get the expected URLs from a remote webpage.
+   *
+   * @return list of expected URLs
+   * @throws MalformedURLException if unable to create URLs
+   */
+  public static List<URL> getGutenURLs() throws MalformedURLException {
+    return List.of(
+        new URL("https://www.cs.usfca.edu/~cs212/guten/1400-h/1400-h.htm"),
+        new URL("https://www.cs.usfca.edu/~cs212/guten/50468-h/50468-h.htm"),
+        new URL("https://www.cs.usfca.edu/~cs212/guten/1228-h/1228-h.htm"),
+        new URL("https://www.cs.usfca.edu/~cs212/guten/1322-h/1322-h.htm"),
+        new URL("https://www.cs.usfca.edu/~cs212/guten/1661-h/1661-h.htm"),
+        new URL("https://www.cs.usfca.edu/~cs212/guten/22577-h/22577-h.htm"),
+        new URL("https://www.cs.usfca.edu/~cs212/guten/37134-h/37134-h.htm"));
+  }
+
+  /**
+   * Helper method to get the HTML from a URL. (Cannot be used for projects.) The local copy of the
+   * page in the fixtures directory is used unless the remote pages were asked for, so the network
+   * is never used by default.
+   *
+   * @param url the url to fetch
+   * @return the HTML as a String object
+   * @throws IOException if unable to read stream, or there is no local copy of the page
+   *
+   * @see #FIXTURES
+   * @see #REMOTE
+   */
+  public static String getHTML(URL url) throws IOException {
+    if (!REMOTE) {
+      Path fixture = FIXTURES.resolve(url.getHost() + url.getPath());
+
+      if (!Files.isReadable(fixture)) {
+        throw new FileNotFoundException("No local copy of " + url + " at " + fixture
+            + "; see test/fixtures/pages.txt, or fetch the page with -Dlinkparser.remote=true.");
+      }
+
+      return CharsetSniffer.decode(Files.readAllBytes(fixture), null);
+    }
+
+    URLConnection connection = url.openConnection();
+
+    try (InputStream input = connection.getInputStream()) {
+      Charset hint = CharsetSniffer.fromContentType(connection.getContentType());
+      return CharsetSniffer.decode(input.readAllBytes(), hint);
+    }
+  }
+}